@@ -100,6 +100,11 @@ import { contrastingForeground } from '../../utils/color.util';
               </div>
             }
           </div>
+          @if (nextCursor) {
+            <button class="btn btn-outline" (click)="loadMoreTestCases()">
+              Load more
+            </button>
+          }
         }
     
         @if (testCases.length === 0) {
@@ -119,6 +124,7 @@ import { contrastingForeground } from '../../utils/color.util';
 export class TestPlanDetailComponent implements OnInit {
   testPlan?: TestPlan;
   testCases: TestCase[] = [];
+  nextCursor?: string;
   testPlanId!: number;
   previousQueryParams: any = {};
 
@@ -150,7 +156,20 @@ export class TestPlanDetailComponent implements OnInit {
 
   loadTestCases() {
     this.testPlanService.getTestCases(this.testPlanId).subscribe({
-      next: (testCases) => this.testCases = testCases,
+      next: (page) => {
+        this.testCases = page.items;
+        this.nextCursor = page.nextCursor;
+      },
+      error: (error) => console.error('Error loading test cases:', error)
+    });
+  }
+
+  loadMoreTestCases() {
+    this.testPlanService.getTestCases(this.testPlanId, this.nextCursor).subscribe({
+      next: (page) => {
+        this.testCases = [...this.testCases, ...page.items];
+        this.nextCursor = page.nextCursor;
+      },
       error: (error) => console.error('Error loading test cases:', error)
     });
   }
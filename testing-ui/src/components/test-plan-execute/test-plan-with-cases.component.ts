@@ -125,6 +125,7 @@ import { FormsModule } from '@angular/forms';
                 </div>
                 <div class="execution-notes">{{ ex.resultNotes }}</div>
               </div>
+              <button *ngIf="executionsCursor" class="btn btn-outline" (click)="loadMoreExecutions()">Load more</button>
             </div>
           </div>
 
@@ -222,6 +223,7 @@ export class TestPlanWithCasesComponent implements OnInit {
   previousQueryParams: any = {};
   collapsedMap = new Map<number, boolean>();
   executions: TestPlanExecution[] = [];
+  executionsCursor?: string;
   @ViewChild('execDialog') execDialog!: ElementRef<HTMLDialogElement>;
   @ViewChild('confirmDialog') confirmDialog!: ElementRef<HTMLDialogElement>;
   editingExecution?: TestPlanExecution;
@@ -243,7 +245,20 @@ export class TestPlanWithCasesComponent implements OnInit {
 
   loadExecutions() {
     this.testPlanService.getExecutions(this.testPlanId).subscribe({
-      next: (list) => this.executions = list,
+      next: (page) => {
+        this.executions = page.items;
+        this.executionsCursor = page.nextCursor;
+      },
+      error: (err) => console.error('Error loading executions:', err)
+    });
+  }
+
+  loadMoreExecutions() {
+    this.testPlanService.getExecutions(this.testPlanId, this.executionsCursor).subscribe({
+      next: (page) => {
+        this.executions = [...this.executions, ...page.items];
+        this.executionsCursor = page.nextCursor;
+      },
       error: (err) => console.error('Error loading executions:', err)
     });
   }
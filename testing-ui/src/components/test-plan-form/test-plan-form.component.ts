@@ -1,9 +1,10 @@
-import { Component, OnInit } from '@angular/core';
+import { Component, OnDestroy, OnInit } from '@angular/core';
 
 import { FormsModule } from '@angular/forms';
 import { Router, ActivatedRoute } from '@angular/router';
-import { TestPlan } from '../../models/test-plan.model';
+import { TestPlan, TestTag } from '../../models/test-plan.model';
 import { TestPlanService } from '../../services/test-plan.service';
+import { Subject, Subscription, debounceTime, distinctUntilChanged, switchMap } from 'rxjs';
 
 @Component({
   selector: 'app-test-plan-form',
@@ -66,15 +67,23 @@ import { TestPlanService } from '../../services/test-plan.service';
               <input
                 type="text"
                 [(ngModel)]="testPlan.tagList[i].tag"
+                (ngModelChange)="tagInput.next($event)"
                 name="tag-{{i}}"
                 class="form-control"
                 placeholder="Enter tag"
+                list="tag-suggestions"
+                autocomplete="off"
                 />
               @if (testPlan.tagList.length > 0) {
                 <button type="button" (click)="removeTag(i)" class="btn btn-sm btn-outline-danger">Remove</button>
               }
             </div>
           }
+          <datalist id="tag-suggestions">
+            @for (suggestion of tagSuggestions; track suggestion.id) {
+              <option [value]="suggestion.tag"></option>
+            }
+          </datalist>
           <button type="button" (click)="addTag()" class="btn btn-outline-primary btn-sm">Add Tag</button>
         </div>
     
@@ -90,7 +99,7 @@ import { TestPlanService } from '../../services/test-plan.service';
     </div>
     `
 })
-export class TestPlanFormComponent implements OnInit {
+export class TestPlanFormComponent implements OnInit, OnDestroy {
   testPlan: TestPlan = {
     name: '',
     description: '',
@@ -101,6 +110,11 @@ export class TestPlanFormComponent implements OnInit {
   testPlanId?: number;
   previousQueryParams: any = {};
 
+  // Existing tags matching what is being typed
+  tagInput = new Subject<string>();
+  tagSuggestions: TestTag[] = [];
+  private tagSubscription?: Subscription;
+
   constructor(
     private testPlanService: TestPlanService,
     private router: Router,
@@ -115,6 +129,19 @@ export class TestPlanFormComponent implements OnInit {
     if (this.isEditMode) {
       this.loadTestPlan();
     }
+
+    this.tagSubscription = this.tagInput.pipe(
+      debounceTime(200),
+      distinctUntilChanged(),
+      switchMap(prefix => this.testPlanService.suggestTags(prefix.trim()))
+    ).subscribe({
+      next: (tags) => this.tagSuggestions = tags,
+      error: (error) => console.error('Error loading tag suggestions:', error)
+    });
+  }
+
+  ngOnDestroy() {
+    this.tagSubscription?.unsubscribe();
   }
 
   addTag() {
@@ -1,7 +1,7 @@
-import { Component, OnInit, signal, computed, effect } from '@angular/core';
+import { Component, OnInit, OnDestroy, signal, computed, effect } from '@angular/core';
 
 import { ActivatedRoute, Router } from '@angular/router';
-import { TestPlan } from '../../models/test-plan.model';
+import { TestPlan, TestPlanSearchHit } from '../../models/test-plan.model';
 import { TestPlanService } from '../../services/test-plan.service';
 import { FormsModule } from '@angular/forms';
 import { contrastingForeground, tagToColor } from '../../utils/color.util';
@@ -9,6 +9,7 @@ import { ReportWidgetComponent } from '../report-widget/report-widget.component'
 import { bootstrapApplication } from '@angular/platform-browser';
 import { provideAnimations } from '@angular/platform-browser/animations';
 import { CommonModule } from '@angular/common';
+import { Subject, Subscription, debounceTime, distinctUntilChanged, map, switchMap } from 'rxjs';
 import { CdkDrag, CdkDropList, DragDropModule, CdkDragDrop, moveItemInArray, transferArrayItem } from '@angular/cdk/drag-drop';
 import { WeatherWidgetComponent } from '../misc-widgets/weather-widget.component';
 import { StatsWidgetComponent } from '../misc-widgets/stats-widget.component';
@@ -191,15 +192,55 @@ import { NotesWidgetComponent } from '../misc-widgets/notes-widget.component';
         <input
           type="text"
           [(ngModel)]="searchTerm"
-          (input)="filterTestPlans()"
-          placeholder="Filter by tag"
+          (ngModelChange)="searchTerms.next($event)"
+          placeholder="Search plans and test cases"
           class="form-control"
           />
-          <button class="btn btn-secondary" (click)="searchTerm = ''; filterTestPlans()">
+          @if (tagFilter) {
+            <span class="tag-badge" [style.backgroundColor]="tagToColor(tagFilter)" [style.color]="contrastingForeground(tagFilter)">
+              {{ tagFilter }}
+            </span>
+          }
+          <button class="btn btn-secondary" (click)="clearFilters()">
             Clear Filter
           </button>
         </div>
-    
+
+        @if (searchTerm.trim()) {
+          <div class="grid">
+            @for (hit of searchHits; track hit.id) {
+              <div class="card">
+                <div class="card-header">
+                  <h3>{{ hit.name }}</h3>
+                  <span class="status-badge" [class]="'status-' + hit.status?.toLowerCase()">
+                    {{ hit.status }}
+                  </span>
+                </div>
+                <div class="card-body">
+                  @if (hit.matchedIn === 'case') {
+                    <label>Matched in a test case</label>
+                  }
+                  <p [innerHTML]="hit.snippet"></p>
+                  <div class="card-actions">
+                    <button class="btn btn-secondary" (click)="viewTestPlan(hit.id)">
+                      View Details
+                    </button>
+                  </div>
+                </div>
+              </div>
+            }
+          </div>
+          @if (searchCursor) {
+            <div class="pagination">
+              <button class="btn btn-secondary" (click)="loadMoreSearchHits()">Load more</button>
+            </div>
+          }
+          @if (searchHits.length === 0) {
+            <div class="empty-state">
+              <h2>No matches</h2>
+            </div>
+          }
+        } @else {
         @if (testPlans.length > 0) {
           <div class="grid">
             @for (testPlan of testPlans; track testPlan) {
@@ -245,7 +286,7 @@ import { NotesWidgetComponent } from '../misc-widgets/notes-widget.component';
     
         <div class="pagination">
           <button class="btn btn-secondary" (click)="prevPage()" [disabled]="after == null && prev == null">Prev</button>
-          <span class="page-info">Showing up to {{ pageSize }} plans</span>
+          <span class="page-info">Showing up to {{ pageSize }} of {{ totalPlans ?? '?' }} plans</span>
           <button class="btn btn-secondary" (click)="nextPage()" [disabled]="!testPlans || testPlans.length < pageSize">Next</button>
         </div>
     
@@ -259,10 +300,11 @@ import { NotesWidgetComponent } from '../misc-widgets/notes-widget.component';
             </button>
           </div>
         }
+        }
       </div>
     `
 })
-export class TestPlanListComponent implements OnInit {
+export class TestPlanListComponent implements OnInit, OnDestroy {
   private readonly STORAGE_KEY = 'dashboard-state';
 
   // Grid state in percentages
@@ -306,7 +348,16 @@ export class TestPlanListComponent implements OnInit {
   listIds = ['palette', 'a', 'b', 'c', 'd'];
 
   testPlans: TestPlan[] = [];
+  totalPlans: number | null = null;
   searchTerm: string = '';
+  tagFilter: string = '';
+
+  // Full-text search: keystrokes are debounced, and a newer search cancels the request of an older one
+  searchTerms = new Subject<string>();
+  searchHits: TestPlanSearchHit[] = [];
+  searchCursor?: string;
+  private searches = new Subject<string>();
+  private subscriptions = new Subscription();
 
   // Keyset pagination state
   pageSize = 4; // limit
@@ -372,19 +423,42 @@ export class TestPlanListComponent implements OnInit {
   }
 
   ngOnInit() {
+    this.subscriptions.add(this.searchTerms.pipe(
+      map(term => term.trim()),
+      debounceTime(300),
+      distinctUntilChanged()
+    ).subscribe(() => this.filterTestPlans()));
+
+    this.subscriptions.add(this.searches.pipe(
+      switchMap(q => this.testPlanService.searchTestPlans(q, undefined, this.pageSize))
+    ).subscribe({
+      next: (page) => {
+        this.searchHits = page.items;
+        this.searchCursor = page.nextCursor;
+      },
+      error: (error) => console.error('Error searching test plans:', error)
+    }));
+
     // Subscribe to query params to handle browser navigation & reload
-    this.route.queryParams.subscribe(params => {
+    this.subscriptions.add(this.route.queryParams.subscribe(params => {
       // Set defaults or use from params
       this.pageSize = +params['per'] || 4;
-      this.searchTerm = params['filter'] || '';
+      this.tagFilter = params['filter'] || '';
+      const q = params['q'] || '';
+      if (q !== this.searchTerm.trim()) this.searchTerm = q;
       const afterParam = params['after'];
       const prevParam = params['prev'];
       this.after = afterParam != null ? Number(afterParam) : null;
       this.prev = prevParam != null ? Number(prevParam) : null;
 
-      // Load plans for current cursor
-      this.loadTestPlans();
-    });
+      // Load plans for current cursor, or the search results
+      if (q) {
+        this.searches.next(q);
+      } else {
+        this.loadTestPlans();
+      }
+    }));
+
     try {
       const raw = localStorage.getItem('dashboardWidget');
       if (raw) {
@@ -511,25 +585,14 @@ export class TestPlanListComponent implements OnInit {
         after: this.after != null ? this.after : undefined,
         prev: this.prev != null ? this.prev : undefined,
         per: this.pageSize,
-        filter: this.searchTerm || undefined
+        filter: this.tagFilter || undefined,
+        q: this.searchTerm.trim() || undefined
       },
       queryParamsHandling: 'merge',
       replaceUrl: true
     });
   }
 
-  loadTestPlanCount() {
-    this.testPlanService.getTestPlanCount(this.searchTerm).subscribe({
-      next: (count) => {
-        // We keep count for informational purposes but keyset pagination doesn't use offsets
-        // Show only next/prev controls
-        // (no change to cursor stack here)
-        this.loadTestPlans();
-      },
-      error: (error) => console.error('Error loading test plan count:', error)
-    });
-  }
-
   filterTestPlans() {
     this.after = null;
     this.prev = null;
@@ -537,13 +600,35 @@ export class TestPlanListComponent implements OnInit {
   }
 
   public setSearchPlanFilter(tag: string) {
-    this.searchTerm = tag;
+    this.tagFilter = tag;
     // reset keyset pagination and update
     this.after = null;
     this.prev = null;
     this.updateQueryParams();
   }
 
+  clearFilters() {
+    this.searchTerm = '';
+    this.tagFilter = '';
+    this.searchTerms.next('');
+    this.filterTestPlans();
+  }
+
+  loadMoreSearchHits() {
+    if (!this.searchCursor) return;
+    this.testPlanService.searchTestPlans(this.searchTerm.trim(), this.searchCursor, this.pageSize).subscribe({
+      next: (page) => {
+        this.searchHits = [...this.searchHits, ...page.items];
+        this.searchCursor = page.nextCursor;
+      },
+      error: (error) => console.error('Error searching test plans:', error)
+    });
+  }
+
+  ngOnDestroy() {
+    this.subscriptions.unsubscribe();
+  }
+
   private resetPagination() {
     this.prev = null;
     this.after = null;
@@ -552,9 +637,10 @@ export class TestPlanListComponent implements OnInit {
 
 
   loadTestPlans() {
-    this.testPlanService.getTestPlans(this.after ?? undefined, this.pageSize, this.searchTerm).subscribe({
-      next: (plans) => {
-        this.testPlans = plans;
+    this.testPlanService.getTestPlanPage(this.after ?? undefined, this.pageSize, this.tagFilter).subscribe({
+      next: (page) => {
+        this.testPlans = page.items;
+        this.totalPlans = page.total;
       },
       error: (error) => console.error('Error loading test plans:', error)
     });
@@ -32,3 +32,28 @@ export interface TestCase {
 export interface TestPlanCount {
   count: number;
 }
+
+// One page of a cursor-paginated list; nextCursor is absent on the last page
+export interface Page<T> {
+  items: T[];
+  nextCursor?: string;
+}
+
+// One page of the plan list together with the number of plans matching the filter
+export interface TestPlanPage {
+  items: TestPlan[];
+  total: number;
+  nextCursor?: string;
+}
+
+// A plan found by full-text search; snippet is escaped HTML with the matched words in <mark>
+export interface TestPlanSearchHit {
+  id: number;
+  name: string;
+  description?: string;
+  status: string;
+  matchedIn: 'plan' | 'case';
+  testCaseId?: number;
+  snippet?: string;
+  score: number;
+}
@@ -1,5 +1,5 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpParams } from '@angular/common/http';
 import { Observable } from 'rxjs';
 
 @Injectable({ providedIn: 'root' })
@@ -11,4 +11,21 @@ export class ReportService {
   getDurationSumLastMonth(planId: number): Observable<any> {
     return this.http.get<any>(`${this.apiUrl}/reports/testplans/${planId}/duration-sum-last-month`);
   }
+
+  // Per-plan and per-tag totals for every plan with executions in the window, in one request.
+  getSummary(from?: string, to?: string, planIds?: number[]): Observable<any> {
+    let params = new HttpParams();
+    if (from) params = params.set('from', from);
+    if (to) params = params.set('to', to);
+    (planIds ?? []).forEach(id => params = params.append('planId', id));
+    return this.http.get<any>(`${this.apiUrl}/reports/testplans`, { params });
+  }
+
+  // Hourly or daily buckets of one plan, oldest first, for trend charts.
+  getRollups(planId: number, granularity: 'hour' | 'day' = 'day', from?: string, to?: string): Observable<any[]> {
+    let params = new HttpParams().set('granularity', granularity);
+    if (from) params = params.set('from', from);
+    if (to) params = params.set('to', to);
+    return this.http.get<any[]>(`${this.apiUrl}/reports/testplans/${planId}/rollups`, { params });
+  }
 }
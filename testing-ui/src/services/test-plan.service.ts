@@ -1,7 +1,7 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpParams, HttpResponse } from '@angular/common/http';
 import { map, Observable } from 'rxjs';
-import { TestPlan, TestCase, TestPlanCount } from '../models/test-plan.model';
+import { TestPlan, TestCase, TestPlanCount, TestPlanPage, Page, TestPlanSearchHit, TestTag } from '../models/test-plan.model';
 
 @Injectable({
   providedIn: 'root'
@@ -19,6 +19,23 @@ export class TestPlanService {
     return this.http.get<TestPlan[]>(`${this.apiUrl}/testplans?${afterPart}per=${per}&filter=${encodeURIComponent(filter || '')}`);
   }
 
+  // A page of plans and the total matching the filter, in one request
+  getTestPlanPage(after?: number, per = 20, filter?: string): Observable<TestPlanPage> {
+    const afterPart = after != null ? `after=${after}&` : '';
+    return this.http.get<TestPlanPage>(`${this.apiUrl}/testplans/page?${afterPart}per=${per}&filter=${encodeURIComponent(filter || '')}`);
+  }
+
+  // Full-text search over plan and test case text; the last word also matches as a prefix
+  searchTestPlans(q: string, cursor?: string, per?: number): Observable<Page<TestPlanSearchHit>> {
+    return this.getPage<TestPlanSearchHit>(`${this.apiUrl}/search/testplans`, cursor, per, undefined, { q });
+  }
+
+  // Tag autocomplete, served from the server's in-memory tag dictionary
+  suggestTags(prefix: string, limit = 10): Observable<TestTag[]> {
+    const params = new HttpParams({ fromObject: { prefix, limit } });
+    return this.http.get<TestTag[]>(`${this.apiUrl}/tags`, { params });
+  }
+
   getTestPlanWithCases(planId: number): Observable<TestPlan> {
     return this.http.get<TestPlan>(`${this.apiUrl}/testplans/${planId}/with-testcases`);
   }
@@ -46,8 +63,9 @@ export class TestPlanService {
   }
 
   // Test Case operations
-  getTestCases(planId: number): Observable<TestCase[]> {
-    return this.http.get<TestCase[]>(`${this.apiUrl}/testplans/${planId}/testcases`);
+  // Cursor pagination: pass the nextCursor of the previous page to get the following one
+  getTestCases(planId: number, cursor?: string, per?: number, sort?: string): Observable<Page<TestCase>> {
+    return this.getPage<TestCase>(`${this.apiUrl}/testplans/${planId}/testcases`, cursor, per, sort);
   }
 
   getTestCase(id: number): Observable<TestCase> {
@@ -67,8 +85,8 @@ export class TestPlanService {
   }
 
   // Test Plan Execution operations
-  getExecutions(planId: number): Observable<any[]> {
-    return this.http.get<any[]>(`${this.apiUrl}/testplans/${planId}/executions`);
+  getExecutions(planId: number, cursor?: string, per?: number, sort?: string): Observable<Page<any>> {
+    return this.getPage<any>(`${this.apiUrl}/testplans/${planId}/executions`, cursor, per, sort);
   }
 
   createExecution(planId: number, execution: any): Observable<any> {
@@ -82,4 +100,18 @@ export class TestPlanService {
   deleteExecution(id: number): Observable<void> {
     return this.http.delete<void>(`${this.apiUrl}/executions/${id}`);
   }
-}
\ No newline at end of file
+
+  private getPage<T>(url: string, cursor?: string, per?: number, sort?: string,
+                     extra: Record<string, string> = {}): Observable<Page<T>> {
+    let params = new HttpParams({ fromObject: extra });
+    if (cursor) params = params.set('cursor', cursor);
+    if (per != null) params = params.set('per', per);
+    if (sort) params = params.set('sort', sort);
+    return this.http.get<T[]>(url, { params, observe: 'response' }).pipe(
+      map((res: HttpResponse<T[]>) => ({
+        items: res.body ?? [],
+        nextCursor: res.headers.get('X-Next-Cursor') ?? undefined
+      }))
+    );
+  }
+}
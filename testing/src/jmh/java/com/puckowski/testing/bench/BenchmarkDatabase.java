@@ -0,0 +1,203 @@
+package com.puckowski.testing.bench;
+
+import com.puckowski.testing.TestingApplication;
+import com.puckowski.testing.db.SqliteSnapshot;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.report.ExecutionRollups;
+import com.puckowski.testing.tag.TagDictionary;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+
+/**
+ * The application context, without the web server, on a temporary SQLite file seeded with a fixed data set.
+ * The data is generated from a constant seed, so every run benchmarks the same rows.
+ * <p>
+ * Plan {@code n} (1-based) has {@link #casesPerPlan} test cases and {@link #tagsPerPlan} tags drawn from a
+ * pool of {@link #TAG_POOL} tags, the first few of which are far more common than the rest. Each plan with
+ * cases also has {@link #EXECUTIONS_PER_PLAN} finished executions in the last four weeks, inside the default
+ * report window, with a result for every case. Rollups and the report snapshot are brought up to date before
+ * {@link #start} returns.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    public static final int TAG_POOL = 50;
+    public static final int EXECUTIONS_PER_PLAN = 4;
+
+    private static final long SEED = 42;
+    private static final String[] STATUSES = {"PENDING", "PASSED", "FAILED", "BLOCKED"};
+    private static final String[] PRIORITIES = {"LOW", "MEDIUM", "HIGH"};
+    private static final String[] RESULTS = {"PASS", "PASS", "PASS", "PASS", "PASS", "PASS", "FAIL", "BLOCKED"};
+    private static final long DAY_MS = 24L * 3600 * 1000;
+
+    private final Path directory;
+    private final ConfigurableApplicationContext context;
+    private final int plans;
+    private final int casesPerPlan;
+    private final int tagsPerPlan;
+
+    private BenchmarkDatabase(Path directory, ConfigurableApplicationContext context, int plans, int casesPerPlan, int tagsPerPlan) {
+        this.directory = directory;
+        this.context = context;
+        this.plans = plans;
+        this.casesPerPlan = casesPerPlan;
+        this.tagsPerPlan = tagsPerPlan;
+    }
+
+    /**
+     * Starts the application on a new database and seeds it. Caches are on as configured; benchmarks that
+     * want the uncached path call through {@link #target}.
+     */
+    public static BenchmarkDatabase start(int plans, int casesPerPlan, int tagsPerPlan) throws IOException, SQLException {
+        Path directory = Files.createTempDirectory("testing-jmh");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TestingApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "sqlite.pool.url=jdbc:sqlite:" + directory.resolve("bench.sqlite"),
+                        "sqlite.snapshot.path=" + directory.resolve("bench-snapshot"),
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+        BenchmarkDatabase database = new BenchmarkDatabase(directory, context, plans, casesPerPlan, tagsPerPlan);
+        database.seed();
+        // Reports read the rollups from the snapshot, and the seed went around both
+        database.bean(ExecutionRollups.class).rebuild();
+        database.bean(SqliteSnapshot.class).refresh();
+        return database;
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * The bean behind its proxy, so calls skip {@code @Cacheable} and always reach SQLite.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T target(Class<T> type) {
+        T bean = bean(type);
+        Object target = AopProxyUtils.getSingletonTarget(bean);
+        return target == null ? bean : (T) target;
+    }
+
+    public int plans() {
+        return plans;
+    }
+
+    public int casesPerPlan() {
+        return casesPerPlan;
+    }
+
+    /**
+     * Name of tag {@code n} of the pool; {@code tag(0)} is on the most plans.
+     */
+    public static String tag(int n) {
+        return "tag-" + n;
+    }
+
+    private void seed() throws SQLException {
+        Random random = new Random(SEED);
+        TagDictionary dictionary = bean(TagDictionary.class);
+        long now = System.currentTimeMillis();
+        long createdAt = now - 90 * DAY_MS;
+        bean(SqliteWriter.class).execute(conn -> {
+            try (PreparedStatement planPs = conn.prepareStatement(
+                         "INSERT INTO test_plan (id, name, description, status, created_at) VALUES (?, ?, ?, ?, ?)");
+                 PreparedStatement tagPs = conn.prepareStatement(
+                         "INSERT OR IGNORE INTO test_plan_tag (test_plan_id, tag_id) VALUES (?, ?)");
+                 PreparedStatement casePs = conn.prepareStatement(
+                         "INSERT INTO test_case (id, test_plan_id, name, description, status, expected_result, priority, steps, duration, created_at) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement executionPs = conn.prepareStatement(
+                         "INSERT INTO test_plan_execution (id, test_plan_id, status, started_at, finished_at, created_at, updated_at) "
+                                 + "VALUES (?, ?, 'DONE', ?, ?, ?, ?)");
+                 PreparedStatement resultPs = conn.prepareStatement(
+                         "INSERT INTO test_case_result (execution_id, test_case_id, status, duration, started_at, finished_at, updated_at) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 TagDictionary.Resolver tags = dictionary.resolver(conn)) {
+                for (int plan = 1; plan <= plans; plan++) {
+                    long planCreated = createdAt + plan * 60_000L;
+                    planPs.setInt(1, plan);
+                    planPs.setString(2, "Plan " + plan);
+                    planPs.setString(3, "Regression suite " + plan + " covering checkout, payments and account settings");
+                    planPs.setString(4, STATUSES[random.nextInt(STATUSES.length)]);
+                    planPs.setLong(5, planCreated);
+                    planPs.addBatch();
+                    for (int t = 0; t < tagsPerPlan; t++) {
+                        // Squaring skews the draw towards the low tag numbers
+                        double u = random.nextDouble();
+                        tagPs.setInt(1, plan);
+                        tagPs.setInt(2, tags.id(tag((int) (u * u * TAG_POOL))));
+                        tagPs.addBatch();
+                    }
+                    long firstCase = (plan - 1L) * casesPerPlan + 1;
+                    int[] durations = new int[casesPerPlan];
+                    for (int c = 1; c <= casesPerPlan; c++) {
+                        durations[c - 1] = 1 + random.nextInt(600);
+                        casePs.setLong(1, firstCase + c - 1);
+                        casePs.setInt(2, plan);
+                        casePs.setString(3, "Case " + plan + "." + c);
+                        casePs.setString(4, "Verify behaviour " + c + " of plan " + plan);
+                        casePs.setString(5, STATUSES[random.nextInt(STATUSES.length)]);
+                        casePs.setString(6, "The page shows the expected result");
+                        casePs.setString(7, PRIORITIES[random.nextInt(PRIORITIES.length)]);
+                        casePs.setString(8, "1. Open the page\n2. Fill in the form\n3. Submit");
+                        casePs.setInt(9, durations[c - 1]);
+                        casePs.setLong(10, planCreated + c);
+                        casePs.addBatch();
+                    }
+                    for (int e = 0; e < (casesPerPlan == 0 ? 0 : EXECUTIONS_PER_PLAN); e++) {
+                        long executionId = (plan - 1L) * EXECUTIONS_PER_PLAN + e + 1;
+                        long startedAt = now - (long) (random.nextDouble() * 28 * DAY_MS);
+                        long at = startedAt;
+                        for (int c = 0; c < casesPerPlan; c++) {
+                            int taken = Math.max(1, (int) (durations[c] * (0.5 + random.nextDouble())));
+                            resultPs.setLong(1, executionId);
+                            resultPs.setLong(2, firstCase + c);
+                            resultPs.setString(3, RESULTS[random.nextInt(RESULTS.length)]);
+                            resultPs.setInt(4, taken);
+                            resultPs.setLong(5, at);
+                            at += taken * 1000L;
+                            resultPs.setLong(6, at);
+                            resultPs.setLong(7, at);
+                            resultPs.addBatch();
+                        }
+                        executionPs.setLong(1, executionId);
+                        executionPs.setInt(2, plan);
+                        executionPs.setLong(3, startedAt);
+                        executionPs.setLong(4, at);
+                        executionPs.setLong(5, startedAt);
+                        executionPs.setLong(6, at);
+                        executionPs.addBatch();
+                    }
+                }
+                planPs.executeBatch();
+                tagPs.executeBatch();
+                casePs.executeBatch();
+                executionPs.executeBatch();
+                resultPs.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+}
@@ -0,0 +1,68 @@
+package com.puckowski.testing.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.puckowski.testing.db.EpochMillis;
+import com.puckowski.testing.dto.TestCaseDTO;
+import com.puckowski.testing.dto.TestPlanDTO;
+import com.puckowski.testing.dto.TestTagDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of plan lists with the application's {@link ObjectMapper}, as configured at startup.
+ * {@code casesPerPlan} of 0 is the shape of the plan list; larger values that of plans with their cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"100", "1000"})
+    public int plans;
+
+    @Param({"0", "20"})
+    public int casesPerPlan;
+
+    private BenchmarkDatabase database;
+    private ObjectWriter writer;
+    private List<TestPlanDTO> list;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // Only the ObjectMapper is used, so the database is left nearly empty
+        database = BenchmarkDatabase.start(1, 0, 0);
+        // Typed as the controllers' return values are, which is how Spring MVC picks its writer
+        writer = database.bean(ObjectMapper.class).writerFor(new TypeReference<List<TestPlanDTO>>() {
+        });
+        list = new ArrayList<>(plans);
+        String createdAt = EpochMillis.format(System.currentTimeMillis());
+        List<TestTagDTO> tags = List.of(new TestTagDTO(1, null, "smoke"), new TestTagDTO(2, null, "payments"),
+                new TestTagDTO(3, null, "nightly"));
+        for (int p = 1; p <= plans; p++) {
+            List<TestCaseDTO> cases = new ArrayList<>(casesPerPlan);
+            for (int c = 1; c <= casesPerPlan; c++) {
+                cases.add(new TestCaseDTO(p * 100 + c, p, "Case " + p + "." + c, "Verify behaviour " + c, "PASSED",
+                        createdAt, "The page shows the expected result", "HIGH", "1. Open the page\n2. Submit", 120));
+            }
+            list.add(new TestPlanDTO(p, "Plan " + p, "Regression suite " + p, createdAt, "ACTIVE", tags, cases));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return writer.writeValueAsBytes(list);
+    }
+}
@@ -0,0 +1,82 @@
+package com.puckowski.testing.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puckowski.testing.bench.BenchmarkDatabase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller calls against the seeded database, each serialized to JSON as the response would be. The HTTP
+ * layer is left out; it adds the same fixed cost to every endpoint.
+ * <p>
+ * With {@code cached} false the calls go to the controller itself, skipping {@code @Cacheable}, so every
+ * call reads SQLite; with true they go through the proxy and mostly measure a cache hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private BenchmarkDatabase database;
+    private TestCaseController controller;
+    private ReportController reports;
+    private ObjectMapper mapper;
+    private long planId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start(5000, 20, 4);
+        controller = cached ? database.bean(TestCaseController.class) : database.target(TestCaseController.class);
+        reports = cached ? database.bean(ReportController.class) : database.target(ReportController.class);
+        mapper = database.bean(ObjectMapper.class);
+        planId = database.plans() / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public byte[] listPlans() throws Exception {
+        return mapper.writeValueAsBytes(controller.getAllTestPlans(null, null, 100, null, null, null).getBody());
+    }
+
+    @Benchmark
+    public byte[] listPlansByCreated() throws Exception {
+        return mapper.writeValueAsBytes(controller.getAllTestPlans(null, null, 100, null, "-created_at", null).getBody());
+    }
+
+    @Benchmark
+    public byte[] listPlansByTagExpression() throws Exception {
+        String tags = BenchmarkDatabase.tag(0) + " AND NOT " + BenchmarkDatabase.tag(1);
+        return mapper.writeValueAsBytes(controller.getAllTestPlans(null, null, 100, null, null, tags).getBody());
+    }
+
+    @Benchmark
+    public byte[] planPageWithTotal() throws Exception {
+        return mapper.writeValueAsBytes(controller.getTestPlanPage(null, null, 100, null, null, null));
+    }
+
+    @Benchmark
+    public byte[] planWithTestCases() throws Exception {
+        return mapper.writeValueAsBytes(controller.getTestPlanWithTestCases(planId));
+    }
+
+    @Benchmark
+    public byte[] testCasesByPlan() throws Exception {
+        return mapper.writeValueAsBytes(controller.getTestCasesByPlan(planId, null, null, null).getBody());
+    }
+
+    @Benchmark
+    public byte[] durationReport() throws Exception {
+        return mapper.writeValueAsBytes(reports.getDurationSumLastMonth(planId));
+    }
+}
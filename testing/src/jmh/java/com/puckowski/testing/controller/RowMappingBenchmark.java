@@ -0,0 +1,107 @@
+package com.puckowski.testing.controller;
+
+import com.puckowski.testing.bench.BenchmarkDatabase;
+import com.puckowski.testing.db.KeysetSort;
+import com.puckowski.testing.db.Page;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.dto.TestCaseDTO;
+import com.puckowski.testing.dto.TestPlanDTO;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading rows into DTOs, one SQLite read connection held for the whole run. {@code scanTestCases} runs the
+ * same query as {@code mapTestCases} without building DTOs, so the difference is the cost of the mapping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    private static final String CASES_SQL = "SELECT id, test_plan_id, name, description, status, created_at, expected_result, priority, steps, duration FROM test_case WHERE test_plan_id = ?";
+    private static final String PLANS_SQL = "SELECT id,name,description,created_at,status FROM test_plan WHERE id > ? ORDER BY id LIMIT ?";
+
+    @Param({"20", "200"})
+    public int casesPerPlan;
+
+    @Param({"100"})
+    public int plansPerPage;
+
+    private BenchmarkDatabase database;
+    private TestCaseController controller;
+    private Connection conn;
+    private PreparedStatement cases;
+    private PreparedStatement plans;
+    private KeysetSort.Query planPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.start(1000, casesPerPlan, 4);
+        controller = database.target(TestCaseController.class);
+        conn = database.bean(SqliteConnectionPool.class).getConnection();
+        cases = conn.prepareStatement(CASES_SQL);
+        plans = conn.prepareStatement(PLANS_SQL);
+        planPage = TestCaseController.TEST_PLAN_SORTS.query(null, null, plansPerPage);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        cases.close();
+        plans.close();
+        conn.close();
+        database.close();
+    }
+
+    @Benchmark
+    public int scanTestCases() throws SQLException {
+        cases.setLong(1, 500);
+        int rows = 0;
+        try (ResultSet rs = cases.executeQuery()) {
+            while (rs.next()) rows++;
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public List<TestCaseDTO> mapTestCases() throws SQLException {
+        cases.setLong(1, 500);
+        List<TestCaseDTO> result = new ArrayList<>(casesPerPlan);
+        try (ResultSet rs = cases.executeQuery()) {
+            while (rs.next()) result.add(controller.toTestCaseDTO(rs));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<TestPlanDTO> mapTestPlans() throws SQLException {
+        return readPlans();
+    }
+
+    /**
+     * One page of plans with their tags, read in the single statement the plan list uses.
+     */
+    @Benchmark
+    public Page<TestPlanDTO> mapTestPlansWithTags() throws SQLException {
+        return controller.readPlanPage(conn, null, planPage);
+    }
+
+    private List<TestPlanDTO> readPlans() throws SQLException {
+        plans.setLong(1, 400);
+        plans.setInt(2, plansPerPage);
+        List<TestPlanDTO> result = new ArrayList<>(plansPerPage);
+        try (ResultSet rs = plans.executeQuery()) {
+            while (rs.next()) result.add(controller.toTestPlanDTO(rs));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package com.puckowski.testing.db;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EpochMillis} against the {@code java.time} calls it replaced, for the timestamp shapes the API sees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpochMillisBenchmark {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    @Param({"2025-10-24T23:13:50", "2025-10-24 23:13:50.123", "2025-10-24T23:13"})
+    public String text;
+
+    private long millis;
+
+    @Setup
+    public void setUp() {
+        millis = EpochMillis.parse(text);
+    }
+
+    @Benchmark
+    public long parse() {
+        return EpochMillis.decode(text, 0, text.length());
+    }
+
+    @Benchmark
+    public long parseJavaTime() {
+        return LocalDateTime.parse(text.replace(' ', 'T')).atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    @Benchmark
+    public String format() {
+        return EpochMillis.format(millis);
+    }
+
+    @Benchmark
+    public String formatJavaTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE).toString();
+    }
+}
@@ -0,0 +1,375 @@
+package com.puckowski.testing.load;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puckowski.testing.db.EpochMillis;
+import com.puckowski.testing.dto.*;
+import com.puckowski.testing.report.DurationHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Replays a mix of read and write traffic against a running server and reports, per endpoint, throughput and
+ * a latency histogram. Each simulated client is a virtual thread sending one request after another (a closed
+ * loop), so {@code --clients} is the concurrency.
+ * <p>
+ * The driver learns plan ids, tags and search words from the server before it starts, so it runs against any
+ * data set, typically one made with {@code POST /admin/dataset}. The choice of operations is drawn from
+ * {@code --seed}; the server's timing still decides how many of them run.
+ * <pre>
+ * ./gradlew loadTest -PloadArgs="--url=http://localhost:8080 --clients=64 --duration=60 --writes=10"
+ * </pre>
+ */
+public final class LoadDriver {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final URI base;
+    private final int clients;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int writePercent;
+    private final long seed;
+    private final Path jsonReport;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    // What the clients know about the data, shared between them
+    private final List<Long> planIds = new ArrayList<>();
+    private final List<String> tags = new ArrayList<>();
+    private final List<String> words = new ArrayList<>();
+    private final Map<Long, List<Integer>> caseIdsByPlan = new ConcurrentHashMap<>();
+    private final Queue<TestPlanExecutionDTO> runningExecutions = new ConcurrentLinkedQueue<>();
+    private final Queue<TestPlanDTO> createdPlans = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean measuring;
+    private volatile boolean stopping;
+
+    private LoadDriver(Map<String, String> options) {
+        this.base = URI.create(options.getOrDefault("url", "http://localhost:8080"));
+        this.clients = Integer.parseInt(options.getOrDefault("clients", "32"));
+        this.warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60")));
+        this.writePercent = Integer.parseInt(options.getOrDefault("writes", "10"));
+        this.seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        this.jsonReport = options.containsKey("json") ? Path.of(options.get("json")) : null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                System.err.println("Options: --url= --clients= --warmup=<s> --duration=<s> --writes=<percent> --seed= --json=<file>");
+                System.exit(2);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        new LoadDriver(options).run();
+    }
+
+    private void run() throws Exception {
+        discover();
+        System.out.printf("%d plans, %d tags; %d clients, %d%% writes, %ds warm-up, %ds measured%n",
+                planIds.size(), tags.size(), clients, writePercent, warmup.toSeconds(), duration.toSeconds());
+
+        List<Client> all = new ArrayList<>(clients);
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(new Random(seed * 1_000_003 + i));
+            all.add(client);
+            threads.add(Thread.ofVirtual().name("load-client-" + i).start(client));
+        }
+        Thread.sleep(warmup);
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(duration);
+        stopping = true;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, Stats> merged = new TreeMap<>();
+        for (Client client : all) {
+            client.stats.forEach((endpoint, stats) -> merged.computeIfAbsent(endpoint, e -> new Stats()).merge(stats));
+        }
+        report(merged, seconds);
+    }
+
+    /**
+     * Reads up to 20,000 plan ids, the most common tags and words from plan names.
+     */
+    private void discover() throws IOException, InterruptedException {
+        String cursor = null;
+        do {
+            HttpResponse<String> response = get("/api/testplans?per=500" + (cursor == null ? "" : "&cursor=" + encode(cursor)));
+            check(response);
+            for (TestPlanDTO plan : JSON.readValue(response.body(), new TypeReference<List<TestPlanDTO>>() {
+            })) {
+                planIds.add(plan.id().longValue());
+                if (words.size() < 200 && plan.name() != null) {
+                    for (String word : plan.name().split("\\W+")) {
+                        if (word.length() > 3 && !words.contains(word.toLowerCase(Locale.ROOT))) {
+                            words.add(word.toLowerCase(Locale.ROOT));
+                        }
+                    }
+                }
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+        } while (cursor != null && planIds.size() < 20_000);
+        if (planIds.isEmpty()) {
+            throw new IllegalStateException("No plans on " + base + "; generate some first with POST /admin/dataset");
+        }
+
+        HttpResponse<String> facets = get("/api/testplans/facets");
+        check(facets);
+        for (TagFacetDTO facet : JSON.readValue(facets.body(), new TypeReference<List<TagFacetDTO>>() {
+        })) {
+            if (tags.size() == 50) break;
+            tags.add(facet.tag());
+        }
+        if (words.isEmpty()) words.add("test");
+    }
+
+    /**
+     * One simulated client. Only its own thread touches its random source and statistics.
+     */
+    private final class Client implements Runnable {
+        private final Random random;
+        private final Map<String, Stats> stats = new HashMap<>();
+
+        Client(Random random) {
+            this.random = random;
+        }
+
+        @Override
+        public void run() {
+            while (!stopping) {
+                try {
+                    if (random.nextInt(100) < writePercent) write(); else read();
+                } catch (InterruptedException ex) {
+                    return;
+                } catch (Exception ex) {
+                    // Already counted as an error against its endpoint
+                }
+            }
+        }
+
+        private void read() throws IOException, InterruptedException {
+            int roll = random.nextInt(100);
+            long planId = planIds.get(random.nextInt(planIds.size()));
+            if (roll < 25) {
+                String sort = new String[]{"", "&sort=-created_at", "&sort=status"}[random.nextInt(3)];
+                call("GET /api/testplans", "/api/testplans?per=20" + sort);
+            } else if (roll < 33 && tags.size() >= 2) {
+                call("GET /api/testplans?tags", "/api/testplans?per=20&tags=" + encode(tag() + " AND NOT " + tag()));
+            } else if (roll < 38) {
+                call("GET /api/testplans/count", "/api/testplans/count" + (tags.isEmpty() ? "" : "?tags=" + encode(tag())));
+            } else if (roll < 42) {
+                call("GET /api/testplans/facets", "/api/testplans/facets");
+            } else if (roll < 57) {
+                HttpResponse<String> response = call("GET /api/testplans/{id}/with-testcases", "/api/testplans/" + planId + "/with-testcases");
+                if (response.statusCode() == 200 && !caseIdsByPlan.containsKey(planId)) {
+                    List<Integer> caseIds = new ArrayList<>();
+                    for (TestCaseDTO testCase : JSON.readValue(response.body(), TestPlanDTO.class).testCases()) {
+                        caseIds.add(testCase.id());
+                    }
+                    caseIdsByPlan.put(planId, caseIds);
+                }
+            } else if (roll < 65) {
+                call("GET /api/testplans/{id}/testcases", "/api/testplans/" + planId + "/testcases?per=50&sort=priority");
+            } else if (roll < 73) {
+                call("GET /api/search/testplans", "/api/search/testplans?q=" + encode(words.get(random.nextInt(words.size()))));
+            } else if (roll < 78) {
+                call("GET /api/testplans/{id}/executions", "/api/testplans/" + planId + "/executions");
+            } else if (roll < 82) {
+                call("GET /api/reports/testplans", "/api/reports/testplans");
+            } else if (roll < 87) {
+                call("GET /api/reports/testplans/{id}/rollups", "/api/reports/testplans/" + planId + "/rollups?granularity=day");
+            } else {
+                call("GET /api/testplans/{id}", "/api/testplans/" + planId);
+            }
+        }
+
+        private void write() throws IOException, InterruptedException {
+            int roll = random.nextInt(100);
+            if (roll < 20) {
+                TestPlanDTO plan = new TestPlanDTO(null, "Load plan " + random.nextInt(1_000_000), "Created by the load driver",
+                        null, "DRAFT", tagList(), List.of());
+                HttpResponse<String> response = send("POST /api/testplans", "/api/testplans", "POST", plan);
+                if (response.statusCode() == 200 && createdPlans.size() < 1000) {
+                    createdPlans.add(JSON.readValue(response.body(), TestPlanDTO.class));
+                }
+            } else if (roll < 35 && !createdPlans.isEmpty()) {
+                TestPlanDTO plan = createdPlans.poll();
+                if (plan == null) return;
+                createdPlans.add(plan);
+                TestPlanDTO changed = new TestPlanDTO(plan.id(), plan.name(), "Updated by the load driver", null,
+                        random.nextBoolean() ? "ACTIVE" : "INACTIVE", tagList(), List.of());
+                send("PUT /api/testplans/{id}", "/api/testplans/" + plan.id(), "PUT", changed);
+            } else if (roll < 55 || runningExecutions.isEmpty()) {
+                long planId = planIds.get(random.nextInt(planIds.size()));
+                TestPlanExecutionDTO execution = new TestPlanExecutionDTO(null, null, "RUNNING", now(), null, null, null, null);
+                HttpResponse<String> response = send("POST /api/testplans/{id}/executions", "/api/testplans/" + planId + "/executions", "POST", execution);
+                if (response.statusCode() == 200 && runningExecutions.size() < 1000) {
+                    runningExecutions.add(JSON.readValue(response.body(), TestPlanExecutionDTO.class));
+                }
+            } else if (roll < 85) {
+                TestPlanExecutionDTO execution = runningExecutions.peek();
+                if (execution == null) return;
+                List<Integer> caseIds = caseIdsByPlan.get(execution.testPlanId().longValue());
+                if (caseIds == null || caseIds.isEmpty()) {
+                    // Learn the cases first; counted like any other read
+                    call("GET /api/testplans/{id}/with-testcases", "/api/testplans/" + execution.testPlanId() + "/with-testcases");
+                    caseIdsByPlan.putIfAbsent(execution.testPlanId().longValue(), List.of());
+                    return;
+                }
+                List<TestCaseRunResultDTO> results = new ArrayList<>();
+                for (int i = 0, n = 1 + random.nextInt(Math.min(20, caseIds.size())); i < n; i++) {
+                    int p = random.nextInt(100);
+                    results.add(new TestCaseRunResultDTO(caseIds.get(random.nextInt(caseIds.size())),
+                            p < 85 ? "PASS" : p < 95 ? "FAIL" : "BLOCKED", 1 + random.nextInt(300), null, null, null));
+                }
+                send("POST /api/executions/{id}/results", "/api/executions/" + execution.id() + "/results", "POST", results);
+            } else {
+                TestPlanExecutionDTO execution = runningExecutions.poll();
+                if (execution == null) return;
+                TestPlanExecutionDTO done = new TestPlanExecutionDTO(execution.id(), execution.testPlanId(), "DONE",
+                        execution.startedAt(), now(), null, null, null);
+                send("PUT /api/executions/{id}", "/api/executions/" + execution.id(), "PUT", done);
+            }
+        }
+
+        private HttpResponse<String> call(String endpoint, String path) throws IOException, InterruptedException {
+            return timed(endpoint, HttpRequest.newBuilder(base.resolve(path)).GET().build());
+        }
+
+        private HttpResponse<String> send(String endpoint, String path, String method, Object body) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(base.resolve(path))
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(body)))
+                    .build();
+            return timed(endpoint, request);
+        }
+
+        private HttpResponse<String> timed(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+            boolean counted = measuring;
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                if (counted) stats(endpoint).record((System.nanoTime() - start) / 1000, response.statusCode() < 400);
+                return response;
+            } catch (IOException ex) {
+                if (counted) stats(endpoint).record((System.nanoTime() - start) / 1000, false);
+                throw ex;
+            }
+        }
+
+        private Stats stats(String endpoint) {
+            return stats.computeIfAbsent(endpoint, e -> new Stats());
+        }
+
+        private String tag() {
+            return tags.get(random.nextInt(tags.size()));
+        }
+
+        private List<TestTagDTO> tagList() {
+            List<TestTagDTO> list = new ArrayList<>();
+            for (int i = 0, n = tags.isEmpty() ? 0 : random.nextInt(4); i < n; i++) {
+                list.add(new TestTagDTO(null, null, tag()));
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Requests and latencies (microseconds) of one endpoint.
+     */
+    private static final class Stats {
+        private final DurationHistogram latency = new DurationHistogram();
+        private long errors;
+
+        void record(long micros, boolean ok) {
+            latency.add(micros);
+            if (!ok) errors++;
+        }
+
+        void merge(Stats other) {
+            latency.merge(other.latency);
+            errors += other.errors;
+        }
+    }
+
+    private void report(Map<String, Stats> stats, double seconds) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        System.out.printf("%n%-42s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms");
+        long total = 0;
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            DurationHistogram latency = entry.getValue().latency;
+            total += latency.total();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", entry.getKey());
+            row.put("requests", latency.total());
+            row.put("errors", entry.getValue().errors);
+            row.put("throughput", latency.total() / seconds);
+            row.put("p50Ms", millis(latency, 0.5));
+            row.put("p90Ms", millis(latency, 0.9));
+            row.put("p99Ms", millis(latency, 0.99));
+            row.put("p999Ms", millis(latency, 0.999));
+            rows.add(row);
+            System.out.printf("%-42s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(), latency.total(),
+                    entry.getValue().errors, latency.total() / seconds, row.get("p50Ms"), row.get("p90Ms"),
+                    row.get("p99Ms"), row.get("p999Ms"));
+        }
+        System.out.printf("%ntotal: %d requests in %.1f s, %.1f req/s%n", total, seconds, total / seconds);
+
+        if (jsonReport != null) {
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("clients", clients);
+            document.put("writePercent", writePercent);
+            document.put("seconds", seconds);
+            document.put("seed", seed);
+            document.put("endpoints", rows);
+            Files.write(jsonReport, JSON.writerWithDefaultPrettyPrinter().writeValueAsBytes(document));
+            System.out.println("Report written to " + jsonReport);
+        }
+    }
+
+    private static double millis(DurationHistogram histogram, double quantile) {
+        Long micros = histogram.percentile(quantile);
+        return micros == null ? 0 : micros / 1000.0;
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return http.send(HttpRequest.newBuilder(base.resolve(path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void check(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.request().uri() + " answered " + response.statusCode());
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String now() {
+        return EpochMillis.format(System.currentTimeMillis());
+    }
+}
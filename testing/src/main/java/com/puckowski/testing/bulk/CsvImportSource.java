@@ -0,0 +1,175 @@
+package com.puckowski.testing.bulk;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads an RFC 4180 CSV document with a header row, one test case per row. Plan columns repeat on every
+ * row; a change in the {@code plan} column starts a new plan, and a blank one continues the current plan.
+ * A row with an empty {@code name} creates the plan without a test case.
+ * <p>
+ * Recognised columns: {@code plan}, {@code plan_description}, {@code plan_status}, {@code tags}
+ * (separated by {@code ;}), {@code name}, {@code description}, {@code status}, {@code expected_result},
+ * {@code priority}, {@code steps}, {@code duration}. Unknown columns are ignored.
+ */
+final class CsvImportSource implements ImportSource {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private int pushback = -2;
+    private long line = 1;
+
+    CsvImportSource(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public void read(Sink sink) throws IOException, SQLException {
+        long headerLine = line;
+        List<String> header = readRecord();
+        if (header == null) return;
+        if (!header.isEmpty() && header.getFirst().startsWith("\uFEFF")) {
+            header.set(0, header.getFirst().substring(1)); // byte order mark
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).strip().toLowerCase(Locale.ROOT).replace(' ', '_'), i);
+        }
+        Integer planCol = columns.get("plan");
+        if (planCol == null) {
+            sink.accept(new ImportRecord.Rejected(headerLine, "CSV header has no 'plan' column"));
+            return;
+        }
+
+        String currentPlan = null;
+        List<String> fields;
+        long row = line;
+        while ((fields = readRecord()) != null) {
+            if (fields.size() == 1 && fields.getFirst().isEmpty()) {
+                row = line;
+                continue;
+            }
+            String plan = blankToNull(column(fields, planCol));
+            if (plan == null && currentPlan == null) {
+                sink.accept(new ImportRecord.Rejected(row, "First row has no plan"));
+                row = line;
+                continue;
+            }
+            if (plan != null && !plan.equals(currentPlan)) {
+                currentPlan = plan;
+                String tags = column(fields, columns.get("tags"));
+                sink.accept(new ImportRecord.Plan(row, plan,
+                        blankToNull(column(fields, columns.get("plan_description"))),
+                        blankToNull(column(fields, columns.get("plan_status"))),
+                        splitTags(tags)));
+            }
+            String name = blankToNull(column(fields, columns.get("name")));
+            if (name != null) {
+                sink.accept(toCase(row, name, fields, columns));
+            }
+            row = line;
+        }
+    }
+
+    private ImportRecord toCase(long row, String name, List<String> fields, Map<String, Integer> columns) {
+        String duration = blankToNull(column(fields, columns.get("duration")));
+        Integer parsedDuration = null;
+        if (duration != null) {
+            try {
+                parsedDuration = Integer.valueOf(duration.strip());
+            } catch (NumberFormatException ex) {
+                return new ImportRecord.Rejected(row, "duration '" + duration + "' is not a whole number");
+            }
+        }
+        return new ImportRecord.Case(row, name,
+                blankToNull(column(fields, columns.get("description"))),
+                blankToNull(column(fields, columns.get("status"))),
+                blankToNull(column(fields, columns.get("expected_result"))),
+                blankToNull(column(fields, columns.get("priority"))),
+                blankToNull(column(fields, columns.get("steps"))),
+                parsedDuration);
+    }
+
+    /**
+     * Reads one record, which may span several lines when a quoted field contains line breaks.
+     *
+     * @return the fields, or null at end of input
+     */
+    private List<String> readRecord() throws IOException {
+        int c = next();
+        if (c == EOF) return null;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == EOF) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    int peek = next();
+                    if (peek == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = peek;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == EOF) {
+                if (c == '\r') {
+                    int peek = next();
+                    if (peek != '\n') pushback = peek;
+                }
+                if (c != EOF) line++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = next();
+        }
+    }
+
+    private int next() throws IOException {
+        if (pushback != -2) {
+            int c = pushback;
+            pushback = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private static String column(List<String> fields, Integer index) {
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    private static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+
+    private static List<String> splitTags(String tags) {
+        List<String> result = new ArrayList<>();
+        if (tags == null) return result;
+        for (String tag : tags.split(";")) {
+            if (!tag.isBlank()) result.add(tag.strip());
+        }
+        return result;
+    }
+}
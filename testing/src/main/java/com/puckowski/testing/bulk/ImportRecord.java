@@ -0,0 +1,34 @@
+package com.puckowski.testing.bulk;
+
+import java.util.List;
+
+/**
+ * One unit of an import document, in document order. A {@link Case} belongs to the most recent
+ * {@link Plan} before it.
+ */
+sealed interface ImportRecord {
+
+    /**
+     * Position in the source used when reporting errors: the line for CSV, the object ordinal for JSON.
+     */
+    long row();
+
+    record Plan(long row, String name, String description, String status, List<String> tags) implements ImportRecord {
+    }
+
+    record Case(long row, String name, String description, String status, String expectedResult,
+                String priority, String steps, Integer duration) implements ImportRecord {
+    }
+
+    /**
+     * Extra tags for the current plan, from a JSON plan whose tags came after its test cases.
+     */
+    record Tags(long row, List<String> tags) implements ImportRecord {
+    }
+
+    /**
+     * A row that could not be read; it is reported and skipped.
+     */
+    record Rejected(long row, String message) implements ImportRecord {
+    }
+}
@@ -0,0 +1,18 @@
+package com.puckowski.testing.bulk;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * A parsed import document, pushed record by record to a sink as it is read, so no more than one record
+ * (or one JSON plan header) is held in memory at a time.
+ */
+interface ImportSource {
+
+    void read(Sink sink) throws IOException, SQLException;
+
+    @FunctionalInterface
+    interface Sink {
+        void accept(ImportRecord record) throws IOException, SQLException;
+    }
+}
@@ -0,0 +1,174 @@
+package com.puckowski.testing.bulk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads plans in the shape of {@code TestPlanDTO}, either as one JSON array or as NDJSON (one plan per
+ * line). Test cases are streamed out of each plan's {@code testCases} array as they are parsed, so a plan
+ * with 50k cases never exists in memory as a whole. For that to work the plan's own fields have to come
+ * before {@code testCases}, as they do when the DTO is serialised; {@code tagList} after it is still
+ * honoured, while other plan fields after it are reported and ignored.
+ */
+final class JsonImportSource implements ImportSource {
+
+    private final JsonParser parser;
+    private long row;
+
+    JsonImportSource(JsonParser parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    public void read(Sink sink) throws IOException, SQLException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                readPlan(token, sink);
+            }
+        } else {
+            // NDJSON, or a single plan object: a sequence of root-level values.
+            while (token != null) {
+                readPlan(token, sink);
+                token = parser.nextToken();
+            }
+        }
+    }
+
+    private void readPlan(JsonToken token, Sink sink) throws IOException, SQLException {
+        long planRow = ++row;
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            sink.accept(new ImportRecord.Rejected(planRow, "Expected a test plan object"));
+            return;
+        }
+        String name = null;
+        String description = null;
+        String status = null;
+        List<String> tags = new ArrayList<>();
+        boolean emitted = false;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("testCases")) {
+                if (!emitted) {
+                    sink.accept(new ImportRecord.Plan(planRow, name, description, status, tags));
+                    emitted = true;
+                }
+                readCases(value, sink);
+                continue;
+            }
+            switch (field) {
+                case "tagList", "tags" -> {
+                    List<String> read = readTags(value);
+                    if (emitted) {
+                        sink.accept(new ImportRecord.Tags(planRow, read));
+                    } else {
+                        tags.addAll(read);
+                    }
+                }
+                case "name", "description", "status" -> {
+                    if (emitted) {
+                        sink.accept(new ImportRecord.Rejected(planRow, "Plan field '" + field + "' after testCases was ignored"));
+                    } else if (field.equals("name")) {
+                        name = text(value);
+                    } else if (field.equals("description")) {
+                        description = text(value);
+                    } else {
+                        status = text(value);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        if (!emitted) {
+            sink.accept(new ImportRecord.Plan(planRow, name, description, status, tags));
+        }
+    }
+
+    private void readCases(JsonToken token, Sink sink) throws IOException, SQLException {
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            if (token != JsonToken.VALUE_NULL) {
+                sink.accept(new ImportRecord.Rejected(row, "testCases must be an array"));
+            }
+            return;
+        }
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            long caseRow = ++row;
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                sink.accept(new ImportRecord.Rejected(caseRow, "Expected a test case object"));
+                continue;
+            }
+            String name = null, description = null, status = null, expectedResult = null, priority = null, steps = null;
+            Integer duration = null;
+            String problem = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "name" -> name = text(value);
+                    case "description" -> description = text(value);
+                    case "status" -> status = text(value);
+                    case "expectedResult" -> expectedResult = text(value);
+                    case "priority" -> priority = text(value);
+                    case "steps" -> steps = text(value);
+                    case "duration" -> {
+                        if (value == JsonToken.VALUE_NUMBER_INT) {
+                            duration = parser.getIntValue();
+                        } else if (value != JsonToken.VALUE_NULL) {
+                            problem = "duration must be a whole number";
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            sink.accept(problem != null
+                    ? new ImportRecord.Rejected(caseRow, problem)
+                    : new ImportRecord.Case(caseRow, name, description, status, expectedResult, priority, steps, duration));
+        }
+    }
+
+    private List<String> readTags(JsonToken token) throws IOException {
+        List<String> tags = new ArrayList<>();
+        if (token != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return tags;
+        }
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.VALUE_STRING) {
+                tags.add(parser.getText());
+            } else if (token == JsonToken.START_OBJECT) {
+                // TestTagDTO: only the tag text matters; ids are assigned on insert.
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (field.equals("tag") && value == JsonToken.VALUE_STRING) {
+                        tags.add(parser.getText());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return tags;
+    }
+
+    private String text(JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) return null;
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+}
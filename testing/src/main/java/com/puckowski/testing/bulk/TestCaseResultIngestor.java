@@ -0,0 +1,322 @@
+package com.puckowski.testing.bulk;
+
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.config.ResultIngestProperties;
+import com.puckowski.testing.db.EpochMillis;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.dto.TestCaseResultSummaryDTO;
+import com.puckowski.testing.dto.TestCaseRunResultDTO;
+import com.puckowski.testing.feed.PlanChange;
+import com.puckowski.testing.feed.PlanChangeFeed;
+import com.puckowski.testing.report.ExecutionRollups;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+
+/**
+ * Writes per-case execution results into {@code test_case_result}.
+ * <p>
+ * CI agents post results concurrently and often; rather than each request becoming its own write command,
+ * requests are queued here and one ingest thread drains whatever has accumulated (up to
+ * {@code ingest.max-rows-per-commit} rows) into a single {@link SqliteWriter} command: one prepared UPSERT,
+ * batched over every row, one commit. While that commit runs, the next requests queue up, so the batch size
+ * grows with the load. Only one ingest command is in the writer queue at a time, which leaves room for
+ * interactive writes in between.
+ * <p>
+ * Each request is packed into primitive column arrays on arrival and runs under its own savepoint, so a
+ * failing request does not take the others in its batch down with it. A case listed more than once in a
+ * request is merged into one row there, so it is written and reported once. Submitters block until their
+ * rows have committed.
+ */
+@Component
+public class TestCaseResultIngestor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TestCaseResultIngestor.class);
+
+    private static final int MAX_REPORTED_IDS = 100;
+    private static final int NO_DURATION = Integer.MIN_VALUE;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    // Rows for cases outside the execution's plan select nothing and so are counted as not found.
+    private static final String UPSERT = """
+            INSERT INTO test_case_result (execution_id, test_case_id, status, duration, started_at, finished_at, updated_at)
+            SELECT ?, ?, ?, ?, ?, ?, ? WHERE EXISTS (SELECT 1 FROM test_case WHERE id = ? AND test_plan_id = ?)
+            ON CONFLICT (execution_id, test_case_id) DO UPDATE SET
+                status = excluded.status,
+                duration = COALESCE(excluded.duration, duration),
+                started_at = COALESCE(excluded.started_at, started_at),
+                finished_at = COALESCE(excluded.finished_at, finished_at),
+                updated_at = excluded.updated_at""";
+
+    private static final Batch SHUTDOWN = new Batch(0, 0, 0);
+
+    private final SqliteConnectionPool dataSource;
+    private final SqliteWriter writer;
+    private final TestPlanCacheInvalidator cacheInvalidator;
+    private final ExecutionRollups rollups;
+    private final PlanChangeFeed changeFeed;
+    private final BlockingQueue<Batch> queue;
+    private final int maxRowsPerCommit;
+    private final long submitTimeoutNanos;
+    private final Thread thread;
+    private volatile boolean accepting = true;
+
+    public TestCaseResultIngestor(SqliteConnectionPool dataSource, SqliteWriter writer,
+                                  TestPlanCacheInvalidator cacheInvalidator, ExecutionRollups rollups,
+                                  PlanChangeFeed changeFeed, ResultIngestProperties properties) {
+        this.dataSource = dataSource;
+        this.writer = writer;
+        this.cacheInvalidator = cacheInvalidator;
+        this.rollups = rollups;
+        this.changeFeed = changeFeed;
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        this.maxRowsPerCommit = Math.max(1, properties.maxRowsPerCommit());
+        this.submitTimeoutNanos = properties.submitTimeout().toNanos();
+        this.thread = Thread.ofPlatform().name("result-ingestor").daemon(true).unstarted(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * Records {@code results} against an execution and waits until they have committed. Results for the
+     * same case replace earlier ones; omitted duration and times keep their previous values.
+     *
+     * @throws NoSuchElementException if the execution does not exist
+     */
+    public TestCaseResultSummaryDTO ingest(long executionId, List<TestCaseRunResultDTO> results) throws SQLException {
+        long start = System.nanoTime();
+        if (!accepting) {
+            throw new SQLException("Result ingestion is shut down");
+        }
+        Execution execution = findExecution(executionId);
+        Batch batch = new Batch(executionId, execution.planId(), results.size());
+        batch.hour = execution.hour();
+        int invalid = 0;
+        for (TestCaseRunResultDTO result : results) {
+            if (!batch.add(result)) invalid++;
+        }
+
+        if (batch.size > 0) {
+            try {
+                if (!queue.offer(batch, submitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    throw new SQLTransientException("Result ingest queue is full (" + queue.size() + " pending requests)");
+                }
+                batch.done.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for results to commit", ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof SQLException sqlEx) throw sqlEx;
+                throw new SQLException(ex.getCause());
+            }
+        }
+
+        int applied = 0;
+        int notFound = 0;
+        List<Integer> notFoundIds = new ArrayList<>();
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.applied[i] > 0) {
+                applied++;
+            } else {
+                notFound++;
+                if (notFoundIds.size() < MAX_REPORTED_IDS) notFoundIds.add(batch.caseIds[i]);
+            }
+        }
+        return new TestCaseResultSummaryDTO(executionId, results.size(), applied, invalid, notFound, notFoundIds,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void run() {
+        List<Batch> batches = new ArrayList<>();
+        while (true) {
+            try {
+                Batch first = queue.take();
+                if (first == SHUTDOWN) break;
+                batches.add(first);
+                int rows = first.size;
+                Batch next;
+                while (rows < maxRowsPerCommit && (next = queue.peek()) != null && next != SHUTDOWN) {
+                    batches.add(queue.poll());
+                    rows += next.size;
+                }
+                commit(batches);
+            } catch (InterruptedException ex) {
+                break;
+            } finally {
+                batches.clear();
+            }
+        }
+        Batch leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.done.completeExceptionally(new SQLException("Result ingestion is shut down"));
+        }
+    }
+
+    private void commit(List<Batch> batches) {
+        try {
+            writer.execute(conn -> {
+                write(conn, batches);
+                return null;
+            });
+        } catch (Throwable ex) {
+            log.warn("Failed to write {} result batch(es): {}", batches.size(), ex.getMessage());
+            for (Batch batch : batches) {
+                batch.done.completeExceptionally(ex);
+            }
+            return;
+        }
+        // Once per commit rather than per request, so a burst of result posts costs one eviction.
+        cacheInvalidator.executionsChanged();
+        for (Batch batch : batches) {
+            if (batch.failure != null) {
+                batch.done.completeExceptionally(batch.failure);
+            } else {
+                changeFeed.publish(batch.planId, PlanChange.RESULTS);
+                batch.done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Runs on the writer thread, inside its transaction. The touched rollup hours are refreshed once per
+     * commit, after all of its batches.
+     */
+    private void write(Connection conn, List<Batch> batches) throws SQLException {
+        long now = System.currentTimeMillis();
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+            for (Batch batch : batches) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    for (int i = 0; i < batch.size; i++) {
+                        ps.setLong(1, batch.executionId);
+                        ps.setInt(2, batch.caseIds[i]);
+                        ps.setString(3, batch.statuses[i]);
+                        if (batch.durations[i] != NO_DURATION) ps.setInt(4, batch.durations[i]); else ps.setNull(4, Types.INTEGER);
+                        if (batch.startedAt[i] != NO_TIME) ps.setLong(5, batch.startedAt[i]); else ps.setNull(5, Types.INTEGER);
+                        if (batch.finishedAt[i] != NO_TIME) ps.setLong(6, batch.finishedAt[i]); else ps.setNull(6, Types.INTEGER);
+                        ps.setLong(7, now);
+                        ps.setInt(8, batch.caseIds[i]);
+                        ps.setLong(9, batch.planId);
+                        ps.addBatch();
+                    }
+                    batch.applied = ps.executeBatch();
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException ex) {
+                    ps.clearBatch();
+                    conn.rollback(savepoint);
+                    conn.releaseSavepoint(savepoint);
+                    batch.failure = ex;
+                }
+            }
+        }
+        List<ExecutionRollups.Bucket> hours = new ArrayList<>();
+        for (Batch batch : batches) {
+            if (batch.failure == null && batch.hour != null) hours.add(batch.hour);
+        }
+        rollups.refresh(conn, hours);
+    }
+
+    private Execution findExecution(long executionId) throws SQLException {
+        String sql = "SELECT test_plan_id, CASE WHEN typeof(started_at) = 'integer' THEN started_at END FROM test_plan_execution WHERE id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, executionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new NoSuchElementException("Execution not found");
+                long planId = rs.getLong(1);
+                return new Execution(planId, rs.getObject(2) == null ? null : ExecutionRollups.Bucket.of(planId, rs.getLong(2)));
+            }
+        }
+    }
+
+    /**
+     * Stops accepting results, lets the ingest thread write everything already queued and waits for it.
+     * Runs before the writer is closed, since the writer bean is a dependency of this one.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!accepting) return;
+        accepting = false;
+        if (!queue.offer(SHUTDOWN, 5, TimeUnit.SECONDS)) {
+            thread.interrupt();
+        }
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * @param hour the rollup hour the execution started in, or null if it has no start time
+     */
+    private record Execution(long planId, ExecutionRollups.Bucket hour) {
+    }
+
+    /**
+     * One request's results as column arrays, so the write loop does no unboxing or per-row allocation.
+     * Results for a case already in the batch are merged into its row as the UPSERT would merge them.
+     */
+    private static final class Batch {
+        final long executionId;
+        final long planId;
+        final int[] caseIds;
+        final String[] statuses;
+        final int[] durations;
+        final long[] startedAt;
+        final long[] finishedAt;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final Map<Integer, Integer> rows = new HashMap<>();
+        int size;
+        int[] applied = new int[0];
+        SQLException failure;
+        ExecutionRollups.Bucket hour;
+
+        Batch(long executionId, long planId, int capacity) {
+            this.executionId = executionId;
+            this.planId = planId;
+            this.caseIds = new int[capacity];
+            this.statuses = new String[capacity];
+            this.durations = new int[capacity];
+            this.startedAt = new long[capacity];
+            this.finishedAt = new long[capacity];
+        }
+
+        /**
+         * @return false if the result is unusable (no case id or status, or unparseable times)
+         */
+        boolean add(TestCaseRunResultDTO result) {
+            if (result == null || result.testCaseId() == null || result.status() == null || result.status().isBlank()) {
+                return false;
+            }
+            Long started;
+            Long finished;
+            try {
+                started = EpochMillis.parse(result.startedAt());
+                finished = EpochMillis.parse(result.finishedAt());
+            } catch (IllegalArgumentException ex) {
+                return false;
+            }
+            Integer earlier = rows.putIfAbsent(result.testCaseId(), size);
+            if (earlier != null) {
+                int row = earlier;
+                statuses[row] = result.status();
+                if (result.duration() != null) durations[row] = result.duration();
+                if (started != null) startedAt[row] = started;
+                if (finished != null) finishedAt[row] = finished;
+                return true;
+            }
+            caseIds[size] = result.testCaseId();
+            statuses[size] = result.status();
+            durations[size] = result.duration() == null ? NO_DURATION : result.duration();
+            startedAt[size] = started == null ? NO_TIME : started;
+            finishedAt[size] = finished == null ? NO_TIME : finished;
+            size++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.puckowski.testing.bulk;
+
+import com.puckowski.testing.cache.PlanVersions;
+import com.puckowski.testing.db.InList;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.dto.TestCaseResultBatchDTO;
+import com.puckowski.testing.dto.TestCaseResultDTO;
+import com.puckowski.testing.dto.TestCaseResultSummaryDTO;
+import com.puckowski.testing.dto.TestCaseRunResultDTO;
+import com.puckowski.testing.feed.PlanChange;
+import com.puckowski.testing.feed.PlanChangeFeed;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Records run results for many test cases at once: only {@code status} and, when given, {@code duration}
+ * are written, as a batch of keyed UPDATEs. The cases themselves are not read back; without an execution,
+ * one SELECT per chunk finds the plans they belong to, whose cached case lists the write makes stale.
+ * Results linked to an execution are also kept in that execution's history through
+ * {@link TestCaseResultIngestor}.
+ * <p>
+ * A case listed more than once in a request is written once, with its last status and its last duration,
+ * as applying the results in order would leave it, and counts once towards {@code updated}.
+ * <p>
+ * Results are applied in chunks of {@value #CHUNK_SIZE}, each one writer command applied all or nothing;
+ * a very large request is therefore not atomic as a whole, but never holds the writer for long.
+ */
+@Component
+public class TestCaseResultRecorder {
+
+    private static final int CHUNK_SIZE = 2000;
+    private static final int MAX_REPORTED_IDS = 100;
+
+    private final SqliteConnectionPool dataSource;
+    private final SqliteWriter writer;
+    private final TestCaseResultIngestor ingestor;
+    private final PlanVersions planVersions;
+    private final PlanChangeFeed changeFeed;
+
+    public TestCaseResultRecorder(SqliteConnectionPool dataSource, SqliteWriter writer,
+                                  TestCaseResultIngestor ingestor, PlanVersions planVersions,
+                                  PlanChangeFeed changeFeed) {
+        this.dataSource = dataSource;
+        this.writer = writer;
+        this.ingestor = ingestor;
+        this.planVersions = planVersions;
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Applies {@code batch}. With an {@code executionId}, only cases of that execution's plan are updated
+     * (others count as not found), the results are recorded against the execution and its
+     * {@code updated_at} is bumped.
+     *
+     * @throws NoSuchElementException if the execution does not exist
+     */
+    public TestCaseResultSummaryDTO record(TestCaseResultBatchDTO batch) throws SQLException {
+        long start = System.nanoTime();
+        List<TestCaseResultDTO> results = batch.results() == null ? List.of() : batch.results();
+        Long executionPlanId = batch.executionId() == null ? null : findExecutionPlanId(batch.executionId());
+
+        Map<Integer, TestCaseResultDTO> byId = new LinkedHashMap<>();
+        int invalid = 0;
+        for (TestCaseResultDTO result : results) {
+            if (result != null && result.id() != null && result.status() != null && !result.status().isBlank()) {
+                byId.merge(result.id(), result, (earlier, later) -> later.duration() != null ? later
+                        : new TestCaseResultDTO(later.id(), later.status(), earlier.duration()));
+            } else {
+                invalid++;
+            }
+        }
+        List<TestCaseResultDTO> valid = new ArrayList<>(byId.values());
+
+        int updated = 0;
+        List<Integer> notFoundIds = new ArrayList<>();
+        int notFound = 0;
+        Set<Long> touchedPlans = new HashSet<>();
+        try {
+            for (int from = 0; from < valid.size(); from += CHUNK_SIZE) {
+                List<TestCaseResultDTO> chunk = valid.subList(from, Math.min(from + CHUNK_SIZE, valid.size()));
+                ChunkOutcome outcome = writer.execute(conn -> applyChunk(conn, chunk, executionPlanId));
+                updated += outcome.updated();
+                touchedPlans.addAll(outcome.planIds());
+                for (Integer id : outcome.missingIds()) {
+                    notFound++;
+                    if (notFoundIds.size() < MAX_REPORTED_IDS) notFoundIds.add(id);
+                }
+            }
+            if (batch.executionId() != null) {
+                List<TestCaseRunResultDTO> runResults = new ArrayList<>(valid.size());
+                for (TestCaseResultDTO result : valid) {
+                    runResults.add(new TestCaseRunResultDTO(result.id(), result.status(), result.duration(), null, null, null));
+                }
+                ingestor.ingest(batch.executionId(), runResults);
+                writer.execute(conn -> {
+                    try (PreparedStatement ps = conn.prepareStatement("UPDATE test_plan_execution SET updated_at = ? WHERE id = ?")) {
+                        ps.setLong(1, System.currentTimeMillis());
+                        ps.setLong(2, batch.executionId());
+                        ps.executeUpdate();
+                    }
+                    planVersions.bump(conn, executionPlanId);
+                    return null;
+                });
+            }
+        } finally {
+            changeFeed.publish(touchedPlans, PlanChange.TEST_CASES);
+        }
+
+        return new TestCaseResultSummaryDTO(batch.executionId(), results.size(), updated, invalid,
+                notFound, notFoundIds, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private record ChunkOutcome(int updated, List<Integer> missingIds, Set<Long> planIds) {
+    }
+
+    private ChunkOutcome applyChunk(Connection conn, List<TestCaseResultDTO> chunk, Long executionPlanId) throws SQLException {
+        Set<Long> planIds = new HashSet<>();
+        if (executionPlanId != null) {
+            planIds.add(executionPlanId);
+        } else {
+            planIds.addAll(planIdsOf(conn, chunk));
+        }
+
+        String sql = "UPDATE test_case SET status = ?, duration = COALESCE(?, duration) WHERE id = ?"
+                + (executionPlanId != null ? " AND test_plan_id = ?" : "");
+        int updated = 0;
+        List<Integer> missing = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (TestCaseResultDTO result : chunk) {
+                ps.setString(1, result.status());
+                if (result.duration() != null) ps.setInt(2, result.duration()); else ps.setNull(2, Types.INTEGER);
+                ps.setInt(3, result.id());
+                if (executionPlanId != null) ps.setLong(4, executionPlanId);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    updated++;
+                } else {
+                    missing.add(chunk.get(i).id());
+                }
+            }
+        }
+        planVersions.bump(conn, planIds);
+        return new ChunkOutcome(updated, missing, planIds);
+    }
+
+    /**
+     * Plans owning the chunk's cases, so their cached case lists can be evicted afterwards.
+     */
+    private static Set<Long> planIdsOf(Connection conn, List<TestCaseResultDTO> chunk) throws SQLException {
+        Set<Long> planIds = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i += InList.MAX) {
+            List<Integer> batch = new ArrayList<>(InList.MAX);
+            for (TestCaseResultDTO result : chunk.subList(i, Math.min(i + InList.MAX, chunk.size()))) {
+                batch.add(result.id());
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT DISTINCT test_plan_id FROM test_case WHERE id IN ("
+                    + InList.placeholders(batch.size()) + ")")) {
+                InList.bind(ps, 1, batch);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) planIds.add(rs.getLong(1));
+                }
+            }
+        }
+        return planIds;
+    }
+
+    private Long findExecutionPlanId(long executionId) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT test_plan_id FROM test_plan_execution WHERE id = ?")) {
+            ps.setLong(1, executionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) return rs.getLong(1);
+                throw new NoSuchElementException("Execution not found");
+            }
+        }
+    }
+}
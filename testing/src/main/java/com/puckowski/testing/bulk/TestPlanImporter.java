@@ -0,0 +1,385 @@
+package com.puckowski.testing.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.config.BulkImportProperties;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.db.WriteCommand;
+import com.puckowski.testing.dto.ImportErrorDTO;
+import com.puckowski.testing.dto.ImportProgressDTO;
+import com.puckowski.testing.dto.ImportResultDTO;
+import com.puckowski.testing.tag.TagDictionary;
+import com.puckowski.testing.tag.TagIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports plans, tags and test cases in bulk.
+ * <p>
+ * The document is parsed as a stream and written in chunks of {@code bulk.import.chunk-size} records, each
+ * chunk one command on the {@link SqliteWriter}, with the inserts sent as prepared-statement batches. A
+ * chunk is applied all or nothing within the writer's group commit, and reading stops until that commit
+ * has happened, so at most one chunk is in memory besides the one being filled.
+ * <p>
+ * Rows are validated before they are written, so a bad row is reported and skipped without costing the
+ * chunk. If a chunk still breaks a constraint in the database, it is replayed row by row, each in its own
+ * savepoint, to find and report the offending rows while keeping the rest. A busy database or a full write
+ * queue is retried a few times; any other failure ends the import, keeping the chunks already committed.
+ */
+@Component
+public class TestPlanImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(TestPlanImporter.class);
+
+    private static final String INSERT_PLAN = "INSERT INTO test_plan (name, description, status, created_at) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_TAG = "INSERT OR IGNORE INTO test_plan_tag (test_plan_id, tag_id) VALUES (?, ?)";
+    private static final String INSERT_CASE = "INSERT INTO test_case (test_plan_id, name, description, status, expected_result, priority, steps, duration, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final int SQLITE_CONSTRAINT = 19;
+    private static final int TRANSIENT_ATTEMPTS = 3;
+    private static final long TRANSIENT_BACKOFF_MS = 100;
+
+    private final SqliteWriter writer;
+    private final TestPlanCacheInvalidator cacheInvalidator;
+    private final ObjectMapper objectMapper;
+    private final BulkImportProperties properties;
+    private final TagIndex tagIndex;
+    private final TagDictionary tagDictionary;
+
+    public TestPlanImporter(SqliteWriter writer, TestPlanCacheInvalidator cacheInvalidator,
+                            ObjectMapper objectMapper, BulkImportProperties properties, TagIndex tagIndex,
+                            TagDictionary tagDictionary) {
+        this.writer = writer;
+        this.cacheInvalidator = cacheInvalidator;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.tagIndex = tagIndex;
+        this.tagDictionary = tagDictionary;
+    }
+
+    /**
+     * Called after each chunk commits.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        ProgressListener NONE = progress -> {
+        };
+
+        void onProgress(ImportProgressDTO progress) throws IOException;
+    }
+
+    /**
+     * Imports a JSON array of plans or NDJSON, one plan per line; see {@link JsonImportSource}.
+     */
+    public ImportResultDTO importJson(InputStream in, ProgressListener listener) throws SQLException {
+        return run(sink -> new JsonImportSource(objectMapper.getFactory().createParser(in)).read(sink), listener);
+    }
+
+    /**
+     * Imports UTF-8 CSV, one test case per row; see {@link CsvImportSource}.
+     */
+    public ImportResultDTO importCsv(InputStream in, ProgressListener listener) throws SQLException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        return run(new CsvImportSource(reader), listener);
+    }
+
+    private ImportResultDTO run(ImportSource source, ProgressListener listener) throws SQLException {
+        Run run = new Run(listener);
+        String failure = null;
+        try {
+            source.read(run);
+            run.flush();
+        } catch (JsonProcessingException ex) {
+            failure = ex.getLocation() == null
+                    ? "Malformed JSON: " + ex.getOriginalMessage()
+                    : "Malformed JSON at line " + ex.getLocation().getLineNr() + ": " + ex.getOriginalMessage();
+        } catch (IOException ex) {
+            failure = "Failed to read import: " + ex.getMessage();
+        } finally {
+            if (run.plans > 0) {
+                // One reload rather than a refresh per imported plan, before evicting so that no list is
+                // re-cached from the old bitmaps
+                try {
+                    tagIndex.rebuild();
+                } finally {
+                    cacheInvalidator.planCreated(null);
+                }
+            }
+        }
+        ImportResultDTO result = run.result(failure);
+        log.info("Imported {} plans, {} test cases and {} tags in {} ms ({} rows/s, {} failed){}",
+                result.plansCreated(), result.casesCreated(), result.tagsCreated(), result.elapsedMs(),
+                Math.round(result.rowsPerSecond()), result.rowsFailed(), failure == null ? "" : "; stopped: " + failure);
+        return result;
+    }
+
+    /**
+     * State of one import: the chunk being filled and running totals. Only the importing thread touches it;
+     * the writer thread sees a copy of the chunk and hands back a {@link ChunkOutcome}.
+     */
+    private final class Run implements ImportSource.Sink {
+        private final ProgressListener listener;
+        private final long start = System.nanoTime();
+        private List<ImportRecord> chunk = new ArrayList<>(properties.chunkSize());
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private Long planId;
+        private long rowsRead, plans, cases, tags, failed;
+
+        Run(ProgressListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(ImportRecord record) throws IOException, SQLException {
+            rowsRead++;
+            if (record instanceof ImportRecord.Rejected rejected) {
+                error(rejected.row(), rejected.message());
+                return;
+            }
+            chunk.add(record);
+            if (chunk.size() >= properties.chunkSize()) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException, SQLException {
+            if (chunk.isEmpty()) return;
+            List<ImportRecord> records = chunk;
+            chunk = new ArrayList<>(properties.chunkSize());
+            Long startPlanId = planId;
+            ChunkOutcome outcome;
+            try {
+                outcome = execute(conn -> writeChunk(conn, records, startPlanId, false));
+            } catch (SQLException ex) {
+                if (resultCode(ex) != SQLITE_CONSTRAINT) throw ex;
+                log.warn("Import chunk failed as a batch ({}); retrying row by row", ex.getMessage());
+                outcome = execute(conn -> writeChunk(conn, records, startPlanId, true));
+            }
+            planId = outcome.planId();
+            plans += outcome.plans();
+            cases += outcome.cases();
+            tags += outcome.tags();
+            for (ImportErrorDTO error : outcome.errors()) {
+                error(error.row(), error.message());
+            }
+            listener.onProgress(new ImportProgressDTO(rowsRead, plans, cases, tags, failed, elapsedMs()));
+        }
+
+        private void error(long row, String message) {
+            failed++;
+            if (errors.size() < properties.maxReportedErrors()) {
+                errors.add(new ImportErrorDTO(row, message));
+            }
+        }
+
+        private long elapsedMs() {
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+
+        ImportResultDTO result(String failure) {
+            long elapsedNanos = System.nanoTime() - start;
+            double rowsPerSecond = elapsedNanos == 0 ? 0.0 : (plans + cases) * 1_000_000_000.0 / elapsedNanos;
+            return new ImportResultDTO(failure == null, failure, rowsRead, plans, cases, tags, failed,
+                    elapsedNanos / 1_000_000, rowsPerSecond, errors);
+        }
+    }
+
+    /**
+     * Runs {@code command} on the writer, trying again after a short pause if it failed only because the
+     * database was busy or the write queue was full.
+     */
+    private <T> T execute(WriteCommand<T> command) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return writer.execute(command);
+            } catch (SQLException ex) {
+                int code = resultCode(ex);
+                boolean transientFailure = ex instanceof SQLTransientException || code == SQLITE_BUSY || code == SQLITE_LOCKED;
+                if (!transientFailure || attempt == TRANSIENT_ATTEMPTS) throw ex;
+                log.warn("Import chunk failed ({}); retrying, attempt {} of {}", ex.getMessage(), attempt + 1, TRANSIENT_ATTEMPTS);
+                try {
+                    Thread.sleep(TRANSIENT_BACKOFF_MS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * The primary SQLite result code of {@code ex}, looking through causes, as the driver reports a failed
+     * batch as a {@link BatchUpdateException} without one; 0 if there is none.
+     */
+    static int resultCode(SQLException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlEx && sqlEx.getErrorCode() != 0) {
+                return sqlEx.getErrorCode() & 0xff;
+            }
+        }
+        return 0;
+    }
+
+    private record ChunkOutcome(Long planId, int plans, int cases, int tags, List<ImportErrorDTO> errors) {
+    }
+
+    @FunctionalInterface
+    private interface RowWrite {
+        /**
+         * @return tag links inserted by the row; when batching, 0, as those are counted from the batch
+         */
+        int run() throws SQLException;
+    }
+
+    /**
+     * Writes one chunk on the writer connection. Pure with respect to the import state: everything it
+     * learns goes into the returned outcome, which only takes effect once the chunk has committed.
+     *
+     * @param planId       id of the plan that cases at the start of the chunk belong to, if any
+     * @param rowByRow     run every row in its own savepoint instead of batching, to isolate failures
+     */
+    private ChunkOutcome writeChunk(Connection conn, List<ImportRecord> records, Long planId, boolean rowByRow) throws SQLException {
+        List<ImportErrorDTO> errors = new ArrayList<>();
+        int plans = 0, cases = 0, tags = 0;
+        try (PreparedStatement planPs = conn.prepareStatement(INSERT_PLAN);
+             PreparedStatement idPs = conn.prepareStatement("SELECT last_insert_rowid()");
+             PreparedStatement tagPs = conn.prepareStatement(INSERT_TAG);
+             TagDictionary.Resolver tagIds = tagDictionary.resolver(conn);
+             PreparedStatement casePs = conn.prepareStatement(INSERT_CASE)) {
+
+            for (ImportRecord record : records) {
+                switch (record) {
+                    case ImportRecord.Plan plan -> {
+                        planId = null;
+                        if (plan.name() == null || plan.name().isBlank()) {
+                            errors.add(new ImportErrorDTO(plan.row(), "Plan name is required"));
+                            continue;
+                        }
+                        long[] inserted = new long[1];
+                        int linked = write(conn, rowByRow, errors, plan.row(), () -> {
+                            planPs.setString(1, plan.name());
+                            planPs.setString(2, plan.description());
+                            planPs.setString(3, plan.status());
+                            planPs.setLong(4, System.currentTimeMillis());
+                            planPs.executeUpdate();
+                            try (ResultSet rs = idPs.executeQuery()) {
+                                rs.next();
+                                inserted[0] = rs.getLong(1);
+                            }
+                            return addTags(tagPs, tagIds, inserted[0], plan.tags(), rowByRow);
+                        });
+                        if (linked >= 0) {
+                            planId = inserted[0];
+                            plans++;
+                            tags += linked;
+                        }
+                    }
+                    case ImportRecord.Tags extra -> {
+                        if (planId == null) continue;
+                        long target = planId;
+                        int linked = write(conn, rowByRow, errors, extra.row(),
+                                () -> addTags(tagPs, tagIds, target, extra.tags(), rowByRow));
+                        if (linked > 0) tags += linked;
+                    }
+                    case ImportRecord.Case testCase -> {
+                        String problem = planId == null ? "Test case has no plan to belong to (missing or rejected plan)" : validate(testCase);
+                        if (problem != null) {
+                            errors.add(new ImportErrorDTO(testCase.row(), problem));
+                            continue;
+                        }
+                        long target = planId;
+                        if (write(conn, rowByRow, errors, testCase.row(), () -> {
+                            casePs.setLong(1, target);
+                            casePs.setString(2, testCase.name());
+                            casePs.setString(3, testCase.description());
+                            casePs.setString(4, testCase.status() == null ? "PENDING" : testCase.status());
+                            casePs.setString(5, testCase.expectedResult());
+                            casePs.setString(6, testCase.priority());
+                            casePs.setString(7, testCase.steps());
+                            if (testCase.duration() != null) casePs.setInt(8, testCase.duration()); else casePs.setNull(8, Types.INTEGER);
+                            casePs.setLong(9, System.currentTimeMillis());
+                            if (rowByRow) casePs.executeUpdate(); else casePs.addBatch();
+                            return 0;
+                        }) >= 0) {
+                            cases++;
+                        }
+                    }
+                    case ImportRecord.Rejected rejected -> errors.add(new ImportErrorDTO(rejected.row(), rejected.message()));
+                }
+            }
+            if (!rowByRow) {
+                // Repeated tags and tags the plan already has are ignored by the insert and count 0
+                for (int count : tagPs.executeBatch()) {
+                    if (count > 0) tags += count;
+                }
+                casePs.executeBatch();
+            }
+        }
+        return new ChunkOutcome(planId, plans, cases, tags, errors);
+    }
+
+    /**
+     * Links {@code planId} to each of {@code tags}, skipping blank ones.
+     *
+     * @return the links inserted, when not batching
+     */
+    private static int addTags(PreparedStatement tagPs, TagDictionary.Resolver tagIds, long planId, List<String> tags,
+                               boolean rowByRow) throws SQLException {
+        int inserted = 0;
+        for (String tag : tags) {
+            Integer tagId = tagIds.id(tag);
+            if (tagId == null) continue;
+            tagPs.setLong(1, planId);
+            tagPs.setInt(2, tagId);
+            if (rowByRow) inserted += tagPs.executeUpdate(); else tagPs.addBatch();
+        }
+        return inserted;
+    }
+
+    /**
+     * Runs one row's statements. When replaying row by row a failure is rolled back to a savepoint and
+     * reported; otherwise it fails the whole chunk, which is then replayed.
+     *
+     * @return what {@code action} returned if the row was written (or queued in the batch), or -1 if not
+     */
+    private static int write(Connection conn, boolean rowByRow, List<ImportErrorDTO> errors, long row, RowWrite action) throws SQLException {
+        if (!rowByRow) {
+            return action.run();
+        }
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            int result = action.run();
+            conn.releaseSavepoint(savepoint);
+            return result;
+        } catch (SQLException ex) {
+            conn.rollback(savepoint);
+            conn.releaseSavepoint(savepoint);
+            errors.add(new ImportErrorDTO(row, ex.getMessage()));
+            return -1;
+        }
+    }
+
+    /**
+     * Checks the NOT NULL columns up front, so that one bad row does not fail a whole batch.
+     */
+    private static String validate(ImportRecord.Case testCase) {
+        if (testCase.name() == null || testCase.name().isBlank()) return "Test case name is required";
+        if (testCase.expectedResult() == null) return "Test case expectedResult is required";
+        if (testCase.priority() == null) return "Test case priority is required";
+        if (testCase.steps() == null) return "Test case steps are required";
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.puckowski.testing.cache;
+
+import java.util.List;
+
+/**
+ * Names of the caches behind {@code @Cacheable} in the controllers. Each gets its own Caffeine policy
+ * from {@code cache.specs.<name>}.
+ */
+public final class CacheNames {
+
+    /** Single plan with its tags, keyed by plan version (see {@link PlanVersionKeyGenerator}). */
+    public static final String TEST_PLAN = "testPlan";
+
+    /** Plan with tags and all of its test cases, keyed by plan version. */
+    public static final String TEST_PLAN_WITH_CASES = "testPlanWithCases";
+
+    /** First page of a plan's test cases, keyed by plan version. */
+    public static final String TEST_CASES_BY_PLAN = "testCasesByPlan";
+
+    /** Pages of the plan list, keyed by write generation and request parameters (see {@link PlanListKeyGenerator}). */
+    public static final String TEST_PLANS = "testPlans";
+
+    /** Pages of the plan list with the total count, keyed like {@link #TEST_PLANS}. */
+    public static final String TEST_PLAN_PAGES = "testPlanPages";
+
+    /** Cross-plan execution reports, keyed by time window and plan filter. */
+    public static final String REPORTS = "reports";
+
+    public static final List<String> ALL = List.of(
+            TEST_PLAN, TEST_PLAN_WITH_CASES, TEST_CASES_BY_PLAN, TEST_PLANS, TEST_PLAN_PAGES, REPORTS);
+
+    private CacheNames() {
+    }
+}
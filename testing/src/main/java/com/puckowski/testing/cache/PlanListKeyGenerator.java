@@ -0,0 +1,34 @@
+package com.puckowski.testing.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keys the plan list caches by their request parameters and a generation that {@link TestPlanCacheInvalidator}
+ * advances after every plan write. Like the plan version in {@link PlanVersionKeyGenerator}, the generation is
+ * read before the list is, so a list read while a write is being applied is stored under the old generation
+ * and never looked up again. Evicting the old entries afterwards only frees their memory.
+ */
+@Component(PlanListKeyGenerator.NAME)
+public class PlanListKeyGenerator implements KeyGenerator {
+
+    public static final String NAME = "planListKey";
+
+    private final AtomicLong generation = new AtomicLong();
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return new SimpleKey(generation.get(), new SimpleKey(params));
+    }
+
+    /**
+     * Makes every list cached so far unreachable. Called once the write is committed and the tag index has it.
+     */
+    void advance() {
+        generation.incrementAndGet();
+    }
+}
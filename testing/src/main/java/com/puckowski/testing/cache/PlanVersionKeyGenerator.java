@@ -0,0 +1,45 @@
+package com.puckowski.testing.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+
+/**
+ * Keys per-plan caches by plan id and version, for {@code @Cacheable} methods whose first argument is the plan
+ * id. The version is the one the ETag interceptor already read for this request, or is read here when there is
+ * none. Either way it is read before the data, so an entry never holds a body older than its key: a write
+ * commits under a new version, which misses, and no eviction has to win a race against readers.
+ * <p>
+ * Superseded entries are no longer looked up and age out under the cache's size and expiry bounds.
+ */
+@Component(PlanVersionKeyGenerator.NAME)
+public class PlanVersionKeyGenerator implements KeyGenerator {
+
+    public static final String NAME = "planVersionKey";
+
+    private final PlanVersions planVersions;
+
+    public PlanVersionKeyGenerator(PlanVersions planVersions) {
+        this.planVersions = planVersions;
+    }
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        long planId = (Long) params[0];
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null
+                && request.getAttribute(PlanVersions.REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof PlanVersions.Key key
+                && key.planId() == planId) {
+            return key;
+        }
+        try {
+            return new PlanVersions.Key(planId, planVersions.current(planId));
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Could not read the version of plan " + planId, ex);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.puckowski.testing.cache;
+
+import com.puckowski.testing.db.SqliteConnectionPool;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * The {@code test_plan.version} counters behind the ETags of per-plan GETs. Writers bump a plan's version
+ * inside the transaction that changes the plan, its tags, cases or executions, so a reader never sees new
+ * rows under an old version.
+ * <p>
+ * Plan ids come from AUTOINCREMENT and are never reused, so {@code id} and {@code version} together name
+ * one state of one plan for good.
+ */
+@Component
+public class PlanVersions {
+
+    /**
+     * Request attribute under which the ETag interceptor leaves the {@link Key} it tagged the response with.
+     */
+    public static final String REQUEST_ATTRIBUTE = PlanVersions.class.getName() + ".KEY";
+
+    private static final String BUMP_SQL = "UPDATE test_plan SET version = version + 1 WHERE id = ?";
+
+    private final SqliteConnectionPool dataSource;
+
+    /**
+     * One state of one plan, as the cache key of per-plan reads.
+     *
+     * @param version null if there was no such plan
+     */
+    public record Key(long planId, Long version) {
+    }
+
+    public PlanVersions(SqliteConnectionPool dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * The plan's current version, or null if there is no such plan. Reads the one {@code test_plan} row.
+     */
+    public Long current(long planId) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT version FROM test_plan WHERE id = ?")) {
+            ps.setLong(1, planId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Strong entity tag for the given state of a plan.
+     */
+    public static String etag(long planId, long version) {
+        return "\"" + planId + "-" + version + "\"";
+    }
+
+    /**
+     * Bumps one plan's version; call on the writer connection, inside the changing transaction.
+     */
+    public void bump(Connection conn, long planId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(BUMP_SQL)) {
+            ps.setLong(1, planId);
+            ps.executeUpdate();
+        }
+    }
+
+    public void bump(Connection conn, Collection<Long> planIds) throws SQLException {
+        if (planIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(BUMP_SQL)) {
+            for (Long planId : planIds) {
+                ps.setLong(1, planId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Bumps the version of the plan an execution belongs to; call before deleting the execution.
+     *
+     * @return that plan's id, or null if there is no such execution
+     */
+    public Long bumpOfExecution(Connection conn, long executionId) throws SQLException {
+        Long planId;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT test_plan_id FROM test_plan_execution WHERE id = ?")) {
+            ps.setLong(1, executionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                planId = rs.next() ? rs.getLong(1) : null;
+            }
+        }
+        if (planId != null) {
+            bump(conn, planId);
+        }
+        return planId;
+    }
+}
@@ -0,0 +1,64 @@
+package com.puckowski.testing.cache;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts exactly the cache entries a write can have made stale. Lives in its own bean so the
+ * {@code @CacheEvict} annotations go through Spring's proxy; calling them on the controller itself
+ * would bypass it.
+ * <p>
+ * Per-plan entries need no eviction: they are keyed by plan version (see {@link PlanVersionKeyGenerator}), and
+ * every write bumps the version in its own transaction. List pages are keyed by a generation that each plan
+ * write advances here (see {@link PlanListKeyGenerator}), since any plan or tag change can shift which plans
+ * land on which page; the superseded pages are then evicted wholesale. Reports are evicted wholesale too: a
+ * window covers many plans, and windows overlap. They are read from the report snapshot, which already lags
+ * writes by up to its refresh interval; a report cached by a read that races the eviction stays until the next
+ * snapshot refresh evicts again, or the cache's {@code expireAfterWrite} runs out, whichever comes first.
+ * <p>
+ * Callers evict after every other in-memory view of the change, such as the {@code TagIndex}, is up to date;
+ * a read in between would otherwise cache a result built from the old view.
+ */
+@Component
+public class TestPlanCacheInvalidator {
+
+    private final PlanListKeyGenerator planLists;
+
+    public TestPlanCacheInvalidator(PlanListKeyGenerator planLists) {
+        this.planLists = planLists;
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.TEST_PLANS, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.TEST_PLAN_PAGES, allEntries = true)
+    })
+    public void planCreated(Long planId) {
+        planLists.advance();
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.TEST_PLANS, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.TEST_PLAN_PAGES, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.REPORTS, allEntries = true)
+    })
+    public void planUpdated(Long planId) {
+        planLists.advance();
+    }
+
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheNames.TEST_PLANS, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.TEST_PLAN_PAGES, allEntries = true),
+            @CacheEvict(cacheNames = CacheNames.REPORTS, allEntries = true)
+    })
+    public void planDeleted(Long planId) {
+        planLists.advance();
+    }
+
+    /**
+     * An execution was started, changed or deleted, or results were recorded against one.
+     */
+    @CacheEvict(cacheNames = CacheNames.REPORTS, allEntries = true)
+    public void executionsChanged() {
+    }
+}
@@ -0,0 +1,16 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for {@link com.puckowski.testing.bulk.TestPlanImporter}, bound from {@code bulk.import.*}.
+ *
+ * @param chunkSize          records written per write command, and so applied or rolled back together
+ * @param maxReportedErrors  how many per-row errors are listed in the result; the rest are only counted
+ */
+@ConfigurationProperties(prefix = "bulk.import")
+public record BulkImportProperties(
+        @DefaultValue("2000") int chunkSize,
+        @DefaultValue("1000") int maxReportedErrors
+) {}
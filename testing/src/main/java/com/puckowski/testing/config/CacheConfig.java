@@ -1,26 +1,34 @@
 package com.puckowski.testing.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.puckowski.testing.cache.CacheNames;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Configuration
+@EnableConfigurationProperties(CacheProperties.class)
 public class CacheConfig {
-    @Bean
-    public Caffeine<Object, Object> caffeineConfig() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(10, TimeUnit.MINUTES)
-                .maximumSize(100);
-    }
 
     @Bean
-    public CacheManager cacheManager(Caffeine<Object, Object> caffeine) {
+    public CacheManager cacheManager(CacheProperties properties) {
+        Map<String, String> specs = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (properties.specs() != null) {
+            specs.putAll(properties.specs());
+        }
+
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.setCaffeine(caffeine);
+        for (String name : CacheNames.ALL) {
+            String spec = specs.getOrDefault(name, properties.defaultSpec());
+            cacheManager.registerCustomCache(name, Caffeine.from(spec)
+                    .recordStats()
+                    .build());
+        }
         return cacheManager;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Caffeine policies, bound from {@code cache.*}.
+ *
+ * @param defaultSpec  spec used for any cache without its own entry
+ * @param specs        Caffeine spec per cache name, e.g. {@code maximumSize=500,expireAfterWrite=10m}
+ */
+@ConfigurationProperties(prefix = "cache")
+public record CacheProperties(
+        @DefaultValue("maximumSize=1000,expireAfterWrite=10m") String defaultSpec,
+        Map<String, String> specs
+) {}
@@ -0,0 +1,22 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link com.puckowski.testing.feed.PlanChangeFeed}, bound from {@code changes.*}.
+ *
+ * @param coalesceWindow  changes reaching a subscriber within this window after the first go out as one event
+ * @param maxPendingPlans distinct plans a subscriber may have pending before it is told to resync instead
+ * @param heartbeat       how often idle streams get a comment line, to keep proxies from closing them
+ * @param timeout         how long a stream stays open; {@code EventSource} clients reconnect on their own
+ */
+@ConfigurationProperties(prefix = "changes")
+public record ChangeFeedProperties(
+        @DefaultValue("250ms") Duration coalesceWindow,
+        @DefaultValue("1000") int maxPendingPlans,
+        @DefaultValue("30s") Duration heartbeat,
+        @DefaultValue("30m") Duration timeout
+) {}
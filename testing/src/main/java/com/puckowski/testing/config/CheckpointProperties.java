@@ -0,0 +1,22 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link com.puckowski.testing.db.WalCheckpointer}, bound from {@code sqlite.checkpoint.*}.
+ *
+ * @param enabled      whether to run background checkpoints at all
+ * @param interval     time between checkpoints
+ * @param walSizeLimit WAL size, in bytes, above which a checkpoint also resets and truncates the WAL file
+ * @param truncateWait how long a truncating checkpoint may wait for readers, holding off writers meanwhile
+ */
+@ConfigurationProperties(prefix = "sqlite.checkpoint")
+public record CheckpointProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10s") Duration interval,
+        @DefaultValue("67108864") long walSizeLimit,
+        @DefaultValue("500ms") Duration truncateWait
+) {}
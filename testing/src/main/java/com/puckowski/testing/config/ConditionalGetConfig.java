@@ -0,0 +1,21 @@
+package com.puckowski.testing.config;
+
+import com.puckowski.testing.controller.PlanETagInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class ConditionalGetConfig implements WebMvcConfigurer {
+
+    private final PlanETagInterceptor planETagInterceptor;
+
+    public ConditionalGetConfig(PlanETagInterceptor planETagInterceptor) {
+        this.planETagInterceptor = planETagInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(planETagInterceptor).addPathPatterns("/api/testplans/*", "/api/testplans/*/**");
+    }
+}
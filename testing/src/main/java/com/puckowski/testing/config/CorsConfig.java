@@ -15,7 +15,8 @@ public class CorsConfig {
                 registry.addMapping("/**") // apply to all paths
                         .allowedOrigins("*") // allow any origin
                         .allowedMethods("*") // allow any HTTP method
-                        .allowedHeaders("*"); // allow any headers
+                        .allowedHeaders("*") // allow any headers
+                        .exposedHeaders("X-Next-Cursor", "ETag"); // let browser clients read the paging cursor and version tag
             }
         };
     }
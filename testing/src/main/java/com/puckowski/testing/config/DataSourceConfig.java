@@ -1,18 +1,55 @@
 package com.puckowski.testing.config;
 
+import com.puckowski.testing.db.QueryListener;
+import com.puckowski.testing.db.SlowQueryLog;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteSnapshot;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.db.WalCheckpointer;
+import com.puckowski.testing.db.migration.MigrationRunner;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import javax.sql.DataSource;
-import org.sqlite.SQLiteDataSource;
+import java.sql.SQLException;
 
 @Configuration
+@EnableConfigurationProperties({SqlitePoolProperties.class, SqliteWriterProperties.class, PagingProperties.class,
+        BulkImportProperties.class, ResultIngestProperties.class, SlowQueryProperties.class,
+        ChangeFeedProperties.class, SnapshotProperties.class, CheckpointProperties.class})
 public class DataSourceConfig {
 
+    @Bean(destroyMethod = "close")
+    public SqliteConnectionPool dataSource(SqlitePoolProperties properties,
+                                           ObjectProvider<QueryListener> queryListeners) throws SQLException {
+        return new SqliteConnectionPool(properties, QueryListener.of(queryListeners.orderedStream().toList()));
+    }
+
     @Bean
-    public DataSource dataSource() {
-        SQLiteDataSource ds = new SQLiteDataSource();
-        ds.setUrl("jdbc:sqlite:mydb.sqlite");
-        return ds;
+    public SlowQueryLog slowQueryLog(SlowQueryProperties properties) {
+        return new SlowQueryLog(properties);
+    }
+
+    @Bean(destroyMethod = "close")
+    public SqliteWriter sqliteWriter(SqliteConnectionPool dataSource, SqliteWriterProperties properties) {
+        return new SqliteWriter(dataSource, properties);
+    }
+
+    /**
+     * Takes the migration runner so the first copy is made of the migrated schema.
+     */
+    @Bean(destroyMethod = "close")
+    public SqliteSnapshot sqliteSnapshot(SqliteConnectionPool dataSource, SqliteWriter sqliteWriter,
+                                         SnapshotProperties properties, SqlitePoolProperties poolProperties,
+                                         ObjectProvider<QueryListener> queryListeners, MigrationRunner migrations) {
+        return new SqliteSnapshot(dataSource, sqliteWriter, properties, poolProperties,
+                QueryListener.of(queryListeners.orderedStream().toList()));
+    }
+
+    @Bean(destroyMethod = "close")
+    public WalCheckpointer walCheckpointer(SqliteConnectionPool dataSource, CheckpointProperties properties)
+            throws SQLException {
+        return new WalCheckpointer(dataSource, properties);
     }
 }
@@ -0,0 +1,39 @@
+package com.puckowski.testing.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteSnapshot;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.db.WalCheckpointer;
+import com.puckowski.testing.metrics.MicrometerQueryListener;
+import com.puckowski.testing.metrics.SqliteMetrics;
+import com.puckowski.testing.metrics.TimedJacksonHttpMessageConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Meters beyond what Actuator records on its own. Request timings ({@code http.server.requests}) and the
+ * Caffeine cache statistics ({@code cache.gets}, {@code cache.puts}, ...) come from Spring Boot; percentiles
+ * are set per meter in {@code application.properties}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MicrometerQueryListener queryListener(MeterRegistry registry) {
+        return new MicrometerQueryListener(registry);
+    }
+
+    @Bean
+    public SqliteMetrics sqliteMetrics(SqliteConnectionPool dataSource, SqliteWriter sqliteWriter,
+                                       SqliteSnapshot sqliteSnapshot, WalCheckpointer walCheckpointer) {
+        return new SqliteMetrics(dataSource, sqliteWriter, sqliteSnapshot, walCheckpointer);
+    }
+
+    @Bean
+    public TimedJacksonHttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                MeterRegistry registry) {
+        return new TimedJacksonHttpMessageConverter(objectMapper, registry);
+    }
+}
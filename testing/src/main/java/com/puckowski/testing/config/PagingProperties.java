@@ -0,0 +1,32 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Page sizes for the cursor-paginated list endpoints, bound from {@code paging.*}.
+ *
+ * @param defaultPageSize  rows per page when the client does not ask for a size
+ * @param maxPageSize      the most rows a single page may hold; larger requests are capped
+ */
+@ConfigurationProperties(prefix = "paging")
+public record PagingProperties(
+        @DefaultValue("100") int defaultPageSize,
+        @DefaultValue("500") int maxPageSize
+) {
+
+    /**
+     * Resolves the requested page size against the limits.
+     *
+     * @param per               requested size, or null
+     * @param endpointDefault   the endpoint's own default, or null for {@link #defaultPageSize()}
+     * @throws IllegalArgumentException if {@code per} is less than 1
+     */
+    public int resolve(Integer per, Integer endpointDefault) {
+        if (per != null && per < 1) {
+            throw new IllegalArgumentException("per must be at least 1");
+        }
+        int size = per != null ? per : endpointDefault != null ? endpointDefault : defaultPageSize;
+        return Math.min(size, maxPageSize);
+    }
+}
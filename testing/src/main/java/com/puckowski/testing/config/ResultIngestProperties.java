@@ -0,0 +1,20 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link com.puckowski.testing.bulk.TestCaseResultIngestor}, bound from {@code ingest.*}.
+ *
+ * @param queueCapacity     submitted result batches that may wait before submitters are made to wait
+ * @param maxRowsPerCommit  upper bound on result rows written in one transaction
+ * @param submitTimeout     how long a submitter waits for room in a full queue before failing
+ */
+@ConfigurationProperties(prefix = "ingest")
+public record ResultIngestProperties(
+        @DefaultValue("4096") int queueCapacity,
+        @DefaultValue("10000") int maxRowsPerCommit,
+        @DefaultValue("5s") Duration submitTimeout
+) {}
@@ -0,0 +1,22 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link com.puckowski.testing.db.SlowQueryLog}, bound from {@code sqlite.slow-query.*}.
+ *
+ * @param enabled   whether statements are checked at all
+ * @param threshold executions taking at least this long are recorded
+ * @param capacity  how many recorded executions are kept; older ones are overwritten
+ * @param explain   whether to capture {@code EXPLAIN QUERY PLAN} the first time each statement runs
+ */
+@ConfigurationProperties(prefix = "sqlite.slow-query")
+public record SlowQueryProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("50ms") Duration threshold,
+        @DefaultValue("256") int capacity,
+        @DefaultValue("true") boolean explain
+) {}
@@ -0,0 +1,22 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link com.puckowski.testing.db.SqliteSnapshot}, bound from {@code sqlite.snapshot.*}.
+ *
+ * @param enabled         whether reports read from a snapshot; if not, they read the live database
+ * @param path            file name prefix of the snapshot copies; each copy adds {@code -<pid>-<n>.sqlite}
+ * @param maxStaleness    how often the snapshot is refreshed, if anything was written since the last one
+ * @param readConnections read-only connections kept open on the current snapshot
+ */
+@ConfigurationProperties(prefix = "sqlite.snapshot")
+public record SnapshotProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("mydb-snapshot") String path,
+        @DefaultValue("30s") Duration maxStaleness,
+        @DefaultValue("2") int readConnections
+) {}
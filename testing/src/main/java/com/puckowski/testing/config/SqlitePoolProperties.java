@@ -0,0 +1,32 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link com.puckowski.testing.db.SqliteConnectionPool}, bound from {@code sqlite.pool.*}.
+ *
+ * @param url               JDBC url of the database file
+ * @param readConnections   number of read-only connections kept open
+ * @param maxWait           how long a caller may wait for a free connection before failing
+ * @param connectionStats   whether to record per-connection borrow counts and hold times
+ * @param synchronous       value for {@code PRAGMA synchronous}
+ * @param mmapSize          value for {@code PRAGMA mmap_size}, in bytes
+ * @param cacheSize         value for {@code PRAGMA cache_size}; negative values are KiB
+ * @param busyTimeout       value for {@code PRAGMA busy_timeout}
+ * @param statementCacheSize prepared statements kept open per connection; 0 disables the cache
+ */
+@ConfigurationProperties(prefix = "sqlite.pool")
+public record SqlitePoolProperties(
+        @DefaultValue("jdbc:sqlite:mydb.sqlite") String url,
+        @DefaultValue("4") int readConnections,
+        @DefaultValue("5s") Duration maxWait,
+        @DefaultValue("true") boolean connectionStats,
+        @DefaultValue("NORMAL") String synchronous,
+        @DefaultValue("268435456") long mmapSize,
+        @DefaultValue("-65536") int cacheSize,
+        @DefaultValue("5s") Duration busyTimeout,
+        @DefaultValue("64") int statementCacheSize
+) {}
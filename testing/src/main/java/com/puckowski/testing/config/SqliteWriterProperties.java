@@ -0,0 +1,22 @@
+package com.puckowski.testing.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@link com.puckowski.testing.db.SqliteWriter}, bound from {@code sqlite.writer.*}.
+ *
+ * @param queueCapacity  how many write commands may wait before submitters are made to wait
+ * @param maxBatchSize   upper bound on commands committed in one transaction
+ * @param batchWindow    how long the writer keeps collecting commands after the first one arrives
+ * @param submitTimeout  how long a submitter waits for room in a full queue before failing
+ */
+@ConfigurationProperties(prefix = "sqlite.writer")
+public record SqliteWriterProperties(
+        @DefaultValue("10000") int queueCapacity,
+        @DefaultValue("256") int maxBatchSize,
+        @DefaultValue("2ms") Duration batchWindow,
+        @DefaultValue("5s") Duration submitTimeout
+) {}
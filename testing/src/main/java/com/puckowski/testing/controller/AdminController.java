@@ -1,51 +1,136 @@
 package com.puckowski.testing.controller;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.puckowski.testing.dataset.DatasetGenerator;
+import com.puckowski.testing.db.SlowQueryLog;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.db.migration.MigrationRunner;
+import com.puckowski.testing.dto.CacheStatsDTO;
+import com.puckowski.testing.dto.DatasetResultDTO;
+import com.puckowski.testing.dto.DatasetSpecDTO;
+import com.puckowski.testing.dto.PoolStatsDTO;
+import com.puckowski.testing.dto.QueryPlanDTO;
+import com.puckowski.testing.dto.SchemaVersionDTO;
+import com.puckowski.testing.dto.SlowQueryLogDTO;
 import com.puckowski.testing.dto.WalInitResponseDTO;
+import com.puckowski.testing.dto.WriterStatsDTO;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
-import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.Statement;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.IOException;
-import java.util.stream.Collectors;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 public class AdminController {
 
     @Autowired
-    private DataSource dataSource;
+    private SqliteConnectionPool dataSource;
+
+    @Autowired
+    private SqliteWriter writer;
+
+    @Autowired
+    private MigrationRunner migrationRunner;
+
+    @Autowired
+    private CacheManager cacheManager;
 
+    @Autowired
+    private DatasetGenerator datasetGenerator;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    /**
+     * Schema setup now happens automatically at startup; this re-runs any pending migrations and is
+     * safe to call repeatedly.
+     */
     @PostMapping("/init")
     public WalInitResponseDTO initWalMode() {
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement()) {
-
-            // Enable WAL mode
-            stmt.execute("PRAGMA journal_mode=WAL;");
-
-            // Read and execute init.sql from resources/static
-            String sql = readSqlFile("static/init.sql");
-            // Split and execute each statement
-            for (String statement : sql.split(";")) {
-                String trimmed = statement.trim();
-                if (!trimmed.isEmpty()) {
-                    stmt.execute(trimmed);
-                }
-            }
-
-            return new WalInitResponseDTO(0, "SQLite database initialized in WAL mode and schema created.");
+        try {
+            int applied = migrationRunner.migrate();
+            return new WalInitResponseDTO(0, "SQLite database is in WAL mode and schema is up to date (" + applied + " migration(s) applied).");
         } catch (Exception ex) {
             ex.printStackTrace();
             return new WalInitResponseDTO(1, "Failed to initialize: " + ex.getMessage());
         }
     }
 
-    private String readSqlFile(String path) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                getClass().getClassLoader().getResourceAsStream(path)))) {
-            return reader.lines().collect(Collectors.joining("\n"));
+    @GetMapping("/admin/migrations")
+    public List<SchemaVersionDTO> getMigrations() throws SQLException {
+        return migrationRunner.appliedVersions();
+    }
+
+    @GetMapping("/admin/pool")
+    public PoolStatsDTO getPoolStats() {
+        return dataSource.stats();
+    }
+
+    @GetMapping("/admin/writer")
+    public WriterStatsDTO getWriterStats() {
+        return writer.stats();
+    }
+
+    /**
+     * Statement executions slower than {@code sqlite.slow-query.threshold}, newest first.
+     */
+    @GetMapping("/admin/slow-queries")
+    public SlowQueryLogDTO getSlowQueries() {
+        return slowQueryLog.snapshot();
+    }
+
+    @DeleteMapping("/admin/slow-queries")
+    public SlowQueryLogDTO clearSlowQueries() {
+        slowQueryLog.clear();
+        return slowQueryLog.snapshot();
+    }
+
+    /**
+     * {@code EXPLAIN QUERY PLAN} of every statement run so far, those that scan a whole table first.
+     */
+    @GetMapping("/admin/query-plans")
+    public List<QueryPlanDTO> getQueryPlans() {
+        return slowQueryLog.plans();
+    }
+
+    @GetMapping("/admin/caches")
+    public List<CacheStatsDTO> getCacheStats() {
+        List<CacheStatsDTO> result = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            if (!(cacheManager.getCache(name) instanceof CaffeineCache cache)) continue;
+            var nativeCache = cache.getNativeCache();
+            CacheStats stats = nativeCache.stats();
+            result.add(new CacheStatsDTO(
+                    name,
+                    nativeCache.estimatedSize(),
+                    stats.hitCount(),
+                    stats.missCount(),
+                    stats.hitRate(),
+                    stats.evictionCount(),
+                    stats.loadSuccessCount(),
+                    stats.loadFailureCount()
+            ));
+        }
+        return result;
+    }
+
+    /**
+     * Adds a synthetic data set to the database, for load and performance testing; see {@link DatasetGenerator}.
+     * Answers once everything is written, which takes a while for large data sets.
+     */
+    @PostMapping("/admin/dataset")
+    public DatasetResultDTO generateDataset(@RequestBody(required = false) DatasetSpecDTO spec) throws SQLException {
+        try {
+            spec = DatasetGenerator.withDefaults(spec);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
         }
+        return datasetGenerator.generate(spec);
     }
 }
@@ -1,10 +1,10 @@
 package com.puckowski.testing.controller;
 
+import com.puckowski.testing.db.EpochMillis;
 import com.puckowski.testing.dto.TestPlanDTO;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,7 +18,7 @@ public class BenchmarkController {
                     1,
                     "name",
                     "description",
-                    LocalDateTime.now(),
+                    EpochMillis.format(System.currentTimeMillis()),
                     "status",
                     new ArrayList<>(),
                     new ArrayList<>()
@@ -0,0 +1,84 @@
+package com.puckowski.testing.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puckowski.testing.bulk.TestCaseResultRecorder;
+import com.puckowski.testing.bulk.TestPlanImporter;
+import com.puckowski.testing.dto.ImportResultDTO;
+import com.puckowski.testing.dto.TestCaseResultBatchDTO;
+import com.puckowski.testing.dto.TestCaseResultSummaryDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+
+@RestController
+@RequestMapping("/api")
+public class BulkController {
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final TestPlanImporter importer;
+    private final TestCaseResultRecorder resultRecorder;
+    private final ObjectMapper objectMapper;
+
+    public BulkController(TestPlanImporter importer, TestCaseResultRecorder resultRecorder, ObjectMapper objectMapper) {
+        this.importer = importer;
+        this.resultRecorder = resultRecorder;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Imports plans with their tags and test cases from a JSON array, NDJSON (one plan per line) or CSV
+     * (one test case per row) and answers with a summary, including the rows that were rejected.
+     * Malformed input stops the import with 400; chunks committed before that point are kept.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public ResponseEntity<ImportResultDTO> importTestPlans(HttpServletRequest request) throws SQLException, IOException {
+        ImportResultDTO result = runImport(request.getContentType(), request.getInputStream(), TestPlanImporter.ProgressListener.NONE);
+        return result.completed() ? ResponseEntity.ok(result) : ResponseEntity.badRequest().body(result);
+    }
+
+    /**
+     * Same import, answered as NDJSON: a progress line after every committed chunk, then the summary.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importTestPlansWithProgress(HttpServletRequest request) throws IOException {
+        String contentType = request.getContentType();
+        InputStream body = request.getInputStream();
+        StreamingResponseBody stream = out -> {
+            try (NdjsonWriter ndjson = new NdjsonWriter(objectMapper, out)) {
+                ImportResultDTO result = runImport(contentType, body, progress -> {
+                    ndjson.write(progress);
+                    ndjson.flush();
+                });
+                ndjson.write(result);
+            } catch (SQLException ex) {
+                throw new IOException("Import failed: " + ex.getMessage(), ex);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(stream);
+    }
+
+    /**
+     * Records the status (and optionally duration) of many test cases in one call, e.g. at the end of a
+     * CI run, and answers with counts rather than the updated rows.
+     */
+    @PostMapping("/testcases/results")
+    public TestCaseResultSummaryDTO recordResults(@RequestBody TestCaseResultBatchDTO batch) throws SQLException {
+        return resultRecorder.record(batch);
+    }
+
+    private ImportResultDTO runImport(String contentType, InputStream body, TestPlanImporter.ProgressListener listener) throws SQLException {
+        boolean csv = contentType != null && MediaType.parseMediaType(contentType).getSubtype().equalsIgnoreCase("csv");
+        return csv ? importer.importCsv(body, listener) : importer.importJson(body, listener);
+    }
+}
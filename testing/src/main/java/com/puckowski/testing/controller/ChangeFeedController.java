@@ -0,0 +1,35 @@
+package com.puckowski.testing.controller;
+
+import com.puckowski.testing.feed.PlanChangeFeed;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Live plan changes as server-sent events, for dashboards that would otherwise poll.
+ */
+@RestController
+@RequestMapping("/api")
+public class ChangeFeedController {
+
+    private final PlanChangeFeed changeFeed;
+
+    public ChangeFeedController(PlanChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Streams {@code changes} events, each a JSON array of {@code {planId, changes}} gathered over the
+     * coalescing window, for the plans given as repeated {@code plan} parameters, or for all plans without
+     * any. A {@code resync} event means changes were dropped for a slow client: re-read everything shown.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestParam(required = false, name = "plan") List<Long> plans) {
+        return changeFeed.subscribe(plans == null ? List.of() : plans);
+    }
+}
@@ -0,0 +1,99 @@
+package com.puckowski.testing.controller;
+
+import com.puckowski.testing.bulk.TestCaseResultIngestor;
+import com.puckowski.testing.config.PagingProperties;
+import com.puckowski.testing.db.EpochMillis;
+import com.puckowski.testing.db.KeysetSort;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.dto.ExecutionResultSummaryDTO;
+import com.puckowski.testing.dto.TestCaseResultSummaryDTO;
+import com.puckowski.testing.dto.TestCaseRunResultDTO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-case results of an execution, stored in {@code test_case_result}.
+ */
+@RestController
+@RequestMapping("/api")
+public class ExecutionResultController {
+
+    private static final KeysetSort RESULT_SORTS = KeysetSort.on("test_case_id", KeysetSort.ID)
+            .with("status", "status");
+
+    private final SqliteConnectionPool dataSource;
+    private final TestCaseResultIngestor ingestor;
+    private final PagingProperties paging;
+
+    public ExecutionResultController(SqliteConnectionPool dataSource, TestCaseResultIngestor ingestor, PagingProperties paging) {
+        this.dataSource = dataSource;
+        this.ingestor = ingestor;
+        this.paging = paging;
+    }
+
+    /**
+     * Records results for cases of the execution's plan; safe to call repeatedly and concurrently, the latest
+     * result per case wins. Answers once the results have committed.
+     */
+    @PostMapping("/executions/{id}/results")
+    public TestCaseResultSummaryDTO recordResults(@PathVariable Long id, @RequestBody List<TestCaseRunResultDTO> results) throws SQLException {
+        return ingestor.ingest(id, results);
+    }
+
+    @GetMapping("/executions/{id}/results")
+    public ResponseEntity<List<TestCaseRunResultDTO>> getResults(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer per
+    ) throws SQLException {
+        KeysetSort.Query page = Paging.query(paging, RESULT_SORTS, sort, cursor, per, null);
+        String sql = "SELECT test_case_id, status, duration, started_at, finished_at, updated_at" + page.selectKey()
+                + " FROM test_case_result WHERE execution_id = ?"
+                + (page.condition().isEmpty() ? "" : " AND " + page.condition()) + page.orderBy();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            ps.setInt(page.bindCondition(ps, 2), page.fetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                return Paging.response(page.read(rs, ExecutionResultController::toRunResultDTO));
+            }
+        }
+    }
+
+    @GetMapping("/executions/{id}/results/summary")
+    public ExecutionResultSummaryDTO getResultSummary(@PathVariable Long id) throws SQLException {
+        String sql = "SELECT status, COUNT(*), COALESCE(SUM(duration), 0) FROM test_case_result WHERE execution_id = ? GROUP BY status ORDER BY status";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                Map<String, Integer> byStatus = new LinkedHashMap<>();
+                int total = 0;
+                long duration = 0;
+                while (rs.next()) {
+                    byStatus.put(rs.getString(1), rs.getInt(2));
+                    total += rs.getInt(2);
+                    duration += rs.getLong(3);
+                }
+                return new ExecutionResultSummaryDTO(id, total, byStatus, duration);
+            }
+        }
+    }
+
+    private static TestCaseRunResultDTO toRunResultDTO(ResultSet rs) throws SQLException {
+        return new TestCaseRunResultDTO(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getObject(3) == null ? null : rs.getInt(3),
+                EpochMillis.format(rs, 4),
+                EpochMillis.format(rs, 5),
+                EpochMillis.format(rs.getLong(6))
+        );
+    }
+}
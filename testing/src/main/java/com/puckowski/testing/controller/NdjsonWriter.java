@@ -0,0 +1,56 @@
+package com.puckowski.testing.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes newline-delimited JSON to a response stream, one object per line, using the application's
+ * {@link ObjectMapper} so each line is serialised exactly like the equivalent element of a JSON array
+ * response. Output is flushed every {@value #FLUSH_EVERY} lines, which keeps the first bytes flowing early
+ * without turning every row into its own network write.
+ */
+final class NdjsonWriter implements Closeable {
+
+    private static final int FLUSH_EVERY = 256;
+
+    private final JsonGenerator generator;
+    private final ObjectWriter writer;
+    private int pending;
+
+    NdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Lines are separated explicitly below, not by Jackson's default root separator (a space).
+        this.generator.setRootValueSeparator(null);
+        this.writer = objectMapper.writerFor(Object.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    void write(Object value) throws IOException {
+        writer.writeValue(generator, value);
+        generator.writeRaw('\n');
+        if (++pending >= FLUSH_EVERY) {
+            generator.flush();
+            pending = 0;
+        }
+    }
+
+    /**
+     * Pushes buffered lines to the client now, for output that should be seen as soon as it is written.
+     */
+    void flush() throws IOException {
+        generator.flush();
+        pending = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.flush();
+        generator.close();
+    }
+}
@@ -0,0 +1,44 @@
+package com.puckowski.testing.controller;
+
+import com.puckowski.testing.config.PagingProperties;
+import com.puckowski.testing.db.KeysetSort;
+import com.puckowski.testing.db.Page;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Request and response handling shared by the cursor-paginated list endpoints.
+ */
+final class Paging {
+
+    /**
+     * Response header carrying the cursor for the next page of a list; absent on the last page.
+     */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private Paging() {
+    }
+
+    /**
+     * Prepares a page query, answering 400 for an unknown sort, a bad cursor or a bad page size.
+     */
+    static KeysetSort.Query query(PagingProperties paging, KeysetSort sorts, String sort, String cursor,
+                                  Integer per, Integer endpointDefault) {
+        try {
+            return sorts.query(sort, cursor, paging.resolve(per, endpointDefault));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    static <T> ResponseEntity<List<T>> response(Page<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+}
@@ -0,0 +1,23 @@
+package com.puckowski.testing.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET handler whose response depends only on one plan and so changes only when that plan's
+ * version does. {@link PlanETagInterceptor} tags such responses and answers matching
+ * {@code If-None-Match} requests with 304 before the handler runs.
+ * <p>
+ * Put it on one representation per URL only: the tag is not told apart by media type.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@interface PlanETag {
+
+    /**
+     * The path variable holding the plan id.
+     */
+    String value() default "id";
+}
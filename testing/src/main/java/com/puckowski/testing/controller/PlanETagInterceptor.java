@@ -0,0 +1,61 @@
+package com.puckowski.testing.controller;
+
+import com.puckowski.testing.cache.PlanVersions;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Conditional GET for {@link PlanETag} handlers. The plan's version is looked up before the handler runs;
+ * if the client already holds that version the response is a bodiless 304 and neither the handler, the
+ * caches nor the case tables are touched. Otherwise the ETag goes out with the normal response.
+ * <p>
+ * The version is read before the data, so a write landing in between can only make the tag older than
+ * the body, never newer: the client re-fetches once more than needed rather than keeping stale data. The
+ * handlers' caches hold to the same rule by keying on the version read here (see
+ * {@link com.puckowski.testing.cache.PlanVersionKeyGenerator}), so a cached body is never older than its tag.
+ */
+@Component
+public class PlanETagInterceptor implements HandlerInterceptor {
+
+    private final PlanVersions planVersions;
+
+    public PlanETagInterceptor(PlanVersions planVersions) {
+        this.planVersions = planVersions;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        PlanETag planETag = method.getMethodAnnotation(PlanETag.class);
+        if (planETag == null || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String variable = variables == null ? null : variables.get(planETag.value());
+        long planId;
+        try {
+            planId = Long.parseLong(variable);
+        } catch (NumberFormatException ex) {
+            return true; // The handler rejects it as it would any bad id
+        }
+        Long version = planVersions.current(planId);
+        request.setAttribute(PlanVersions.REQUEST_ATTRIBUTE, new PlanVersions.Key(planId, version));
+        if (version == null) {
+            return true; // Missing plan: the handler answers 404 or an empty list as usual
+        }
+        // Let browsers keep the body but always revalidate it
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        return !new ServletWebRequest(request, response).checkNotModified(PlanVersions.etag(planId, version));
+    }
+}
@@ -1,105 +1,218 @@
 package com.puckowski.testing.controller;
 
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import com.puckowski.testing.cache.CacheNames;
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.db.EpochMillis;
+import com.puckowski.testing.db.SqliteSnapshot;
+import com.puckowski.testing.dto.*;
+import com.puckowski.testing.report.ExecutionRollups;
+import com.puckowski.testing.report.RollupTotals;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
-import javax.sql.DataSource;
 import java.sql.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
 
+/**
+ * Execution reports, read from the hourly and daily rollups maintained by {@link ExecutionRollups} rather
+ * than from the raw executions and results, so their cost depends on the length of the window and not on
+ * how many results it holds.
+ * <p>
+ * Reads go to the {@link SqliteSnapshot}, so reports may trail writes by up to
+ * {@code sqlite.snapshot.max-staleness}. Cached reports are dropped whenever a fresher snapshot comes in.
+ */
 @RestController
 @RequestMapping("/api/reports")
 public class ReportController {
 
-    private final DataSource dataSource;
+    private static final int DEFAULT_WINDOW_DAYS = 30;
 
-    public ReportController(DataSource dataSource) {
-        this.dataSource = dataSource;
+    private final SqliteSnapshot snapshot;
+    private final ExecutionRollups rollups;
+    private final TestPlanCacheInvalidator cacheInvalidator;
+
+    public ReportController(SqliteSnapshot snapshot, ExecutionRollups rollups, TestPlanCacheInvalidator cacheInvalidator) {
+        this.snapshot = snapshot;
+        this.rollups = rollups;
+        this.cacheInvalidator = cacheInvalidator;
+        snapshot.onRefresh(cacheInvalidator::executionsChanged);
     }
 
-    private Timestamp parseTimestamp(String s) {
-        if (s == null) return null;
-        String t = s.trim();
-        if (t.isEmpty()) return null;
-        // normalize space to 'T' for LocalDateTime parsing
-        if (!t.contains("T") && t.contains(" ")) {
-            t = t.replace(' ', 'T');
-        }
-        try {
-            LocalDateTime ldt = LocalDateTime.parse(t);
-            return Timestamp.valueOf(ldt);
-        } catch (Exception e) {
-            // Fallback: try Timestamp.valueOf with space-separated format
-            try {
-                String alt = t.replace('T', ' ');
-                return Timestamp.valueOf(alt);
-            } catch (Exception ex) {
-                // Could not parse; return null to let DB insert null
-                return null;
+    /**
+     * Execution counts, recorded durations and pass/fail rates per plan and per tag, over the executions
+     * that started in {@code [from, to)}. Both bounds are ISO local date-times and are widened to whole hours;
+     * {@code to} defaults to the end of the current hour and {@code from} to 30 days before it.
+     * {@code planId} may be repeated to restrict the report to those plans.
+     * <p>
+     * Rates are taken over completed results (anything but PENDING) and are null when there are none.
+     */
+    @GetMapping("/testplans")
+    @Cacheable(cacheNames = CacheNames.REPORTS, key = "{#from, #to, #planId}")
+    public ReportSummaryDTO getSummary(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) List<Long> planId
+    ) throws SQLException {
+        long[] window = window(from, to);
+        List<Long> planIds = planId == null ? List.of() : planId;
+
+        List<PlanReportDTO> plans = new ArrayList<>();
+        Map<String, RollupTotals> tagTotals = new TreeMap<>();
+        Map<String, Integer> tagPlans = new HashMap<>();
+        try (Connection conn = snapshot.getConnection()) {
+            Map<Long, RollupTotals> totals = rollups.totalsByPlan(conn, window[0], window[1], planIds);
+            if (!totals.isEmpty()) {
+                // Names and tags of just the plans in the report, passed as one JSON array parameter.
+                String sql = """
+                        SELECT tp.id, tp.name, t.name FROM test_plan tp
+                        LEFT JOIN test_plan_tag pt ON pt.test_plan_id = tp.id
+                        LEFT JOIN tag t ON t.id = pt.tag_id
+                        WHERE tp.id IN (SELECT value FROM json_each(?))
+                        ORDER BY tp.id""";
+                StringJoiner ids = new StringJoiner(",", "[", "]");
+                totals.keySet().forEach(id -> ids.add(id.toString()));
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, ids.toString());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        long previous = -1;
+                        while (rs.next()) {
+                            long id = rs.getLong(1);
+                            RollupTotals planTotals = totals.get(id);
+                            if (id != previous) {
+                                plans.add(toPlanReport(id, rs.getString(2), planTotals));
+                                previous = id;
+                            }
+                            String tag = rs.getString(3);
+                            if (tag != null) {
+                                tagTotals.computeIfAbsent(tag, t -> new RollupTotals()).merge(planTotals);
+                                tagPlans.merge(tag, 1, Integer::sum);
+                            }
+                        }
+                    }
+                }
             }
         }
+
+        List<TagReportDTO> tags = new ArrayList<>(tagTotals.size());
+        tagTotals.forEach((tag, t) -> tags.add(new TagReportDTO(tag, tagPlans.get(tag), t.executions(), t.results(),
+                t.completed(), t.passed(), t.failed(), t.blocked(), t.passRate(), t.failRate(), t.totalDuration(),
+                t.executionDuration())));
+        return new ReportSummaryDTO(EpochMillis.format(window[0]), EpochMillis.format(window[1]), plans, tags);
+    }
+
+    /**
+     * One plan's hourly or daily rollups over {@code [from, to)}, oldest first, for trend charts. Buckets
+     * without executions are omitted. The window defaults as for {@link #getSummary} and is widened to whole
+     * buckets.
+     */
+    @GetMapping("/testplans/{planId}/rollups")
+    public List<RollupBucketDTO> getRollups(
+            @PathVariable Long planId,
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to
+    ) throws SQLException {
+        ExecutionRollups.Granularity g = switch (granularity.toLowerCase(Locale.ROOT)) {
+            case "hour" -> ExecutionRollups.Granularity.HOUR;
+            case "day" -> ExecutionRollups.Granularity.DAY;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity must be 'hour' or 'day'");
+        };
+        long[] window = window(from, to);
+        if (g == ExecutionRollups.Granularity.DAY) {
+            window[0] = ExecutionRollups.dayStart(window[0]);
+            window[1] = ExecutionRollups.dayStart(window[1]) == window[1] ? window[1] : ExecutionRollups.nextDay(window[1]);
+        }
+
+        Map<Long, RollupTotals> series;
+        try (Connection conn = snapshot.getConnection()) {
+            series = rollups.series(conn, planId, g, window[0], window[1]);
+        }
+        List<RollupBucketDTO> result = new ArrayList<>(series.size());
+        series.forEach((bucketStart, t) -> result.add(new RollupBucketDTO(EpochMillis.format(bucketStart),
+                t.executions(), t.results(), t.completed(), t.passed(), t.failed(), t.blocked(), t.passRate(),
+                t.failRate(), t.totalDuration(), t.executionDuration())));
+        return result;
+    }
+
+    /**
+     * Recomputes all rollups from the raw executions and results. Only needed after changing the data
+     * outside the API, or to repair the rollups; the API keeps them current on its own.
+     */
+    @PostMapping("/rollups/rebuild")
+    public RollupRebuildDTO rebuildRollups() throws SQLException {
+        RollupRebuildDTO result = rollups.rebuild();
+        cacheInvalidator.executionsChanged();
+        return result;
     }
 
     /**
      * Returns a report that sums test case durations for a test plan across executions
-     * that started and finished within the last month.
+     * that started within the last month: the default report window of 30 days, rounded out to whole hours.
      * <p>
      * The response contains:
      * - planId
-     * - periodStart, periodEnd (SQL datetime strings)
+     * - periodStart, periodEnd (ISO local date-times, as elsewhere in the API)
      * - executionCount
-     * - perExecutionDurationSum (sum of durations of all test cases belonging to the plan)
-     * - totalDuration (perExecutionDurationSum * executionCount)
+     * - perExecutionDurationSum (sum of the current durations of all test cases belonging to the plan)
+     * - totalDuration (sum of the durations recorded for the plan's test cases in those executions)
      */
     @GetMapping("/testplans/{planId}/duration-sum-last-month")
     public Map<String, Object> getDurationSumLastMonth(@PathVariable Long planId) throws SQLException {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime oneMonthAgo = now.minusMonths(1);
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        String periodStart = oneMonthAgo.format(fmt);
-        String periodEnd = now.format(fmt);
-
-        // Count executions in the period
-        String execCountSql = "SELECT COUNT(*) FROM test_plan_execution WHERE test_plan_id = ? AND started_at >= ? AND finished_at <= ?";
-        int executionCount = 0;
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(execCountSql)) {
-            ps.setLong(1, planId);
-            ps.setTimestamp(2, parseTimestamp(periodStart));
-            ps.setTimestamp(3, parseTimestamp(periodEnd));
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) executionCount = rs.getInt(1);
-            }
-        }
+        long[] window = window(null, null);
+        long start = window[0];
+        long end = window[1];
 
-        // Sum durations of test cases for the plan (per execution)
-        String sumSql = "SELECT SUM(duration) FROM test_case WHERE test_plan_id = ?";
+        RollupTotals totals;
         Integer perExecutionSum = 0;
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sumSql)) {
-            ps.setLong(1, planId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    Object o = rs.getObject(1);
-                    if (o != null) perExecutionSum = ((Number) o).intValue();
+        try (Connection conn = snapshot.getConnection()) {
+            totals = rollups.totalsByPlan(conn, start, end, List.of(planId)).getOrDefault(planId, new RollupTotals());
+            try (PreparedStatement ps = conn.prepareStatement("SELECT SUM(duration) FROM test_case WHERE test_plan_id = ?")) {
+                ps.setLong(1, planId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        Object o = rs.getObject(1);
+                        if (o != null) perExecutionSum = ((Number) o).intValue();
+                    }
                 }
             }
         }
 
-        long totalDuration = ((long) perExecutionSum) * ((long) executionCount);
-
         Map<String, Object> resp = new LinkedHashMap<>();
         resp.put("planId", planId);
-        resp.put("periodStart", periodStart);
-        resp.put("periodEnd", periodEnd);
-        resp.put("executionCount", executionCount);
+        resp.put("periodStart", EpochMillis.format(start));
+        resp.put("periodEnd", EpochMillis.format(end));
+        resp.put("executionCount", totals.executions());
         resp.put("perExecutionDurationSum", perExecutionSum);
-        resp.put("totalDuration", totalDuration);
+        resp.put("totalDuration", totals.totalDuration());
         return resp;
     }
+
+    /**
+     * Parses the report window and widens it to whole hours, answering 400 for bad or inverted bounds.
+     */
+    private static long[] window(String from, String to) {
+        long start;
+        long end;
+        try {
+            Long toMillis = EpochMillis.parse(to);
+            end = ExecutionRollups.hourCeiling(toMillis != null ? toMillis : System.currentTimeMillis());
+            Long fromMillis = EpochMillis.parse(from);
+            start = ExecutionRollups.hourStart(fromMillis != null ? fromMillis
+                    : end - ChronoUnit.DAYS.getDuration().toMillis() * DEFAULT_WINDOW_DAYS);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+        if (start >= end) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+        return new long[]{start, end};
+    }
+
+    private static PlanReportDTO toPlanReport(long planId, String name, RollupTotals t) {
+        return new PlanReportDTO(planId, name, t.executions(), t.results(), t.completed(), t.passed(), t.failed(),
+                t.blocked(), t.passRate(), t.failRate(), t.totalDuration(), t.executionDuration());
+    }
 }
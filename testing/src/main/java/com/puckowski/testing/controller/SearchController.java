@@ -0,0 +1,235 @@
+package com.puckowski.testing.controller;
+
+import com.puckowski.testing.config.PagingProperties;
+import com.puckowski.testing.db.Page;
+import com.puckowski.testing.db.PageCursor;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.dto.TestCaseSearchHitDTO;
+import com.puckowski.testing.dto.TestPlanSearchHitDTO;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.HtmlUtils;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search over plans and test cases, backed by the FTS5 indexes {@code test_plan_fts} and
+ * {@code test_case_fts} (kept in sync by triggers, see {@code V9__full_text_search.sql}).
+ * <p>
+ * The query is taken as plain words, not FTS5 syntax: every word must match, and the last one also matches
+ * as a prefix, so results follow a search box as the user types. Hits come best first by BM25, with name
+ * matches weighted above the other columns, a page at a time; follow {@value Paging#NEXT_CURSOR_HEADER}
+ * for the next page. Only the page being returned gets snippets, since they cost far more than ranking.
+ */
+@RestController
+@RequestMapping("/api/search")
+public class SearchController {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_WORDS = 16;
+    private static final String RANK_SORT = "rank";
+
+    private static final String PLAN_RANK = "bm25(test_plan_fts, 10.0, 1.0)";
+    private static final String CASE_RANK = "bm25(test_case_fts, 10.0, 2.0, 1.0, 1.0)";
+    private static final String SEEK = " AND (h.rank > ? OR (h.rank = ? AND h.id > ?))";
+
+    // Markers that cannot occur in tokenized text; swapped for <mark> tags after escaping.
+    private static final String MARK_OPEN = "\u0002";
+    private static final String MARK_CLOSE = "\u0003";
+
+    private final SqliteConnectionPool dataSource;
+    private final PagingProperties paging;
+
+    public SearchController(SqliteConnectionPool dataSource, PagingProperties paging) {
+        this.dataSource = dataSource;
+        this.paging = paging;
+    }
+
+    /**
+     * Plans matching {@code q} in their own name or description or in the text of any of their test cases,
+     * ranked by their best match.
+     */
+    @GetMapping("/testplans")
+    public ResponseEntity<List<TestPlanSearchHitDTO>> searchTestPlans(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer per
+    ) throws SQLException {
+        String match = matchQuery(q);
+        PageCursor after = decode(cursor);
+        int pageSize = pageSize(per);
+        if (match == null) return Paging.response(new Page<>(List.of(), null));
+
+        // MIN() makes SQLite take source and source_id from the best-ranked row of each plan.
+        String sql = """
+                SELECT h.id, p.name, p.description, p.status, h.source, h.source_id, h.rank FROM (
+                    SELECT plan_id AS id, MIN(rank) AS rank, source, source_id FROM (
+                        SELECT rowid AS plan_id, %s AS rank, 'plan' AS source, rowid AS source_id
+                        FROM test_plan_fts WHERE test_plan_fts MATCH ?
+                        UNION ALL
+                        SELECT c.test_plan_id, f.rank, 'case', f.id
+                        FROM (SELECT rowid AS id, %s AS rank FROM test_case_fts WHERE test_case_fts MATCH ?) f
+                        JOIN test_case c ON c.id = f.id
+                    ) GROUP BY plan_id
+                ) h JOIN test_plan p ON p.id = h.id
+                WHERE 1 = 1%s
+                ORDER BY h.rank, h.id LIMIT ?""".formatted(PLAN_RANK, CASE_RANK, after == null ? "" : SEEK);
+
+        List<TestPlanSearchHitDTO> hits = new ArrayList<>();
+        String nextCursor = null;
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int idx = 1;
+                ps.setString(idx++, match);
+                ps.setString(idx++, match);
+                idx = bindSeek(ps, idx, after);
+                ps.setInt(idx, pageSize + 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (hits.size() == pageSize) {
+                            TestPlanSearchHitDTO last = hits.get(hits.size() - 1);
+                            nextCursor = new PageCursor(RANK_SORT, false, -last.score(), last.id()).encode();
+                            break;
+                        }
+                        boolean inCase = "case".equals(rs.getString(5));
+                        hits.add(new TestPlanSearchHitDTO(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                                rs.getString(5), inCase ? rs.getInt(6) : null, null, -rs.getDouble(7)));
+                    }
+                }
+            }
+            for (int i = 0; i < hits.size(); i++) {
+                TestPlanSearchHitDTO hit = hits.get(i);
+                boolean inCase = hit.testCaseId() != null;
+                String snippet = snippet(conn, inCase ? "test_case_fts" : "test_plan_fts", match,
+                        inCase ? hit.testCaseId() : hit.id());
+                hits.set(i, new TestPlanSearchHitDTO(hit.id(), hit.name(), hit.description(), hit.status(),
+                        hit.matchedIn(), hit.testCaseId(), snippet, hit.score()));
+            }
+        }
+        return Paging.response(new Page<>(hits, nextCursor));
+    }
+
+    /**
+     * Test cases matching {@code q} in their name, description, expected result or steps, optionally within
+     * one plan.
+     */
+    @GetMapping("/testcases")
+    public ResponseEntity<List<TestCaseSearchHitDTO>> searchTestCases(
+            @RequestParam String q,
+            @RequestParam(required = false) Long planId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer per
+    ) throws SQLException {
+        String match = matchQuery(q);
+        PageCursor after = decode(cursor);
+        int pageSize = pageSize(per);
+        if (match == null) return Paging.response(new Page<>(List.of(), null));
+
+        String sql = """
+                SELECT h.id, c.test_plan_id, p.name, c.name, h.rank
+                FROM (SELECT rowid AS id, %s AS rank FROM test_case_fts WHERE test_case_fts MATCH ?) h
+                JOIN test_case c ON c.id = h.id
+                JOIN test_plan p ON p.id = c.test_plan_id
+                WHERE 1 = 1%s%s
+                ORDER BY h.rank, h.id LIMIT ?""".formatted(CASE_RANK, planId == null ? "" : " AND c.test_plan_id = ?",
+                after == null ? "" : SEEK);
+
+        List<TestCaseSearchHitDTO> hits = new ArrayList<>();
+        String nextCursor = null;
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int idx = 1;
+                ps.setString(idx++, match);
+                if (planId != null) ps.setLong(idx++, planId);
+                idx = bindSeek(ps, idx, after);
+                ps.setInt(idx, pageSize + 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (hits.size() == pageSize) {
+                            TestCaseSearchHitDTO last = hits.get(hits.size() - 1);
+                            nextCursor = new PageCursor(RANK_SORT, false, -last.score(), last.id()).encode();
+                            break;
+                        }
+                        hits.add(new TestCaseSearchHitDTO(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4),
+                                null, -rs.getDouble(5)));
+                    }
+                }
+            }
+            for (int i = 0; i < hits.size(); i++) {
+                TestCaseSearchHitDTO hit = hits.get(i);
+                hits.set(i, new TestCaseSearchHitDTO(hit.id(), hit.testPlanId(), hit.planName(), hit.name(),
+                        snippet(conn, "test_case_fts", match, hit.id()), hit.score()));
+            }
+        }
+        return Paging.response(new Page<>(hits, nextCursor));
+    }
+
+    /**
+     * Turns free text into an FTS5 query: each word quoted (so operators and punctuation are inert) and the
+     * last one marked as a prefix.
+     *
+     * @return the query, or null if {@code q} contains no words
+     */
+    static String matchQuery(String q) {
+        List<String> words = new ArrayList<>();
+        Matcher m = WORD.matcher(q == null ? "" : q);
+        while (m.find() && words.size() < MAX_WORDS) {
+            words.add('"' + m.group() + '"');
+        }
+        if (words.isEmpty()) return null;
+        int last = words.size() - 1;
+        words.set(last, words.get(last) + "*");
+        return String.join(" ", words);
+    }
+
+    private String snippet(Connection conn, String table, String match, long rowid) throws SQLException {
+        String sql = "SELECT snippet(" + table + ", -1, char(2), char(3), '…', 16) FROM " + table
+                + " WHERE " + table + " MATCH ? AND rowid = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, match);
+            ps.setLong(2, rowid);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getString(1) == null) return null;
+                return HtmlUtils.htmlEscape(rs.getString(1))
+                        .replace(MARK_OPEN, "<mark>")
+                        .replace(MARK_CLOSE, "</mark>");
+            }
+        }
+    }
+
+    private static int bindSeek(PreparedStatement ps, int idx, PageCursor after) throws SQLException {
+        if (after == null) return idx;
+        double rank = ((Number) after.key()).doubleValue();
+        ps.setDouble(idx++, rank);
+        ps.setDouble(idx++, rank);
+        ps.setLong(idx++, after.id());
+        return idx;
+    }
+
+    private static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            PageCursor decoded = PageCursor.decode(cursor);
+            if (!RANK_SORT.equals(decoded.sort()) || !(decoded.key() instanceof Number)) {
+                throw new IllegalArgumentException("Cursor does not belong to a search");
+            }
+            return decoded;
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    private int pageSize(Integer per) {
+        try {
+            return paging.resolve(per, 20);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+}
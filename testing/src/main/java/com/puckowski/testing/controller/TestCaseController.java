@@ -1,214 +1,402 @@
 package com.puckowski.testing.controller;
 
+import com.puckowski.testing.cache.CacheNames;
+import com.puckowski.testing.cache.PlanListKeyGenerator;
+import com.puckowski.testing.cache.PlanVersionKeyGenerator;
+import com.puckowski.testing.cache.PlanVersions;
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.config.PagingProperties;
+import com.puckowski.testing.db.EpochMillis;
+import com.puckowski.testing.db.KeysetSort;
+import com.puckowski.testing.db.Page;
+import com.puckowski.testing.db.PageCursor;
+import com.puckowski.testing.db.RowMapper;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteWriter;
 import com.puckowski.testing.dto.*;
-import org.springframework.cache.annotation.CacheEvict;
+import com.puckowski.testing.feed.PlanChange;
+import com.puckowski.testing.feed.PlanChangeFeed;
+import com.puckowski.testing.report.ExecutionRollups;
+import com.puckowski.testing.tag.TagDictionary;
+import com.puckowski.testing.tag.TagExpression;
+import com.puckowski.testing.tag.TagIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @RestController
 @RequestMapping("/api")
 public class TestCaseController {
 
-    private final DataSource dataSource;
-
-    public TestCaseController(DataSource dataSource) {
+    // Most important first when sorting by priority ascending; matches idx_test_case_plan_priority.
+    private static final String PRIORITY_RANK =
+            "CASE priority WHEN 'CRITICAL' THEN 0 WHEN 'HIGH' THEN 1 WHEN 'MEDIUM' THEN 2 WHEN 'LOW' THEN 3 ELSE 4 END";
+
+    // Plan columns as toTestPlanDTO reads them, then its tag ids; see readPlan.
+    private static final String PLAN_SQL = "SELECT id,name,description,created_at,status,"
+            + "(SELECT json_group_array(tag_id) FROM test_plan_tag WHERE test_plan_id = test_plan.id) AS tag_ids"
+            + " FROM test_plan WHERE id = ?";
+    // PLAN_SQL materialized once, each row then carrying one of the plan's cases (all null if it has none).
+    private static final String PLAN_GRAPH_SQL = "WITH p AS MATERIALIZED (" + PLAN_SQL + ")"
+            + " SELECT p.*, tc.id, tc.test_plan_id, tc.name, tc.description, tc.status, tc.created_at,"
+            + " tc.expected_result, tc.priority, tc.steps, tc.duration"
+            + " FROM p LEFT JOIN test_case tc ON tc.test_plan_id = p.id";
+    // A plan and everything hanging off it, each bound to the plan id. Results are found through both the
+    // plan's executions and its cases; deleting the cases fires the full-text index triggers.
+    private static final List<String> DELETE_PLAN_SQL = List.of(
+            "DELETE FROM test_case_result WHERE execution_id IN (SELECT id FROM test_plan_execution WHERE test_plan_id = ?)",
+            "DELETE FROM test_case_result WHERE test_case_id IN (SELECT id FROM test_case WHERE test_plan_id = ?)",
+            "DELETE FROM test_plan_execution WHERE test_plan_id = ?",
+            "DELETE FROM test_case WHERE test_plan_id = ?",
+            "DELETE FROM test_plan_tag WHERE test_plan_id = ?",
+            "DELETE FROM test_plan WHERE id = ?");
+
+    private static final String TEST_CASE_COLUMNS =
+            "id, test_plan_id, name, description, status, created_at, expected_result, priority, steps, duration";
+    private static final String EXECUTION_COLUMNS =
+            "id, test_plan_id, status, started_at, finished_at, result_notes, created_at, updated_at";
+    // Rows read per borrow of a read connection when streaming NDJSON.
+    private static final int STREAM_CHUNK = 1_000;
+
+    // Tag-filtered plans sorted other than by id: larger sets are scanned for in chunks, see readPlanPage.
+    private static final int MAX_INLINE_IDS = 2_000;
+    private static final int SCAN_CHUNK = 500;
+
+    static final KeysetSort TEST_PLAN_SORTS = KeysetSort.on("tp.id", KeysetSort.ID)
+            .with("status", "tp.status")
+            .with("created_at", "tp.created_at");
+    private static final KeysetSort TEST_CASE_SORTS = KeysetSort.on("id", KeysetSort.ID)
+            .with("priority", PRIORITY_RANK)
+            .with("status", "status")
+            .with("created_at", "created_at");
+    private static final KeysetSort EXECUTION_SORTS = KeysetSort.on("id", "-" + KeysetSort.ID)
+            .with("status", "status")
+            .with("created_at", "created_at");
+
+    private final SqliteConnectionPool dataSource;
+    private final SqliteWriter writer;
+    private final TestPlanCacheInvalidator cacheInvalidator;
+    private final ObjectMapper objectMapper;
+    private final PagingProperties paging;
+    private final ExecutionRollups rollups;
+    private final TagIndex tagIndex;
+    private final TagDictionary tagDictionary;
+    private final PlanVersions planVersions;
+    private final PlanChangeFeed changeFeed;
+
+    public TestCaseController(SqliteConnectionPool dataSource, SqliteWriter writer,
+                              TestPlanCacheInvalidator cacheInvalidator, ObjectMapper objectMapper, PagingProperties paging, ExecutionRollups rollups,
+                              TagIndex tagIndex, TagDictionary tagDictionary, PlanVersions planVersions,
+                              PlanChangeFeed changeFeed) {
         this.dataSource = dataSource;
+        this.writer = writer;
+        this.cacheInvalidator = cacheInvalidator;
+        this.objectMapper = objectMapper;
+        this.paging = paging;
+        this.rollups = rollups;
+        this.tagIndex = tagIndex;
+        this.tagDictionary = tagDictionary;
+        this.planVersions = planVersions;
+        this.changeFeed = changeFeed;
     }
 
     // ------ CRUD for Test Plans ------
 
-    @CacheEvict(value = "testPlanCount", allEntries = true)
-    private void evictTestPlanCountCache() {
-
+    /**
+     * Number of plans, optionally only those carrying {@code tag} or matching the tag expression {@code tags}
+     * (see {@link TagExpression}). Counted from the {@link TagIndex} without touching SQLite.
+     */
+    @GetMapping("/testplans/count")
+    public TestPlanCountDTO getTestPlanCount(
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String tags
+    ) throws SQLException {
+        TagExpression expression = tagFilter(tag, tags);
+        return new TestPlanCountDTO(expression == null ? tagIndex.planCount() : tagIndex.count(expression));
     }
 
-    @CacheEvict(value = "testPlans", allEntries = true)
-    private void evictTestPlanCache() {
-
+    /**
+     * For each tag, how many of the plans matching {@code tags} (all plans if absent) carry it, most common
+     * first. Tags no matching plan carries are left out.
+     */
+    @GetMapping("/testplans/facets")
+    public List<TagFacetDTO> getTagFacets(@RequestParam(required = false) String tags) throws SQLException {
+        TagExpression expression = tagFilter(null, tags);
+        Map<String, Integer> facets = tagIndex.facets(expression == null ? null : tagIndex.matching(expression));
+        List<TagFacetDTO> result = new ArrayList<>(facets.size());
+        facets.forEach((tag, count) -> result.add(new TagFacetDTO(tag, count)));
+        return result;
     }
 
-    @GetMapping("/testplans/count")
-    @Cacheable(cacheNames = "testPlanCount")
-    public TestPlanCountDTO getTestPlanCount(
-            @RequestParam(required = false) String tag
+    /**
+     * Tags starting with {@code prefix} (ignoring case), alphabetically, for autocomplete. Served from the
+     * in-memory {@link TagDictionary}.
+     */
+    @GetMapping("/tags")
+    public List<TestTagDTO> suggestTags(
+            @RequestParam(required = false, defaultValue = "") String prefix,
+            @RequestParam(required = false, defaultValue = "10") Integer limit
     ) throws SQLException {
-        String baseSql = "SELECT COUNT(DISTINCT tp.id) FROM test_plan tp";
-        String joinSql = "";
-        String whereSql = "";
-        List<Object> params = new ArrayList<>();
-        if (tag != null && !tag.isBlank()) {
-            joinSql = " INNER JOIN test_plan_tags tpt ON tp.id = tpt.test_plan_id";
-            whereSql = " WHERE tpt.tag = ?";
-            params.add(tag);
+        if (limit < 1 || limit > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and 100");
         }
-        String sql = baseSql + joinSql + whereSql;
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            int paramIndex = 1;
-            for (Object param : params) {
-                ps.setObject(paramIndex++, param);
-            }
+        return tagDictionary.suggest(prefix.strip(), limit);
+    }
 
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return new TestPlanCountDTO(rs.getInt(1));
-                } else {
-                    throw new SQLException("Failed to count test plans");
-                }
+    private static TagExpression tagFilter(String tag, String tags) {
+        if (tags != null && !tags.isBlank()) {
+            try {
+                return TagExpression.parse(tags);
+            } catch (IllegalArgumentException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
             }
         }
+        return tag != null && !tag.isBlank() ? TagExpression.tag(tag) : null;
     }
 
     @GetMapping("/testplans/{id}/with-testcases")
+    @PlanETag
+    @Cacheable(cacheNames = CacheNames.TEST_PLAN_WITH_CASES, keyGenerator = PlanVersionKeyGenerator.NAME)
     public TestPlanDTO getTestPlanWithTestCases(@PathVariable Long id) throws SQLException {
-        TestPlanDTO plan = getTestPlan(id);
+        try (Connection conn = dataSource.getConnection()) {
+            return readPlan(conn, id, true);
+        }
+    }
 
-    String sql = "SELECT id, test_plan_id, name, description, status, created_at, expected_result, priority, steps, duration FROM test_case WHERE test_plan_id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ResultSet rs = ps.executeQuery();
+    /**
+     * NDJSON variant of {@link #getTestPlanWithTestCases}: the first line is the plan (tags included, with an
+     * empty {@code testCases}), followed by one line per test case.
+     */
+    @GetMapping(value = "/testplans/{id}/with-testcases", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTestPlanWithTestCases(@PathVariable Long id) throws SQLException {
+        // Resolve the plan up front so a missing plan is still a 404 rather than a truncated stream.
+        TestPlanDTO plan = getTestPlan(id);
+        return ndjson(out -> {
+            out.write(plan);
+            return streamQuery(out, TEST_CASE_COLUMNS, "test_case", TEST_CASE_SORTS, id, this::toTestCaseDTO);
+        });
+    }
 
-            List<TestCaseDTO> testCases = new ArrayList<>();
-            while (rs.next()) {
-                testCases.add(toTestCaseDTO(rs));
-            }
 
-            // Return a new TestPlanDTO with test cases added
-            return new TestPlanDTO(
-                    plan.id(),
-                    plan.name(),
-                    plan.description(),
-                    plan.createdAt(),
-                    plan.status(),
-                    plan.tagList(),
-                    testCases
-            );
+    /**
+     * Lists plans a page at a time. Follow {@value Paging#NEXT_CURSOR_HEADER} from each response to get the next
+     * page. {@code after} (a plan id) is still accepted in place of a cursor for the default sort.
+     * <p>
+     * {@code filter} keeps plans carrying that one tag; {@code tags} takes a {@link TagExpression} such as
+     * {@code smoke AND payments AND NOT flaky} and wins if both are given. Matching plans come from the
+     * {@link TagIndex}; in id order the page's ids are picked there too, so SQLite only reads those rows.
+     */
+    @GetMapping("/testplans")
+    @Cacheable(cacheNames = CacheNames.TEST_PLANS, keyGenerator = PlanListKeyGenerator.NAME)
+    public ResponseEntity<List<TestPlanDTO>> getAllTestPlans(
+            @RequestParam(required = false, name = "after") Long after,
+            @RequestParam(required = false, name = "filter") String filter,
+            @RequestParam(required = false, name = "per") Integer per,
+            @RequestParam(required = false, name = "cursor") String cursor,
+            @RequestParam(required = false, name = "sort") String sort,
+            @RequestParam(required = false, name = "tags") String tags
+    ) throws SQLException {
+        KeysetSort.Query page = planPageQuery(after, per, cursor, sort);
+        TagExpression expression = tagFilter(filter, tags);
+        RoaringBitmap matching = expression == null ? null : tagIndex.matching(expression);
+        try (Connection conn = dataSource.getConnection()) {
+            return Paging.response(readPlanPage(conn, matching, page));
         }
     }
 
-
-    @GetMapping("/testplans")
-    @Cacheable(cacheNames = "testPlans")
-    public List<TestPlanDTO> getAllTestPlans(
+    /**
+     * The plan list and its total in one response, for list views that show both: {@code items} and
+     * {@code nextCursor} are what {@link #getAllTestPlans} returns for the same parameters, and {@code total} is
+     * what {@link #getTestPlanCount} returns. The count is taken from the same {@link TagIndex} snapshot the page
+     * is picked from, so the two always agree.
+     */
+    @GetMapping("/testplans/page")
+    @Cacheable(cacheNames = CacheNames.TEST_PLAN_PAGES, keyGenerator = PlanListKeyGenerator.NAME)
+    public TestPlanPageDTO getTestPlanPage(
             @RequestParam(required = false, name = "after") Long after,
             @RequestParam(required = false, name = "filter") String filter,
-            @RequestParam(name = "per", defaultValue = "20") int limit
+            @RequestParam(required = false, name = "per") Integer per,
+            @RequestParam(required = false, name = "cursor") String cursor,
+            @RequestParam(required = false, name = "sort") String sort,
+            @RequestParam(required = false, name = "tags") String tags
     ) throws SQLException {
-        String baseSql = "SELECT DISTINCT id,name,description,created_at,status FROM test_plan tp";
-        String joinSql = "";
-        String whereSql = "";
-        List<Object> params = new ArrayList<>();
-        if (filter != null && !filter.isBlank()) {
-            joinSql = " INNER JOIN test_plan_tags tpt ON tp.id = tpt.test_plan_id";
-            whereSql = " WHERE tpt.tag = ?";
-            params.add(filter);
+        KeysetSort.Query page = planPageQuery(after, per, cursor, sort);
+        TagExpression expression = tagFilter(filter, tags);
+        RoaringBitmap matching = expression == null ? null : tagIndex.matching(expression);
+        int total = matching == null ? tagIndex.planCount() : matching.getCardinality();
+        try (Connection conn = dataSource.getConnection()) {
+            Page<TestPlanDTO> read = readPlanPage(conn, matching, page);
+            return new TestPlanPageDTO(read.items(), total, read.nextCursor());
+        }
+    }
+
+    private KeysetSort.Query planPageQuery(Long after, Integer per, String cursor, String sort) {
+        if (after != null && (cursor == null || cursor.isBlank())) {
+            cursor = new PageCursor(KeysetSort.ID, false, null, after).encode();
         }
+        return Paging.query(paging, TEST_PLAN_SORTS, sort, cursor, per, 20);
+    }
 
-        if (after != null) {
-            if (whereSql.isEmpty()) {
-                whereSql = " WHERE tp.id > ?";
+    /**
+     * Reads one page of plans, with their tags, in a single statement. The page is picked in a subquery and
+     * only its rows get their tag ids gathered with {@code json_group_array}, so a sort that has to order every
+     * matching plan still aggregates tags for the page alone.
+     *
+     * Plans picked from a tag filter are passed in as a JSON array of ids: in id order, just the page's ids,
+     * read off the bitmap; in another order, the whole set when it has at most {@link #MAX_INLINE_IDS} plans, and
+     * otherwise the page's ids as found by {@link #scanMatching}.
+     *
+     * @param matching the plans to pick from, or null for all
+     */
+    Page<TestPlanDTO> readPlanPage(Connection conn, RoaringBitmap matching, KeysetSort.Query page) throws SQLException {
+        List<String> conditions = new ArrayList<>();
+        String ids = null;
+        if (matching != null) {
+            if (matching.isEmpty()) {
+                return new Page<>(List.of(), null);
+            }
+            if (KeysetSort.ID.equals(page.sort())) {
+                PageCursor from = page.after();
+                ids = jsonArray(TagIndex.page(matching, from == null ? null : from.id(), page.descending(), page.fetchSize()));
+            } else if (matching.getCardinality() <= MAX_INLINE_IDS) {
+                ids = jsonArray(matching);
             } else {
-                whereSql += " AND tp.id > ?";
+                ids = jsonArray(scanMatching(conn, matching, page));
             }
-            params.add(after);
+            conditions.add("tp.id IN (SELECT value FROM json_each(?))");
         }
+        if (!page.condition().isEmpty()) {
+            conditions.add(page.condition());
+        }
+        String whereSql = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        String sql = "SELECT p.*, (SELECT json_group_array(tag_id) FROM test_plan_tag WHERE test_plan_id = p.id) AS tag_ids"
+                + " FROM (SELECT tp.id,tp.name,tp.description,tp.created_at,tp.status" + page.selectKey()
+                + " FROM test_plan tp" + whereSql + page.orderBy() + ") p" + page.keyOrderBy();
 
-        String orderSql = " ORDER BY tp.id LIMIT ?";
-        String sql = baseSql + joinSql + whereSql + orderSql;
-
-        List<TestPlanDTO> result = new ArrayList<>();
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             int paramIndex = 1;
-            for (Object param : params) {
-                ps.setObject(paramIndex++, param);
+            if (ids != null) {
+                ps.setString(paramIndex++, ids);
             }
-            ps.setInt(paramIndex++, limit);
-
-            ResultSet rs = ps.executeQuery();
-
-            List<TestPlanDTO> plans = new ArrayList<>();
-            List<Integer> planIds = new ArrayList<>();
-            while (rs.next()) {
-                TestPlanDTO plan = toTestPlanDTO(rs);
-                plans.add(plan);
-                planIds.add(plan.id());
+            paramIndex = page.bindCondition(ps, paramIndex);
+            ps.setInt(paramIndex, page.fetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                return page.read(rs, row -> {
+                    TestPlanDTO plan = toTestPlanDTO(row);
+                    addTags(conn, plan.tagList(), row.getString("tag_ids"));
+                    return plan;
+                });
             }
-            rs.close();
-
-            Map<Integer, List<TestTagDTO>> tagsByPlanId = new HashMap<>();
-            final int batchSize = 10;
-            for (int i = 0; i < planIds.size(); i += batchSize) {
-                int end = Math.min(i + batchSize, planIds.size());
-                List<Integer> batch = planIds.subList(i, end);
-
-                String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
-                String tagSql = "SELECT * FROM test_plan_tags WHERE test_plan_id IN (" + placeholders + ")";
+        }
+    }
 
-                try (PreparedStatement tagPs = conn.prepareStatement(tagSql)) {
-                    for (int j = 0; j < batch.size(); j++) {
-                        tagPs.setLong(j + 1, batch.get(j));
-                    }
-                    try (ResultSet tagRs = tagPs.executeQuery()) {
-                        while (tagRs.next()) {
-                            Integer planId = tagRs.getInt("test_plan_id");
-                            tagsByPlanId
-                                    .computeIfAbsent(planId, k -> new ArrayList<>())
-                                    .add(toTestTagDTO(tagRs));
+    /**
+     * The ids of the first {@link KeysetSort.Query#fetchSize()} plans of {@code matching} in the page's order,
+     * found by walking all plans in that order, {@link #SCAN_CHUNK} positions at a time off the sort index, and
+     * keeping those in the bitmap. Only used for sets too large to pass to SQLite whole, which are dense enough
+     * that a chunk or two usually fills the page.
+     */
+    private static List<Long> scanMatching(Connection conn, RoaringBitmap matching, KeysetSort.Query page) throws SQLException {
+        List<Long> ids = new ArrayList<>(page.fetchSize());
+        KeysetSort.Query chunk = page.from(page.after(), SCAN_CHUNK);
+        while (true) {
+            String sql = "SELECT tp.id" + chunk.selectKey() + " FROM test_plan tp"
+                    + (chunk.condition().isEmpty() ? "" : " WHERE " + chunk.condition()) + chunk.orderBy();
+            int rows = 0;
+            Object lastKey = null;
+            long lastId = 0;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(chunk.bindCondition(ps, 1), chunk.fetchSize());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastKey = rs.getObject("sort_key");
+                        lastId = rs.getLong("sort_id");
+                        if (matching.contains((int) lastId)) {
+                            ids.add(lastId);
+                            if (ids.size() == page.fetchSize()) return ids;
                         }
                     }
                 }
             }
+            if (rows < chunk.fetchSize()) return ids;
+            chunk = page.from(new PageCursor(page.sort(), page.descending(), lastKey, lastId), SCAN_CHUNK);
+        }
+    }
 
-            for (TestPlanDTO plan : plans) {
-                List<TestTagDTO> tags = tagsByPlanId.getOrDefault(plan.id(), Collections.emptyList());
-                plan.tagList().addAll(tags);
-                result.add(plan);
+    /**
+     * Appends the tags of a {@code json_group_array} of tag ids such as {@code [3,17]}.
+     */
+    private void addTags(Connection conn, List<TestTagDTO> tags, String tagIds) throws SQLException {
+        int id = -1;
+        for (int i = 1, n = tagIds.length(); i < n; i++) {
+            char c = tagIds.charAt(i);
+            if (c >= '0' && c <= '9') {
+                id = (id < 0 ? 0 : id * 10) + (c - '0');
+            } else if (id >= 0) {
+                tags.add(tagDictionary.tag(conn, id));
+                id = -1;
             }
         }
+    }
 
-        return result;
+    private static String jsonArray(List<Long> ids) {
+        StringJoiner json = new StringJoiner(",", "[", "]");
+        ids.forEach(id -> json.add(id.toString()));
+        return json.toString();
+    }
+
+    private static String jsonArray(RoaringBitmap ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (int id : ids.toArray()) {
+            if (json.length() > 1) json.append(',');
+            json.append(id);
+        }
+        return json.append(']').toString();
     }
 
     @GetMapping("/testplans/{id}")
+    @PlanETag
+    @Cacheable(cacheNames = CacheNames.TEST_PLAN, keyGenerator = PlanVersionKeyGenerator.NAME)
     public TestPlanDTO getTestPlan(@PathVariable Long id) throws SQLException {
-        String sql = "SELECT id,name,description,created_at,status FROM test_plan WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    final TestPlanDTO plan = toTestPlanDTO(rs);
-
-                    loadTestPlanTags(id, plan);
-
-                    return plan;
-                }
-                throw new NoSuchElementException("TestPlan not found");
-            }
+        try (Connection conn = dataSource.getConnection()) {
+            return readPlan(conn, id, false);
         }
     }
 
-    private void loadTestPlanTags(final Long id, final TestPlanDTO plan) throws SQLException {
-        String sql = "SELECT * FROM test_plan_tags WHERE test_plan_id = ?";
-        try (Connection tagConn = dataSource.getConnection();
-             PreparedStatement tagPs = tagConn.prepareStatement(sql)) {
-            tagPs.setLong(1, id);
-            try (ResultSet tagRs = tagPs.executeQuery()) {
-                while (tagRs.next()) {
-                    plan.tagList().add(toTestTagDTO(tagRs));
+    /**
+     * Loads a plan with its tags and, if asked, its test cases in one statement, so the whole graph comes from a
+     * single read transaction on {@code conn}. The plan row is materialized once with its tag ids gathered by
+     * {@code json_group_array}, then left-joined to its cases; the plan columns are read from the first row only.
+     * The detail view, the plan-with-cases view and anything exporting whole plans should load through here.
+     *
+     * @throws NoSuchElementException if there is no such plan
+     */
+    TestPlanDTO readPlan(Connection conn, long id, boolean withCases) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(withCases ? PLAN_GRAPH_SQL : PLAN_SQL)) {
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new NoSuchElementException("TestPlan not found");
                 }
+                TestPlanDTO plan = toTestPlanDTO(rs);
+                addTags(conn, plan.tagList(), rs.getString(6));
+                if (withCases && rs.getObject(7) != null) {
+                    do {
+                        plan.testCases().add(toTestCaseDTO(rs, 6));
+                    } while (rs.next());
+                }
+                return plan;
             }
         }
     }
@@ -226,36 +414,33 @@ public class TestCaseController {
 
     @PostMapping("/testplans")
     public TestPlanDTO createTestPlan(@RequestBody TestPlanDTO dto) throws SQLException {
-        String sql = "INSERT INTO test_plan (name, description, status) VALUES (?, ?, ?)";
-        try (Connection conn = dataSource.getConnection()) {
-            conn.setAutoCommit(false);
+        String sql = "INSERT INTO test_plan (name, description, status, created_at) VALUES (?, ?, ?, ?)";
+        long planId = writer.execute(conn -> {
             try (PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setString(1, dto.name());
                 ps.setString(2, dto.description());
                 ps.setString(3, dto.status());
+                ps.setLong(4, System.currentTimeMillis());
                 ps.executeUpdate();
+            }
 
-                long planId = fetchLastInsertId(conn);  // Turso-safe replacement
+            long id = fetchLastInsertId(conn);  // Turso-safe replacement
 
-                updateTestPlanTagsTransactional(conn, planId, dto);
-                conn.commit();
+            updateTestPlanTagsTransactional(conn, id, dto);
+            return id;
+        });
+        // Index first: a list cached in between would otherwise be built from the old bitmaps
+        tagIndex.refreshPlan(planId);
+        cacheInvalidator.planCreated(planId);
+        changeFeed.publish(planId, PlanChange.CREATED);
 
-                return getTestPlan(planId);
-            } catch (Exception ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true);
-                evictTestPlanCache();
-                evictTestPlanCountCache();
-            }
-        }
+        return getTestPlan(planId);
     }
 
     private void updateTestPlanTagsTransactional(Connection conn, final Long id, final TestPlanDTO dto) throws SQLException {
         // Always delete, even if new list is empty, to remove old tags
-        String deleteSql = "DELETE FROM test_plan_tags WHERE test_plan_id = ?";
-        String insertSql = "INSERT INTO test_plan_tags (test_plan_id, tag) VALUES (?, ?)";
+        String deleteSql = "DELETE FROM test_plan_tag WHERE test_plan_id = ?";
+        String insertSql = "INSERT OR IGNORE INTO test_plan_tag (test_plan_id, tag_id) VALUES (?, ?)";
 
         try (PreparedStatement deletePs = conn.prepareStatement(deleteSql)) {
             deletePs.setLong(1, id);
@@ -263,10 +448,13 @@ public class TestCaseController {
         }
 
         if (dto.tagList() != null && !dto.tagList().isEmpty()) {
-            try (PreparedStatement insertPs = conn.prepareStatement(insertSql)) {
+            try (TagDictionary.Resolver tags = tagDictionary.resolver(conn);
+                 PreparedStatement insertPs = conn.prepareStatement(insertSql)) {
                 for (TestTagDTO tag : dto.tagList()) {
+                    Integer tagId = tags.id(tag.tag());
+                    if (tagId == null) continue; // Blank tags are dropped
                     insertPs.setLong(1, id);
-                    insertPs.setString(2, tag.tag());
+                    insertPs.setInt(2, tagId);
                     insertPs.addBatch();
                 }
                 insertPs.executeBatch();
@@ -276,69 +464,88 @@ public class TestCaseController {
 
     @PutMapping("/testplans/{id}")
     public TestPlanDTO updateTestPlan(@PathVariable Long id, @RequestBody TestPlanDTO dto) throws SQLException {
-        String sql = "UPDATE test_plan SET name = ?, description = ?, status = ? WHERE id = ?";
-        try (Connection conn = dataSource.getConnection()) {
-            conn.setAutoCommit(false); // Begin transaction
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, dto.name());
-                ps.setString(2, dto.description());
-                ps.setString(3, dto.status());
-                ps.setLong(4, id);
-                int updated = ps.executeUpdate();
-
-                // Pass the *same connection* to update tags
-                updateTestPlanTagsTransactional(conn, id, dto);
-
-                if (updated > 0) {
-                    conn.commit(); // Success! Commit transaction
-                    return getTestPlan(id); // Get fresh from DB for response
-                } else {
-                    conn.rollback();
+        String sql = "UPDATE test_plan SET name = ?, description = ?, status = ?, version = version + 1 WHERE id = ?";
+        try {
+            writer.execute(conn -> {
+                int updated;
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, dto.name());
+                    ps.setString(2, dto.description());
+                    ps.setString(3, dto.status());
+                    ps.setLong(4, id);
+                    updated = ps.executeUpdate();
+                }
+                if (updated == 0) {
+                    // Rolls back just this command's savepoint
                     throw new NoSuchElementException("TestPlan not found");
                 }
-            } catch (Exception ex) {
-                conn.rollback(); // Rollback on any error
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true); // Restore autocommit for connection pool
-                evictTestPlanCache();
-                evictTestPlanCountCache();
-            }
+
+                // Same transaction as the plan update
+                updateTestPlanTagsTransactional(conn, id, dto);
+                return updated;
+            });
+        } finally {
+            tagIndex.refreshPlan(id);
+            cacheInvalidator.planUpdated(id);
         }
+        changeFeed.publish(id, PlanChange.UPDATED);
+
+        return getTestPlan(id); // Get fresh from DB for response
     }
 
     @DeleteMapping("/testplans/{id}")
     public void deleteTestPlan(@PathVariable Long id) throws SQLException {
-        String sql = "DELETE FROM test_plan WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ps.executeUpdate();
-        }
-        evictTestPlanCache();
-        evictTestPlanCountCache();
+        writer.execute(conn -> {
+            rollups.deletePlan(conn, id);
+            // Foreign keys are not enforced, so the cascade is spelled out, children first
+            for (String sql : DELETE_PLAN_SQL) {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setLong(1, id);
+                    ps.executeUpdate();
+                }
+            }
+            return null;
+        });
+        tagIndex.refreshPlan(id);
+        cacheInvalidator.planDeleted(id);
+        changeFeed.publish(id, PlanChange.DELETED);
     }
 
     // ------ CRUD for Test Cases ------
 
+    /**
+     * Lists a plan's test cases a page at a time; see {@link #getAllTestPlans} for the cursor protocol.
+     * Only the first page in the default order is cached, keyed by plan version.
+     */
     @GetMapping("/testplans/{planId}/testcases")
-    public List<TestCaseDTO> getTestCasesByPlan(@PathVariable Long planId) throws SQLException {
-    String sql = "SELECT id, test_plan_id, name, description, status, created_at, expected_result, priority, steps, duration FROM test_case WHERE test_plan_id = ?";
+    @PlanETag("planId")
+    @Cacheable(cacheNames = CacheNames.TEST_CASES_BY_PLAN, keyGenerator = PlanVersionKeyGenerator.NAME,
+            condition = "#cursor == null && #sort == null && #per == null")
+    public ResponseEntity<List<TestCaseDTO>> getTestCasesByPlan(
+            @PathVariable Long planId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer per
+    ) throws SQLException {
+        KeysetSort.Query page = Paging.query(paging, TEST_CASE_SORTS, sort, cursor, per, null);
+        String sql = "SELECT id, test_plan_id, name, description, status, created_at, expected_result, priority, steps, duration"
+                + page.selectKey() + " FROM test_case WHERE test_plan_id = ?"
+                + (page.condition().isEmpty() ? "" : " AND " + page.condition()) + page.orderBy();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, planId);
-            ResultSet rs = ps.executeQuery();
-
-            List<TestCaseDTO> result = new ArrayList<>();
-            while (rs.next()) {
-                result.add(toTestCaseDTO(rs));
+            ps.setInt(page.bindCondition(ps, 2), page.fetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                return Paging.response(page.read(rs, this::toTestCaseDTO));
             }
-            rs.close();
-            return result;
         }
     }
 
+    @GetMapping(value = "/testplans/{planId}/testcases", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTestCasesByPlan(@PathVariable Long planId) {
+        return ndjson(out -> streamQuery(out, TEST_CASE_COLUMNS, "test_case", TEST_CASE_SORTS, planId, this::toTestCaseDTO));
+    }
+
     @GetMapping("/testcases/{id}")
     public TestCaseDTO getTestCase(@PathVariable Long id) throws SQLException {
     String sql = "SELECT id, test_plan_id, name, description, status, created_at, expected_result, priority, steps, duration FROM test_case WHERE id = ?";
@@ -402,10 +609,9 @@ public class TestCaseController {
 
     @PostMapping("/testplans/{planId}/testcases")
     public TestCaseDTO createTestCase(@PathVariable Long planId, @RequestBody TestCaseDTO dto) throws SQLException {
-    String sql = "INSERT INTO test_case (test_plan_id, name, description, status, expected_result, priority, steps, duration) " +
-        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = dataSource.getConnection()) {
-            conn.setAutoCommit(false);
+    String sql = "INSERT INTO test_case (test_plan_id, name, description, status, expected_result, priority, steps, duration, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        long id = writer.execute(conn -> {
             try (PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setLong(1, planId);
                 ps.setString(2, dto.name());
@@ -415,91 +621,146 @@ public class TestCaseController {
                 ps.setString(6, dto.priority());
                 ps.setString(7, dto.steps());
                 if (dto.duration() != null) ps.setInt(8, dto.duration()); else ps.setNull(8, Types.INTEGER);
+                ps.setLong(9, System.currentTimeMillis());
                 ps.executeUpdate();
-
-                long id = fetchLastInsertId(conn);  // ← replaces getGeneratedKeys()
-                conn.commit();
-
-                return getTestCase(id);
-            } catch (Exception ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true);
             }
-        }
+            long caseId = fetchLastInsertId(conn);  // ← replaces getGeneratedKeys()
+            planVersions.bump(conn, planId);
+            return caseId;
+        });
+        changeFeed.publish(planId, PlanChange.TEST_CASES);
+
+        return getTestCase(id);
     }
 
     @PutMapping("/testcases/{id}")
     public TestCaseDTO updateTestCase(@PathVariable Long id, @RequestBody TestCaseDTO dto) throws SQLException {
         String sql = "UPDATE test_case SET name = ?, description = ?, status = ?, expected_result = ?, priority = ?, steps = ?, duration = ? WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, dto.name());
-            ps.setString(2, dto.description());
-            ps.setString(3, dto.status());
-            ps.setString(4, dto.expectedResult());
-            ps.setString(5, dto.priority());
-            ps.setString(6, dto.steps());
-            if (dto.duration() != null) ps.setInt(7, dto.duration()); else ps.setNull(7, Types.INTEGER);
-            ps.setLong(8, id);
-            int updated = ps.executeUpdate();
-            if (updated > 0) return getTestCase(id);
-            else throw new NoSuchElementException("TestCase not found");
-        }
+        Long planId = writer.execute(conn -> {
+            Long owner = findTestCasePlanId(conn, id);
+            if (owner == null) return null;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, dto.name());
+                ps.setString(2, dto.description());
+                ps.setString(3, dto.status());
+                ps.setString(4, dto.expectedResult());
+                ps.setString(5, dto.priority());
+                ps.setString(6, dto.steps());
+                if (dto.duration() != null) ps.setInt(7, dto.duration()); else ps.setNull(7, Types.INTEGER);
+                ps.setLong(8, id);
+                ps.executeUpdate();
+            }
+            planVersions.bump(conn, owner);
+            return owner;
+        });
+        if (planId == null) throw new NoSuchElementException("TestCase not found");
+        changeFeed.publish(planId, PlanChange.TEST_CASES);
+        return getTestCase(id);
     }
 
     @DeleteMapping("/testcases/{id}")
     public void deleteTestCase(@PathVariable Long id) throws SQLException {
         String sql = "DELETE FROM test_case WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        Long planId = writer.execute(conn -> {
+            Long owner = findTestCasePlanId(conn, id);
+            List<ExecutionRollups.Bucket> buckets = rollups.bucketsOfTestCase(conn, id);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, id);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM test_case_result WHERE test_case_id = ?")) {
+                ps.setLong(1, id);
+                ps.executeUpdate();
+            }
+            rollups.refresh(conn, buckets);
+            if (owner != null) planVersions.bump(conn, owner);
+            return owner;
+        });
+        if (planId != null) {
+            cacheInvalidator.executionsChanged();
+            changeFeed.publish(planId, PlanChange.TEST_CASES);
+        }
+    }
+
+    private Long findTestCasePlanId(Connection conn, Long id) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT test_plan_id FROM test_case WHERE id = ?")) {
             ps.setLong(1, id);
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
         }
     }
 
     // ------ CRUD for Test Plan Executions ------
 
+    /**
+     * Lists a plan's executions a page at a time, newest first unless another sort is requested; see
+     * {@link #getAllTestPlans} for the cursor protocol.
+     */
     @GetMapping("/testplans/{planId}/executions")
-    public List<TestPlanExecutionDTO> getExecutionsByPlan(@PathVariable Long planId) throws SQLException {
-        String sql = "SELECT id, test_plan_id, status, started_at, finished_at, result_notes, created_at, updated_at FROM test_plan_execution WHERE test_plan_id = ? ORDER BY id DESC";
+    @PlanETag("planId")
+    public ResponseEntity<List<TestPlanExecutionDTO>> getExecutionsByPlan(
+            @PathVariable Long planId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer per
+    ) throws SQLException {
+        KeysetSort.Query page = Paging.query(paging, EXECUTION_SORTS, sort, cursor, per, null);
+        String sql = "SELECT id, test_plan_id, status, started_at, finished_at, result_notes, created_at, updated_at"
+                + page.selectKey() + " FROM test_plan_execution WHERE test_plan_id = ?"
+                + (page.condition().isEmpty() ? "" : " AND " + page.condition()) + page.orderBy();
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, planId);
+            ps.setInt(page.bindCondition(ps, 2), page.fetchSize());
             try (ResultSet rs = ps.executeQuery()) {
-                List<TestPlanExecutionDTO> result = new ArrayList<>();
-                while (rs.next()) {
-                    result.add(toTestPlanExecutionDTO(rs));
-                }
-                return result;
+                return Paging.response(page.read(rs, this::toTestPlanExecutionDTO));
             }
         }
     }
 
+    @GetMapping(value = "/testplans/{planId}/executions", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExecutionsByPlan(@PathVariable Long planId) {
+        return ndjson(out -> streamQuery(out, EXECUTION_COLUMNS, "test_plan_execution", EXECUTION_SORTS, planId,
+                this::toTestPlanExecutionDTO));
+    }
+
+    /**
+     * Starts an execution and gives every test case of the plan a PENDING result in it, in the same
+     * transaction, so the execution's results list is complete from the start.
+     */
     @PostMapping("/testplans/{planId}/executions")
     public TestPlanExecutionDTO createExecution(@PathVariable Long planId, @RequestBody TestPlanExecutionDTO dto) throws SQLException {
-        String sql = "INSERT INTO test_plan_execution (test_plan_id, status, started_at, finished_at, result_notes) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = dataSource.getConnection()) {
-            conn.setAutoCommit(false);
+        String sql = "INSERT INTO test_plan_execution (test_plan_id, status, started_at, finished_at, result_notes, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String seedSql = "INSERT INTO test_case_result (execution_id, test_case_id, status, updated_at) SELECT ?, id, 'PENDING', ? FROM test_case WHERE test_plan_id = ?";
+        Long startedAt = timestamp(dto.startedAt());
+        Long finishedAt = timestamp(dto.finishedAt());
+        long id = writer.execute(conn -> {
+            long now = System.currentTimeMillis();
             try (PreparedStatement ps = conn.prepareStatement(sql)) {
                 ps.setLong(1, planId);
                 ps.setString(2, dto.status());
-                ps.setTimestamp(3, parseTimestamp(dto.startedAt()));
-                ps.setTimestamp(4, parseTimestamp(dto.finishedAt()));
+                setTimestamp(ps, 3, startedAt);
+                setTimestamp(ps, 4, finishedAt);
                 ps.setString(5, dto.resultNotes());
+                ps.setLong(6, now);
+                ps.setLong(7, now);
                 ps.executeUpdate();
-
-                long id = fetchLastInsertId(conn);
-                conn.commit();
-                return getExecution(id);
-            } catch (Exception ex) {
-                conn.rollback();
-                throw ex;
-            } finally {
-                conn.setAutoCommit(true);
             }
-        }
+            long executionId = fetchLastInsertId(conn);
+            try (PreparedStatement ps = conn.prepareStatement(seedSql)) {
+                ps.setLong(1, executionId);
+                ps.setLong(2, now);
+                ps.setLong(3, planId);
+                ps.executeUpdate();
+            }
+            rollups.refresh(conn, ExecutionRollups.Bucket.of(planId, startedAt));
+            planVersions.bump(conn, planId);
+            return executionId;
+        });
+        cacheInvalidator.executionsChanged();
+        changeFeed.publish(planId, PlanChange.EXECUTIONS);
+        return getExecution(id);
     }
 
     @GetMapping("/executions/{id}")
@@ -517,63 +778,132 @@ public class TestCaseController {
 
     @PutMapping("/executions/{id}")
     public TestPlanExecutionDTO updateExecution(@PathVariable Long id, @RequestBody TestPlanExecutionDTO dto) throws SQLException {
-        String sql = "UPDATE test_plan_execution SET status = ?, finished_at = ?, result_notes = ? WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, dto.status());
-            ps.setTimestamp(2, parseTimestamp(dto.finishedAt()));
-            ps.setString(3, dto.resultNotes());
-            ps.setLong(4, id);
-            int updated = ps.executeUpdate();
-            if (updated > 0) return getExecution(id);
-            throw new NoSuchElementException("Execution not found");
-        }
+        String sql = "UPDATE test_plan_execution SET status = ?, finished_at = ?, result_notes = ?, updated_at = ? WHERE id = ?";
+        Long finishedAt = timestamp(dto.finishedAt());
+        Long planId = writer.execute(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, dto.status());
+                setTimestamp(ps, 2, finishedAt);
+                ps.setString(3, dto.resultNotes());
+                ps.setLong(4, System.currentTimeMillis());
+                ps.setLong(5, id);
+                if (ps.executeUpdate() == 0) return null;
+            }
+            return planVersions.bumpOfExecution(conn, id);
+        });
+        if (planId == null) throw new NoSuchElementException("Execution not found");
+        cacheInvalidator.executionsChanged();
+        changeFeed.publish(planId, PlanChange.EXECUTIONS);
+        return getExecution(id);
     }
 
     @DeleteMapping("/executions/{id}")
     public void deleteExecution(@PathVariable Long id) throws SQLException {
         String sql = "DELETE FROM test_plan_execution WHERE id = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            ps.executeUpdate();
-        }
+        Long planId = writer.execute(conn -> {
+            ExecutionRollups.Bucket bucket = rollups.bucketOfExecution(conn, id);
+            Long owner = planVersions.bumpOfExecution(conn, id);
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM test_case_result WHERE execution_id = ?")) {
+                ps.setLong(1, id);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, id);
+                ps.executeUpdate();
+            }
+            rollups.refresh(conn, bucket);
+            return owner;
+        });
+        cacheInvalidator.executionsChanged();
+        if (planId != null) changeFeed.publish(planId, PlanChange.EXECUTIONS);
     }
 
     // ------ Helper methods ------
 
-    private TestPlanDTO toTestPlanDTO(ResultSet rs) throws SQLException {
+    /**
+     * Streams rows as NDJSON. The body runs after the handler returns, on the MVC async executor.
+     */
+    private ResponseEntity<StreamingResponseBody> ndjson(NdjsonBody body) {
+        StreamingResponseBody stream = out -> {
+            try (NdjsonWriter ndjson = new NdjsonWriter(objectMapper, out)) {
+                body.write(ndjson);
+            } catch (SQLException ex) {
+                // Headers are already committed by now, so the best we can do is cut the stream short.
+                throw new IOException("Failed to stream rows: " + ex.getMessage(), ex);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(stream);
+    }
+
+    /**
+     * Writes every row of {@code table} that belongs to the plan, in the default order of {@code sorts}, in
+     * keyset chunks of {@value #STREAM_CHUNK}. Each chunk borrows a read connection, reads its rows and gives the
+     * connection back before writing them, so a slow client holds neither a pooled connection nor an open read
+     * transaction (which would keep checkpoints from completing). Chunks are separate reads: a row written while
+     * the stream runs may or may not appear, but none appears twice.
+     */
+    private <T> int streamQuery(NdjsonWriter out, String columns, String table, KeysetSort sorts, long planId,
+                                RowMapper<T> mapper) throws SQLException, IOException {
+        int rows = 0;
+        String cursor = null;
+        do {
+            KeysetSort.Query chunk = sorts.query(null, cursor, STREAM_CHUNK);
+            String sql = "SELECT " + columns + chunk.selectKey() + " FROM " + table + " WHERE test_plan_id = ?"
+                    + (chunk.condition().isEmpty() ? "" : " AND " + chunk.condition()) + chunk.orderBy();
+            Page<T> page;
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, planId);
+                ps.setInt(chunk.bindCondition(ps, 2), chunk.fetchSize());
+                try (ResultSet rs = ps.executeQuery()) {
+                    page = chunk.read(rs, mapper);
+                }
+            }
+            for (T item : page.items()) {
+                out.write(item);
+            }
+            rows += page.items().size();
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return rows;
+    }
+
+    @FunctionalInterface
+    private interface NdjsonBody {
+        int write(NdjsonWriter out) throws SQLException, IOException;
+    }
+
+    TestPlanDTO toTestPlanDTO(ResultSet rs) throws SQLException {
         return new TestPlanDTO(
                 rs.getInt(1),
                 rs.getString(2),
                 rs.getString(3),
-                getLocalDateTime(rs, 4),
+                EpochMillis.format(rs, 4),
                 rs.getString(5),
                 new ArrayList<>(),
                 new ArrayList<>()
         );
     }
 
-    private TestCaseDTO toTestCaseDTO(ResultSet rs) throws SQLException {
-        return new TestCaseDTO(
-                rs.getInt(1),
-                rs.getInt(2),
-                rs.getString(3),
-                rs.getString(4),
-                rs.getString(5),
-                getLocalDateTime(rs, 6),
-                rs.getString(7),
-                rs.getString(8),
-                rs.getString(9),
-                rs.getObject(10) == null ? null : rs.getInt(10)
-        );
+    TestCaseDTO toTestCaseDTO(ResultSet rs) throws SQLException {
+        return toTestCaseDTO(rs, 0);
     }
 
-    private TestTagDTO toTestTagDTO(ResultSet rs) throws SQLException {
-        return new TestTagDTO(
-                rs.getInt(1),
-                rs.getInt(2),
-                rs.getString(3)
+    /**
+     * Maps the ten test case columns starting after {@code offset}, for rows that carry other columns first.
+     */
+    private TestCaseDTO toTestCaseDTO(ResultSet rs, int offset) throws SQLException {
+        return new TestCaseDTO(
+                rs.getInt(offset + 1),
+                rs.getInt(offset + 2),
+                rs.getString(offset + 3),
+                rs.getString(offset + 4),
+                rs.getString(offset + 5),
+                EpochMillis.format(rs, offset + 6),
+                rs.getString(offset + 7),
+                rs.getString(offset + 8),
+                rs.getString(offset + 9),
+                rs.getObject(offset + 10) == null ? null : rs.getInt(offset + 10)
         );
     }
 
@@ -583,99 +913,26 @@ public class TestCaseController {
                 rs.getInt(1),
                 rs.getInt(2),
                 rs.getString(3),
-                normalizeDbObjectToIso(rs.getObject(4)),
-                normalizeDbObjectToIso(rs.getObject(5)),
+                EpochMillis.format(rs, 4),
+                EpochMillis.format(rs, 5),
                 rs.getString(6),
-                normalizeDbObjectToIso(rs.getObject(7)),
-                normalizeDbObjectToIso(rs.getObject(8))
+                EpochMillis.format(rs, 7),
+                EpochMillis.format(rs, 8)
         );
     }
 
-    private LocalDateTime getLocalDateTime(ResultSet rs, Integer column) throws SQLException {
-        var val = rs.getObject(column);
-        return val == null ? null : LocalDateTime.parse(val.toString().replace(" ", "T"));
-    }
-
-    private LocalDateTime getLocalDateTime(ResultSet rs, String column) throws SQLException {
-        var val = rs.getObject(column);
-        return val == null ? null : LocalDateTime.parse(val.toString().replace(" ", "T"));
-    }
-
     /**
-     * Parse a variety of incoming timestamp string representations into java.sql.Timestamp.
-     * Accepts ISO-like strings with 'T' or space, optional fractional seconds.
+     * Epoch milliseconds of a request timestamp, or null if none was given.
      */
-    private Timestamp parseTimestamp(String s) {
-        if (s == null) return null;
-        String t = s.trim();
-        if (t.isEmpty()) return null;
-        // normalize space to 'T' for LocalDateTime parsing
-        if (!t.contains("T") && t.contains(" ")) {
-            t = t.replace(' ', 'T');
-        }
+    private static Long timestamp(String value) {
         try {
-            LocalDateTime ldt = LocalDateTime.parse(t);
-            return Timestamp.valueOf(ldt);
-        } catch (Exception e) {
-            // Fallback: try Timestamp.valueOf with space-separated format
-            try {
-                String alt = t.replace('T', ' ');
-                return Timestamp.valueOf(alt);
-            } catch (Exception ex) {
-                // Could not parse; return null to let DB insert null
-                return null;
-            }
-        }
-    }
-
-    private String normalizeDbStringToIso(String s) {
-        if (s == null) return null;
-        String t = s.trim();
-        if (t.isEmpty()) return null;
-        // If DB uses space separator, convert to 'T'
-        t = t.replace(' ', 'T');
-        // Remove fractional seconds if present
-        int dot = t.indexOf('.');
-        if (dot > 0) {
-            t = t.substring(0, dot);
-        }
-        return t;
-    }
-
-    private String normalizeDbObjectToIso(Object obj) {
-        if (obj == null) return null;
-        // If the DB returned a java.sql.Blob (driver stored text as blob), read bytes and decode as UTF-8
-        if (obj instanceof java.sql.Blob) {
-            try {
-                java.sql.Blob b = (java.sql.Blob) obj;
-                long len = b.length();
-                if (len <= 0) return null;
-                int intLen = (int) Math.min(len, Integer.MAX_VALUE);
-                byte[] bytes = b.getBytes(1, intLen);
-                String s = new String(bytes, java.nio.charset.StandardCharsets.UTF_8);
-                return normalizeDbStringToIso(s);
-            } catch (Exception e) {
-                return null;
-            }
-        }
-        // If the DB returned a byte[] (BLOB stored text), decode as UTF-8
-        if (obj instanceof byte[]) {
-            try {
-                String s = new String((byte[]) obj, java.nio.charset.StandardCharsets.UTF_8);
-                return normalizeDbStringToIso(s);
-            } catch (Exception e) {
-                return null;
-            }
+            return EpochMillis.parse(value);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
         }
-        // For other types, use toString()
-        return normalizeDbStringToIso(obj.toString());
     }
 
-    private String formatForSql(String s) {
-        if (s == null) return null;
-        Timestamp ts = parseTimestamp(s);
-        if (ts == null) return null;
-        // Format as 'yyyy-MM-dd HH:mm:ss' to match CURRENT_TIMESTAMP style and avoid storing binary
-        return ts.toLocalDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    private static void setTimestamp(PreparedStatement ps, int index, Long millis) throws SQLException {
+        if (millis != null) ps.setLong(index, millis); else ps.setNull(index, Types.INTEGER);
     }
 }
@@ -0,0 +1,307 @@
+package com.puckowski.testing.dataset;
+
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.dto.DatasetResultDTO;
+import com.puckowski.testing.dto.DatasetSpecDTO;
+import com.puckowski.testing.report.ExecutionRollups;
+import com.puckowski.testing.tag.TagDictionary;
+import com.puckowski.testing.tag.TagIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Fills the database with synthetic plans, tags, test cases, executions and per-case results, so performance
+ * can be looked at with realistic volumes. Rows are added to whatever is already there.
+ * <p>
+ * The shape follows what real suites look like rather than uniform noise: a few tags are on most plans and
+ * most tags on few (Zipf-like), plan sizes and execution counts have long tails, most results pass and
+ * durations are log-normal. Everything is drawn from one seeded {@link Random}, so a spec always produces the
+ * same data. Plans are written {@value #PLANS_PER_COMMAND} to a write command, so other writes keep flowing.
+ */
+@Component
+public class DatasetGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    private static final int PLANS_PER_COMMAND = 50;
+    private static final int MAX_PLANS = 1_000_000;
+    private static final int MAX_PER_PLAN = 1_000;
+    private static final long DAY_MS = 24L * 3600 * 1000;
+
+    private static final String[] PLAN_STATUSES = {"ACTIVE", "ACTIVE", "ACTIVE", "INACTIVE", "DRAFT"};
+    private static final String[] PRIORITIES = {"LOW", "MEDIUM", "MEDIUM", "HIGH", "CRITICAL"};
+    private static final String[] AREAS = {"checkout", "payments", "login", "search", "profile", "reports",
+            "notifications", "settings", "onboarding", "billing"};
+    private static final String[] ACTIONS = {"Create", "Update", "Delete", "Validate", "Export", "Import",
+            "Filter", "Sort", "Share", "Retry"};
+
+    private final SqliteWriter writer;
+    private final TagDictionary tagDictionary;
+    private final TagIndex tagIndex;
+    private final ExecutionRollups rollups;
+    private final TestPlanCacheInvalidator cacheInvalidator;
+
+    public DatasetGenerator(SqliteWriter writer, TagDictionary tagDictionary, TagIndex tagIndex,
+                            ExecutionRollups rollups, TestPlanCacheInvalidator cacheInvalidator) {
+        this.writer = writer;
+        this.tagDictionary = tagDictionary;
+        this.tagIndex = tagIndex;
+        this.rollups = rollups;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    /**
+     * The spec with defaults filled in: 1000 plans over 200 tags, 3 tags, 25 cases and 4 executions per plan,
+     * executions spread over the last 90 days.
+     *
+     * @throws IllegalArgumentException if a value is out of range
+     */
+    public static DatasetSpecDTO withDefaults(DatasetSpecDTO spec) {
+        if (spec == null) spec = new DatasetSpecDTO(null, null, null, null, null, null, null);
+        int tags = spec.tags() == null ? 200 : spec.tags();
+        DatasetSpecDTO resolved = new DatasetSpecDTO(
+                spec.plans() == null ? 1000 : spec.plans(),
+                tags,
+                spec.tagsPerPlan() == null ? Math.min(3, tags) : spec.tagsPerPlan(),
+                spec.casesPerPlan() == null ? 25 : spec.casesPerPlan(),
+                spec.executionsPerPlan() == null ? 4 : spec.executionsPerPlan(),
+                spec.days() == null ? 90 : spec.days(),
+                spec.seed() == null ? 1L : spec.seed());
+        check("plans", resolved.plans(), 1, MAX_PLANS);
+        check("tags", resolved.tags(), 0, 100_000);
+        check("tagsPerPlan", resolved.tagsPerPlan(), 0, Math.min(resolved.tags(), 50));
+        check("casesPerPlan", resolved.casesPerPlan(), 0, MAX_PER_PLAN);
+        check("executionsPerPlan", resolved.executionsPerPlan(), 0, MAX_PER_PLAN);
+        check("days", resolved.days(), 1, 3650);
+        return resolved;
+    }
+
+    public DatasetResultDTO generate(DatasetSpecDTO requested) throws SQLException {
+        DatasetSpecDTO spec = withDefaults(requested);
+        long start = System.nanoTime();
+        Run run = new Run(spec);
+        try {
+            for (int done = 0; done < spec.plans(); done += PLANS_PER_COMMAND) {
+                int count = Math.min(PLANS_PER_COMMAND, spec.plans() - done);
+                writer.execute(conn -> {
+                    run.writePlans(conn, count);
+                    return null;
+                });
+            }
+        } finally {
+            if (run.plans > 0) {
+                try {
+                    tagIndex.rebuild();
+                } finally {
+                    cacheInvalidator.planCreated(null);
+                }
+            }
+        }
+        try {
+            // Hours are bucketed in Java (see ExecutionRollups), so the new executions are rolled up the same way
+            if (run.executions > 0) rollups.rebuild();
+        } finally {
+            // Reports read the rollups, so they are evicted only once those are rebuilt
+            if (run.plans > 0) cacheInvalidator.executionsChanged();
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long rows = run.plans + run.tagLinks + run.cases + run.executions + run.results;
+        DatasetResultDTO result = new DatasetResultDTO(run.plans, run.tagsUsed.size(), run.cases, run.executions,
+                run.results, elapsedMs, elapsedMs == 0 ? rows : rows * 1000.0 / elapsedMs);
+        log.info("Generated {} plans, {} test cases, {} executions and {} results in {} ms (seed {})",
+                result.plansCreated(), result.casesCreated(), result.executionsCreated(), result.resultsCreated(),
+                elapsedMs, spec.seed());
+        return result;
+    }
+
+    /**
+     * Running state of one generation. Commands run one after another on the writer thread, so the random
+     * sequence, and with it the data, does not depend on timing.
+     */
+    private final class Run {
+        private final DatasetSpecDTO spec;
+        private final Random random;
+        private final long now = System.currentTimeMillis();
+        private final Set<Integer> tagsUsed = new LinkedHashSet<>();
+        private long plans, tagLinks, cases, executions, results;
+
+        Run(DatasetSpecDTO spec) {
+            this.spec = spec;
+            this.random = new Random(spec.seed());
+        }
+
+        void writePlans(Connection conn, int count) throws SQLException {
+            try (PreparedStatement planPs = conn.prepareStatement(
+                         "INSERT INTO test_plan (name, description, status, created_at) VALUES (?, ?, ?, ?)");
+                 PreparedStatement tagPs = conn.prepareStatement(
+                         "INSERT OR IGNORE INTO test_plan_tag (test_plan_id, tag_id) VALUES (?, ?)");
+                 PreparedStatement casePs = conn.prepareStatement(
+                         "INSERT INTO test_case (test_plan_id, name, description, status, expected_result, priority, steps, duration, created_at) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement executionPs = conn.prepareStatement(
+                         "INSERT INTO test_plan_execution (test_plan_id, status, started_at, finished_at, result_notes, created_at, updated_at) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement resultPs = conn.prepareStatement(
+                         "INSERT INTO test_case_result (execution_id, test_case_id, status, duration, started_at, finished_at, updated_at) "
+                                 + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+                 PreparedStatement idPs = conn.prepareStatement("SELECT last_insert_rowid()");
+                 TagDictionary.Resolver tagIds = tagDictionary.resolver(conn)) {
+
+                for (int i = 0; i < count; i++) {
+                    String area = pick(AREAS);
+                    long createdAt = now - (long) (random.nextDouble() * spec.days() * DAY_MS);
+                    planPs.setString(1, capitalize(area) + " regression " + (plans + 1));
+                    planPs.setString(2, "Regression suite for " + area + ", run before every release");
+                    planPs.setString(3, pick(PLAN_STATUSES));
+                    planPs.setLong(4, createdAt);
+                    planPs.executeUpdate();
+                    long planId = lastInsertId(idPs);
+                    plans++;
+
+                    int tagCount = Math.min(spec.tags(), longTail(spec.tagsPerPlan()));
+                    Set<Integer> planTags = new LinkedHashSet<>();
+                    // Rare tags take many draws to hit; a plan asking for most of a small pool gets fewer
+                    for (int draws = 0; planTags.size() < tagCount && draws < tagCount * 50; draws++) {
+                        planTags.add(zipf(spec.tags()));
+                    }
+                    for (int tag : planTags) {
+                        tagPs.setLong(1, planId);
+                        tagPs.setInt(2, tagIds.id("tag-" + tag));
+                        tagPs.addBatch();
+                        tagsUsed.add(tag);
+                    }
+                    tagPs.executeBatch();
+                    tagLinks += planTags.size();
+
+                    int caseCount = longTail(spec.casesPerPlan());
+                    int[] durations = new int[caseCount];
+                    for (int c = 0; c < caseCount; c++) {
+                        durations[c] = logNormal(30, 1.0);
+                        casePs.setLong(1, planId);
+                        casePs.setString(2, pick(ACTIONS) + " " + area + " item " + (c + 1));
+                        casePs.setString(3, "Checks that " + pick(ACTIONS).toLowerCase() + " works for " + area);
+                        casePs.setString(4, "PENDING");
+                        casePs.setString(5, "The operation succeeds and the change is visible");
+                        casePs.setString(6, pick(PRIORITIES));
+                        casePs.setString(7, "1. Sign in\n2. Open " + area + "\n3. Perform the action\n4. Check the result");
+                        casePs.setInt(8, durations[c]);
+                        casePs.setLong(9, createdAt);
+                        casePs.addBatch();
+                    }
+                    casePs.executeBatch();
+                    cases += caseCount;
+                    // One writer and AUTOINCREMENT: the batch got consecutive ids ending at the last one
+                    long firstCaseId = lastInsertId(idPs) - caseCount + 1;
+
+                    int executionCount = caseCount == 0 ? 0 : longTail(spec.executionsPerPlan());
+                    for (int e = 0; e < executionCount; e++) {
+                        writeExecution(executionPs, resultPs, idPs, planId, createdAt, firstCaseId, durations);
+                    }
+                }
+            }
+        }
+
+        private void writeExecution(PreparedStatement executionPs, PreparedStatement resultPs, PreparedStatement idPs,
+                                    long planId, long planCreatedAt, long firstCaseId, int[] durations) throws SQLException {
+            long startedAt = planCreatedAt + (long) (random.nextDouble() * (now - planCreatedAt));
+            // Executions started in the last hour are often still running, with their later cases pending
+            boolean running = now - startedAt < 3600_000 && random.nextBoolean();
+            String[] statuses = new String[durations.length];
+            int[] taken = new int[durations.length];
+            long finishedAt = startedAt;
+            for (int c = 0; c < durations.length; c++) {
+                statuses[c] = running && c > durations.length / 2 ? "PENDING" : resultStatus();
+                if (!statuses[c].equals("PENDING")) {
+                    taken[c] = Math.max(1, (int) (durations[c] * (0.5 + random.nextDouble())));
+                    finishedAt += taken[c] * 1000L;
+                }
+            }
+
+            executionPs.setLong(1, planId);
+            executionPs.setString(2, running ? "RUNNING" : "DONE");
+            executionPs.setLong(3, startedAt);
+            if (running) executionPs.setNull(4, Types.INTEGER); else executionPs.setLong(4, finishedAt);
+            executionPs.setString(5, random.nextInt(10) == 0 ? "Re-run after environment issues" : null);
+            executionPs.setLong(6, startedAt);
+            executionPs.setLong(7, finishedAt);
+            executionPs.executeUpdate();
+            long executionId = lastInsertId(idPs);
+            executions++;
+
+            long at = startedAt;
+            for (int c = 0; c < durations.length; c++) {
+                resultPs.setLong(1, executionId);
+                resultPs.setLong(2, firstCaseId + c);
+                resultPs.setString(3, statuses[c]);
+                if (taken[c] == 0) {
+                    resultPs.setNull(4, Types.INTEGER);
+                    resultPs.setNull(5, Types.INTEGER);
+                    resultPs.setNull(6, Types.INTEGER);
+                } else {
+                    resultPs.setInt(4, taken[c]);
+                    resultPs.setLong(5, at);
+                    at += taken[c] * 1000L;
+                    resultPs.setLong(6, at);
+                }
+                resultPs.setLong(7, Math.max(at, startedAt));
+                resultPs.addBatch();
+            }
+            resultPs.executeBatch();
+            results += durations.length;
+        }
+
+        private String resultStatus() {
+            int p = random.nextInt(100);
+            return p < 85 ? "PASS" : p < 95 ? "FAIL" : "BLOCKED";
+        }
+
+        /**
+         * A tag number in {@code [0, pool)}, with tag {@code n} drawn about {@code 1/(n+1)} as often as tag 0.
+         */
+        private int zipf(int pool) {
+            return (int) Math.min(pool - 1, Math.floor(Math.pow(pool + 1, random.nextDouble())) - 1);
+        }
+
+        /**
+         * A count with the given mean, exponentially distributed so that a few values are several times larger.
+         */
+        private int longTail(int mean) {
+            if (mean == 0) return 0;
+            double value = -Math.log(1 - random.nextDouble()) * mean;
+            return (int) Math.min(Math.round(value), (long) mean * 10);
+        }
+
+        private int logNormal(double median, double sigma) {
+            return Math.max(1, (int) Math.round(median * Math.exp(sigma * random.nextGaussian())));
+        }
+
+        private String pick(String[] values) {
+            return values[random.nextInt(values.length)];
+        }
+    }
+
+    private static long lastInsertId(PreparedStatement idPs) throws SQLException {
+        try (ResultSet rs = idPs.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static void check(String name, int value, int min, int max) {
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max);
+        }
+    }
+}
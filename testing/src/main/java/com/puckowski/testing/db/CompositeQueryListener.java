@@ -0,0 +1,56 @@
+package com.puckowski.testing.db;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Fans the pool's callbacks out to several {@link QueryListener}s, in order.
+ */
+final class CompositeQueryListener implements QueryListener {
+
+    private final QueryListener[] listeners;
+
+    CompositeQueryListener(List<QueryListener> listeners) {
+        this.listeners = listeners.toArray(QueryListener[]::new);
+    }
+
+    @Override
+    public Probe probe(String sql) {
+        Probe[] probes = new Probe[listeners.length];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = listeners[i].probe(sql);
+        }
+        return new CompositeProbe(probes);
+    }
+
+    @Override
+    public void acquired(boolean write, long waitNanos) {
+        for (QueryListener listener : listeners) {
+            listener.acquired(write, waitNanos);
+        }
+    }
+
+    private static final class CompositeProbe implements Probe {
+
+        private final Probe[] probes;
+
+        CompositeProbe(Probe[] probes) {
+            this.probes = probes;
+        }
+
+        @Override
+        public void executed(Execution execution, long nanos, long rows, SQLException failure) {
+            for (Probe probe : probes) {
+                probe.executed(execution, nanos, rows, failure);
+            }
+        }
+
+        @Override
+        public boolean capturesParameters() {
+            for (Probe probe : probes) {
+                if (probe.capturesParameters()) return true;
+            }
+            return false;
+        }
+    }
+}
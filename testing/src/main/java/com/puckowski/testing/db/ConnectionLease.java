@@ -0,0 +1,101 @@
+package com.puckowski.testing.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The {@link java.sql.Connection} handed out for a single borrow. Closing it returns the underlying
+ * connection to the pool instead of closing the SQLite handle; closing it twice is harmless.
+ * <p>
+ * {@link #prepareStatement(String)} goes through the connection's {@link StatementCache}, if it has one; the
+ * other variants always prepare afresh. When the pool has a {@link QueryListener}, the statements it creates are wrapped so that their
+ * executions are timed; a cached statement is timed by the cache's own wrapper rather than wrapped again. Without a listener
+ * uncached statements are handed out as the driver made them.
+ */
+final class ConnectionLease extends DelegatingConnection {
+
+    private final SqliteConnectionPool pool;
+    private final PooledConnection pooled;
+    private final QueryListener listener;
+    private boolean closed;
+
+    ConnectionLease(SqliteConnectionPool pool, PooledConnection pooled, QueryListener listener) {
+        super(pooled.physical());
+        this.pool = pool;
+        this.pooled = pooled;
+        this.listener = listener;
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return timed(delegate.createStatement());
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return timed(delegate.createStatement(resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return timed(delegate.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        QueryListener.Probe probe = listener == null ? null : listener.probe(sql);
+        StatementCache statements = pooled.statements();
+        PreparedStatement cached = statements == null ? null : statements.checkout(this, sql, probe);
+        return cached != null ? cached : timed(delegate.prepareStatement(sql), probe);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return timed(delegate.prepareStatement(sql, resultSetType, resultSetConcurrency), probe(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return timed(delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), probe(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return timed(delegate.prepareStatement(sql, autoGeneratedKeys), probe(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return timed(delegate.prepareStatement(sql, columnIndexes), probe(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return timed(delegate.prepareStatement(sql, columnNames), probe(sql));
+    }
+
+    private Statement timed(Statement statement) {
+        return listener == null ? statement : TimedStatement.wrap(statement, this, listener);
+    }
+
+    private PreparedStatement timed(PreparedStatement statement, QueryListener.Probe probe) {
+        return probe == null ? statement : new TimedPreparedStatement(statement, this, probe);
+    }
+
+    private QueryListener.Probe probe(String sql) {
+        return listener == null ? null : listener.probe(sql);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) return;
+        closed = true;
+        pool.release(pooled);
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed || delegate.isClosed();
+    }
+}
@@ -0,0 +1,244 @@
+package com.puckowski.testing.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+/**
+ * Conversions between the ISO-like local date-times used in the API (e.g. {@code 2025-10-24T23:13:50}) and
+ * the epoch milliseconds stored in every timestamp column.
+ * <p>
+ * Parsing and formatting are hand-rolled for the handful of shapes SQLite and the UI produce, because they
+ * run for every row of a list response: neither goes through {@code DateTimeFormatter}, and bad input is
+ * reported by a return value rather than an exception. Local times are interpreted in the system time zone
+ * as read at startup. Only around a DST transition is the zone consulted through {@code java.time}, so
+ * that a time in a gap or overlap resolves exactly as {@link LocalDateTime#atZone} would resolve it.
+ */
+public final class EpochMillis {
+
+    /**
+     * Returned by {@link #decode} for input that is not a date-time.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final ZoneRules RULES = ZONE.getRules();
+    private static final boolean FIXED = RULES.isFixedOffset();
+    private static final int FIXED_OFFSET = FIXED ? RULES.getOffset(Instant.EPOCH).getTotalSeconds() : 0;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int DAYS_0000_03_01_TO_1970 = 719_468;
+    private static final long MIN_SECOND = -62_167_219_200L; // 0000-01-01T00:00:00Z
+    private static final long MAX_SECOND = 253_402_300_799L; // 9999-12-31T23:59:59Z
+
+    private EpochMillis() {
+    }
+
+    /**
+     * @return epoch milliseconds, or null for null/blank input
+     * @throws IllegalArgumentException if {@code value} is not an ISO local date-time
+     */
+    public static Long parse(String value) {
+        if (value == null) return null;
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') start++;
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        if (start == end) return null;
+        long millis = decode(value, start, end);
+        if (millis == INVALID) {
+            throw new IllegalArgumentException("Not an ISO local date-time: '" + value + "'");
+        }
+        return millis;
+    }
+
+    /**
+     * Reads {@code yyyy-MM-dd}, optionally followed by {@code T} or a space and {@code HH:mm}, {@code :ss} and a
+     * fraction of any length (truncated to milliseconds), optionally followed by {@code Z} or an offset such as
+     * {@code +02:00}. Without an offset the time is local.
+     *
+     * @return epoch milliseconds, or {@link #INVALID}
+     */
+    public static long decode(CharSequence s, int start, int end) {
+        if (end - start < 10 || s.charAt(start + 4) != '-' || s.charAt(start + 7) != '-') return INVALID;
+        int year = digits(s, start, 4);
+        int month = digits(s, start + 5, 2);
+        int day = digits(s, start + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) return INVALID;
+
+        int hour = 0, minute = 0, second = 0, millis = 0;
+        int i = start + 10;
+        if (i < end && (s.charAt(i) == 'T' || s.charAt(i) == ' ')) {
+            if (end - i < 6 || s.charAt(i + 3) != ':') return INVALID;
+            hour = digits(s, i + 1, 2);
+            minute = digits(s, i + 4, 2);
+            i += 6;
+            if (i < end && s.charAt(i) == ':') {
+                if (end - i < 3) return INVALID;
+                second = digits(s, i + 1, 2);
+                i += 3;
+                if (i < end && s.charAt(i) == '.') {
+                    int fractionStart = ++i;
+                    for (int scale = 100; i < end && isDigit(s.charAt(i)); i++, scale /= 10) {
+                        millis += (s.charAt(i) - '0') * scale;
+                    }
+                    if (i == fractionStart) return INVALID;
+                }
+            }
+            if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) return INVALID;
+        }
+
+        long localSecond = epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+        if (i == end) {
+            return localToEpochSecond(localSecond, year, month, day, hour, minute, second) * 1000 + millis;
+        }
+        int offset = offset(s, i, end);
+        if (offset == Integer.MIN_VALUE) return INVALID;
+        return (localSecond - offset) * 1000 + millis;
+    }
+
+    /**
+     * Formats as {@code yyyy-MM-ddTHH:mm:ss}, with {@code .SSS} appended when the milliseconds are not zero.
+     */
+    public static String format(long millis) {
+        long epochSecond = Math.floorDiv(millis, 1000);
+        int milli = (int) Math.floorMod(millis, 1000);
+        int year, month, day, secondOfDay;
+        if (epochSecond < MIN_SECOND + SECONDS_PER_DAY || epochSecond > MAX_SECOND - SECONDS_PER_DAY) {
+            // The offset may carry these past a four-digit year; java.time resolves them
+            LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+            if (local.getYear() < 0 || local.getYear() > 9999) return local.toString();
+            year = local.getYear();
+            month = local.getMonthValue();
+            day = local.getDayOfMonth();
+            secondOfDay = local.toLocalTime().toSecondOfDay();
+        } else {
+            long local = epochSecond + (FIXED ? FIXED_OFFSET : RULES.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds());
+            long epochDay = Math.floorDiv(local, SECONDS_PER_DAY);
+            secondOfDay = (int) Math.floorMod(local, SECONDS_PER_DAY);
+
+            // Civil date from day number (H. Hinnant's days_from_civil, inverted), on a March-based year
+            long z = epochDay + DAYS_0000_03_01_TO_1970;
+            long era = Math.floorDiv(z, 146_097);
+            int dayOfEra = (int) (z - era * 146_097);
+            int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+            int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+            int mp = (5 * dayOfYear + 2) / 153;
+            day = dayOfYear - (153 * mp + 2) / 5 + 1;
+            month = mp < 10 ? mp + 3 : mp - 9;
+            year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+        }
+
+        char[] out = new char[milli == 0 ? 19 : 23];
+        put(out, 0, year, 4);
+        out[4] = '-';
+        put(out, 5, month, 2);
+        out[7] = '-';
+        put(out, 8, day, 2);
+        out[10] = 'T';
+        put(out, 11, secondOfDay / 3600, 2);
+        out[13] = ':';
+        put(out, 14, secondOfDay / 60 % 60, 2);
+        out[16] = ':';
+        put(out, 17, secondOfDay % 60, 2);
+        if (milli != 0) {
+            out[19] = '.';
+            put(out, 20, milli, 3);
+        }
+        return new String(out);
+    }
+
+    /**
+     * Formats the epoch milliseconds in {@code column}, or returns null for NULL.
+     */
+    public static String format(ResultSet rs, int column) throws SQLException {
+        long millis = rs.getLong(column);
+        return rs.wasNull() ? null : format(millis);
+    }
+
+    private static long localToEpochSecond(long localSecond, int year, int month, int day, int hour, int minute, int second) {
+        if (FIXED) return localSecond - FIXED_OFFSET;
+        // Offsets a day either side agree unless a transition is near; only then is the local time ambiguous
+        if (localSecond > MIN_SECOND + 2 * SECONDS_PER_DAY && localSecond < MAX_SECOND - 2 * SECONDS_PER_DAY) {
+            int before = RULES.getOffset(Instant.ofEpochSecond(localSecond - SECONDS_PER_DAY)).getTotalSeconds();
+            int after = RULES.getOffset(Instant.ofEpochSecond(localSecond + SECONDS_PER_DAY)).getTotalSeconds();
+            if (before == after) return localSecond - before;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second).atZone(ZONE).toEpochSecond();
+    }
+
+    /**
+     * @return the offset in seconds of a trailing {@code Z}, {@code ±HH}, {@code ±HHmm} or {@code ±HH:mm}, or
+     * {@link Integer#MIN_VALUE} if that is not what remains
+     */
+    private static int offset(CharSequence s, int i, int end) {
+        char sign = s.charAt(i);
+        if (sign == 'Z' || sign == 'z') return end - i == 1 ? 0 : Integer.MIN_VALUE;
+        if (sign != '+' && sign != '-') return Integer.MIN_VALUE;
+        int length = end - i - 1;
+        int hours;
+        int minutes = 0;
+        if (length == 2) {
+            hours = digits(s, i + 1, 2);
+        } else if (length == 4) {
+            hours = digits(s, i + 1, 2);
+            minutes = digits(s, i + 3, 2);
+        } else if (length == 5 && s.charAt(i + 3) == ':') {
+            hours = digits(s, i + 1, 2);
+            minutes = digits(s, i + 4, 2);
+        } else {
+            return Integer.MIN_VALUE;
+        }
+        if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) return Integer.MIN_VALUE;
+        int seconds = hours * 3600 + minutes * 60;
+        return sign == '-' ? -seconds : seconds;
+    }
+
+    /**
+     * @return the value of {@code count} decimal digits at {@code from}, or -1 if any is not a digit
+     */
+    private static int digits(CharSequence s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void put(char[] out, int at, int value, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Days from 1970-01-01 to the given date (H. Hinnant's days_from_civil).
+     */
+    private static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int mp = (month + 9) % 12;
+        int dayOfYear = (153 * mp + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - DAYS_0000_03_01_TO_1970;
+    }
+}
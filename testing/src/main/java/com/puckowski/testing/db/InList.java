@@ -0,0 +1,59 @@
+package com.puckowski.testing.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Placeholder lists for {@code IN (...)} in a few fixed sizes. Building one with exactly as many placeholders
+ * as there are values gives a different SQL string for every count, none of which the statement cache can
+ * reuse; rounding the count up and repeating the last value, which does not change an {@code IN} test, keeps
+ * the number of distinct statements down to {@link #ARITIES}.
+ */
+public final class InList {
+
+    private static final int[] ARITIES = {1, 4, 16, 64, 256};
+    private static final String[] PLACEHOLDERS = new String[ARITIES.length];
+
+    /** Most values one list takes; longer inputs must be split into batches of at most this many. */
+    public static final int MAX = ARITIES[ARITIES.length - 1];
+
+    static {
+        for (int i = 0; i < ARITIES.length; i++) {
+            PLACEHOLDERS[i] = String.join(",", Collections.nCopies(ARITIES[i], "?"));
+        }
+    }
+
+    private InList() {
+    }
+
+    /**
+     * The placeholders for {@code count} values, e.g. {@code ?,?,?,?} for 3.
+     */
+    public static String placeholders(int count) {
+        return PLACEHOLDERS[index(count)];
+    }
+
+    /**
+     * Binds {@code values} from parameter {@code index} on, padded as {@link #placeholders(int)} expects.
+     *
+     * @return the next free parameter index
+     */
+    public static int bind(PreparedStatement ps, int index, List<? extends Number> values) throws SQLException {
+        int arity = ARITIES[index(values.size())];
+        for (int i = 0; i < arity; i++) {
+            ps.setLong(index++, values.get(Math.min(i, values.size() - 1)).longValue());
+        }
+        return index;
+    }
+
+    private static int index(int count) {
+        if (count < 1 || count > MAX) {
+            throw new IllegalArgumentException("IN list needs 1 to " + MAX + " values, got " + count);
+        }
+        int i = 0;
+        while (ARITIES[i] < count) i++;
+        return i;
+    }
+}
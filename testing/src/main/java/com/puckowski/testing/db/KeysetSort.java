@@ -0,0 +1,228 @@
+package com.puckowski.testing.db;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The sort orders a list endpoint offers, and the keyset SQL that pages through them.
+ * <p>
+ * Every order is (sort key, id), so rows with equal keys still come back in a stable order and a page
+ * boundary can be described by the last row alone. The next page is then a range seek on an index of
+ * (filter column, sort key) rather than an {@code OFFSET}, which costs the same on page 1 and page 1000.
+ * Sort names are matched against a fixed set, so they never reach SQL as user text.
+ * <p>
+ * A sort is requested by name, prefixed with {@code -} for descending order. SQLite sorts NULL first in
+ * ascending order and last in descending order; the keyset predicate follows the same rule.
+ */
+public final class KeysetSort {
+
+    public static final String ID = "id";
+
+    private final String idColumn;
+    private final String defaultSort;
+    private final Map<String, String> expressions;
+
+    private KeysetSort(String idColumn, String defaultSort, Map<String, String> expressions) {
+        this.idColumn = idColumn;
+        this.defaultSort = defaultSort;
+        this.expressions = expressions;
+    }
+
+    /**
+     * @param idColumn     the unique id column that breaks ties, e.g. {@code tc.id}
+     * @param defaultSort  the sort used when none is requested, e.g. {@code "id"} or {@code "-id"}
+     */
+    public static KeysetSort on(String idColumn, String defaultSort) {
+        Map<String, String> expressions = new LinkedHashMap<>();
+        expressions.put(ID, null);
+        return new KeysetSort(idColumn, defaultSort, expressions);
+    }
+
+    /**
+     * Returns a copy that also offers sorting by {@code expression} under {@code name}. The expression should
+     * lead an index, after any equality filter columns, for the seek to stay cheap.
+     */
+    public KeysetSort with(String name, String expression) {
+        Map<String, String> copy = new LinkedHashMap<>(expressions);
+        copy.put(name, expression);
+        return new KeysetSort(idColumn, defaultSort, copy);
+    }
+
+    /**
+     * Prepares the query for one page.
+     *
+     * @param sort      requested sort, or null to take it from the cursor (or the default)
+     * @param cursor    cursor returned with the previous page, or null for the first page
+     * @param pageSize  number of rows on the page
+     * @throws IllegalArgumentException if the sort is unknown, the cursor is malformed, or the two disagree
+     */
+    public Query query(String sort, String cursor, int pageSize) {
+        PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+        String requested = sort == null || sort.isBlank() ? null : sort.strip();
+        if (after != null) {
+            String cursorSort = (after.descending() ? "-" : "") + after.sort();
+            if (requested != null && !requested.equals(cursorSort)) {
+                throw new IllegalArgumentException("Cursor was issued for sort '" + cursorSort + "', not '" + requested + "'");
+            }
+            requested = cursorSort;
+        }
+        if (requested == null) {
+            requested = defaultSort;
+        }
+        boolean descending = requested.startsWith("-");
+        String name = descending ? requested.substring(1) : requested;
+        if (!expressions.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown sort '" + name + "'; expected one of " + expressions.keySet());
+        }
+        return new Query(name, expressions.get(name), descending, after, pageSize);
+    }
+
+    /**
+     * SQL fragments and bindings for one page. Callers splice the fragments into their own statement:
+     * <pre>
+     * SELECT cols {@link #selectKey()} FROM t WHERE filter AND {@link #condition()} {@link #orderBy()}
+     * </pre>
+     * then bind the filter, {@link #bindCondition}, then {@link #fetchSize()} for the trailing {@code LIMIT ?}.
+     */
+    public final class Query {
+        private final String sort;
+        private final String expression;
+        private final boolean descending;
+        private final PageCursor after;
+        private final int pageSize;
+        private final List<Object> params = new ArrayList<>();
+        private final String condition;
+
+        private Query(String sort, String expression, boolean descending, PageCursor after, int pageSize) {
+            this.sort = sort;
+            this.expression = expression;
+            this.descending = descending;
+            this.after = after;
+            this.pageSize = pageSize;
+            this.condition = after == null ? "" : buildCondition();
+        }
+
+        private String buildCondition() {
+            String cmp = descending ? "<" : ">";
+            params.add(after.id());
+            if (expression == null) {
+                return idColumn + " " + cmp + " ?";
+            }
+            Object key = after.key();
+            if (key == null) {
+                // Ascending: the rest of the NULL run, then every non-NULL key. Descending: NULLs come last.
+                return descending
+                        ? "(" + expression + " IS NULL AND " + idColumn + " < ?)"
+                        : "((" + expression + " IS NULL AND " + idColumn + " > ?) OR " + expression + " IS NOT NULL)";
+            }
+            // Spelled out rather than as a row value (key, id) > (?, ?): SQLite only turns the leading
+            // inequality into an index range when it stands on its own, notably for expression indexes.
+            params.clear();
+            params.add(key);
+            params.add(key);
+            params.add(after.id());
+            String seek = expression + " " + cmp + "= ? AND (" + expression + " " + cmp + " ? OR " + idColumn + " " + cmp + " ?)";
+            return descending ? "((" + seek + ") OR " + expression + " IS NULL)" : "(" + seek + ")";
+        }
+
+        /**
+         * The sort name, without the {@code -} for descending order.
+         */
+        public String sort() {
+            return sort;
+        }
+
+        public boolean descending() {
+            return descending;
+        }
+
+        /**
+         * The position this page continues from, or null on the first page.
+         */
+        public PageCursor after() {
+            return after;
+        }
+
+        /**
+         * The same order from another position, for a caller that walks it in chunks of its own.
+         *
+         * @param after the position to continue from, or null for the start
+         */
+        public Query from(PageCursor after, int pageSize) {
+            return new Query(sort, expression, descending, after, pageSize);
+        }
+
+        /**
+         * Extra select-list columns carrying the row's position; starts with a comma.
+         */
+        public String selectKey() {
+            return ", " + (expression == null ? "NULL" : expression) + " AS sort_key, " + idColumn + " AS sort_id";
+        }
+
+        /**
+         * The keyset predicate, or an empty string on the first page.
+         */
+        public String condition() {
+            return condition;
+        }
+
+        /**
+         * {@code ORDER BY ... LIMIT ?}, with a leading space.
+         */
+        public String orderBy() {
+            String dir = descending ? " DESC" : "";
+            return " ORDER BY " + (expression == null ? "" : expression + dir + ", ") + idColumn + dir + " LIMIT ?";
+        }
+
+        /**
+         * {@code ORDER BY} on the {@link #selectKey()} columns, with a leading space, for an outer query over the
+         * page that has to keep its order.
+         */
+        public String keyOrderBy() {
+            String dir = descending ? " DESC" : "";
+            return " ORDER BY " + (expression == null ? "" : "sort_key" + dir + ", ") + "sort_id" + dir;
+        }
+
+        /**
+         * Binds the parameters of {@link #condition()} starting at {@code index}.
+         *
+         * @return the next free parameter index
+         */
+        public int bindCondition(PreparedStatement ps, int index) throws SQLException {
+            for (Object param : params) {
+                ps.setObject(index++, param);
+            }
+            return index;
+        }
+
+        /**
+         * The value for {@code LIMIT ?}: one more than the page size, to learn whether another page follows.
+         */
+        public int fetchSize() {
+            return pageSize + 1;
+        }
+
+        /**
+         * Reads the page from a result set produced with {@link #selectKey()} and {@link #fetchSize()}.
+         */
+        public <T> Page<T> read(ResultSet rs, RowMapper<T> mapper) throws SQLException {
+            List<T> items = new ArrayList<>(Math.min(pageSize, 1024));
+            Object lastKey = null;
+            long lastId = 0;
+            while (rs.next()) {
+                if (items.size() == pageSize) {
+                    return new Page<>(items, new PageCursor(sort, descending, lastKey, lastId).encode());
+                }
+                items.add(mapper.map(rs));
+                lastKey = rs.getObject("sort_key");
+                lastId = rs.getLong("sort_id");
+            }
+            return new Page<>(items, null);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.puckowski.testing.db;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list.
+ *
+ * @param items       the rows on this page
+ * @param nextCursor  cursor for the following page, or null if this is the last one
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,58 @@
+package com.puckowski.testing.db;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated list: the sort it was taken under and the (sort key, id) of the last row
+ * on the previous page. Clients get it as an opaque token and hand it back unchanged.
+ * <p>
+ * The key keeps its SQLite storage class (integer, real, text, blob or null) across the round trip, so the
+ * next page compares against exactly the value that was read.
+ */
+public record PageCursor(String sort, boolean descending, Object key, long id) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public String encode() {
+        String typedKey = switch (key) {
+            case null -> "n";
+            case Integer i -> "i" + i;
+            case Long l -> "i" + l;
+            case Double d -> "r" + d;
+            case Float f -> "r" + f;
+            case String s -> "s" + s;
+            case byte[] b -> "b" + ENCODER.encodeToString(b);
+            default -> throw new IllegalStateException("Unsupported sort key type " + key.getClass().getName());
+        };
+        // The key goes last so that text keys may contain anything, including the separator.
+        String raw = sort + '\n' + (descending ? '-' : '+') + '\n' + id + '\n' + typedKey;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code token} is not a cursor produced by {@link #encode()}
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String[] parts = new String(DECODER.decode(token), StandardCharsets.UTF_8).split("\n", 4);
+            if (parts.length != 4 || parts[3].isEmpty() || !(parts[1].equals("+") || parts[1].equals("-"))) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            String value = parts[3].substring(1);
+            Object key = switch (parts[3].charAt(0)) {
+                case 'n' -> null;
+                case 'i' -> Long.parseLong(value);
+                case 'r' -> Double.parseDouble(value);
+                case 's' -> value;
+                case 'b' -> DECODER.decode(value);
+                default -> throw new IllegalArgumentException("Malformed cursor");
+            };
+            return new PageCursor(parts[0], parts[1].equals("-"), key, Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException and bad base64 both land here.
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.dto.ConnectionStatsDTO;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One physical SQLite connection owned by {@link SqliteConnectionPool}, together with its usage counters.
+ * Callers never see this object; they get a {@link ConnectionLease} per borrow.
+ */
+final class PooledConnection {
+
+    enum Role { READ, WRITE }
+
+    private final int id;
+    private final Role role;
+    private Connection physical;
+    private final StatementCache statements;
+
+    // Written by the borrowing thread only, read by the stats endpoint.
+    private volatile long borrowCount;
+    private volatile long totalHeldNanos;
+    private volatile long maxHeldNanos;
+    private volatile long lastBorrowedAt;
+    private volatile boolean inUse;
+    private long borrowedAtNanos;
+
+    /**
+     * @param statements the connection's prepared statement cache, or null to prepare every statement afresh
+     */
+    PooledConnection(int id, Role role, Connection physical, StatementCache statements) {
+        this.id = id;
+        this.role = role;
+        this.physical = physical;
+        this.statements = statements;
+    }
+
+    int id() {
+        return id;
+    }
+
+    Role role() {
+        return role;
+    }
+
+    Connection physical() {
+        return physical;
+    }
+
+    StatementCache statements() {
+        return statements;
+    }
+
+    void replace(Connection fresh) {
+        if (statements != null) statements.clear();
+        this.physical = fresh;
+    }
+
+    void markBorrowed(boolean recordStats) {
+        inUse = true;
+        if (recordStats) {
+            borrowedAtNanos = System.nanoTime();
+            lastBorrowedAt = System.currentTimeMillis();
+        }
+    }
+
+    void markReturned(boolean recordStats) {
+        if (recordStats) {
+            long held = System.nanoTime() - borrowedAtNanos;
+            borrowCount++;
+            totalHeldNanos += held;
+            if (held > maxHeldNanos) maxHeldNanos = held;
+        }
+        inUse = false;
+    }
+
+    void closeQuietly() {
+        if (statements != null) statements.clear();
+        try {
+            physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    ConnectionStatsDTO stats() {
+        long count = borrowCount;
+        int cachedStatements = statements == null ? 0 : statements.size();
+        double avgHeldMs = count == 0 ? 0.0 : (totalHeldNanos / (double) count) / 1_000_000.0;
+        return new ConnectionStatsDTO(
+                id,
+                role.name(),
+                inUse,
+                count,
+                avgHeldMs,
+                maxHeldNanos / 1_000_000.0,
+                lastBorrowedAt,
+                cachedStatements
+        );
+    }
+}
@@ -0,0 +1,41 @@
+package com.puckowski.testing.db;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A short, stable name for a SQL string, for use as a metric tag or log key: the statement kind, the first
+ * table it names and a hash of the full text, e.g. {@code select:test_case:1f3a9c0e}. Statements that differ
+ * only in their bound values share an id; statements built with a different number of placeholders do not.
+ *
+ * @param kind  first keyword, lower-cased ({@code select}, {@code insert}, {@code with}, ...)
+ * @param table first table named after FROM, INTO, UPDATE or TABLE, or {@code -}
+ * @param value the id itself
+ */
+public record QueryId(String kind, String table, String value) {
+
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(?:from|into|update|table|pragma)\\s+(?:if\\s+(?:not\\s+)?exists\\s+)?[\"`\\[]?([A-Za-z_][A-Za-z0-9_]*)",
+            Pattern.CASE_INSENSITIVE);
+
+    public static QueryId of(String sql) {
+        int start = 0;
+        int length = sql.length();
+        while (start < length && (Character.isWhitespace(sql.charAt(start)) || sql.charAt(start) == '(')) start++;
+        int end = start;
+        while (end < length && Character.isLetter(sql.charAt(end))) end++;
+        String kind = end > start ? sql.substring(start, end).toLowerCase(Locale.ROOT) : "sql";
+
+        Matcher m = TABLE.matcher(sql);
+        String table = m.find() ? m.group(1).toLowerCase(Locale.ROOT) : "-";
+
+        String hash = Integer.toHexString(sql.hashCode());
+        return new QueryId(kind, table, kind + ":" + table + ":" + "0".repeat(8 - hash.length()) + hash);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
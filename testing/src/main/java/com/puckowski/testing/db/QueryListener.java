@@ -0,0 +1,77 @@
+package com.puckowski.testing.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Observes the SQL run on connections borrowed from {@link SqliteConnectionPool}. The pool only wraps
+ * statements when a listener is installed, so an application without one pays nothing.
+ * <p>
+ * Callbacks run on the thread that executed the statement, inside the request, and must be cheap.
+ */
+public interface QueryListener {
+
+    /**
+     * Returns the probe that receives the timings of {@code sql}. It is called once per prepared statement
+     * and once per execution of a plain statement, so implementations should cache probes by SQL string.
+     */
+    Probe probe(String sql);
+
+    /**
+     * Reports how long a caller waited for a connection, whether or not it got one in the end.
+     */
+    default void acquired(boolean write, long waitNanos) {
+    }
+
+    /**
+     * Combines {@code listeners} into one; returns null for none, so the pool leaves statements unwrapped.
+     */
+    static QueryListener of(List<QueryListener> listeners) {
+        return switch (listeners.size()) {
+            case 0 -> null;
+            case 1 -> listeners.get(0);
+            default -> new CompositeQueryListener(listeners);
+        };
+    }
+
+    interface Probe {
+
+        /**
+         * Reports one execution.
+         *
+         * @param execution the statement that ran, valid only during this call
+         * @param nanos     time spent inside SQLite: the execute call plus, for a query, every {@code next()}
+         * @param rows      rows read by a query, or rows changed by an update
+         * @param failure   the error the execution ended with, or null
+         */
+        void executed(Execution execution, long nanos, long rows, SQLException failure);
+
+        /**
+         * Whether the next executions of this SQL should keep their bound values for
+         * {@link Execution#parameters()}. Capturing costs a store, and boxing, per bound value, so a prepared
+         * statement asks once, when it is handed out, and only keeps them if the answer is yes.
+         */
+        default boolean capturesParameters() {
+            return false;
+        }
+    }
+
+    /**
+     * What a probe may ask about the execution it is told about.
+     */
+    interface Execution {
+
+        /**
+         * The physical connection the statement ran on. Statements run on it are not reported, and it must
+         * not be closed.
+         */
+        Connection connection();
+
+        /**
+         * The values bound for this execution, parameter 1 first; empty unless the probe
+         * {@link Probe#capturesParameters() captures parameters}, and always empty for plain statements.
+         */
+        List<Object> parameters();
+    }
+}
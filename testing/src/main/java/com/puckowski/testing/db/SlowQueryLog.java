@@ -0,0 +1,223 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SlowQueryProperties;
+import com.puckowski.testing.dto.QueryPlanDTO;
+import com.puckowski.testing.dto.SlowQueryDTO;
+import com.puckowski.testing.dto.SlowQueryLogDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the most recent statement executions that took longer than {@code sqlite.slow-query.threshold} in a
+ * fixed-size ring buffer. Bound parameters are captured only for SQL that has already been slow once, so
+ * statements that stay fast never pay for it; the first slow execution of a statement is recorded without
+ * them.
+ * <p>
+ * The first time each distinct SQL string runs, its {@code EXPLAIN QUERY PLAN} is captured on the same
+ * connection, and a warning is logged if the plan scans a whole table. That costs one extra prepare per
+ * statement over the life of the process, and points at a missing index before the statement ever turns
+ * up as slow.
+ */
+public class SlowQueryLog implements QueryListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final int MAX_STATEMENTS = 500;
+    private static final int MAX_PARAMETER_LENGTH = 200;
+    private static final Set<String> EXPLAINABLE = Set.of("select", "with", "insert", "replace", "update", "delete");
+    private static final Probe DISABLED = (execution, nanos, rows, failure) -> {
+    };
+
+    private final boolean enabled;
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final AtomicReferenceArray<SlowQueryDTO> entries;
+    private final AtomicLong recorded = new AtomicLong();
+    private final ConcurrentMap<String, StatementLog> statements = new ConcurrentHashMap<>();
+
+    public SlowQueryLog(SlowQueryProperties properties) {
+        if (properties.capacity() < 1) {
+            throw new IllegalArgumentException("sqlite.slow-query.capacity must be at least 1");
+        }
+        this.enabled = properties.enabled();
+        this.thresholdNanos = properties.threshold().toNanos();
+        this.explain = properties.explain();
+        this.entries = new AtomicReferenceArray<>(properties.capacity());
+    }
+
+    @Override
+    public Probe probe(String sql) {
+        if (!enabled) return DISABLED;
+        StatementLog statement = statements.get(sql);
+        if (statement != null) return statement;
+        // Past the limit, statements are still recorded when slow, but not kept or explained.
+        if (statements.size() >= MAX_STATEMENTS) return new StatementLog(sql, false);
+        return statements.computeIfAbsent(sql, s -> new StatementLog(s, explain));
+    }
+
+    /**
+     * Recorded executions, newest first.
+     */
+    public SlowQueryLogDTO snapshot() {
+        int capacity = entries.length();
+        long end = recorded.get();
+        List<SlowQueryDTO> result = new ArrayList<>((int) Math.min(end, capacity));
+        for (long i = end - 1; i >= 0 && i >= end - capacity; i--) {
+            SlowQueryDTO entry = entries.get((int) (i % capacity));
+            if (entry != null) result.add(entry);
+        }
+        return new SlowQueryLogDTO(thresholdNanos / 1_000_000.0, capacity, end, result);
+    }
+
+    /**
+     * Captured plans, those with full scans first.
+     */
+    public List<QueryPlanDTO> plans() {
+        List<QueryPlanDTO> result = new ArrayList<>(statements.size());
+        for (StatementLog statement : statements.values()) {
+            if (statement.plan != null) result.add(statement.toPlanDTO());
+        }
+        result.sort(Comparator.comparing((QueryPlanDTO p) -> p.fullScans().isEmpty()).thenComparing(QueryPlanDTO::query));
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    private void record(StatementLog statement, QueryListener.Execution execution, long nanos, long rows,
+                        SQLException failure) {
+        List<Object> values = execution.parameters();
+        List<String> parameters = new ArrayList<>(values.size());
+        for (Object value : values) {
+            parameters.add(describe(value));
+        }
+        SlowQueryDTO entry = new SlowQueryDTO(statement.id.value(), statement.sql, parameters, nanos / 1_000_000.0,
+                rows, failure == null ? null : failure.getMessage(), EpochMillis.format(System.currentTimeMillis()));
+        long slot = recorded.getAndIncrement();
+        entries.set((int) (slot % entries.length()), entry);
+        if (log.isDebugEnabled()) {
+            log.debug("Slow query {} took {} ms ({} rows): {}", statement.id, nanos / 1_000_000, rows, parameters);
+        }
+    }
+
+    private static String describe(Object value) {
+        if (value == null) return "NULL";
+        if (value instanceof byte[] bytes) return "<" + bytes.length + " bytes>";
+        String text = value.toString();
+        if (text.length() > MAX_PARAMETER_LENGTH) text = text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+        return value instanceof CharSequence ? "'" + text + "'" : text;
+    }
+
+    /**
+     * Runs {@code EXPLAIN QUERY PLAN} for {@code sql} and returns its rows as indented lines.
+     */
+    private static List<String> explain(Connection conn, String sql) throws SQLException {
+        List<String> lines = new ArrayList<>();
+        Map<Integer, Integer> depths = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                int depth = depths.getOrDefault(rs.getInt(2), -1) + 1;
+                depths.put(id, depth);
+                lines.add("  ".repeat(depth) + rs.getString(4));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Tables read start to end without an index. {@code SCAN t USING INDEX} walks an index instead, and
+     * virtual tables such as {@code json_each}, subqueries and CTEs have no index to use.
+     */
+    static List<String> fullScans(List<String> plan) {
+        Set<String> derived = new HashSet<>();
+        for (String line : plan) {
+            String detail = line.strip();
+            if (detail.startsWith("MATERIALIZE ")) derived.add(firstWord(detail, 12));
+            else if (detail.startsWith("CO-ROUTINE ")) derived.add(firstWord(detail, 11));
+        }
+        List<String> tables = new ArrayList<>();
+        for (String line : plan) {
+            String detail = line.strip();
+            if (!detail.startsWith("SCAN ") || detail.contains(" USING ") || detail.contains("VIRTUAL TABLE")
+                    || detail.startsWith("SCAN (") || detail.startsWith("SCAN CONSTANT ROW")) {
+                continue;
+            }
+            String table = firstWord(detail, 5);
+            if (!derived.contains(table)) tables.add(table);
+        }
+        return tables;
+    }
+
+    private static String firstWord(String text, int start) {
+        int end = text.indexOf(' ', start);
+        return end < 0 ? text.substring(start) : text.substring(start, end);
+    }
+
+    private final class StatementLog implements Probe {
+
+        private final String sql;
+        private final QueryId id;
+        private final AtomicBoolean explained;
+        private final LongAdder slowCount = new LongAdder();
+        private volatile boolean slow;
+        private volatile List<String> plan;
+        private volatile List<String> fullScans = List.of();
+
+        StatementLog(String sql, boolean explain) {
+            this.sql = sql;
+            this.id = QueryId.of(sql);
+            this.explained = new AtomicBoolean(!explain || !EXPLAINABLE.contains(id.kind()));
+        }
+
+        @Override
+        public void executed(QueryListener.Execution execution, long nanos, long rows, SQLException failure) {
+            if (!explained.get() && explained.compareAndSet(false, true)) {
+                capturePlan(execution.connection());
+            }
+            if (nanos >= thresholdNanos) {
+                slow = true;
+                slowCount.increment();
+                record(this, execution, nanos, rows, failure);
+            }
+        }
+
+        @Override
+        public boolean capturesParameters() {
+            return slow;
+        }
+
+        private void capturePlan(Connection conn) {
+            try {
+                List<String> lines = explain(conn, sql);
+                fullScans = fullScans(lines);
+                plan = lines;
+                if (!fullScans.isEmpty()) {
+                    log.warn("Full table scan of {} in {}: {}", fullScans, id, sql.strip());
+                }
+            } catch (SQLException ex) {
+                plan = List.of("EXPLAIN failed: " + ex.getMessage());
+            }
+        }
+
+        QueryPlanDTO toPlanDTO() {
+            return new QueryPlanDTO(id.value(), sql, plan, fullScans, slowCount.sum());
+        }
+    }
+}
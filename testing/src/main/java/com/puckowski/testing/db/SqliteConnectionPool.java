@@ -0,0 +1,317 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SqlitePoolProperties;
+import com.puckowski.testing.dto.ConnectionStatsDTO;
+import com.puckowski.testing.dto.PoolStatsDTO;
+import com.puckowski.testing.dto.StatementCacheStatsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool shaped around SQLite's locking model: a fixed set of read-only connections that can
+ * run concurrently under WAL, plus exactly one writer connection, since SQLite only ever admits one
+ * writer at a time. Connections are opened once at startup and have their PRAGMAs applied a single time,
+ * so borrowing is just a queue hand-off rather than a file open.
+ * <p>
+ * {@link #getConnection()} hands out a read connection (with {@code query_only} set);
+ * {@link #getWriteConnection()} hands out the writer.
+ * <p>
+ * Each connection keeps up to {@code statementCacheSize} prepared statements open, see {@link StatementCache}.
+ * An optional {@link QueryListener} is told how long each borrow waited and how long each statement ran.
+ */
+public class SqliteConnectionPool implements DataSource, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SqliteConnectionPool.class);
+
+    private final SqlitePoolProperties properties;
+    private final SQLiteDataSource factory;
+    private final List<PooledConnection> readers;
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final PooledConnection writer;
+    private final Semaphore writerPermit = new Semaphore(1, true);
+    private final LongAdder waitTimeouts = new LongAdder();
+    private final long maxWaitNanos;
+    private final boolean recordStats;
+    private final QueryListener listener;
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+    private volatile boolean closed;
+
+    public SqliteConnectionPool(SqlitePoolProperties properties) throws SQLException {
+        this(properties, null);
+    }
+
+    /**
+     * @param listener receives connection wait times and statement timings; null to leave statements unwrapped
+     */
+    public SqliteConnectionPool(SqlitePoolProperties properties, QueryListener listener) throws SQLException {
+        if (properties.readConnections() < 1) {
+            throw new IllegalArgumentException("sqlite.pool.read-connections must be at least 1");
+        }
+        this.properties = properties;
+        this.factory = new SQLiteDataSource();
+        this.factory.setUrl(properties.url());
+        this.maxWaitNanos = properties.maxWait().toNanos();
+        this.recordStats = properties.connectionStats();
+        this.listener = listener;
+
+        // Open the writer first so the switch to WAL happens before any reader attaches.
+        this.writer = new PooledConnection(0, PooledConnection.Role.WRITE, open(PooledConnection.Role.WRITE),
+                statementCache());
+
+        int size = properties.readConnections();
+        this.readers = new ArrayList<>(size);
+        this.idleReaders = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 1; i <= size; i++) {
+                PooledConnection reader = new PooledConnection(i, PooledConnection.Role.READ, open(PooledConnection.Role.READ),
+                        statementCache());
+                readers.add(reader);
+                idleReaders.add(reader);
+            }
+        } catch (SQLException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Borrows a read-only connection. Close it to give it back.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        ensureOpen();
+        PooledConnection reader;
+        long start = System.nanoTime();
+        try {
+            reader = idleReaders.poll(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", ex);
+        } finally {
+            if (listener != null) listener.acquired(false, System.nanoTime() - start);
+        }
+        if (reader == null) {
+            waitTimeouts.increment();
+            throw new SQLTransientConnectionException(
+                    "Timed out after " + properties.maxWait().toMillis() + " ms waiting for a read connection");
+        }
+        if (closed) {
+            // Handed back after close() drained the idle readers
+            reader.closeQuietly();
+            ensureOpen();
+        }
+        reader.markBorrowed(recordStats);
+        return new ConnectionLease(this, reader, listener);
+    }
+
+    /**
+     * Borrows the single writer connection, waiting for the current holder to give it back.
+     */
+    public Connection getWriteConnection() throws SQLException {
+        ensureOpen();
+        boolean acquired;
+        long start = System.nanoTime();
+        try {
+            acquired = writerPermit.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write connection", ex);
+        } finally {
+            if (listener != null) listener.acquired(true, System.nanoTime() - start);
+        }
+        if (!acquired) {
+            waitTimeouts.increment();
+            throw new SQLTransientConnectionException(
+                    "Timed out after " + properties.maxWait().toMillis() + " ms waiting for the write connection");
+        }
+        if (closed) {
+            // The permit is kept, so the writer stays closed
+            writer.closeQuietly();
+            ensureOpen();
+        }
+        writer.markBorrowed(recordStats);
+        return new ConnectionLease(this, writer, listener);
+    }
+
+    void release(PooledConnection pooled) {
+        try {
+            reset(pooled);
+        } finally {
+            pooled.markReturned(recordStats);
+            // A connection still out when close() runs is closed on its way back. close() may also run between
+            // the check and the hand-back, so the check is repeated after it; whoever takes the connection back
+            // out of the pool then closes it.
+            if (pooled.role() == PooledConnection.Role.WRITE) {
+                writerPermit.release();
+                if (closed && writerPermit.tryAcquire()) writer.closeQuietly();
+            } else if (closed) {
+                pooled.closeQuietly();
+            } else {
+                idleReaders.offer(pooled);
+                if (closed && idleReaders.remove(pooled)) pooled.closeQuietly();
+            }
+        }
+    }
+
+    /**
+     * Puts a returned connection back into a clean state: no open transaction, autocommit on.
+     * A connection that turns out to be broken is replaced with a freshly opened one.
+     */
+    private void reset(PooledConnection pooled) {
+        Connection conn = pooled.physical();
+        try {
+            if (conn.isClosed()) {
+                if (!closed) pooled.replace(open(pooled.role()));
+                return;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            conn.clearWarnings();
+        } catch (SQLException ex) {
+            pooled.closeQuietly();
+            try {
+                if (!closed) pooled.replace(open(pooled.role()));
+            } catch (SQLException reopenFailed) {
+                log.error("Failed to reopen pooled SQLite {} connection {}", pooled.role(), pooled.id(), reopenFailed);
+            }
+        }
+    }
+
+    /**
+     * Opens a connection outside the pool, with the pool's PRAGMAs and without {@code query_only}, for
+     * maintenance such as checkpoints. It is not counted or timed; the caller closes it.
+     */
+    public Connection openUnpooled() throws SQLException {
+        ensureOpen();
+        return open(PooledConnection.Role.WRITE);
+    }
+
+    private StatementCache statementCache() {
+        return properties.statementCacheSize() > 0
+                ? new StatementCache(properties.statementCacheSize(), statementCounters)
+                : null;
+    }
+
+    private Connection open(PooledConnection.Role role) throws SQLException {
+        Connection conn = factory.getConnection();
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + properties.busyTimeout().toMillis());
+            if (role == PooledConnection.Role.WRITE) {
+                st.execute("PRAGMA journal_mode = WAL");
+            }
+            st.execute("PRAGMA synchronous = " + properties.synchronous());
+            st.execute("PRAGMA mmap_size = " + properties.mmapSize());
+            st.execute("PRAGMA cache_size = " + properties.cacheSize());
+            if (role == PooledConnection.Role.READ) {
+                st.execute("PRAGMA query_only = ON");
+            }
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+        return conn;
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+    }
+
+    public PoolStatsDTO stats() {
+        List<ConnectionStatsDTO> connections = new ArrayList<>(readers.size() + 1);
+        connections.add(writer.stats());
+        for (PooledConnection reader : readers) {
+            connections.add(reader.stats());
+        }
+        int cached = 0;
+        for (ConnectionStatsDTO connection : connections) {
+            cached += connection.cachedStatements();
+        }
+        long hits = statementCounters.hits.sum();
+        long misses = statementCounters.misses.sum();
+        return new PoolStatsDTO(
+                readers.size(),
+                idleReaders.size(),
+                writerPermit.availablePermits() == 0,
+                waitTimeouts.sum(),
+                new StatementCacheStatsDTO(
+                        properties.statementCacheSize(),
+                        cached,
+                        hits,
+                        misses,
+                        hits + misses == 0 ? 0.0 : hits / (double) (hits + misses),
+                        statementCounters.evictions.sum()
+                ),
+                recordStats ? connections : List.of()
+        );
+    }
+
+    /**
+     * Closes the idle connections now, and connections still borrowed when they are given back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection idle;
+        while ((idle = idleReaders.poll()) != null) {
+            idle.closeQuietly();
+        }
+        if (writerPermit.tryAcquire()) {
+            writer.closeQuietly();
+        }
+    }
+
+    // ------ DataSource boilerplate ------
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("SQLite connections do not take credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
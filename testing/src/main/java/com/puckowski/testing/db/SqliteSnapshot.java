@@ -0,0 +1,246 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SnapshotProperties;
+import com.puckowski.testing.config.SqlitePoolProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteErrorCode;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A periodically refreshed copy of the database for reads that can be a little stale, such as reports. Long
+ * scans there hold no read transaction on the live database, so they never keep a checkpoint from
+ * finishing and the WAL from being reset.
+ * <p>
+ * Every {@code sqlite.snapshot.max-staleness} the live database is copied with SQLite's online backup API
+ * into a new file, provided something was committed since the previous copy. The backup runs inside a read
+ * transaction of its own, so it copies one consistent state in a single pass even while the writer
+ * keeps committing. Each copy gets its own {@link SqliteConnectionPool}; once the new one is in place the
+ * old pool is closed, its borrowed connections as they come back, and its file deleted.
+ * <p>
+ * Copies are named {@code <path>-<pid>-<n>.sqlite}. At startup, copies whose process is no longer running are
+ * deleted; those of another server, test or benchmark using the same path are left alone.
+ * <p>
+ * Until the first copy exists, or if refreshing has failed for twice the staleness bound, reads go to the
+ * live database instead.
+ */
+public class SqliteSnapshot implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SqliteSnapshot.class);
+
+    private static final long PID = ProcessHandle.current().pid();
+    // Shared, so snapshots in one process never pick the same file even with the same path
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    // What follows "<path>-" in the name of a copy or its WAL and shared-memory files; older copies have no pid
+    private static final Pattern COPY = Pattern.compile("(?:(\\d{1,18})-)?\\d+\\.sqlite(?:-wal|-shm)?");
+
+    private final SqliteConnectionPool source;
+    private final SqliteWriter writer;
+    private final SnapshotProperties properties;
+    private final SqlitePoolProperties poolProperties;
+    private final QueryListener listener;
+    private final long maxStalenessMillis;
+    private final List<Runnable> refreshListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    // Guarded by this
+    private final List<Path> retired = new ArrayList<>();
+
+    private volatile Generation current;
+
+    /**
+     * @param takenAt        when the copied state was current, in epoch millis
+     * @param writerBatches  the writer's commit count as of the copy, to tell whether a refresh has anything new
+     */
+    private record Generation(SqliteConnectionPool pool, Path file, long takenAt, long writerBatches) {
+    }
+
+    /**
+     * @param listener receives statement timings on the snapshot's connections; null to leave them unwrapped
+     */
+    public SqliteSnapshot(SqliteConnectionPool source, SqliteWriter writer, SnapshotProperties properties,
+                          SqlitePoolProperties poolProperties, QueryListener listener) {
+        this.source = source;
+        this.writer = writer;
+        this.properties = properties;
+        this.poolProperties = poolProperties;
+        this.listener = listener;
+        this.maxStalenessMillis = properties.maxStaleness().toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("sqlite-snapshot").daemon(true).factory());
+        if (properties.enabled()) {
+            deleteLeftovers();
+            scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, maxStalenessMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Borrows a read-only connection to the current snapshot, or to the live database if there is no usable
+     * one. Close it to give it back.
+     */
+    public Connection getConnection() throws SQLException {
+        while (true) {
+            Generation generation = current;
+            if (generation == null || System.currentTimeMillis() - generation.takenAt() > 2 * maxStalenessMillis) {
+                return source.getConnection();
+            }
+            try {
+                return generation.pool().getConnection();
+            } catch (SQLException ex) {
+                // Retired between reading current and borrowing; anything else is a real failure
+                if (current == generation) throw ex;
+            }
+        }
+    }
+
+    /**
+     * Runs {@code listener} on the refresh thread after each refresh that brought in new data, so caches filled
+     * from the snapshot can be dropped.
+     */
+    public void onRefresh(Runnable listener) {
+        refreshListeners.add(listener);
+    }
+
+    /**
+     * Age of the data reads get now, in milliseconds; 0 while reads go to the live database.
+     */
+    public long ageMillis() {
+        Generation generation = current;
+        return generation == null ? 0 : System.currentTimeMillis() - generation.takenAt();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception ex) {
+            log.warn("Failed to refresh the database snapshot: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Copies the live database into a new snapshot and switches reads over to it, unless nothing was committed
+     * since the last copy, in which case the current one is simply marked fresh.
+     */
+    public synchronized void refresh() throws SQLException {
+        Generation previous = current;
+        long takenAt = System.currentTimeMillis();
+        long batches = writer.stats().batches();
+        if (previous != null && previous.writerBatches() == batches) {
+            current = new Generation(previous.pool(), previous.file(), takenAt, batches);
+            return;
+        }
+
+        Path file = Path.of(properties.path() + "-" + PID + "-" + SEQUENCE.incrementAndGet() + ".sqlite").toAbsolutePath();
+        deleteFiles(file);
+        long start = System.nanoTime();
+        SqliteConnectionPool pool;
+        // Unpooled, so the backup command stays out of the statement cache and query metrics
+        try (Connection conn = source.openUnpooled()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                // Pin a read snapshot first; the backup's steps then all see it and never restart on a commit.
+                st.executeQuery("SELECT count(*) FROM sqlite_schema").close();
+                // The driver's "backup to '<file>'" command cannot quote a file name containing a quote,
+                // so the name goes to the backup API directly
+                int rc = conn.unwrap(SQLiteConnection.class).getDatabase().backup("main", file.toString(), null);
+                if (rc != SQLiteErrorCode.SQLITE_OK.code) {
+                    throw new SQLException("Backup to " + file + " failed with SQLite error " + rc, null, rc);
+                }
+            } finally {
+                conn.rollback();
+            }
+            pool = new SqliteConnectionPool(snapshotPoolProperties(file), listener);
+        } catch (SQLException ex) {
+            deleteFiles(file);
+            throw ex;
+        }
+        current = new Generation(pool, file, takenAt, batches);
+        log.debug("Database snapshot {} taken in {} ms", file.getFileName(), (System.nanoTime() - start) / 1_000_000);
+
+        if (previous != null) {
+            previous.pool().close();
+            retired.add(previous.file());
+        }
+        // Files still open elsewhere (Windows) stay until a later refresh manages to delete them
+        retired.removeIf(SqliteSnapshot::deleteFiles);
+        refreshListeners.forEach(Runnable::run);
+    }
+
+    private SqlitePoolProperties snapshotPoolProperties(Path file) {
+        return new SqlitePoolProperties(
+                "jdbc:sqlite:" + file,
+                Math.max(1, properties.readConnections()),
+                poolProperties.maxWait(),
+                poolProperties.connectionStats(),
+                poolProperties.synchronous(),
+                poolProperties.mmapSize(),
+                poolProperties.cacheSize(),
+                poolProperties.busyTimeout(),
+                poolProperties.statementCacheSize()
+        );
+    }
+
+    /**
+     * Removes copies left behind by runs that did not shut down cleanly. Copies of a running process, including
+     * this one, may still be in use and are kept.
+     */
+    private void deleteLeftovers() {
+        Path prefix = Path.of(properties.path()).toAbsolutePath();
+        String start = prefix.getFileName() + "-";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(prefix.getParent(), start + "*.sqlite*")) {
+            for (Path file : files) {
+                Matcher copy = COPY.matcher(file.getFileName().toString().substring(start.length()));
+                if (!copy.matches()) continue;
+                if (copy.group(1) != null && ProcessHandle.of(Long.parseLong(copy.group(1))).isPresent()) continue;
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ex) {
+            log.warn("Could not remove old database snapshots: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Deletes a snapshot file with its WAL and shared-memory files.
+     *
+     * @return whether none of them is left
+     */
+    private static boolean deleteFiles(Path file) {
+        try {
+            for (String suffix : new String[]{"-wal", "-shm", ""}) {
+                Files.deleteIfExists(Path.of(file + suffix));
+            }
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        scheduler.shutdownNow();
+        Generation generation = current;
+        current = null;
+        if (generation != null) {
+            generation.pool().close();
+            retired.add(generation.file());
+        }
+        retired.removeIf(SqliteSnapshot::deleteFiles);
+    }
+}
@@ -0,0 +1,249 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SqliteWriterProperties;
+import com.puckowski.testing.dto.WriterStatsDTO;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serialises all writes through one thread that owns the pool's writer connection.
+ * <p>
+ * Request threads submit {@link WriteCommand}s and block until their command has been committed. The writer
+ * thread takes the first queued command, keeps collecting for up to {@code batchWindow} (or until
+ * {@code maxBatchSize} commands are in hand) and runs the whole group in a single transaction, so a
+ * burst of N small writes costs one fsync instead of N and never contends for SQLite's write lock.
+ * Each command runs inside its own savepoint: a command that throws is rolled back on its own and its
+ * exception is rethrown to its submitter, while the rest of the batch still commits.
+ */
+public class SqliteWriter implements AutoCloseable {
+
+    private static final PendingWrite<?> SHUTDOWN = new PendingWrite<>(conn -> null);
+
+    private final SqliteConnectionPool pool;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final long batchWindowNanos;
+    private final long submitTimeoutNanos;
+    private final Thread thread;
+    private volatile boolean accepting = true;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder failedCommands = new LongAdder();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private volatile long maxCommitNanos;
+    private volatile long lastCommitNanos;
+    private volatile int maxBatch;
+
+    public SqliteWriter(SqliteConnectionPool pool, SqliteWriterProperties properties) {
+        this.pool = pool;
+        this.queueCapacity = properties.queueCapacity();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = Math.max(1, properties.maxBatchSize());
+        this.batchWindowNanos = properties.batchWindow().toNanos();
+        this.submitTimeoutNanos = properties.submitTimeout().toNanos();
+        this.thread = Thread.ofPlatform().name("sqlite-writer").daemon(true).unstarted(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * Queues {@code command} and waits until the batch containing it has committed.
+     *
+     * @return the command's own result
+     * @throws SQLException      if the command, or the commit of its batch, failed
+     * @throws RuntimeException  any unchecked exception thrown by the command, unchanged
+     */
+    public <T> T execute(WriteCommand<T> command) throws SQLException {
+        if (Thread.currentThread() == thread) {
+            throw new IllegalStateException("Write commands must not submit further write commands");
+        }
+        if (!accepting) {
+            throw new SQLException("SQLite writer is shut down");
+        }
+        PendingWrite<T> pending = new PendingWrite<>(command);
+        try {
+            if (!queue.offer(pending, submitTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientException("Write queue is full (" + queueCapacity + " pending commands)");
+            }
+            return pending.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a write to commit", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException sqlEx) throw sqlEx;
+            if (cause instanceof RuntimeException runtimeEx) throw runtimeEx;
+            if (cause instanceof Error error) throw error;
+            throw new SQLException(cause);
+        }
+    }
+
+    private void run() {
+        List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+        boolean shuttingDown = false;
+        while (!shuttingDown) {
+            try {
+                PendingWrite<?> first = queue.take();
+                if (first == SHUTDOWN) {
+                    break;
+                }
+                batch.add(first);
+                shuttingDown = collect(batch);
+            } catch (InterruptedException ex) {
+                shuttingDown = true;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        // Fail anything that slipped in behind the shutdown marker.
+        PendingWrite<?> leftover;
+        while ((leftover = queue.poll()) != null) {
+            if (leftover != SHUTDOWN) {
+                leftover.result.completeExceptionally(new SQLException("SQLite writer is shut down"));
+            }
+        }
+    }
+
+    /**
+     * Adds queued commands to {@code batch} until the window closes or the batch is full.
+     *
+     * @return true if the shutdown marker was reached
+     */
+    private boolean collect(List<PendingWrite<?>> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + batchWindowNanos;
+        while (batch.size() < maxBatchSize) {
+            PendingWrite<?> next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) break;
+            }
+            if (next == SHUTDOWN) return true;
+            batch.add(next);
+        }
+        return false;
+    }
+
+    private void commit(List<PendingWrite<?>> batch) {
+        long start = System.nanoTime();
+        int succeeded = 0;
+        try (Connection conn = pool.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            for (PendingWrite<?> pending : batch) {
+                if (pending.apply(conn)) succeeded++;
+            }
+            conn.commit();
+        } catch (Throwable ex) {
+            // The transaction itself failed, so nothing in it was written, including the commands that
+            // ran cleanly. The pool rolls the connection back when it is returned.
+            for (PendingWrite<?> pending : batch) {
+                pending.fail(ex);
+            }
+            failedCommands.add(batch.size());
+            recordBatch(batch.size(), System.nanoTime() - start);
+            return;
+        }
+        for (PendingWrite<?> pending : batch) {
+            pending.complete();
+        }
+        failedCommands.add(batch.size() - succeeded);
+        recordBatch(batch.size(), System.nanoTime() - start);
+    }
+
+    private void recordBatch(int size, long commitNanos) {
+        batches.increment();
+        commands.add(size);
+        totalCommitNanos.addAndGet(commitNanos);
+        lastCommitNanos = commitNanos;
+        if (commitNanos > maxCommitNanos) maxCommitNanos = commitNanos;
+        if (size > maxBatch) maxBatch = size;
+    }
+
+    public WriterStatsDTO stats() {
+        long batchCount = batches.sum();
+        long commandCount = commands.sum();
+        return new WriterStatsDTO(
+                queue.size(),
+                queueCapacity,
+                batchCount,
+                commandCount,
+                failedCommands.sum(),
+                batchCount == 0 ? 0.0 : commandCount / (double) batchCount,
+                maxBatch,
+                batchCount == 0 ? 0.0 : totalCommitNanos.get() / (double) batchCount / 1_000_000.0,
+                maxCommitNanos / 1_000_000.0,
+                lastCommitNanos / 1_000_000.0
+        );
+    }
+
+    /**
+     * Stops accepting commands, lets the writer finish everything already queued and waits for it to exit.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        if (!accepting) return;
+        accepting = false;
+        if (!queue.offer(SHUTDOWN, 5, TimeUnit.SECONDS)) {
+            thread.interrupt();
+        }
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * A queued command and the future its submitter is waiting on. The outcome is held back until the
+     * batch commits, so a submitter never sees a result for data that was later rolled back.
+     */
+    private static final class PendingWrite<T> {
+        final WriteCommand<T> command;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Throwable failure;
+
+        PendingWrite(WriteCommand<T> command) {
+            this.command = command;
+        }
+
+        /**
+         * Runs the command in its own savepoint.
+         *
+         * @return true if the command succeeded
+         */
+        boolean apply(Connection conn) throws SQLException {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                value = command.execute(conn);
+                conn.releaseSavepoint(savepoint);
+                return true;
+            } catch (Exception ex) {
+                conn.rollback(savepoint);
+                conn.releaseSavepoint(savepoint);
+                failure = ex;
+                return false;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+
+        void fail(Throwable ex) {
+            result.completeExceptionally(failure != null ? failure : ex);
+        }
+    }
+}
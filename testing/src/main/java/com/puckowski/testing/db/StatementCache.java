@@ -0,0 +1,152 @@
+package com.puckowski.testing.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepared statements kept open on one pooled connection, keyed by SQL text, so that a statement is parsed
+ * and planned by SQLite once per connection instead of once per request. The least recently used statement
+ * is closed once more than {@code capacity} are cached.
+ * <p>
+ * Only the thread holding the connection's lease uses the cache, so it needs no locking. Closing a statement
+ * handed out from here resets it and puts it back; if the same SQL is prepared again while the cached
+ * statement is still open, the second one is an ordinary, uncached statement.
+ */
+final class StatementCache {
+
+    /**
+     * Hit, miss and eviction counts, shared by the caches of all connections of a pool.
+     */
+    static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private final int capacity;
+    private final Counters counters;
+    private final LinkedHashMap<String, Entry> entries;
+    private volatile int size;
+
+    StatementCache(int capacity, Counters counters) {
+        this.capacity = capacity;
+        this.counters = counters;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= StatementCache.this.capacity) return false;
+                counters.evictions.increment();
+                Entry entry = eldest.getValue();
+                entry.evicted = true;
+                if (!entry.inUse) entry.closeQuietly();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Checks out the cached statement for {@code sql}, preparing and caching it on a miss, with its executions
+     * reported to {@code probe} if not null. Returns null if the cached statement is already checked out; the
+     * caller then prepares an ordinary one.
+     */
+    PreparedStatement checkout(ConnectionLease lease, String sql, QueryListener.Probe probe) throws SQLException {
+        Entry entry = entries.get(sql);
+        if (entry != null && !entry.inUse) {
+            counters.hits.increment();
+            entry.inUse = true;
+            return new CachedStatement(entry, lease, probe);
+        }
+        counters.misses.increment();
+        if (entry != null) return null;
+        entry = new Entry(sql, lease.getDelegate().prepareStatement(sql));
+        entry.inUse = true;
+        entries.put(sql, entry);
+        size = entries.size();
+        return new CachedStatement(entry, lease, probe);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Closes every cached statement. Statements still handed out are closed when they come back.
+     */
+    void clear() {
+        for (Entry entry : entries.values()) {
+            entry.evicted = true;
+            if (!entry.inUse) entry.closeQuietly();
+        }
+        entries.clear();
+        size = 0;
+    }
+
+    private void release(Entry entry, boolean broken) {
+        entry.inUse = false;
+        if (broken || entry.evicted) {
+            entry.closeQuietly();
+            if (entries.get(entry.sql) == entry) {
+                entries.remove(entry.sql);
+                size = entries.size();
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String sql;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        Entry(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The caller's view of a cached statement; closing it returns the statement to the cache.
+     */
+    private final class CachedStatement extends TimedPreparedStatement {
+
+        private final Entry entry;
+        private boolean closed;
+
+        CachedStatement(Entry entry, ConnectionLease lease, QueryListener.Probe probe) {
+            super(entry.statement, lease, probe);
+            this.entry = entry;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            boolean broken = false;
+            try {
+                // Closing the result set resets the statement, which ends its read of the database
+                if (current != null) current.close();
+                current = null;
+                clearParameters();
+                delegate.clearBatch();
+            } catch (SQLException ex) {
+                broken = true;
+            }
+            release(entry, broken);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.puckowski.testing.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link PreparedStatement} handed out by a {@link ConnectionLease}. It reports the lease as its connection
+ * and, given a {@link QueryListener.Probe}, reports its executions to it. A query is reported once its result
+ * set is exhausted or closed, or the statement is re-executed or closed, whichever comes first.
+ * <p>
+ * Bound values are kept only when the probe {@link QueryListener.Probe#capturesParameters() asks for them},
+ * and then only through the setters this application uses; otherwise a setter is a plain call through.
+ * {@link StatementCache} extends this to return its statements on close, so a cached statement is wrapped
+ * once.
+ */
+class TimedPreparedStatement extends DelegatingPreparedStatement implements QueryListener.Execution {
+
+    private final ConnectionLease connection;
+    private final QueryListener.Probe probe;
+    ResultSet current;
+    private Object[] parameters;
+    private int parameterCount;
+
+    /**
+     * @param probe receives the executions, or null to leave them untimed
+     */
+    TimedPreparedStatement(PreparedStatement delegate, ConnectionLease connection, QueryListener.Probe probe) {
+        super(delegate);
+        this.connection = connection;
+        this.probe = probe;
+        this.parameters = probe != null && probe.capturesParameters() ? new Object[8] : null;
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        delegate.setNull(parameterIndex, sqlType);
+        if (parameters != null) capture(parameterIndex, null);
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        delegate.setBoolean(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        delegate.setInt(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        delegate.setLong(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) throws SQLException {
+        delegate.setDouble(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        delegate.setString(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        delegate.setBytes(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        delegate.setTimestamp(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        delegate.setObject(parameterIndex, x);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+        delegate.setObject(parameterIndex, x, targetSqlType);
+        if (parameters != null) capture(parameterIndex, x);
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        delegate.clearParameters();
+        if (parameters != null) {
+            Arrays.fill(parameters, 0, parameterCount, null);
+            parameterCount = 0;
+        }
+    }
+
+    private void capture(int parameterIndex, Object value) {
+        if (parameterIndex < 1) return;
+        if (parameterIndex > parameters.length) {
+            parameters = Arrays.copyOf(parameters, Math.max(parameterIndex, parameters.length * 2));
+        }
+        parameters[parameterIndex - 1] = value;
+        if (parameterIndex > parameterCount) parameterCount = parameterIndex;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        finishCurrent();
+        if (probe == null) {
+            current = delegate.executeQuery();
+            return current;
+        }
+        long start = System.nanoTime();
+        try {
+            ResultSet rs = delegate.executeQuery();
+            current = new TimedResultSet(rs, this, this, probe, System.nanoTime() - start);
+            return current;
+        } catch (SQLException ex) {
+            probe.executed(this, System.nanoTime() - start, 0, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        finishCurrent();
+        if (probe == null) return delegate.executeUpdate();
+        long start = System.nanoTime();
+        try {
+            int count = delegate.executeUpdate();
+            probe.executed(this, System.nanoTime() - start, count, null);
+            return count;
+        } catch (SQLException ex) {
+            probe.executed(this, System.nanoTime() - start, 0, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        finishCurrent();
+        if (probe == null) return delegate.executeLargeUpdate();
+        long start = System.nanoTime();
+        try {
+            long count = delegate.executeLargeUpdate();
+            probe.executed(this, System.nanoTime() - start, count, null);
+            return count;
+        } catch (SQLException ex) {
+            probe.executed(this, System.nanoTime() - start, 0, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean execute() throws SQLException {
+        finishCurrent();
+        if (probe == null) return delegate.execute();
+        long start = System.nanoTime();
+        try {
+            boolean hasResultSet = delegate.execute();
+            probe.executed(this, System.nanoTime() - start, 0, null);
+            return hasResultSet;
+        } catch (SQLException ex) {
+            probe.executed(this, System.nanoTime() - start, 0, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        finishCurrent();
+        if (probe == null) return delegate.executeBatch();
+        long start = System.nanoTime();
+        try {
+            int[] counts = delegate.executeBatch();
+            long rows = 0;
+            for (int count : counts) {
+                if (count > 0) rows += count;
+            }
+            probe.executed(this, System.nanoTime() - start, rows, null);
+            return counts;
+        } catch (SQLException ex) {
+            probe.executed(this, System.nanoTime() - start, 0, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public Connection connection() {
+        return connection.getDelegate();
+    }
+
+    @Override
+    public List<Object> parameters() {
+        return parameters == null ? List.of() : Arrays.asList(parameters).subList(0, parameterCount);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finishCurrent();
+        delegate.close();
+    }
+
+    /**
+     * Reports the open query, if any, as finished.
+     */
+    void finishCurrent() {
+        if (current instanceof TimedResultSet timed) timed.finish(null);
+        current = null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.puckowski.testing.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the rows of a query and the time spent stepping through them. SQLite evaluates a query lazily,
+ * one row per {@code next()}, so the execute call alone would miss most of the work; the caller's own row
+ * mapping in between is deliberately not counted.
+ */
+final class TimedResultSet extends DelegatingResultSet {
+
+    private final Statement statement;
+    private final QueryListener.Execution execution;
+    private final QueryListener.Probe probe;
+    private long nanos;
+    private long rows;
+    private boolean finished;
+
+    TimedResultSet(ResultSet delegate, Statement statement, QueryListener.Execution execution,
+                   QueryListener.Probe probe, long executeNanos) {
+        super(delegate);
+        this.statement = statement;
+        this.execution = execution;
+        this.probe = probe;
+        this.nanos = executeNanos;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        long start = System.nanoTime();
+        boolean more;
+        try {
+            more = delegate.next();
+        } catch (SQLException ex) {
+            nanos += System.nanoTime() - start;
+            finish(ex);
+            throw ex;
+        }
+        nanos += System.nanoTime() - start;
+        if (more) {
+            rows++;
+        } else {
+            finish(null);
+        }
+        return more;
+    }
+
+    @Override
+    public Statement getStatement() {
+        return statement;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finish(null);
+        delegate.close();
+    }
+
+    void finish(SQLException failure) {
+        if (finished) return;
+        finished = true;
+        probe.executed(execution, nanos, rows, failure);
+    }
+}
@@ -0,0 +1,112 @@
+package com.puckowski.testing.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * A plain {@link Statement} whose executions are reported to the {@link QueryListener.Probe} of the SQL passed
+ * to each execute call. Batches carry no single SQL and are not reported.
+ * <p>
+ * Plain statements are rare (pool setup, migrations, checkpoints, the tag index, one
+ * {@code last_insert_rowid()} per created plan), so this is a {@link Proxy} that picks out the calls it changes
+ * by name and forwards the rest reflectively. The hot prepared statements and result sets are wrapped by
+ * {@link TimedPreparedStatement} and {@link TimedResultSet} instead, which delegate without reflection.
+ */
+final class TimedStatement implements InvocationHandler, QueryListener.Execution {
+
+    private final Statement delegate;
+    private final ConnectionLease connection;
+    private final QueryListener listener;
+    private TimedResultSet current;
+
+    private TimedStatement(Statement delegate, ConnectionLease connection, QueryListener listener) {
+        this.delegate = delegate;
+        this.connection = connection;
+        this.listener = listener;
+    }
+
+    static Statement wrap(Statement delegate, ConnectionLease connection, QueryListener listener) {
+        return (Statement) Proxy.newProxyInstance(TimedStatement.class.getClassLoader(),
+                new Class<?>[]{Statement.class}, new TimedStatement(delegate, connection, listener));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "TimedStatement[" + delegate + "]";
+            };
+        }
+        return switch (method.getName()) {
+            case "executeQuery", "executeUpdate", "executeLargeUpdate", "execute" ->
+                    execute((Statement) proxy, method, args);
+            case "getConnection" -> connection;
+            case "close" -> {
+                finishCurrent();
+                yield forward(method, args);
+            }
+            default -> forward(method, args);
+        };
+    }
+
+    private Object execute(Statement proxy, Method method, Object[] args) throws SQLException {
+        finishCurrent();
+        QueryListener.Probe probe = listener.probe((String) args[0]);
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = forward(method, args);
+        } catch (SQLException ex) {
+            probe.executed(this, System.nanoTime() - start, 0, ex);
+            throw ex;
+        }
+        long nanos = System.nanoTime() - start;
+        if (result instanceof ResultSet rs) {
+            current = new TimedResultSet(rs, proxy, this, probe, nanos);
+            return current;
+        }
+        probe.executed(this, nanos, result instanceof Number count ? count.longValue() : 0, null);
+        return result;
+    }
+
+    private Object forward(Method method, Object[] args) throws SQLException {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw new UndeclaredThrowableException(cause);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public Connection connection() {
+        return connection.getDelegate();
+    }
+
+    @Override
+    public List<Object> parameters() {
+        return List.of();
+    }
+
+    private void finishCurrent() {
+        if (current != null) {
+            current.finish(null);
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.CheckpointProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checkpoints the WAL in the background so it stays bounded under continuous writes. SQLite's own
+ * auto-checkpoint runs on the committing connection and gives up quietly while readers still need old
+ * frames; nothing retries it once writes stop, and the WAL file never shrinks.
+ * <p>
+ * Every {@code sqlite.checkpoint.interval} this runs a {@code PASSIVE} checkpoint on a connection of its own,
+ * which copies what it can without waiting for anyone. Once the WAL file is over
+ * {@code sqlite.checkpoint.wal-size-limit} it runs {@code TRUNCATE} instead, which waits up to
+ * {@code truncate-wait} for readers to move on, holding off new writes meanwhile, and then resets the file
+ * to zero bytes.
+ */
+public class WalCheckpointer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WalCheckpointer.class);
+
+    private final CheckpointProperties properties;
+    private final Connection conn;
+    private final Path walFile;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder checkpoints = new LongAdder();
+    private final LongAdder truncations = new LongAdder();
+    private final LongAdder incomplete = new LongAdder();
+
+    public WalCheckpointer(SqliteConnectionPool pool, CheckpointProperties properties) throws SQLException {
+        this.properties = properties;
+        this.conn = pool.openUnpooled();
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + properties.truncateWait().toMillis());
+            try (ResultSet rs = st.executeQuery("SELECT file FROM pragma_database_list WHERE name = 'main'")) {
+                this.walFile = rs.next() && !rs.getString(1).isEmpty() ? Path.of(rs.getString(1) + "-wal") : null;
+            }
+        } catch (SQLException ex) {
+            conn.close();
+            throw ex;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("sqlite-checkpoint").daemon(true).factory());
+        if (properties.enabled()) {
+            long interval = properties.interval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::checkpointQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Current size of the WAL file in bytes; 0 if there is none, as for an in-memory database.
+     */
+    public long walBytes() {
+        if (walFile == null) return 0;
+        try {
+            return Files.size(walFile);
+        } catch (NoSuchFileException ex) {
+            return 0;
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    public long checkpoints() {
+        return checkpoints.sum();
+    }
+
+    public long truncations() {
+        return truncations.sum();
+    }
+
+    /**
+     * Checkpoints that could not copy every frame because readers still needed older ones.
+     */
+    public long incomplete() {
+        return incomplete.sum();
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (SQLException ex) {
+            log.warn("WAL checkpoint failed: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Runs one checkpoint, truncating if the WAL is over its limit.
+     */
+    public synchronized void checkpoint() throws SQLException {
+        long walBytes = walBytes();
+        boolean truncate = walBytes > properties.walSizeLimit();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA wal_checkpoint(" + (truncate ? "TRUNCATE" : "PASSIVE") + ")")) {
+            checkpoints.increment();
+            if (!rs.next()) return;
+            // busy, frames in the WAL, frames checkpointed
+            if (rs.getInt(1) != 0 || rs.getInt(3) < rs.getInt(2)) {
+                incomplete.increment();
+                if (truncate) {
+                    log.warn("WAL is {} bytes and could not be truncated: readers are still using it", walBytes);
+                }
+            } else if (truncate) {
+                truncations.increment();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        scheduler.shutdownNow();
+        synchronized (this) {
+            conn.close();
+        }
+    }
+}
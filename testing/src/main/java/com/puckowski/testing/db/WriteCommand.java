@@ -0,0 +1,15 @@
+package com.puckowski.testing.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of work submitted to {@link SqliteWriter}. It runs on the writer thread inside a transaction
+ * that may be shared with other commands, so it must not commit, roll back, change autocommit or
+ * submit further commands itself. Whatever it returns (typically a generated id or an update count)
+ * is handed back to the submitting thread once the shared transaction has committed.
+ */
+@FunctionalInterface
+public interface WriteCommand<T> {
+    T execute(Connection conn) throws SQLException;
+}
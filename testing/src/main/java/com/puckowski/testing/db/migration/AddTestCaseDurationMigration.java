@@ -0,0 +1,44 @@
+package com.puckowski.testing.db.migration;
+
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Adds {@code test_case.duration}. Databases initialised through the old {@code POST /init} already have
+ * it, and SQLite has no {@code ADD COLUMN IF NOT EXISTS}, so the column is only added when missing.
+ */
+@Component
+public class AddTestCaseDurationMigration implements Migration {
+
+    @Override
+    public int version() {
+        return 2;
+    }
+
+    @Override
+    public String description() {
+        return "add test_case duration";
+    }
+
+    @Override
+    public void migrate(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            if (!hasColumn(st, "test_case", "duration")) {
+                st.execute("ALTER TABLE test_case ADD COLUMN duration INTEGER");
+            }
+        }
+    }
+
+    static boolean hasColumn(Statement st, String table, String column) throws SQLException {
+        try (ResultSet rs = st.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.puckowski.testing.db.migration;
+
+import com.puckowski.testing.report.ExecutionRollups;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Rolls up the executions recorded before the rollup tables existed. Buckets follow local-time hours and
+ * days, which SQL cannot compute reliably across DST changes, so this runs the same code as the write path.
+ */
+@Component
+public class BackfillReportRollupsMigration implements Migration {
+
+    private final ExecutionRollups rollups;
+
+    public BackfillReportRollupsMigration(ExecutionRollups rollups) {
+        this.rollups = rollups;
+    }
+
+    @Override
+    public int version() {
+        return 8;
+    }
+
+    @Override
+    public String description() {
+        return "backfill report rollups";
+    }
+
+    @Override
+    public void migrate(Connection conn) throws SQLException {
+        rollups.refresh(conn, rollups.allHours(conn));
+    }
+}
@@ -0,0 +1,73 @@
+package com.puckowski.testing.db.migration;
+
+import com.puckowski.testing.db.EpochMillis;
+import com.puckowski.testing.report.ExecutionRollups;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Converts execution start and finish times still stored as text to epoch milliseconds. They were written
+ * as local times, which SQL cannot convert reliably across DST changes, so they are decoded with the same
+ * codec the API uses. Text that is not a date-time becomes NULL, as it could never be read back anyway.
+ * <p>
+ * Executions whose start time this converts were invisible to the report rollups, which only count
+ * integer start times, so their hours are rolled up again.
+ */
+@Component
+public class ExecutionTimesToEpochMillisMigration implements Migration {
+
+    private final ExecutionRollups rollups;
+
+    public ExecutionTimesToEpochMillisMigration(ExecutionRollups rollups) {
+        this.rollups = rollups;
+    }
+
+    @Override
+    public int version() {
+        return 12;
+    }
+
+    @Override
+    public String description() {
+        return "execution times to epoch millis";
+    }
+
+    @Override
+    public void migrate(Connection conn) throws SQLException {
+        String select = """
+                SELECT id, test_plan_id, started_at, finished_at FROM test_plan_execution
+                WHERE typeof(started_at) = 'text' OR typeof(finished_at) = 'text'""";
+        String update = "UPDATE test_plan_execution SET started_at = ?, finished_at = ? WHERE id = ?";
+        Set<ExecutionRollups.Bucket> hours = new HashSet<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(select);
+             PreparedStatement ps = conn.prepareStatement(update)) {
+            while (rs.next()) {
+                Object started = convert(rs.getObject(3));
+                Object finished = convert(rs.getObject(4));
+                ps.setObject(1, started);
+                ps.setObject(2, finished);
+                ps.setLong(3, rs.getLong(1));
+                ps.addBatch();
+                if (started != null && rs.getObject(3) instanceof String) {
+                    hours.add(ExecutionRollups.Bucket.of(rs.getLong(2), (Long) started));
+                }
+            }
+            ps.executeBatch();
+        }
+        rollups.refresh(conn, hours);
+    }
+
+    /**
+     * @return epoch milliseconds for text, null for text that is not a date-time, and anything else as is
+     */
+    private static Object convert(Object value) {
+        if (!(value instanceof String text)) return value;
+        String trimmed = text.strip();
+        long millis = EpochMillis.decode(trimmed, 0, trimmed.length());
+        return millis == EpochMillis.INVALID ? null : millis;
+    }
+}
@@ -0,0 +1,28 @@
+package com.puckowski.testing.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One versioned schema change. Migrations are applied in ascending {@link #version()} order, each in its
+ * own transaction on the writer connection, and recorded in {@code schema_version} once committed.
+ * <p>
+ * Most migrations are plain SQL scripts under {@code db/migration} ({@code V<version>__<description>.sql});
+ * changes that need to inspect the database first are written as Spring beans implementing this interface.
+ */
+public interface Migration {
+
+    int version();
+
+    String description();
+
+    /**
+     * Checksum recorded alongside the version, used to notice scripts edited after they were applied.
+     * Java migrations have none.
+     */
+    default Long checksum() {
+        return null;
+    }
+
+    void migrate(Connection conn) throws SQLException;
+}
@@ -0,0 +1,184 @@
+package com.puckowski.testing.db.migration;
+
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.dto.SchemaVersionDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the schema up to date when the application starts, before the web server accepts requests.
+ * <p>
+ * Pending migrations (SQL scripts under {@code db/migration} plus {@link Migration} beans) are applied in
+ * version order, each in its own transaction, and recorded in {@code schema_version}. After each one the
+ * planner statistics are refreshed with a bounded {@code ANALYZE} and {@code PRAGMA optimize}, so new
+ * indexes are picked up straight away.
+ */
+@Component
+public class MigrationRunner implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MigrationRunner.class);
+
+    private static final String SCRIPT_LOCATION = "classpath*:db/migration/V*__*.sql";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String CREATE_VERSION_TABLE = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                version INTEGER PRIMARY KEY,
+                description TEXT NOT NULL,
+                checksum INTEGER,
+                applied_at INTEGER NOT NULL,
+                execution_ms INTEGER NOT NULL
+            )""";
+
+    private final SqliteConnectionPool dataSource;
+    private final List<Migration> javaMigrations;
+
+    public MigrationRunner(SqliteConnectionPool dataSource, List<Migration> javaMigrations) {
+        this.dataSource = dataSource;
+        this.javaMigrations = javaMigrations;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        migrate();
+    }
+
+    /**
+     * Applies every migration that has not been applied yet.
+     *
+     * @return the number of migrations applied by this call
+     */
+    public synchronized int migrate() throws SQLException, IOException {
+        List<Migration> migrations = loadMigrations();
+        int applied = 0;
+        try (Connection conn = dataSource.getWriteConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute(CREATE_VERSION_TABLE);
+            }
+            Map<Integer, Long> appliedChecksums = appliedChecksums(conn);
+
+            for (Migration migration : migrations) {
+                if (appliedChecksums.containsKey(migration.version())) {
+                    Long recorded = appliedChecksums.get(migration.version());
+                    if (recorded != null && migration.checksum() != null && !recorded.equals(migration.checksum())) {
+                        log.warn("Migration V{} ({}) was changed after it was applied", migration.version(), migration.description());
+                    }
+                    continue;
+                }
+                apply(conn, migration);
+                refreshStatistics(conn);
+                applied++;
+            }
+        }
+        if (applied > 0) {
+            log.info("Applied {} schema migration(s); schema is at version {}", applied, migrations.get(migrations.size() - 1).version());
+        }
+        return applied;
+    }
+
+    public List<SchemaVersionDTO> appliedVersions() throws SQLException {
+        String sql = "SELECT version, description, checksum, applied_at, execution_ms FROM schema_version ORDER BY version";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            List<SchemaVersionDTO> result = new ArrayList<>();
+            while (rs.next()) {
+                result.add(new SchemaVersionDTO(
+                        rs.getInt(1),
+                        rs.getString(2),
+                        rs.getObject(3) == null ? null : rs.getLong(3),
+                        rs.getLong(4),
+                        rs.getLong(5)
+                ));
+            }
+            return result;
+        }
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        log.info("Applying migration V{} ({})", migration.version(), migration.description());
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try {
+            migration.migrate(conn);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            String sql = "INSERT INTO schema_version (version, description, checksum, applied_at, execution_ms) VALUES (?, ?, ?, ?, ?)";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, migration.version());
+                ps.setString(2, migration.description());
+                if (migration.checksum() != null) ps.setLong(3, migration.checksum()); else ps.setNull(3, Types.INTEGER);
+                ps.setLong(4, System.currentTimeMillis());
+                ps.setLong(5, elapsedMs);
+                ps.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException ex) {
+            conn.rollback();
+            throw new SQLException("Migration V" + migration.version() + " (" + migration.description() + ") failed: " + ex.getMessage(), ex);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void refreshStatistics(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            // Sample rather than scan: a full ANALYZE of multi-million row tables would stall startup.
+            st.execute("PRAGMA analysis_limit = 1000");
+            st.execute("ANALYZE");
+            st.execute("PRAGMA optimize");
+        }
+    }
+
+    private Map<Integer, Long> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> result = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                result.put(rs.getInt(1), rs.getObject(2) == null ? null : rs.getLong(2));
+            }
+        }
+        return result;
+    }
+
+    private List<Migration> loadMigrations() throws IOException {
+        Map<Integer, Migration> byVersion = new TreeMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(SCRIPT_LOCATION)) {
+            Matcher m = SCRIPT_NAME.matcher(Objects.requireNonNull(resource.getFilename()));
+            if (!m.matches()) continue;
+            int version = Integer.parseInt(m.group(1));
+            byte[] bytes;
+            try (InputStream in = resource.getInputStream()) {
+                bytes = in.readAllBytes();
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            register(byVersion, new SqlMigration(version, m.group(2).replace('_', ' '),
+                    new String(bytes, StandardCharsets.UTF_8), crc.getValue()));
+        }
+        for (Migration migration : javaMigrations) {
+            register(byVersion, migration);
+        }
+        return new ArrayList<>(byVersion.values());
+    }
+
+    private static void register(Map<Integer, Migration> byVersion, Migration migration) {
+        Migration existing = byVersion.putIfAbsent(migration.version(), migration);
+        if (existing != null) {
+            throw new IllegalStateException("Duplicate migration version " + migration.version()
+                    + ": '" + existing.description() + "' and '" + migration.description() + "'");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.puckowski.testing.db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * A migration loaded from a {@code V<version>__<description>.sql} script.
+ */
+final class SqlMigration implements Migration {
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final long checksum;
+
+    SqlMigration(int version, String description, String script, long checksum) {
+        this.version = version;
+        this.description = description;
+        this.statements = SqlScript.split(script);
+        this.checksum = checksum;
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    @Override
+    public String description() {
+        return description;
+    }
+
+    @Override
+    public Long checksum() {
+        return checksum;
+    }
+
+    @Override
+    public void migrate(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String statement : statements) {
+                st.execute(statement);
+            }
+        }
+    }
+}
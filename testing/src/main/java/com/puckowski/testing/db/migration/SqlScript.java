@@ -0,0 +1,116 @@
+package com.puckowski.testing.db.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits a SQL script into individual statements.
+ * <p>
+ * Unlike a plain split on {@code ;} this skips semicolons inside string literals, quoted identifiers and
+ * comments, and keeps {@code CREATE TRIGGER ... BEGIN ...; ...; END} bodies together as one statement.
+ */
+final class SqlScript {
+
+    private SqlScript() {
+    }
+
+    static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        int blockDepth = 0;
+        int n = script.length();
+        int i = 0;
+        while (i < n) {
+            char c = script.charAt(i);
+
+            // Comments are dropped; they may contain anything, including semicolons.
+            if (c == '-' && i + 1 < n && script.charAt(i + 1) == '-') {
+                blockDepth = endWord(word, current, blockDepth);
+                int eol = script.indexOf('\n', i);
+                i = eol < 0 ? n : eol;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && script.charAt(i + 1) == '*') {
+                blockDepth = endWord(word, current, blockDepth);
+                int end = script.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+                current.append(' ');
+                continue;
+            }
+
+            // Quoted text is copied through untouched.
+            if (c == '\'' || c == '"' || c == '`' || c == '[') {
+                blockDepth = endWord(word, current, blockDepth);
+                char close = c == '[' ? ']' : c;
+                int end = i + 1;
+                while (end < n) {
+                    if (script.charAt(end) == close) {
+                        // A doubled quote is an escaped quote, not the end of the literal.
+                        if (close != ']' && end + 1 < n && script.charAt(end + 1) == close) {
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                end = Math.min(end + 1, n);
+                current.append(script, i, end);
+                i = end;
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                word.append(c);
+                current.append(c);
+                i++;
+                continue;
+            }
+
+            blockDepth = endWord(word, current, blockDepth);
+            if (c == ';' && blockDepth == 0) {
+                addStatement(statements, current);
+            } else {
+                current.append(c);
+            }
+            i++;
+        }
+        endWord(word, current, blockDepth);
+        addStatement(statements, current);
+        return statements;
+    }
+
+    /**
+     * Tracks BEGIN/CASE ... END nesting inside trigger bodies, where semicolons do not end the statement.
+     */
+    private static int endWord(StringBuilder word, StringBuilder current, int blockDepth) {
+        if (word.isEmpty()) return blockDepth;
+        String w = word.toString().toUpperCase(Locale.ROOT);
+        word.setLength(0);
+        if (w.equals("BEGIN") && isTrigger(current)) {
+            return blockDepth + 1;
+        }
+        if (blockDepth > 0 && w.equals("CASE")) {
+            return blockDepth + 1;
+        }
+        if (blockDepth > 0 && w.equals("END")) {
+            return blockDepth - 1;
+        }
+        return blockDepth;
+    }
+
+    private static boolean isTrigger(StringBuilder current) {
+        String head = current.toString().stripLeading().toUpperCase(Locale.ROOT);
+        return head.startsWith("CREATE") && head.contains("TRIGGER");
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().strip();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+}
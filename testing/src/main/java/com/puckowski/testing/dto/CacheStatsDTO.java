@@ -0,0 +1,4 @@
+package com.puckowski.testing.dto;
+
+public record CacheStatsDTO(String name, long size, long hitCount, long missCount, double hitRate,
+                            long evictionCount, long loadSuccessCount, long loadFailureCount) {}
@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+public record ConnectionStatsDTO(int id, String role, boolean inUse, long borrowCount,
+                                 double avgHeldMs, double maxHeldMs, long lastBorrowedAt,
+                                 int cachedStatements) {}
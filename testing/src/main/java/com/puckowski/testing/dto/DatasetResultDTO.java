@@ -0,0 +1,4 @@
+package com.puckowski.testing.dto;
+
+public record DatasetResultDTO(long plansCreated, long tagsUsed, long casesCreated, long executionsCreated,
+                               long resultsCreated, long elapsedMs, double rowsPerSecond) {}
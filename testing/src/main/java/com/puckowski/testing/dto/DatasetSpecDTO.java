@@ -0,0 +1,8 @@
+package com.puckowski.testing.dto;
+
+/**
+ * Shape of a generated data set; every field is optional. Counts per plan are means, the actual numbers
+ * vary from plan to plan. The same spec and seed always generate the same rows.
+ */
+public record DatasetSpecDTO(Integer plans, Integer tags, Integer tagsPerPlan, Integer casesPerPlan,
+                             Integer executionsPerPlan, Integer days, Long seed) {}
@@ -0,0 +1,6 @@
+package com.puckowski.testing.dto;
+
+/**
+ * Percentiles are estimates from a histogram, within about 6% of the exact value; max is exact.
+ */
+public record DurationStatsDTO(Long p50, Long p90, Long p95, Long p99, Long max) {}
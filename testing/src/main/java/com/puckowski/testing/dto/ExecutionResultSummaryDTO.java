@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+import java.util.Map;
+
+public record ExecutionResultSummaryDTO(Long executionId, int total, Map<String, Integer> byStatus, long totalDuration) {}
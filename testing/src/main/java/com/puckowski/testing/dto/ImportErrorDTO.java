@@ -0,0 +1,3 @@
+package com.puckowski.testing.dto;
+
+public record ImportErrorDTO(long row, String message) {}
@@ -0,0 +1,4 @@
+package com.puckowski.testing.dto;
+
+public record ImportProgressDTO(long rowsRead, long plansCreated, long casesCreated, long tagsCreated,
+                                long rowsFailed, long elapsedMs) {}
@@ -0,0 +1,7 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record ImportResultDTO(boolean completed, String failure, long rowsRead, long plansCreated,
+                              long casesCreated, long tagsCreated, long rowsFailed, long elapsedMs,
+                              double rowsPerSecond, List<ImportErrorDTO> errors) {}
@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record PlanChangeDTO(long planId, List<String> changes) {}
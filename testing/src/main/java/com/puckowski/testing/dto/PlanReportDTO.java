@@ -0,0 +1,16 @@
+package com.puckowski.testing.dto;
+
+public record PlanReportDTO(
+        Long planId,
+        String planName,
+        long executionCount,
+        long resultCount,
+        long completedCount,
+        long passedCount,
+        long failedCount,
+        long blockedCount,
+        Double passRate,
+        Double failRate,
+        long totalDuration,
+        DurationStatsDTO executionDuration
+) {}
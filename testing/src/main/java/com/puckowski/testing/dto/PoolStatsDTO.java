@@ -0,0 +1,7 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record PoolStatsDTO(int readConnections, int idleReadConnections, boolean writerInUse,
+                           long waitTimeouts, StatementCacheStatsDTO statementCache,
+                           List<ConnectionStatsDTO> connections) {}
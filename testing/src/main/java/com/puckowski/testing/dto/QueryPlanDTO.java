@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record QueryPlanDTO(String query, String sql, List<String> plan, List<String> fullScans, long slowCount) {}
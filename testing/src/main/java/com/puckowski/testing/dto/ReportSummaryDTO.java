@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record ReportSummaryDTO(String periodStart, String periodEnd, List<PlanReportDTO> plans, List<TagReportDTO> tags) {}
@@ -0,0 +1,15 @@
+package com.puckowski.testing.dto;
+
+public record RollupBucketDTO(
+        String bucketStart,
+        long executionCount,
+        long resultCount,
+        long completedCount,
+        long passedCount,
+        long failedCount,
+        long blockedCount,
+        Double passRate,
+        Double failRate,
+        long totalDuration,
+        DurationStatsDTO executionDuration
+) {}
@@ -0,0 +1,3 @@
+package com.puckowski.testing.dto;
+
+public record RollupRebuildDTO(int hourlyRollups, int dailyRollups, int staleRowsRemoved, long elapsedMs) {}
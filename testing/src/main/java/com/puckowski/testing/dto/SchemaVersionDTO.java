@@ -0,0 +1,4 @@
+package com.puckowski.testing.dto;
+
+public record SchemaVersionDTO(Integer version, String description, Long checksum,
+                               Long appliedAt, Long executionMs) {}
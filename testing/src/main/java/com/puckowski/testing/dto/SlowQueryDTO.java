@@ -0,0 +1,6 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record SlowQueryDTO(String query, String sql, List<String> parameters, double durationMs, long rows,
+                           String error, String at) {}
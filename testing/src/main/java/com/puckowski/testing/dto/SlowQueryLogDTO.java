@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record SlowQueryLogDTO(double thresholdMs, int capacity, long recorded, List<SlowQueryDTO> entries) {}
@@ -0,0 +1,4 @@
+package com.puckowski.testing.dto;
+
+public record StatementCacheStatsDTO(int capacityPerConnection, int cached, long hits, long misses,
+                                     double hitRate, long evictions) {}
@@ -0,0 +1,7 @@
+package com.puckowski.testing.dto;
+
+/**
+ * @param tag   a tag
+ * @param count number of plans in the filtered set carrying it
+ */
+public record TagFacetDTO(String tag, Integer count) {}
@@ -1,14 +1,12 @@
 package com.puckowski.testing.dto;
 
-import java.time.LocalDateTime;
-
 public record TestCaseDTO(
 	Integer id,
 	Integer testPlanId,
 	String name,
 	String description,
 	String status,
-	LocalDateTime createdAt,
+	String createdAt,
 	String expectedResult,
 	String priority,
 	String steps,
@@ -0,0 +1,3 @@
+package com.puckowski.testing.dto;
+
+public record TestCaseResultDTO(Integer id, String status, Integer duration) {}
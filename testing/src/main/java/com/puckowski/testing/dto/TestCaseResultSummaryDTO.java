@@ -0,0 +1,6 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record TestCaseResultSummaryDTO(Long executionId, int received, int updated, int invalid, int notFound,
+                                       List<Integer> notFoundIds, long elapsedMs) {}
@@ -0,0 +1,15 @@
+package com.puckowski.testing.dto;
+
+/**
+ * Outcome of one test case within one execution. Date/time fields are ISO-like local strings, as in
+ * {@link TestPlanExecutionDTO}; {@code updatedAt} is set by the server.
+ */
+public record TestCaseRunResultDTO(
+        Integer testCaseId,
+        String status,
+        Integer duration,
+        String startedAt,
+        String finishedAt,
+        String updatedAt
+) {
+}
@@ -0,0 +1,7 @@
+package com.puckowski.testing.dto;
+
+/**
+ * @param snippet HTML-escaped excerpt of the best matching column, with matched terms in {@code <mark>}
+ * @param score   relevance (negated BM25); higher is better, only comparable within one search
+ */
+public record TestCaseSearchHitDTO(Integer id, Integer testPlanId, String planName, String name, String snippet, double score) {}
@@ -1,6 +1,3 @@
 package com.puckowski.testing.dto;
 
-import java.time.LocalDateTime;
-import java.util.List;
-
 public record TestPlanCountDTO(Integer count) {}
@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+import java.util.List;
+
+public record TestPlanPageDTO(List<TestPlanDTO> items, int total, String nextCursor) {}
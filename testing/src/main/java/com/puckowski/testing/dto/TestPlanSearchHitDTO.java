@@ -0,0 +1,10 @@
+package com.puckowski.testing.dto;
+
+/**
+ * @param matchedIn  {@code plan} if the best match is in the plan itself, {@code case} if in one of its test cases
+ * @param testCaseId the best matching test case when {@code matchedIn} is {@code case}
+ * @param snippet    HTML-escaped excerpt of the best match, with matched terms in {@code <mark>}
+ * @param score      relevance (negated BM25); higher is better, only comparable within one search
+ */
+public record TestPlanSearchHitDTO(Integer id, String name, String description, String status, String matchedIn,
+                                   Integer testCaseId, String snippet, double score) {}
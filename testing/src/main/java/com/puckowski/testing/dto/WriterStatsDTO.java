@@ -0,0 +1,5 @@
+package com.puckowski.testing.dto;
+
+public record WriterStatsDTO(int queueDepth, int queueCapacity, long batches, long commands,
+                             long failedCommands, double avgBatchSize, int maxBatchSize,
+                             double avgCommitMs, double maxCommitMs, double lastCommitMs) {}
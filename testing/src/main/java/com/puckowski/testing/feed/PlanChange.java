@@ -0,0 +1,14 @@
+package com.puckowski.testing.feed;
+
+/**
+ * What changed about a plan, as reported by {@link PlanChangeFeed}. Clients re-read the matching endpoint;
+ * with its ETag that is a 304 if another event already made them catch up.
+ */
+public enum PlanChange {
+    CREATED,
+    UPDATED,
+    DELETED,
+    TEST_CASES,
+    EXECUTIONS,
+    RESULTS
+}
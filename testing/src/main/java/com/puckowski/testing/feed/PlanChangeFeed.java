@@ -0,0 +1,254 @@
+package com.puckowski.testing.feed;
+
+import com.puckowski.testing.config.ChangeFeedProperties;
+import com.puckowski.testing.dto.PlanChangeDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process bus for plan changes, delivered to server-sent event streams. Writers publish after they commit;
+ * each subscriber follows a set of plans, or all of them.
+ * <p>
+ * Changes are coalesced per subscriber: the first one schedules a send {@code changes.coalesce-window} later,
+ * and whatever piles up for that subscriber until then, merged per plan, goes out as one {@code changes}
+ * event. At most one send per subscriber is in flight, so a slow client only delays itself; its pending
+ * changes keep merging meanwhile, and past {@code changes.max-pending-plans} distinct plans they are dropped
+ * in favour of a single {@code resync} event. A failed send ends the subscription.
+ * <p>
+ * An idle subscriber is an open async request and a small object here, no thread. Sends and heartbeats run
+ * on virtual threads, one per send. A heartbeat counts as a send in flight too, and is skipped while one is,
+ * so a client that has stopped reading holds at most one blocked thread rather than one per interval.
+ */
+@Component
+public class PlanChangeFeed implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PlanChangeFeed.class);
+
+    private final Set<Subscriber> allPlans = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Subscriber>> byPlan = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+    private final long coalesceNanos;
+    private final int maxPendingPlans;
+    private final long timeoutMillis;
+
+    public PlanChangeFeed(ChangeFeedProperties properties) {
+        this.coalesceNanos = properties.coalesceWindow().toNanos();
+        this.maxPendingPlans = Math.max(1, properties.maxPendingPlans());
+        this.timeoutMillis = properties.timeout().toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("change-feed").daemon(true).factory());
+        this.senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("change-feed-send-", 0).factory());
+        long heartbeat = properties.heartbeat().toNanos();
+        scheduler.scheduleAtFixedRate(this::heartbeat, heartbeat, heartbeat, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Opens a stream of changes to the given plans, or to every plan if {@code planIds} is empty.
+     */
+    public SseEmitter subscribe(Collection<Long> planIds) {
+        return subscribe(new SseEmitter(timeoutMillis), planIds);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Collection<Long> planIds) {
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(planIds));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(ex -> unsubscribe(subscriber));
+        if (subscriber.plans.isEmpty()) {
+            allPlans.add(subscriber);
+        } else {
+            for (Long planId : subscriber.plans) {
+                byPlan.computeIfAbsent(planId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            }
+        }
+        try {
+            // Sent once the response is set up; lets clients tell a live stream from a pending one
+            emitter.send(SseEmitter.event().comment("subscribed"));
+        } catch (IOException ex) {
+            unsubscribe(subscriber);
+        }
+        return emitter;
+    }
+
+    /**
+     * Reports a committed change to {@code planId}. Cheap enough to call from request threads: it only
+     * merges the change into each subscriber's pending set.
+     */
+    public void publish(long planId, PlanChange change) {
+        for (Subscriber subscriber : allPlans) {
+            subscriber.offer(planId, change);
+        }
+        Set<Subscriber> subscribers = byPlan.get(planId);
+        if (subscribers != null) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(planId, change);
+            }
+        }
+    }
+
+    public void publish(Collection<Long> planIds, PlanChange change) {
+        for (Long planId : planIds) {
+            publish(planId, change);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.closed = true;
+        if (subscriber.plans.isEmpty()) {
+            allPlans.remove(subscriber);
+            return;
+        }
+        for (Long planId : subscriber.plans) {
+            byPlan.computeIfPresent(planId, (id, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    /**
+     * Open subscriptions, for tests.
+     */
+    int subscribers() {
+        Set<Subscriber> all = new HashSet<>(allPlans);
+        byPlan.values().forEach(all::addAll);
+        return all.size();
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : allPlans) {
+            subscriber.heartbeat();
+        }
+        for (Set<Subscriber> subscribers : byPlan.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.heartbeat();
+            }
+        }
+    }
+
+    /**
+     * Ends every stream; clients reconnect to the next instance.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        for (Subscriber subscriber : allPlans) {
+            subscriber.emitter.complete();
+        }
+        for (Set<Subscriber> subscribers : byPlan.values()) {
+            subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        }
+    }
+
+    private final class Subscriber {
+
+        final SseEmitter emitter;
+        final Set<Long> plans;
+        volatile boolean closed;
+
+        // Guarded by this
+        private final Map<Long, EnumSet<PlanChange>> pending = new LinkedHashMap<>();
+        private boolean overflowed;
+        private boolean sending;
+
+        Subscriber(SseEmitter emitter, Set<Long> plans) {
+            this.emitter = emitter;
+            this.plans = plans;
+        }
+
+        void offer(long planId, PlanChange change) {
+            synchronized (this) {
+                if (closed) return;
+                if (!overflowed) {
+                    pending.computeIfAbsent(planId, id -> EnumSet.noneOf(PlanChange.class)).add(change);
+                    if (pending.size() > maxPendingPlans) {
+                        pending.clear();
+                        overflowed = true;
+                    }
+                }
+                if (sending) return;
+                sending = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                scheduler.schedule(() -> senders.execute(this::flush), coalesceNanos, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException ex) {
+                // Shutting down
+            }
+        }
+
+        private void flush() {
+            List<PlanChangeDTO> changes;
+            boolean resync;
+            synchronized (this) {
+                resync = overflowed;
+                changes = new ArrayList<>(pending.size());
+                pending.forEach((planId, kinds) -> changes.add(new PlanChangeDTO(planId, kinds.stream().map(Enum::name).toList())));
+                pending.clear();
+                overflowed = false;
+            }
+            if (resync) {
+                send(SseEmitter.event().name("resync").data("{}", MediaType.APPLICATION_JSON));
+            } else if (!changes.isEmpty()) {
+                send(SseEmitter.event().name("changes").data(changes, MediaType.APPLICATION_JSON));
+            } else {
+                sent();
+            }
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                // Either a send is due anyway, or the last one is still blocked on a slow client
+                if (closed || sending) return;
+                sending = true;
+            }
+            try {
+                senders.execute(() -> send(SseEmitter.event().comment("heartbeat")));
+            } catch (RuntimeException ex) {
+                // Shutting down
+            }
+        }
+
+        /**
+         * Sends {@code event} and then ends the send in flight, or the subscription if the send failed.
+         */
+        private void send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException ex) {
+                log.debug("Dropping change feed subscriber: {}", ex.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(ex);
+                return;
+            }
+            sent();
+        }
+
+        private void sent() {
+            synchronized (this) {
+                if (closed || (pending.isEmpty() && !overflowed)) {
+                    sending = false;
+                    return;
+                }
+            }
+            // More arrived while sending; give them a window of their own
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.puckowski.testing.metrics;
+
+import com.puckowski.testing.db.QueryId;
+import com.puckowski.testing.db.QueryListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the pool's statement timings to Micrometer:
+ * <ul>
+ *   <li>{@code sqlite.query} timer and {@code sqlite.query.rows} / {@code sqlite.query.errors} counters,
+ *       tagged with the statement's {@link QueryId}</li>
+ *   <li>{@code sqlite.busy} counter of SQLITE_BUSY and SQLITE_LOCKED errors, i.e. lock waits that outlasted
+ *       {@code busy_timeout} and reached the application</li>
+ *   <li>{@code sqlite.pool.acquire} timer of connection waits, tagged {@code role=read|write}</li>
+ * </ul>
+ * Meters are looked up once per distinct SQL string and kept, so an execution costs a map lookup and the
+ * recording itself. Past {@link #MAX_STATEMENTS} distinct strings the rest share one {@code other} series,
+ * which keeps a runaway dynamic query from flooding the registry.
+ */
+public class MicrometerQueryListener implements QueryListener {
+
+    static final int MAX_STATEMENTS = 500;
+
+    // Primary result codes; sqlite-jdbc reports extended codes in the upper bits
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, MeteredProbe> probes = new ConcurrentHashMap<>();
+    private final MeteredProbe other;
+    private final Counter busy;
+    private final Timer readAcquire;
+    private final Timer writeAcquire;
+
+    public MicrometerQueryListener(MeterRegistry registry) {
+        this.registry = registry;
+        this.other = new MeteredProbe(new QueryId("other", "-", "other"));
+        this.busy = Counter.builder("sqlite.busy")
+                .description("Statements that failed with SQLITE_BUSY or SQLITE_LOCKED after busy_timeout")
+                .register(registry);
+        this.readAcquire = acquireTimer("read");
+        this.writeAcquire = acquireTimer("write");
+    }
+
+    private Timer acquireTimer(String role) {
+        return Timer.builder("sqlite.pool.acquire")
+                .description("Time spent waiting for a pooled connection")
+                .tag("role", role)
+                .register(registry);
+    }
+
+    @Override
+    public Probe probe(String sql) {
+        MeteredProbe probe = probes.get(sql);
+        if (probe != null) return probe;
+        if (probes.size() >= MAX_STATEMENTS) return other;
+        return probes.computeIfAbsent(sql, s -> new MeteredProbe(QueryId.of(s)));
+    }
+
+    @Override
+    public void acquired(boolean write, long waitNanos) {
+        (write ? writeAcquire : readAcquire).record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private final class MeteredProbe implements Probe {
+
+        private final Timer timer;
+        private final Counter rows;
+        private final Counter errors;
+
+        MeteredProbe(QueryId id) {
+            this.timer = Timer.builder("sqlite.query")
+                    .description("Time spent in SQLite executing a statement and stepping through its rows")
+                    .tags("query", id.value(), "kind", id.kind(), "table", id.table())
+                    .register(registry);
+            this.rows = Counter.builder("sqlite.query.rows")
+                    .description("Rows returned by a query or changed by an update")
+                    .tags("query", id.value(), "kind", id.kind(), "table", id.table())
+                    .register(registry);
+            this.errors = Counter.builder("sqlite.query.errors")
+                    .tags("query", id.value(), "kind", id.kind(), "table", id.table())
+                    .register(registry);
+        }
+
+        @Override
+        public void executed(Execution execution, long nanos, long rowCount, SQLException failure) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+            if (rowCount > 0) rows.increment(rowCount);
+            if (failure != null) {
+                errors.increment();
+                int code = failure.getErrorCode() & 0xff;
+                if (code == SQLITE_BUSY || code == SQLITE_LOCKED) busy.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.puckowski.testing.metrics;
+
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteSnapshot;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.db.WalCheckpointer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the counters the pool and the writer already keep for {@code /admin/stats} as meters. They are
+ * read when the registry is scraped, so nothing is added to the write path.
+ */
+public class SqliteMetrics implements MeterBinder {
+
+    private final SqliteConnectionPool pool;
+    private final SqliteWriter writer;
+    private final SqliteSnapshot snapshot;
+    private final WalCheckpointer checkpointer;
+
+    public SqliteMetrics(SqliteConnectionPool pool, SqliteWriter writer, SqliteSnapshot snapshot,
+                         WalCheckpointer checkpointer) {
+        this.pool = pool;
+        this.writer = writer;
+        this.snapshot = snapshot;
+        this.checkpointer = checkpointer;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("sqlite.pool.idle", pool, p -> p.stats().idleReadConnections())
+                .description("Read connections not currently borrowed")
+                .register(registry);
+        FunctionCounter.builder("sqlite.pool.wait.timeouts", pool, p -> p.stats().waitTimeouts())
+                .description("Borrows that gave up after sqlite.pool.max-wait")
+                .register(registry);
+        Gauge.builder("sqlite.statements.cached", pool, p -> p.stats().statementCache().cached())
+                .description("Prepared statements held open across all connections")
+                .register(registry);
+        FunctionCounter.builder("sqlite.statements.cache", pool, p -> p.stats().statementCache().hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("sqlite.statements.cache", pool, p -> p.stats().statementCache().misses())
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("sqlite.statements.cache.evictions", pool, p -> p.stats().statementCache().evictions())
+                .register(registry);
+
+        Gauge.builder("sqlite.writer.queue", writer, w -> w.stats().queueDepth())
+                .description("Write commands waiting for the writer thread")
+                .register(registry);
+        FunctionCounter.builder("sqlite.writer.commands", writer, w -> w.stats().commands())
+                .register(registry);
+        FunctionCounter.builder("sqlite.writer.commands.failed", writer, w -> w.stats().failedCommands())
+                .register(registry);
+        FunctionTimer.builder("sqlite.writer.commit", writer,
+                        w -> w.stats().batches(),
+                        w -> w.stats().avgCommitMs() * w.stats().batches(),
+                        TimeUnit.MILLISECONDS)
+                .description("Group commits of the writer thread, from first statement to COMMIT")
+                .register(registry);
+
+        Gauge.builder("sqlite.wal.size", checkpointer, WalCheckpointer::walBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("sqlite.checkpoints", checkpointer, WalCheckpointer::checkpoints)
+                .register(registry);
+        FunctionCounter.builder("sqlite.checkpoints.incomplete", checkpointer, WalCheckpointer::incomplete)
+                .description("Background checkpoints that left frames behind for readers still using them")
+                .register(registry);
+        Gauge.builder("sqlite.snapshot.age", snapshot, s -> s.ageMillis() / 1000.0)
+                .description("Age of the data report reads see; 0 while they read the live database")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
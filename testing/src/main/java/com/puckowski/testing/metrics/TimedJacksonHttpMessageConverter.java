@@ -0,0 +1,67 @@
+package com.puckowski.testing.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JSON message converter, timing each response body it writes as {@code http.json.write}, tagged with
+ * the declared body type such as {@code List<TestPlanDTO>}. The time includes copying into the response
+ * buffer, and flushing it when the body outgrows the buffer.
+ * <p>
+ * NDJSON responses are written by {@link com.puckowski.testing.controller.NdjsonWriter} and are not covered.
+ */
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Type, Timer> timers = new ConcurrentHashMap<>();
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, MeterRegistry registry) {
+        super(objectMapper);
+        this.registry = registry;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            timer(type != null ? type : object.getClass()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(Type type) {
+        Timer timer = timers.get(type);
+        if (timer != null) return timer;
+        return timers.computeIfAbsent(type, t -> Timer.builder("http.json.write")
+                .description("Jackson serialization of response bodies")
+                .tag("type", name(t))
+                .register(registry));
+    }
+
+    private static String name(Type type) {
+        if (type instanceof Class<?> c) return c.getSimpleName();
+        if (type instanceof ParameterizedType p) {
+            StringBuilder sb = new StringBuilder(name(p.getRawType())).append('<');
+            Type[] args = p.getActualTypeArguments();
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(name(args[i]));
+            }
+            return sb.append('>').toString();
+        }
+        return type.getTypeName();
+    }
+}
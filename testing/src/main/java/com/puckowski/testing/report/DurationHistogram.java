@@ -0,0 +1,127 @@
+package com.puckowski.testing.report;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of execution durations, small enough to store with every rollup row and cheap to merge,
+ * which is what lets percentiles be answered from hourly and daily rollups instead of the raw results.
+ * <p>
+ * Values below 16 get a bin each; above that every power of two is split into 8 bins, so an estimated
+ * percentile is within about 6% of the true value.
+ */
+public final class DurationHistogram {
+
+    private static final int EXACT = 16;
+    private static final int SUB_BINS = 8;
+
+    private long[] counts = new long[EXACT];
+    private long total;
+
+    public void add(long value) {
+        add(value, 1);
+    }
+
+    public void merge(DurationHistogram other) {
+        for (int bin = 0; bin < other.counts.length; bin++) {
+            if (other.counts[bin] != 0) addToBin(bin, other.counts[bin]);
+        }
+    }
+
+    public long total() {
+        return total;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return the estimated value at {@code quantile}, or null if the histogram is empty
+     */
+    public Long percentile(double quantile) {
+        if (total == 0) return null;
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int bin = 0; bin < counts.length; bin++) {
+            seen += counts[bin];
+            if (seen >= rank) {
+                return bin < EXACT ? bin : lowerBound(bin) + (width(bin) - 1) / 2;
+            }
+        }
+        return lowerBound(counts.length - 1);
+    }
+
+    /**
+     * Encodes the non-empty bins as (bin gap, count) varint pairs.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int previous = -1;
+        for (int bin = 0; bin < counts.length; bin++) {
+            if (counts[bin] == 0) continue;
+            writeVarint(out, bin - previous);
+            writeVarint(out, counts[bin]);
+            previous = bin;
+        }
+        return out.toByteArray();
+    }
+
+    public static DurationHistogram fromBytes(byte[] bytes) {
+        DurationHistogram histogram = new DurationHistogram();
+        if (bytes == null) return histogram;
+        int[] pos = {0};
+        int bin = -1;
+        while (pos[0] < bytes.length) {
+            bin += (int) readVarint(bytes, pos);
+            histogram.addToBin(bin, readVarint(bytes, pos));
+        }
+        return histogram;
+    }
+
+    private void add(long value, long count) {
+        addToBin(bin(Math.max(0, value)), count);
+    }
+
+    private void addToBin(int bin, long count) {
+        if (bin >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(bin + 1, counts.length * 2));
+        }
+        counts[bin] += count;
+        total += count;
+    }
+
+    static int bin(long value) {
+        if (value < EXACT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - 3)) & (SUB_BINS - 1);
+        return EXACT + (exponent - 4) * SUB_BINS + sub;
+    }
+
+    static long lowerBound(int bin) {
+        if (bin < EXACT) return bin;
+        int exponent = (bin - EXACT) / SUB_BINS + 4;
+        int sub = (bin - EXACT) % SUB_BINS;
+        return (long) (SUB_BINS + sub) << (exponent - 3);
+    }
+
+    private static long width(int bin) {
+        return bin < EXACT ? 1 : 1L << ((bin - EXACT) / SUB_BINS + 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] bytes, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+}
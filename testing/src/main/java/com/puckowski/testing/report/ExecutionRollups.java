@@ -0,0 +1,358 @@
+package com.puckowski.testing.report;
+
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteWriter;
+import com.puckowski.testing.dto.RollupRebuildDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Hourly and daily per-plan rollups of executions and their results ({@code plan_rollup_hour},
+ * {@code plan_rollup_day}), so reports read a few rows per plan and day instead of every result.
+ * <p>
+ * Executions are bucketed by {@code started_at} (epoch milliseconds; executions without one are not
+ * covered) on local-time hour and day boundaries. The write paths that change executions or results call
+ * {@link #refresh} inside their own transaction, which recomputes the touched hours from the raw rows and
+ * then their days from the hours, so the rollups commit together with the change they summarise. {@link #rebuild()} recomputes everything, for backfills and repairs.
+ */
+@Component
+public class ExecutionRollups {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionRollups.class);
+
+    private static final int REBUILD_CHUNK = 500;
+
+    private static final String HOUR_SOURCE_SQL = """
+            SELECT COUNT(r.test_case_id),
+                   COALESCE(SUM(r.status = 'PENDING'), 0),
+                   COALESCE(SUM(r.status IN ('PASS', 'PASSED')), 0),
+                   COALESCE(SUM(r.status IN ('FAIL', 'FAILED')), 0),
+                   COALESCE(SUM(r.status = 'BLOCKED'), 0),
+                   COALESCE(SUM(r.duration), 0)
+            FROM test_plan_execution e
+            LEFT JOIN test_case_result r ON r.execution_id = e.id
+            WHERE e.test_plan_id = ? AND e.started_at >= ? AND e.started_at < ?
+            GROUP BY e.id""";
+
+    private final SqliteConnectionPool dataSource;
+    private final SqliteWriter writer;
+
+    public ExecutionRollups(SqliteConnectionPool dataSource, SqliteWriter writer) {
+        this.dataSource = dataSource;
+        this.writer = writer;
+    }
+
+    public enum Granularity {
+        HOUR("plan_rollup_hour"), DAY("plan_rollup_day");
+
+        final String table;
+
+        Granularity(String table) {
+            this.table = table;
+        }
+    }
+
+    /**
+     * An hour (or day) of one plan, identified by its start.
+     */
+    public record Bucket(long planId, long start) {
+
+        /**
+         * @return the hour an execution started in, or null without a start time, which no rollup covers
+         */
+        public static Bucket of(long planId, Long startedAt) {
+            return startedAt == null ? null : new Bucket(planId, hourStart(startedAt));
+        }
+    }
+
+    public void refresh(Connection conn, Bucket hour) throws SQLException {
+        if (hour != null) refresh(conn, List.of(hour));
+    }
+
+    /**
+     * Recomputes the given hours and the days containing them. Runs on the writer connection, inside the
+     * transaction that made the change.
+     */
+    public void refresh(Connection conn, Collection<Bucket> hours) throws SQLException {
+        Set<Bucket> days = new LinkedHashSet<>();
+        for (Bucket hour : new LinkedHashSet<>(hours)) {
+            if (hour == null) continue;
+            refreshHour(conn, hour);
+            days.add(new Bucket(hour.planId(), dayStart(hour.start())));
+        }
+        for (Bucket day : days) {
+            refreshDay(conn, day);
+        }
+    }
+
+    /**
+     * The bucket of an execution, read on {@code conn} so it can be taken before the execution is deleted.
+     */
+    public Bucket bucketOfExecution(Connection conn, long executionId) throws SQLException {
+        String sql = "SELECT test_plan_id, started_at FROM test_plan_execution WHERE id = ? AND typeof(started_at) = 'integer'";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, executionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getObject(2) == null) return null;
+                return Bucket.of(rs.getLong(1), rs.getLong(2));
+            }
+        }
+    }
+
+    /**
+     * The buckets of every execution holding a result for {@code testCaseId}.
+     */
+    public List<Bucket> bucketsOfTestCase(Connection conn, long testCaseId) throws SQLException {
+        String sql = """
+                SELECT e.test_plan_id, e.started_at FROM test_case_result r
+                JOIN test_plan_execution e ON e.id = r.execution_id
+                WHERE r.test_case_id = ? AND typeof(e.started_at) = 'integer'""";
+        List<Bucket> buckets = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, testCaseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) buckets.add(Bucket.of(rs.getLong(1), rs.getLong(2)));
+            }
+        }
+        return buckets;
+    }
+
+    public void deletePlan(Connection conn, long planId) throws SQLException {
+        for (Granularity granularity : Granularity.values()) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + granularity.table + " WHERE plan_id = ?")) {
+                ps.setLong(1, planId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Totals per plan over {@code [from, to)}, which must lie on hour boundaries. Whole days inside the
+     * window are read from the daily rollup and only the partial days at either end from the hourly one.
+     *
+     * @param planIds plans to include, or empty for all
+     */
+    public Map<Long, RollupTotals> totalsByPlan(Connection conn, long from, long to, List<Long> planIds) throws SQLException {
+        long firstDay = dayStart(from) == from ? from : nextDay(from);
+        long lastDay = dayStart(to);
+        if (firstDay >= lastDay) {
+            firstDay = to;
+            lastDay = to;
+        }
+        String planFilter = planIds.isEmpty() ? ""
+                : " AND plan_id IN (" + String.join(", ", Collections.nCopies(planIds.size(), "?")) + ")";
+        String sql = "SELECT plan_id, " + RollupTotals.COLUMNS + " FROM plan_rollup_day"
+                + " WHERE bucket_start >= ? AND bucket_start < ?" + planFilter
+                + " UNION ALL SELECT plan_id, " + RollupTotals.COLUMNS + " FROM plan_rollup_hour"
+                + " WHERE bucket_start >= ? AND bucket_start < ?" + planFilter
+                + " UNION ALL SELECT plan_id, " + RollupTotals.COLUMNS + " FROM plan_rollup_hour"
+                + " WHERE bucket_start >= ? AND bucket_start < ?" + planFilter;
+        long[][] ranges = {{firstDay, lastDay}, {from, firstDay}, {lastDay, to}};
+
+        Map<Long, RollupTotals> totals = new TreeMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (long[] range : ranges) {
+                ps.setLong(idx++, range[0]);
+                ps.setLong(idx++, range[1]);
+                for (Long planId : planIds) ps.setLong(idx++, planId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    totals.computeIfAbsent(rs.getLong(1), id -> new RollupTotals()).add(rs, 2);
+                }
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * One plan's buckets in {@code [from, to)}, oldest first; buckets without executions are left out.
+     */
+    public Map<Long, RollupTotals> series(Connection conn, long planId, Granularity granularity, long from, long to) throws SQLException {
+        String sql = "SELECT bucket_start, " + RollupTotals.COLUMNS + " FROM " + granularity.table
+                + " WHERE plan_id = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start";
+        Map<Long, RollupTotals> series = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, planId);
+            ps.setLong(2, from);
+            ps.setLong(3, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    RollupTotals totals = new RollupTotals();
+                    totals.add(rs, 2);
+                    series.put(rs.getLong(1), totals);
+                }
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Recomputes every rollup from the raw executions and results, a chunk of hours per write command so
+     * that other writes keep flowing in between, and finally drops rows for buckets that no longer have
+     * executions. Rows refreshed by concurrent writes while this runs are already correct and are kept.
+     */
+    public synchronized RollupRebuildDTO rebuild() throws SQLException {
+        long start = System.currentTimeMillis();
+        Set<Bucket> hours;
+        try (Connection conn = dataSource.getConnection()) {
+            hours = allHours(conn);
+        }
+
+        Set<Bucket> days = new LinkedHashSet<>();
+        List<Bucket> chunk = new ArrayList<>(REBUILD_CHUNK);
+        for (Bucket hour : hours) {
+            days.add(new Bucket(hour.planId(), dayStart(hour.start())));
+            chunk.add(hour);
+            if (chunk.size() == REBUILD_CHUNK) {
+                refreshChunk(chunk, Granularity.HOUR);
+            }
+        }
+        refreshChunk(chunk, Granularity.HOUR);
+        for (Bucket day : days) {
+            chunk.add(day);
+            if (chunk.size() == REBUILD_CHUNK) {
+                refreshChunk(chunk, Granularity.DAY);
+            }
+        }
+        refreshChunk(chunk, Granularity.DAY);
+
+        int removed = writer.execute(conn -> {
+            int count = 0;
+            for (Granularity granularity : Granularity.values()) {
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + granularity.table + " WHERE refreshed_at < ?")) {
+                    ps.setLong(1, start);
+                    count += ps.executeUpdate();
+                }
+            }
+            return count;
+        });
+        long elapsedMs = System.currentTimeMillis() - start;
+        log.info("Rebuilt {} hourly and {} daily rollups in {} ms ({} stale rows removed)", hours.size(), days.size(), elapsedMs, removed);
+        return new RollupRebuildDTO(hours.size(), days.size(), removed, elapsedMs);
+    }
+
+    /**
+     * Every hour that holds at least one execution of an existing plan.
+     */
+    public Set<Bucket> allHours(Connection conn) throws SQLException {
+        String sql = """
+                SELECT e.test_plan_id, e.started_at FROM test_plan_execution e
+                WHERE typeof(e.started_at) = 'integer' AND EXISTS (SELECT 1 FROM test_plan p WHERE p.id = e.test_plan_id)
+                ORDER BY e.test_plan_id, e.started_at""";
+        Set<Bucket> hours = new LinkedHashSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) hours.add(Bucket.of(rs.getLong(1), rs.getLong(2)));
+        }
+        return hours;
+    }
+
+    private void refreshChunk(List<Bucket> chunk, Granularity granularity) throws SQLException {
+        if (chunk.isEmpty()) return;
+        List<Bucket> buckets = List.copyOf(chunk);
+        chunk.clear();
+        writer.execute(conn -> {
+            for (Bucket bucket : buckets) {
+                if (granularity == Granularity.HOUR) refreshHour(conn, bucket); else refreshDay(conn, bucket);
+            }
+            return null;
+        });
+    }
+
+    private void refreshHour(Connection conn, Bucket hour) throws SQLException {
+        RollupTotals totals = new RollupTotals();
+        try (PreparedStatement ps = conn.prepareStatement(HOUR_SOURCE_SQL)) {
+            ps.setLong(1, hour.planId());
+            ps.setLong(2, hour.start());
+            ps.setLong(3, nextHour(hour.start()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    totals.addExecution(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6));
+                }
+            }
+        }
+        store(conn, Granularity.HOUR, hour, totals);
+    }
+
+    private void refreshDay(Connection conn, Bucket day) throws SQLException {
+        RollupTotals totals = new RollupTotals();
+        String sql = "SELECT " + RollupTotals.COLUMNS + " FROM plan_rollup_hour WHERE plan_id = ? AND bucket_start >= ? AND bucket_start < ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, day.planId());
+            ps.setLong(2, day.start());
+            ps.setLong(3, nextDay(day.start()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) totals.add(rs, 1);
+            }
+        }
+        store(conn, Granularity.DAY, day, totals);
+    }
+
+    private static void store(Connection conn, Granularity granularity, Bucket bucket, RollupTotals totals) throws SQLException {
+        if (totals.executions == 0) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + granularity.table + " WHERE plan_id = ? AND bucket_start = ?")) {
+                ps.setLong(1, bucket.planId());
+                ps.setLong(2, bucket.start());
+                ps.executeUpdate();
+            }
+            return;
+        }
+        String sql = "INSERT OR REPLACE INTO " + granularity.table + " (plan_id, bucket_start, " + RollupTotals.COLUMNS
+                + ", refreshed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, bucket.planId());
+            ps.setLong(2, bucket.start());
+            ps.setLong(3, totals.executions);
+            ps.setLong(4, totals.results);
+            ps.setLong(5, totals.pending);
+            ps.setLong(6, totals.passed);
+            ps.setLong(7, totals.failed);
+            ps.setLong(8, totals.blocked);
+            ps.setLong(9, totals.totalDuration);
+            ps.setLong(10, totals.maxDuration);
+            ps.setBytes(11, totals.histogram.toBytes());
+            ps.setLong(12, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+    }
+
+    // ------ Bucket boundaries, in the system time zone ------
+
+    public static long hourStart(long millis) {
+        return local(millis).truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli();
+    }
+
+    /**
+     * The first hour boundary at or after {@code millis}.
+     */
+    public static long hourCeiling(long millis) {
+        long start = hourStart(millis);
+        return start == millis ? start : nextHour(start);
+    }
+
+    public static long nextHour(long hourStart) {
+        return local(hourStart).plusHours(1).toInstant().toEpochMilli();
+    }
+
+    public static long dayStart(long millis) {
+        return local(millis).truncatedTo(ChronoUnit.DAYS).toInstant().toEpochMilli();
+    }
+
+    public static long nextDay(long millis) {
+        return local(millis).truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant().toEpochMilli();
+    }
+
+    private static ZonedDateTime local(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault());
+    }
+}
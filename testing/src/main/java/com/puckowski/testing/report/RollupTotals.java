@@ -0,0 +1,126 @@
+package com.puckowski.testing.report;
+
+import com.puckowski.testing.dto.DurationStatsDTO;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Running totals for one plan, tag or time bucket, added up from rollup rows or from executions.
+ */
+public final class RollupTotals {
+
+    /**
+     * The rollup columns in the order {@link #add(ResultSet, int)} reads them.
+     */
+    static final String COLUMNS =
+            "executions, results, pending, passed, failed, blocked, total_duration, max_duration, duration_histogram";
+
+    long executions;
+    long results;
+    long pending;
+    long passed;
+    long failed;
+    long blocked;
+    long totalDuration;
+    long maxDuration;
+    final DurationHistogram histogram = new DurationHistogram();
+
+    /**
+     * Adds one rollup row whose {@link #COLUMNS} start at {@code column}.
+     */
+    public void add(ResultSet rs, int column) throws SQLException {
+        executions += rs.getLong(column);
+        results += rs.getLong(column + 1);
+        pending += rs.getLong(column + 2);
+        passed += rs.getLong(column + 3);
+        failed += rs.getLong(column + 4);
+        blocked += rs.getLong(column + 5);
+        totalDuration += rs.getLong(column + 6);
+        maxDuration = Math.max(maxDuration, rs.getLong(column + 7));
+        histogram.merge(DurationHistogram.fromBytes(rs.getBytes(column + 8)));
+    }
+
+    public void merge(RollupTotals other) {
+        executions += other.executions;
+        results += other.results;
+        pending += other.pending;
+        passed += other.passed;
+        failed += other.failed;
+        blocked += other.blocked;
+        totalDuration += other.totalDuration;
+        maxDuration = Math.max(maxDuration, other.maxDuration);
+        histogram.merge(other.histogram);
+    }
+
+    /**
+     * Adds one execution, given the totals of its results.
+     */
+    void addExecution(long results, long pending, long passed, long failed, long blocked, long duration) {
+        executions++;
+        this.results += results;
+        this.pending += pending;
+        this.passed += passed;
+        this.failed += failed;
+        this.blocked += blocked;
+        totalDuration += duration;
+        maxDuration = Math.max(maxDuration, duration);
+        histogram.add(duration);
+    }
+
+    public long executions() {
+        return executions;
+    }
+
+    public long results() {
+        return results;
+    }
+
+    /**
+     * Results with an outcome, i.e. anything but PENDING.
+     */
+    public long completed() {
+        return results - pending;
+    }
+
+    public long passed() {
+        return passed;
+    }
+
+    public long failed() {
+        return failed;
+    }
+
+    public long blocked() {
+        return blocked;
+    }
+
+    public long totalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * Share of completed results that passed, or null when none have completed.
+     */
+    public Double passRate() {
+        return completed() == 0 ? null : passed / (double) completed();
+    }
+
+    public Double failRate() {
+        return completed() == 0 ? null : failed / (double) completed();
+    }
+
+    /**
+     * Distribution of per-execution durations (the sum of an execution's recorded case durations).
+     */
+    public DurationStatsDTO executionDuration() {
+        if (executions == 0) return new DurationStatsDTO(null, null, null, null, null);
+        return new DurationStatsDTO(
+                Math.min(histogram.percentile(0.50), maxDuration),
+                Math.min(histogram.percentile(0.90), maxDuration),
+                Math.min(histogram.percentile(0.95), maxDuration),
+                Math.min(histogram.percentile(0.99), maxDuration),
+                maxDuration
+        );
+    }
+}
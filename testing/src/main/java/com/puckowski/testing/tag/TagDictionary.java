@@ -0,0 +1,140 @@
+package com.puckowski.testing.tag;
+
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.dto.TestTagDTO;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The {@code tag} table held in memory: one canonical {@link TestTagDTO} per tag, shared by every plan that
+ * carries it, so listing plans allocates no tag objects and tag names are stored once.
+ * <p>
+ * Only committed tags are cached. Writers get ids through a {@link Resolver}, which adds missing tags in
+ * their own transaction without touching the cache; readers that meet an id they do not know yet catch up
+ * on their own connection. Tags are never renamed or deleted, so nothing cached goes stale.
+ */
+@Component
+public class TagDictionary {
+
+    private static final Comparator<String> SUGGESTION_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final SqliteConnectionPool dataSource;
+    private final Map<Integer, TestTagDTO> byId = new ConcurrentHashMap<>();
+    private final Map<String, TestTagDTO> byName = new ConcurrentHashMap<>();
+    private final NavigableMap<String, TestTagDTO> sorted = new ConcurrentSkipListMap<>(SUGGESTION_ORDER);
+    private volatile int maxId = -1;
+
+    public TagDictionary(SqliteConnectionPool dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * The canonical tag with {@code id}, read through {@code conn} if not cached yet.
+     */
+    public TestTagDTO tag(Connection conn, int id) throws SQLException {
+        TestTagDTO tag = byId.get(id);
+        if (tag != null) return tag;
+        catchUp(conn);
+        tag = byId.get(id);
+        if (tag == null) throw new SQLException("Unknown tag id " + id);
+        return tag;
+    }
+
+    /**
+     * Up to {@code limit} tags starting with {@code prefix}, ignoring case, in alphabetical order.
+     */
+    public List<TestTagDTO> suggest(String prefix, int limit) throws SQLException {
+        if (maxId < 0) {
+            try (Connection conn = dataSource.getConnection()) {
+                catchUp(conn);
+            }
+        }
+        Collection<TestTagDTO> candidates = prefix == null || prefix.isEmpty()
+                ? sorted.values()
+                : sorted.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values();
+        List<TestTagDTO> result = new ArrayList<>(Math.min(limit, 64));
+        for (TestTagDTO tag : candidates) {
+            if (result.size() == limit) break;
+            result.add(tag);
+        }
+        return result;
+    }
+
+    /**
+     * Reads every tag added since the last read. Ids only grow, so this is a seek past the highest known one.
+     */
+    synchronized void catchUp(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT id, name FROM tag WHERE id > ? ORDER BY id")) {
+            ps.setInt(1, maxId);
+            try (ResultSet rs = ps.executeQuery()) {
+                int max = Math.max(maxId, 0);
+                while (rs.next()) {
+                    // Interned, so the name is shared with TagIndex and anything else holding it
+                    TestTagDTO tag = new TestTagDTO(rs.getInt(1), null, rs.getString(2).intern());
+                    byId.put(tag.id(), tag);
+                    byName.put(tag.tag(), tag);
+                    sorted.put(tag.tag(), tag);
+                    max = tag.id();
+                }
+                maxId = max;
+            }
+        }
+    }
+
+    /**
+     * A resolver for one write command on the writer connection {@code conn}.
+     */
+    public Resolver resolver(Connection conn) {
+        return new Resolver(conn);
+    }
+
+    /**
+     * Maps tag names to ids inside a write, adding tags that do not exist yet. Closed with the command.
+     * <p>
+     * Tags it adds are not remembered: a savepoint rollback later in the same transaction can take them
+     * away again, so they are looked up each time until a reader has seen them committed.
+     */
+    public final class Resolver implements AutoCloseable {
+        private final Connection conn;
+        private PreparedStatement insert;
+        private PreparedStatement select;
+
+        private Resolver(Connection conn) {
+            this.conn = conn;
+        }
+
+        /**
+         * @return the tag's id, or null for a null or blank name
+         */
+        public Integer id(String name) throws SQLException {
+            if (name == null || name.isBlank()) return null;
+            TestTagDTO known = byName.get(name);
+            if (known != null) return known.id();
+
+            if (insert == null) {
+                insert = conn.prepareStatement("INSERT OR IGNORE INTO tag (name) VALUES (?)");
+                select = conn.prepareStatement("SELECT id FROM tag WHERE name = ?");
+            }
+            insert.setString(1, name);
+            insert.executeUpdate();
+            select.setString(1, name);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) throw new SQLException("Failed to add tag '" + name + "'");
+                return rs.getInt(1);
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (insert != null) {
+                insert.close();
+                select.close();
+            }
+        }
+    }
+}
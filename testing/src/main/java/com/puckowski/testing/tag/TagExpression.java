@@ -0,0 +1,146 @@
+package com.puckowski.testing.tag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A boolean expression over plan tags, e.g. {@code smoke AND payments AND NOT flaky}.
+ * <p>
+ * {@code AND}, {@code OR} and {@code NOT} are case-insensitive, bind in the usual order (NOT, then AND, then
+ * OR) and can be grouped with parentheses. A tag that contains spaces or parentheses, or is spelled like an
+ * operator, is written in double quotes.
+ */
+public sealed interface TagExpression {
+
+    /**
+     * Longest expression accepted, in tokens; keeps parsing and evaluation cheap and the recursion shallow.
+     */
+    int MAX_TOKENS = 128;
+
+    record Tag(String tag) implements TagExpression {
+    }
+
+    record Not(TagExpression operand) implements TagExpression {
+    }
+
+    record And(List<TagExpression> operands) implements TagExpression {
+    }
+
+    record Or(List<TagExpression> operands) implements TagExpression {
+    }
+
+    /**
+     * A single tag, matched exactly; for the one-tag filters that predate expressions.
+     */
+    static TagExpression tag(String tag) {
+        return new Tag(tag);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code text} is blank or not a valid expression
+     */
+    static TagExpression parse(String text) {
+        return new Parser(tokenize(text)).parse();
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"') {
+                int end = text.indexOf('"', i + 1);
+                if (end < 0) throw new IllegalArgumentException("Unterminated quote in tag expression");
+                // Kept quoted so a quoted "and" stays a tag
+                tokens.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i))
+                        && "()\"".indexOf(text.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i));
+            }
+            if (tokens.size() > MAX_TOKENS) {
+                throw new IllegalArgumentException("Tag expression is longer than " + MAX_TOKENS + " tokens");
+            }
+        }
+        if (tokens.isEmpty()) throw new IllegalArgumentException("Tag expression is empty");
+        return tokens;
+    }
+
+    /**
+     * Recursive descent over {@code or := and (OR and)*}, {@code and := unary (AND unary)*},
+     * {@code unary := NOT unary | ( or ) | tag}.
+     */
+    final class Parser {
+        private final List<String> tokens;
+        private int pos;
+
+        private Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        private TagExpression parse() {
+            TagExpression expression = or();
+            if (pos < tokens.size()) {
+                throw new IllegalArgumentException("Unexpected '" + tokens.get(pos) + "' in tag expression");
+            }
+            return expression;
+        }
+
+        private TagExpression or() {
+            List<TagExpression> operands = new ArrayList<>();
+            operands.add(and());
+            while (accept("OR")) {
+                operands.add(and());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(List.copyOf(operands));
+        }
+
+        private TagExpression and() {
+            List<TagExpression> operands = new ArrayList<>();
+            operands.add(unary());
+            while (accept("AND")) {
+                operands.add(unary());
+            }
+            return operands.size() == 1 ? operands.get(0) : new And(List.copyOf(operands));
+        }
+
+        private TagExpression unary() {
+            if (accept("NOT")) return new Not(unary());
+            if (accept("(")) {
+                TagExpression inner = or();
+                if (!accept(")")) throw new IllegalArgumentException("Missing ')' in tag expression");
+                return inner;
+            }
+            if (pos == tokens.size()) throw new IllegalArgumentException("Tag expression ends after an operator");
+            String token = tokens.get(pos);
+            if (token.equals(")") || isOperator(token)) {
+                throw new IllegalArgumentException("Expected a tag but found '" + token + "'");
+            }
+            pos++;
+            return new Tag(token.startsWith("\"") ? token.substring(1, token.length() - 1) : token);
+        }
+
+        private boolean accept(String expected) {
+            if (pos < tokens.size() && tokens.get(pos).toUpperCase(Locale.ROOT).equals(expected)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private static boolean isOperator(String token) {
+            String upper = token.toUpperCase(Locale.ROOT);
+            return upper.equals("AND") || upper.equals("OR") || upper.equals("NOT");
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.puckowski.testing.tag;
+
+import com.puckowski.testing.db.SqliteConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * In-memory index from tag to the set of plans carrying it, one compressed bitmap per tag, plus the set of all
+ * plans. Tag filters, counts and facets are answered from the bitmaps, so SQLite is only asked for the rows of
+ * the page being returned.
+ * <p>
+ * Readers work on an immutable snapshot and never block. Writers call {@link #refreshPlan} after their
+ * transaction has committed; it rereads the plan's tags and publishes a new snapshot with copies of only the
+ * bitmaps that changed. Refreshes are serialised and read the committed state, so whichever runs last leaves
+ * the index matching the database. The index is loaded on first use, and {@link #rebuild()} reloads it whole.
+ */
+@Component
+public class TagIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TagIndex.class);
+
+    private final SqliteConnectionPool dataSource;
+    private final TagDictionary dictionary;
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public TagIndex(SqliteConnectionPool dataSource, TagDictionary dictionary) {
+        this.dataSource = dataSource;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * All plans, and the plans per tag. Never modified once published.
+     */
+    record Snapshot(RoaringBitmap plans, Map<String, RoaringBitmap> byTag) {
+    }
+
+    /**
+     * Ids of the plans matching {@code expression}. The bitmap is the caller's to keep or modify.
+     */
+    public RoaringBitmap matching(TagExpression expression) throws SQLException {
+        Snapshot s = snapshot();
+        RoaringBitmap result = evaluate(s, expression);
+        // A lone tag evaluates to the snapshot's own bitmap; operators always build new ones
+        return expression instanceof TagExpression.Tag ? result.clone() : result;
+    }
+
+    public int count(TagExpression expression) throws SQLException {
+        Snapshot s = snapshot();
+        return evaluate(s, expression).getCardinality();
+    }
+
+    public int planCount() throws SQLException {
+        return snapshot().plans().getCardinality();
+    }
+
+    /**
+     * Number of plans in {@code within} carrying each tag, largest first; tags with none are left out.
+     *
+     * @param within the plans to count, or null for all plans
+     */
+    public Map<String, Integer> facets(RoaringBitmap within) throws SQLException {
+        Snapshot s = snapshot();
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>(s.byTag().size());
+        s.byTag().forEach((tag, plans) -> {
+            int count = within == null ? plans.getCardinality() : RoaringBitmap.andCardinality(plans, within);
+            if (count > 0) counts.add(Map.entry(tag, count));
+        });
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        counts.forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} ids from {@code ids}, in id order, starting after {@code after}.
+     *
+     * @param after      the last id of the previous page, or null for the first page
+     * @param descending whether to page from the highest id down
+     */
+    public static List<Long> page(RoaringBitmap ids, Long after, boolean descending, int limit) {
+        List<Long> page = new ArrayList<>(Math.min(limit, 1024));
+        if (descending) {
+            if (after != null && after <= 0) return page;
+            long next = ids.previousValue(after == null ? Integer.MAX_VALUE : (int) Math.min(after - 1, Integer.MAX_VALUE));
+            while (next >= 0 && page.size() < limit) {
+                page.add(next);
+                next = next == 0 ? -1 : ids.previousValue((int) next - 1);
+            }
+        } else {
+            if (after != null && after >= Integer.MAX_VALUE) return page;
+            long next = ids.nextValue(after == null ? 0 : (int) Math.max(after + 1, 0));
+            while (next >= 0 && page.size() < limit) {
+                page.add(next);
+                next = next == Integer.MAX_VALUE ? -1 : ids.nextValue((int) next + 1);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Brings one plan up to date with the database: its tags, or its removal if it no longer exists. Call
+     * after the write that changed it has committed.
+     */
+    public void refreshPlan(long planId) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current == null) return; // Not loaded yet; the first load will see the change
+            try {
+                boolean exists = false;
+                Set<String> tags = new HashSet<>();
+                String sql = "SELECT pt.tag_id FROM test_plan tp LEFT JOIN test_plan_tag pt ON pt.test_plan_id = tp.id WHERE tp.id = ?";
+                try (Connection conn = dataSource.getConnection();
+                     PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setLong(1, planId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            exists = true;
+                            int tagId = rs.getInt(1);
+                            if (!rs.wasNull()) tags.add(dictionary.tag(conn, tagId).tag());
+                        }
+                    }
+                }
+                snapshot = apply(current, (int) planId, exists, tags);
+            } catch (SQLException | RuntimeException ex) {
+                // Better a reload on the next read than answers from an index that missed a change
+                log.warn("Could not refresh tags of plan {}; the tag index will be reloaded", planId, ex);
+                snapshot = null;
+            }
+        }
+    }
+
+    /**
+     * Reloads the whole index, e.g. after a bulk import.
+     */
+    public void rebuild() throws SQLException {
+        synchronized (writeLock) {
+            snapshot = null;
+            snapshot = load();
+        }
+    }
+
+    private Snapshot snapshot() throws SQLException {
+        Snapshot s = snapshot;
+        if (s != null) return s;
+        synchronized (writeLock) {
+            if (snapshot == null) snapshot = load();
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() throws SQLException {
+        long start = System.nanoTime();
+        RoaringBitmap plans = new RoaringBitmap();
+        Map<String, RoaringBitmap> byTag = new HashMap<>();
+        try (Connection conn = dataSource.getConnection()) {
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT id FROM test_plan")) {
+                while (rs.next()) plans.add(rs.getInt(1));
+            }
+            // Reads idx_test_plan_tag_tag in order, so each bitmap is filled with ascending ids
+            String sql = "SELECT tag_id, test_plan_id FROM test_plan_tag ORDER BY tag_id, test_plan_id";
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(sql)) {
+                int tagId = -1;
+                RoaringBitmap current = null;
+                while (rs.next()) {
+                    if (rs.getInt(1) != tagId) {
+                        tagId = rs.getInt(1);
+                        current = new RoaringBitmap();
+                        byTag.put(dictionary.tag(conn, tagId).tag(), current);
+                    }
+                    current.add(rs.getInt(2));
+                }
+            }
+        }
+        plans.runOptimize();
+        long bytes = plans.getLongSizeInBytes();
+        for (RoaringBitmap bitmap : byTag.values()) {
+            bitmap.runOptimize();
+            bytes += bitmap.getLongSizeInBytes();
+        }
+        log.info("Loaded tag index: {} plans, {} tags, {} KiB in {} ms", plans.getCardinality(), byTag.size(),
+                bytes / 1024, (System.nanoTime() - start) / 1_000_000);
+        return new Snapshot(plans, byTag);
+    }
+
+    static Snapshot apply(Snapshot current, int planId, boolean exists, Set<String> tags) {
+        Map<String, RoaringBitmap> byTag = new HashMap<>(current.byTag());
+        current.byTag().forEach((tag, plans) -> {
+            if (plans.contains(planId) && !tags.contains(tag)) {
+                RoaringBitmap copy = plans.clone();
+                copy.remove(planId);
+                if (copy.isEmpty()) byTag.remove(tag);
+                else byTag.put(tag, copy);
+            }
+        });
+        for (String tag : tags) {
+            RoaringBitmap plans = byTag.get(tag);
+            if (plans == null || !plans.contains(planId)) {
+                RoaringBitmap copy = plans == null ? new RoaringBitmap() : plans.clone();
+                copy.add(planId);
+                byTag.put(tag, copy);
+            }
+        }
+        RoaringBitmap allPlans = current.plans();
+        if (exists != allPlans.contains(planId)) {
+            allPlans = allPlans.clone();
+            if (exists) allPlans.add(planId);
+            else allPlans.remove(planId);
+        }
+        return new Snapshot(allPlans, byTag);
+    }
+
+    /**
+     * Evaluates {@code expression}. May return one of the snapshot's bitmaps as is, which must not be
+     * modified; operators always build new ones.
+     */
+    static RoaringBitmap evaluate(Snapshot s, TagExpression expression) {
+        return switch (expression) {
+            case TagExpression.Tag t -> s.byTag().getOrDefault(t.tag(), new RoaringBitmap());
+            case TagExpression.Not n -> RoaringBitmap.andNot(s.plans(), evaluate(s, n.operand()));
+            case TagExpression.Or o -> {
+                RoaringBitmap result = new RoaringBitmap();
+                for (TagExpression operand : o.operands()) {
+                    result.or(evaluate(s, operand));
+                }
+                yield result;
+            }
+            case TagExpression.And a -> {
+                // "x AND NOT y" subtracts y from x, rather than intersecting x with the complement of y
+                RoaringBitmap result = null;
+                List<TagExpression> negated = new ArrayList<>();
+                for (TagExpression operand : a.operands()) {
+                    if (operand instanceof TagExpression.Not n) {
+                        negated.add(n.operand());
+                    } else {
+                        RoaringBitmap bitmap = evaluate(s, operand);
+                        result = result == null ? bitmap.clone() : RoaringBitmap.and(result, bitmap);
+                    }
+                }
+                if (result == null) result = s.plans().clone();
+                for (TagExpression operand : negated) {
+                    result.andNot(evaluate(s, operand));
+                }
+                yield result;
+            }
+        };
+    }
+}
@@ -0,0 +1,29 @@
+-- Tags move into a dictionary: each distinct tag is stored once in tag, and plans refer to it by id
+-- through test_plan_tag, which also stops a plan carrying the same tag twice. Tag ids are never
+-- reused or renamed, so TagDictionary can cache them for the life of the process.
+CREATE TABLE IF NOT EXISTS tag (
+    id INTEGER PRIMARY KEY,
+    name TEXT NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS test_plan_tag (
+    test_plan_id INTEGER NOT NULL,
+    tag_id INTEGER NOT NULL,
+    PRIMARY KEY (test_plan_id, tag_id),
+    FOREIGN KEY (test_plan_id) REFERENCES test_plan(id) ON DELETE CASCADE,
+    FOREIGN KEY (tag_id) REFERENCES tag(id)
+) WITHOUT ROWID;
+
+-- Plans per tag, read in order when the tag index is loaded
+CREATE INDEX IF NOT EXISTS idx_test_plan_tag_tag ON test_plan_tag (tag_id, test_plan_id);
+
+-- Rows left behind by deleted plans are not carried over
+DELETE FROM test_plan_tags WHERE test_plan_id NOT IN (SELECT id FROM test_plan);
+
+INSERT OR IGNORE INTO tag (name)
+SELECT DISTINCT tag FROM test_plan_tags WHERE tag IS NOT NULL AND tag <> '' ORDER BY tag;
+
+INSERT OR IGNORE INTO test_plan_tag (test_plan_id, tag_id)
+SELECT t.test_plan_id, d.id FROM test_plan_tags t JOIN tag d ON d.name = t.tag;
+
+DROP TABLE test_plan_tags;
@@ -0,0 +1,34 @@
+-- Every timestamp column now holds epoch milliseconds. The created_at / updated_at columns were filled
+-- by DEFAULT CURRENT_TIMESTAMP, i.e. 'yyyy-MM-dd HH:mm:ss' text in UTC, and are converted in place;
+-- start and finish times of executions are local times and are converted by the next migration.
+UPDATE test_plan SET created_at = CAST(strftime('%s', created_at) AS INTEGER) * 1000
+WHERE typeof(created_at) = 'text';
+
+UPDATE test_case SET created_at = CAST(strftime('%s', created_at) AS INTEGER) * 1000
+WHERE typeof(created_at) = 'text';
+
+UPDATE test_plan_execution SET created_at = CAST(strftime('%s', created_at) AS INTEGER) * 1000
+WHERE typeof(created_at) = 'text';
+
+UPDATE test_plan_execution SET updated_at = CAST(strftime('%s', updated_at) AS INTEGER) * 1000
+WHERE typeof(updated_at) = 'text';
+
+-- The application always writes these columns itself. Changing the DEFAULT would mean rebuilding each
+-- table, so instead a row that still picks up the old text default is converted straight after insert.
+CREATE TRIGGER IF NOT EXISTS test_plan_created_at_millis AFTER INSERT ON test_plan
+WHEN typeof(new.created_at) = 'text' BEGIN
+    UPDATE test_plan SET created_at = CAST(strftime('%s', new.created_at) AS INTEGER) * 1000 WHERE id = new.id;
+END;
+
+CREATE TRIGGER IF NOT EXISTS test_case_created_at_millis AFTER INSERT ON test_case
+WHEN typeof(new.created_at) = 'text' BEGIN
+    UPDATE test_case SET created_at = CAST(strftime('%s', new.created_at) AS INTEGER) * 1000 WHERE id = new.id;
+END;
+
+CREATE TRIGGER IF NOT EXISTS test_plan_execution_created_at_millis AFTER INSERT ON test_plan_execution
+WHEN typeof(new.created_at) = 'text' OR typeof(new.updated_at) = 'text' BEGIN
+    UPDATE test_plan_execution SET
+        created_at = CASE WHEN typeof(created_at) = 'text' THEN CAST(strftime('%s', created_at) AS INTEGER) * 1000 ELSE created_at END,
+        updated_at = CASE WHEN typeof(updated_at) = 'text' THEN CAST(strftime('%s', updated_at) AS INTEGER) * 1000 ELSE updated_at END
+    WHERE id = new.id;
+END;
@@ -0,0 +1,3 @@
+-- A per-plan counter that every write to the plan, its tags, test cases or executions increments in the
+-- same transaction. Conditional GETs derive their ETags from it, so a 304 needs only this one row.
+ALTER TABLE test_plan ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
@@ -40,6 +40,3 @@ CREATE TABLE IF NOT EXISTS test_plan_execution (
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (test_plan_id) REFERENCES test_plan(id) ON DELETE CASCADE
 );
-
--- Add duration column to test_case if missing
-ALTER TABLE test_case ADD COLUMN duration INTEGER;
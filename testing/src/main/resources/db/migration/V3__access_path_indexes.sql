@@ -0,0 +1,15 @@
+-- Test cases of a plan. Rows come back in id order straight from the index, and
+-- SUM(duration) per plan is answered without touching the table.
+CREATE INDEX IF NOT EXISTS idx_test_case_plan ON test_case (test_plan_id, duration);
+
+-- Plans carrying a tag, in plan id order, without touching the table.
+CREATE INDEX IF NOT EXISTS idx_test_plan_tags_tag ON test_plan_tags (tag, test_plan_id);
+
+-- Tags of a plan. id is the rowid, so SELECT * is covered.
+CREATE INDEX IF NOT EXISTS idx_test_plan_tags_plan ON test_plan_tags (test_plan_id, tag);
+
+-- Executions of a plan, newest first (ORDER BY id DESC walks the index backwards).
+CREATE INDEX IF NOT EXISTS idx_test_plan_execution_plan ON test_plan_execution (test_plan_id);
+
+-- Executions of a plan within a time window, for reports.
+CREATE INDEX IF NOT EXISTS idx_test_plan_execution_plan_window ON test_plan_execution (test_plan_id, started_at, finished_at);
@@ -0,0 +1,21 @@
+-- Indexes behind the sort orders offered by the paginated list endpoints. Each one
+-- leads with the equality filter, then the sort key; SQLite appends the rowid (id)
+-- to every index entry, so (filter, key) already orders ties by id and a keyset
+-- seek on (key, id) is a single range scan.
+
+-- Test cases of a plan in id order (idx_test_case_plan orders by duration first).
+CREATE INDEX IF NOT EXISTS idx_test_case_plan_id ON test_case (test_plan_id);
+
+-- The expression must match PRIORITY_RANK in TestCaseController exactly to be used.
+CREATE INDEX IF NOT EXISTS idx_test_case_plan_priority ON test_case (
+    test_plan_id,
+    (CASE priority WHEN 'CRITICAL' THEN 0 WHEN 'HIGH' THEN 1 WHEN 'MEDIUM' THEN 2 WHEN 'LOW' THEN 3 ELSE 4 END)
+);
+CREATE INDEX IF NOT EXISTS idx_test_case_plan_status ON test_case (test_plan_id, status);
+CREATE INDEX IF NOT EXISTS idx_test_case_plan_created ON test_case (test_plan_id, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_test_plan_execution_plan_status ON test_plan_execution (test_plan_id, status);
+CREATE INDEX IF NOT EXISTS idx_test_plan_execution_plan_created ON test_plan_execution (test_plan_id, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_test_plan_status ON test_plan (status);
+CREATE INDEX IF NOT EXISTS idx_test_plan_created ON test_plan (created_at);
@@ -0,0 +1,19 @@
+-- Per-case outcome of each execution. Keyed by (execution_id, test_case_id) and
+-- stored WITHOUT ROWID, so a result is one b-tree entry and an upsert is a single
+-- seek. Times are epoch milliseconds.
+CREATE TABLE IF NOT EXISTS test_case_result (
+    execution_id INTEGER NOT NULL,
+    test_case_id INTEGER NOT NULL,
+    status TEXT NOT NULL,
+    duration INTEGER,
+    started_at INTEGER,
+    finished_at INTEGER,
+    updated_at INTEGER NOT NULL,
+    PRIMARY KEY (execution_id, test_case_id)
+) WITHOUT ROWID;
+
+-- History of one test case across executions, and clean-up when a case is deleted.
+CREATE INDEX IF NOT EXISTS idx_test_case_result_case ON test_case_result (test_case_id, execution_id);
+
+-- Results of an execution by status (the primary key is appended, so ties order by case id).
+CREATE INDEX IF NOT EXISTS idx_test_case_result_status ON test_case_result (execution_id, status);
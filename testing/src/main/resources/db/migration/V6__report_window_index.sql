@@ -0,0 +1,3 @@
+-- Lets the cross-plan report find the executions started in a time window with a range seek, without
+-- visiting every plan's slice of idx_test_plan_execution_plan_window.
+CREATE INDEX IF NOT EXISTS idx_test_plan_execution_started ON test_plan_execution (started_at, test_plan_id);
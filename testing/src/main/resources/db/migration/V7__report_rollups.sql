@@ -0,0 +1,41 @@
+-- Per-plan rollups of executions by the local hour and day they started in, maintained by
+-- ExecutionRollups in the same transactions as the writes they summarise. Day rows are
+-- recomputed from hour rows, so the two always agree. duration_histogram is the
+-- DurationHistogram of per-execution durations, mergeable across buckets for percentiles.
+CREATE TABLE IF NOT EXISTS plan_rollup_hour (
+    plan_id INTEGER NOT NULL,
+    bucket_start INTEGER NOT NULL,
+    executions INTEGER NOT NULL,
+    results INTEGER NOT NULL,
+    pending INTEGER NOT NULL,
+    passed INTEGER NOT NULL,
+    failed INTEGER NOT NULL,
+    blocked INTEGER NOT NULL,
+    total_duration INTEGER NOT NULL,
+    max_duration INTEGER NOT NULL,
+    duration_histogram BLOB NOT NULL,
+    refreshed_at INTEGER NOT NULL,
+    PRIMARY KEY (plan_id, bucket_start)
+) WITHOUT ROWID;
+
+CREATE TABLE IF NOT EXISTS plan_rollup_day (
+    plan_id INTEGER NOT NULL,
+    bucket_start INTEGER NOT NULL,
+    executions INTEGER NOT NULL,
+    results INTEGER NOT NULL,
+    pending INTEGER NOT NULL,
+    passed INTEGER NOT NULL,
+    failed INTEGER NOT NULL,
+    blocked INTEGER NOT NULL,
+    total_duration INTEGER NOT NULL,
+    max_duration INTEGER NOT NULL,
+    duration_histogram BLOB NOT NULL,
+    refreshed_at INTEGER NOT NULL,
+    PRIMARY KEY (plan_id, bucket_start)
+) WITHOUT ROWID;
+
+-- Reports over all plans read a time range across plans.
+CREATE INDEX IF NOT EXISTS idx_plan_rollup_hour_bucket ON plan_rollup_hour (bucket_start);
+CREATE INDEX IF NOT EXISTS idx_plan_rollup_day_bucket ON plan_rollup_day (bucket_start);
+
+-- Existing executions are rolled up by the Java migration V8, since buckets follow local time.
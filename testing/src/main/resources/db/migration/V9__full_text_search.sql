@@ -0,0 +1,50 @@
+-- Full-text indexes over the searchable text of plans and test cases. Both are external-content
+-- tables: the text stays in test_plan / test_case and the index holds only tokens, keyed by the
+-- source rowid. Triggers keep them in step with every insert, update and delete, whichever code
+-- path makes it. The prefix indexes make the last, still-being-typed word of a search cheap to match.
+CREATE VIRTUAL TABLE IF NOT EXISTS test_plan_fts USING fts5(
+    name, description,
+    content = 'test_plan', content_rowid = 'id',
+    tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'
+);
+
+CREATE VIRTUAL TABLE IF NOT EXISTS test_case_fts USING fts5(
+    name, description, expected_result, steps,
+    content = 'test_case', content_rowid = 'id',
+    tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'
+);
+
+CREATE TRIGGER IF NOT EXISTS test_plan_fts_insert AFTER INSERT ON test_plan BEGIN
+    INSERT INTO test_plan_fts (rowid, name, description) VALUES (new.id, new.name, new.description);
+END;
+
+CREATE TRIGGER IF NOT EXISTS test_plan_fts_delete AFTER DELETE ON test_plan BEGIN
+    INSERT INTO test_plan_fts (test_plan_fts, rowid, name, description) VALUES ('delete', old.id, old.name, old.description);
+END;
+
+CREATE TRIGGER IF NOT EXISTS test_plan_fts_update AFTER UPDATE OF name, description ON test_plan BEGIN
+    INSERT INTO test_plan_fts (test_plan_fts, rowid, name, description) VALUES ('delete', old.id, old.name, old.description);
+    INSERT INTO test_plan_fts (rowid, name, description) VALUES (new.id, new.name, new.description);
+END;
+
+CREATE TRIGGER IF NOT EXISTS test_case_fts_insert AFTER INSERT ON test_case BEGIN
+    INSERT INTO test_case_fts (rowid, name, description, expected_result, steps)
+    VALUES (new.id, new.name, new.description, new.expected_result, new.steps);
+END;
+
+CREATE TRIGGER IF NOT EXISTS test_case_fts_delete AFTER DELETE ON test_case BEGIN
+    INSERT INTO test_case_fts (test_case_fts, rowid, name, description, expected_result, steps)
+    VALUES ('delete', old.id, old.name, old.description, old.expected_result, old.steps);
+END;
+
+-- Status and duration updates from result recording do not touch the indexed text and skip this.
+CREATE TRIGGER IF NOT EXISTS test_case_fts_update AFTER UPDATE OF name, description, expected_result, steps ON test_case BEGIN
+    INSERT INTO test_case_fts (test_case_fts, rowid, name, description, expected_result, steps)
+    VALUES ('delete', old.id, old.name, old.description, old.expected_result, old.steps);
+    INSERT INTO test_case_fts (rowid, name, description, expected_result, steps)
+    VALUES (new.id, new.name, new.description, new.expected_result, new.steps);
+END;
+
+-- Index the rows that already exist.
+INSERT INTO test_plan_fts (test_plan_fts) VALUES ('rebuild');
+INSERT INTO test_case_fts (test_case_fts) VALUES ('rebuild');
@@ -1,11 +1,26 @@
 package com.puckowski.testing;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
 
 @SpringBootTest
 class TestingApplicationTests {
 
+	@TempDir
+	static Path dir;
+
+	// Keeps the database and its snapshots away from those of a server started in the working directory
+	@DynamicPropertySource
+	static void databaseFiles(DynamicPropertyRegistry registry) {
+		registry.add("sqlite.pool.url", () -> "jdbc:sqlite:" + dir.resolve("test.sqlite"));
+		registry.add("sqlite.snapshot.path", () -> dir.resolve("test-snapshot").toString());
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,195 @@
+package com.puckowski.testing.bulk;
+
+import com.puckowski.testing.cache.PlanListKeyGenerator;
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.config.ChangeFeedProperties;
+import com.puckowski.testing.config.ResultIngestProperties;
+import com.puckowski.testing.db.MigratedDatabase;
+import com.puckowski.testing.dto.TestCaseResultSummaryDTO;
+import com.puckowski.testing.dto.TestCaseRunResultDTO;
+import com.puckowski.testing.feed.PlanChangeFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plan 1 has cases 1 to 3 and executions 1 and 2; plan 2 has case 4. To make requests queue up, a write
+ * command that waits for a latch holds the writer, so the ingest thread's first commit cannot start.
+ */
+class TestCaseResultIngestorTest {
+
+    @TempDir
+    Path dir;
+
+    private MigratedDatabase db;
+    private PlanChangeFeed changeFeed;
+    private TestCaseResultIngestor ingestor;
+    private ExecutorService submitters;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = MigratedDatabase.create(dir.resolve("ingest.sqlite"));
+        try (Connection conn = db.pool().getWriteConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO test_plan (id, name, status, created_at) VALUES (1, 'Checkout', 'ACTIVE', 0), (2, 'Search', 'ACTIVE', 0)");
+            st.execute("INSERT INTO test_case (id, test_plan_id, name, status, expected_result, priority, steps, created_at) VALUES "
+                    + "(1, 1, 'Pay', 'PENDING', 'paid', 'HIGH', 'click', 0), "
+                    + "(2, 1, 'Refund', 'PENDING', 'refunded', 'LOW', 'click', 0), "
+                    + "(3, 1, 'Cancel', 'PENDING', 'cancelled', 'LOW', 'click', 0), "
+                    + "(4, 2, 'Find', 'PENDING', 'found', 'LOW', 'type', 0)");
+            st.execute("INSERT INTO test_plan_execution (id, test_plan_id, status) VALUES (1, 1, 'IN_PROGRESS'), (2, 1, 'IN_PROGRESS')");
+            // A way to make one request fail in the database
+            st.execute("CREATE TRIGGER reject_result BEFORE INSERT ON test_case_result WHEN new.status = 'BROKEN' "
+                    + "BEGIN SELECT RAISE(ABORT, 'broken result'); END");
+        }
+        changeFeed = new PlanChangeFeed(new ChangeFeedProperties(Duration.ofMillis(10), 100, Duration.ofMinutes(1), Duration.ofMinutes(1)));
+        ingestor = new TestCaseResultIngestor(db.pool(), db.writer(), new TestPlanCacheInvalidator(new PlanListKeyGenerator()),
+                db.rollups(), changeFeed, new ResultIngestProperties(16, 1000, Duration.ofSeconds(5)));
+        submitters = Executors.newFixedThreadPool(6);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        submitters.shutdownNow();
+        ingestor.close();
+        changeFeed.close();
+        db.close();
+    }
+
+    @Test
+    void aCaseListedTwiceIsOneRowWithTheLatestValues() throws SQLException {
+        TestCaseResultSummaryDTO summary = ingestor.ingest(1, List.of(
+                result(1, "PASSED", 10, "2025-06-10T10:00:00"),
+                result(2, "PASSED", null, null),
+                result(1, "FAILED", null, null),
+                result(2, "BLOCKED", 4, null)));
+        assertEquals(4, summary.received());
+        assertEquals(2, summary.updated());
+        assertEquals(0, summary.notFound());
+        assertEquals("FAILED 10 set", row(1, 1));
+        assertEquals("BLOCKED 4 null", row(1, 2));
+    }
+
+    @Test
+    void countsInvalidResultsAndCasesOutsideThePlan() throws SQLException {
+        TestCaseResultSummaryDTO summary = ingestor.ingest(1, Arrays.asList(
+                result(1, "PASSED", null, null),
+                result(4, "PASSED", null, null),
+                result(999, "PASSED", null, null),
+                result(999, "FAILED", null, null),
+                result(null, "PASSED", null, null),
+                result(2, " ", null, null),
+                result(3, "PASSED", null, "yesterday"),
+                null));
+        assertEquals(8, summary.received());
+        assertEquals(1, summary.updated());
+        assertEquals(4, summary.invalid());
+        assertEquals(2, summary.notFound());
+        assertEquals(List.of(4, 999), summary.notFoundIds());
+        assertEquals("1", query("SELECT COUNT(*) FROM test_case_result"));
+
+        assertThrows(NoSuchElementException.class, () -> ingestor.ingest(42, List.of(result(1, "PASSED", null, null))));
+    }
+
+    @Test
+    void requestsQueuedDuringACommitShareTheNextOneAndFailAlone() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        holdWriter(release);
+        Future<TestCaseResultSummaryDTO> first = submit(1, result(1, "PASSED", null, null));
+        Thread.sleep(100);
+        Future<TestCaseResultSummaryDTO> second = submit(1, result(2, "PASSED", null, null));
+        Future<TestCaseResultSummaryDTO> broken = submit(2, result(1, "PASSED", null, null), result(2, "BROKEN", null, null));
+        Future<TestCaseResultSummaryDTO> third = submit(2, result(3, "FAILED", null, null));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).updated());
+        assertEquals(1, second.get(5, TimeUnit.SECONDS).updated());
+        assertEquals(1, third.get(5, TimeUnit.SECONDS).updated());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> broken.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SQLException.class, failure.getCause());
+
+        // The three queued requests went out in one commit, which wrote the rows of two of them
+        assertEquals("1", query("SELECT COUNT(DISTINCT updated_at) FROM test_case_result WHERE NOT (execution_id = 1 AND test_case_id = 1)"));
+        assertEquals("3", query("SELECT COUNT(*) FROM test_case_result"));
+        assertEquals("0", query("SELECT COUNT(*) FROM test_case_result WHERE execution_id = 2 AND test_case_id = 1"));
+    }
+
+    @Test
+    void closeWritesWhatIsQueuedAndThenRefusesResults() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        holdWriter(release);
+        Future<TestCaseResultSummaryDTO> first = submit(1, result(1, "PASSED", null, null));
+        Thread.sleep(100);
+        Future<TestCaseResultSummaryDTO> queued = submit(1, result(2, "PASSED", null, null));
+        Thread.sleep(100);
+        Future<?> closing = submitters.submit(() -> {
+            ingestor.close();
+            return null;
+        });
+        Thread.sleep(100);
+        assertFalse(closing.isDone(), "waits for the queued requests");
+        assertThrows(SQLException.class, () -> ingestor.ingest(1, List.of(result(3, "PASSED", null, null))));
+
+        release.countDown();
+        closing.get(5, TimeUnit.SECONDS);
+        assertEquals(1, first.get().updated());
+        assertEquals(1, queued.get().updated());
+        assertEquals("2", query("SELECT COUNT(*) FROM test_case_result"));
+    }
+
+    private void holdWriter(CountDownLatch release) throws InterruptedException {
+        CountDownLatch holding = new CountDownLatch(1);
+        submitters.submit(() -> db.writer().execute(conn -> {
+            holding.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+    }
+
+    private Future<TestCaseResultSummaryDTO> submit(long executionId, TestCaseRunResultDTO... results) {
+        return submitters.submit(() -> ingestor.ingest(executionId, List.of(results)));
+    }
+
+    private static TestCaseRunResultDTO result(Integer caseId, String status, Integer duration, String finishedAt) {
+        return new TestCaseRunResultDTO(caseId, status, duration, null, finishedAt, null);
+    }
+
+    private String row(long executionId, int caseId) throws SQLException {
+        return query("SELECT status || ' ' || COALESCE(duration, 'null') || ' ' || IIF(finished_at IS NULL, 'null', 'set') "
+                + "FROM test_case_result WHERE execution_id = " + executionId + " AND test_case_id = " + caseId);
+    }
+
+    private String query(String sql) throws SQLException {
+        try (Connection conn = db.pool().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            assertTrue(rs.next(), sql);
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.puckowski.testing.bulk;
+
+import com.puckowski.testing.cache.PlanListKeyGenerator;
+import com.puckowski.testing.cache.PlanVersions;
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.config.ChangeFeedProperties;
+import com.puckowski.testing.config.ResultIngestProperties;
+import com.puckowski.testing.db.MigratedDatabase;
+import com.puckowski.testing.dto.TestCaseResultBatchDTO;
+import com.puckowski.testing.dto.TestCaseResultDTO;
+import com.puckowski.testing.dto.TestCaseResultSummaryDTO;
+import com.puckowski.testing.feed.PlanChangeFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plan 1 has cases 1 and 2 and execution 1; plan 2 has case 3.
+ */
+class TestCaseResultRecorderTest {
+
+    @TempDir
+    Path dir;
+
+    private MigratedDatabase db;
+    private PlanChangeFeed changeFeed;
+    private TestCaseResultIngestor ingestor;
+    private TestCaseResultRecorder recorder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = MigratedDatabase.create(dir.resolve("results.sqlite"));
+        try (Connection conn = db.pool().getWriteConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("INSERT INTO test_plan (id, name, status, created_at) VALUES (1, 'Checkout', 'ACTIVE', 0), (2, 'Search', 'ACTIVE', 0)");
+            st.execute("INSERT INTO test_case (id, test_plan_id, name, status, expected_result, priority, steps, created_at) VALUES "
+                    + "(1, 1, 'Pay', 'PENDING', 'paid', 'HIGH', 'click', 0), "
+                    + "(2, 1, 'Refund', 'PENDING', 'refunded', 'LOW', 'click', 0), "
+                    + "(3, 2, 'Find', 'PENDING', 'found', 'LOW', 'type', 0)");
+            st.execute("INSERT INTO test_plan_execution (id, test_plan_id, status) VALUES (1, 1, 'IN_PROGRESS')");
+        }
+        changeFeed = new PlanChangeFeed(new ChangeFeedProperties(Duration.ofMillis(10), 100, Duration.ofMinutes(1), Duration.ofMinutes(1)));
+        ingestor = new TestCaseResultIngestor(db.pool(), db.writer(), new TestPlanCacheInvalidator(new PlanListKeyGenerator()),
+                db.rollups(), changeFeed, new ResultIngestProperties(16, 1000, Duration.ofSeconds(5)));
+        recorder = new TestCaseResultRecorder(db.pool(), db.writer(), ingestor, new PlanVersions(db.pool()), changeFeed);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ingestor.close();
+        changeFeed.close();
+        db.close();
+    }
+
+    @Test
+    void aCaseListedTwiceIsWrittenOnceWithItsLastStatusAndDuration() throws SQLException {
+        TestCaseResultSummaryDTO summary = record(null,
+                new TestCaseResultDTO(1, "PASSED", 10),
+                new TestCaseResultDTO(2, "PASSED", 5),
+                new TestCaseResultDTO(1, "FAILED", null),
+                new TestCaseResultDTO(2, "BLOCKED", 7));
+        assertEquals(4, summary.received());
+        assertEquals(2, summary.updated());
+        assertEquals(0, summary.notFound());
+        assertEquals("FAILED 10", caseRow(1));
+        assertEquals("BLOCKED 7", caseRow(2));
+    }
+
+    @Test
+    void countsInvalidAndUnknownCases() throws SQLException {
+        TestCaseResultSummaryDTO summary = record(null,
+                new TestCaseResultDTO(3, "PASSED", null),
+                new TestCaseResultDTO(999, "PASSED", null),
+                new TestCaseResultDTO(999, "FAILED", null),
+                new TestCaseResultDTO(null, "PASSED", null),
+                new TestCaseResultDTO(1, " ", null),
+                null);
+        assertEquals(6, summary.received());
+        assertEquals(1, summary.updated());
+        assertEquals(3, summary.invalid());
+        assertEquals(1, summary.notFound());
+        assertEquals(List.of(999), summary.notFoundIds());
+        assertEquals("PENDING null", caseRow(1));
+    }
+
+    @Test
+    void withAnExecutionOnlyItsPlansCasesAreUpdatedAndRecorded() throws SQLException {
+        TestCaseResultSummaryDTO summary = record(1L,
+                new TestCaseResultDTO(1, "PASSED", null),
+                new TestCaseResultDTO(3, "PASSED", null),
+                new TestCaseResultDTO(1, "FAILED", 30));
+        assertEquals(1, summary.updated());
+        assertEquals(List.of(3), summary.notFoundIds());
+        assertEquals("FAILED 30", caseRow(1));
+        assertEquals("PENDING null", caseRow(3));
+        assertEquals("1 FAILED 30", query("SELECT test_case_id || ' ' || status || ' ' || duration FROM test_case_result WHERE execution_id = 1"));
+        assertEquals("1", query("SELECT COUNT(*) FROM test_case_result"));
+
+        assertThrows(NoSuchElementException.class, () -> record(42L, new TestCaseResultDTO(1, "PASSED", null)));
+    }
+
+    private TestCaseResultSummaryDTO record(Long executionId, TestCaseResultDTO... results) throws SQLException {
+        return recorder.record(new TestCaseResultBatchDTO(executionId, Arrays.asList(results)));
+    }
+
+    private String caseRow(int id) throws SQLException {
+        return query("SELECT status || ' ' || COALESCE(duration, 'null') FROM test_case WHERE id = " + id);
+    }
+
+    private String query(String sql) throws SQLException {
+        try (Connection conn = db.pool().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            assertTrue(rs.next(), sql);
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.puckowski.testing.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puckowski.testing.cache.PlanListKeyGenerator;
+import com.puckowski.testing.cache.TestPlanCacheInvalidator;
+import com.puckowski.testing.config.BulkImportProperties;
+import com.puckowski.testing.db.MigratedDatabase;
+import com.puckowski.testing.dto.ImportErrorDTO;
+import com.puckowski.testing.dto.ImportProgressDTO;
+import com.puckowski.testing.dto.ImportResultDTO;
+import com.puckowski.testing.tag.TagDictionary;
+import com.puckowski.testing.tag.TagIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Imports into a migrated database file, in chunks of three records so that short documents span several.
+ */
+class TestPlanImporterTest {
+
+    private static final String HEADER = "plan,tags,name,expected_result,priority,steps,duration\n";
+
+    @TempDir
+    Path dir;
+
+    private MigratedDatabase db;
+    private TestPlanImporter importer;
+    private final List<ImportProgressDTO> progress = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = MigratedDatabase.create(dir.resolve("import.sqlite"));
+        TagDictionary tags = new TagDictionary(db.pool());
+        importer = new TestPlanImporter(db.writer(), new TestPlanCacheInvalidator(new PlanListKeyGenerator()),
+                new ObjectMapper(), new BulkImportProperties(3, 10), new TagIndex(db.pool(), tags), tags);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        db.close();
+    }
+
+    @Test
+    void countsEachTagLinkOnce() throws Exception {
+        ImportResultDTO result = csv(HEADER
+                + "Checkout,smoke; payments ;;smoke,Pay,paid,HIGH,click,\n"
+                + "Checkout,,Refund,refunded,LOW,click,\n"
+                + "Search,smoke,,,,,\n");
+        assertTrue(result.completed(), result.failure());
+        assertEquals(2, result.plansCreated());
+        assertEquals(2, result.casesCreated());
+        // The blank tag is skipped and the repeated one links the plan only once
+        assertEquals(3, result.tagsCreated());
+        assertEquals(3, count("SELECT COUNT(*) FROM test_plan_tag"));
+    }
+
+    @Test
+    void tagsAfterTheCasesCountOnlyLinksThePlanDidNotHave() throws Exception {
+        ImportResultDTO result = json("""
+                [{"name": "Checkout", "tagList": [{"tag": "smoke"}],
+                  "testCases": [{"name": "Pay", "expectedResult": "paid", "priority": "HIGH", "steps": "click"}],
+                  "tagList": [{"tag": "smoke"}, {"tag": "nightly"}, {"tag": " "}]}]
+                """);
+        assertTrue(result.completed(), result.failure());
+        assertEquals(2, result.tagsCreated());
+        assertEquals(2, count("SELECT COUNT(*) FROM test_plan_tag"));
+    }
+
+    @Test
+    void reportsInvalidRowsAndWritesTheRest() throws Exception {
+        ImportResultDTO result = csv(HEADER
+                + ",,Orphan,ok,HIGH,click,\n"
+                + "Checkout,,Pay,paid,HIGH,click,\n"
+                + "Checkout,,No priority,paid,,click,\n"
+                + "Checkout,,Slow,paid,HIGH,click,soon\n"
+                + "Checkout,,Refund,refunded,LOW,click,250\n");
+        assertTrue(result.completed());
+        assertEquals(6, result.rowsRead());
+        assertEquals(1, result.plansCreated());
+        assertEquals(2, result.casesCreated());
+        assertEquals(3, result.rowsFailed());
+        assertEquals(List.of(2L, 4L, 5L), result.errors().stream().map(ImportErrorDTO::row).sorted().toList());
+        assertEquals(250, count("SELECT duration FROM test_case WHERE name = 'Refund'"));
+    }
+
+    @Test
+    void casesFollowTheirPlanAcrossChunks() throws Exception {
+        StringBuilder document = new StringBuilder(HEADER);
+        for (int i = 0; i < 7; i++) {
+            document.append("Checkout,,Case ").append(i).append(",ok,HIGH,click,\n");
+        }
+        document.append("Search,,Find,found,LOW,type,\n");
+        ImportResultDTO result = csv(document.toString());
+
+        assertEquals(8, result.casesCreated());
+        assertEquals(7, count("SELECT COUNT(*) FROM test_case c JOIN test_plan p ON p.id = c.test_plan_id WHERE p.name = 'Checkout'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM test_case c JOIN test_plan p ON p.id = c.test_plan_id WHERE p.name = 'Search'"));
+        // Ten records (two plans and eight cases) in chunks of three
+        assertEquals(4, progress.size());
+        assertEquals(new ImportProgressDTO(10, 2, 8, 0, 0, 0), withoutTime(progress.getLast()));
+    }
+
+    @Test
+    void aChunkThatBreaksAConstraintIsReplayedRowByRow() throws Exception {
+        execute("CREATE TRIGGER reject_case BEFORE INSERT ON test_case WHEN new.name = 'Bad' "
+                + "BEGIN SELECT RAISE(ABORT, 'bad case'); END");
+        ImportResultDTO result = csv(HEADER
+                + "Checkout,smoke,Pay,paid,HIGH,click,\n"
+                + "Checkout,,Bad,paid,HIGH,click,\n"
+                + "Checkout,,Refund,refunded,LOW,click,\n"
+                + "Search,,Find,found,LOW,type,\n");
+
+        assertTrue(result.completed());
+        assertEquals(2, result.plansCreated());
+        assertEquals(3, result.casesCreated());
+        assertEquals(1, result.tagsCreated());
+        assertEquals(1, result.rowsFailed());
+        assertEquals(3L, result.errors().getFirst().row());
+        assertTrue(result.errors().getFirst().message().contains("bad case"), result.errors().getFirst().message());
+        assertEquals(3, count("SELECT COUNT(*) FROM test_case"));
+    }
+
+    @Test
+    void otherFailuresEndTheImportWithoutAReplay() throws Exception {
+        execute("DROP TABLE test_plan_tag");
+        assertThrows(SQLException.class, () -> csv(HEADER + "Checkout,,Pay,paid,HIGH,click,\n"));
+        assertEquals(0, count("SELECT COUNT(*) FROM test_plan"));
+    }
+
+    @Test
+    void resultCodeLooksThroughBatchFailures() {
+        SQLException unique = new SQLException("UNIQUE constraint failed", null, 2067);
+        assertEquals(19, TestPlanImporter.resultCode(unique));
+        assertEquals(19, TestPlanImporter.resultCode(new BatchUpdateException("batch entry 0", null, 0, new int[0], unique)));
+        assertEquals(5, TestPlanImporter.resultCode(new SQLException("database is locked", null, 5)));
+        assertEquals(0, TestPlanImporter.resultCode(new SQLTransientException("Write queue is full")));
+    }
+
+    private ImportResultDTO csv(String document) throws SQLException {
+        return importer.importCsv(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), progress::add);
+    }
+
+    private ImportResultDTO json(String document) throws SQLException {
+        return importer.importJson(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), progress::add);
+    }
+
+    private static ImportProgressDTO withoutTime(ImportProgressDTO p) {
+        return new ImportProgressDTO(p.rowsRead(), p.plansCreated(), p.casesCreated(), p.tagsCreated(), p.rowsFailed(), 0);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = db.pool().getWriteConnection();
+             Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection conn = db.pool().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.puckowski.testing.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The plan list keys a write leaves behind. The {@code @CacheEvict} side only frees memory and needs Spring's
+ * proxy, so it is not exercised here.
+ */
+class TestPlanCacheInvalidatorTest {
+
+    private final PlanListKeyGenerator planLists = new PlanListKeyGenerator();
+    private final TestPlanCacheInvalidator invalidator = new TestPlanCacheInvalidator(planLists);
+
+    private Object listKey(Object... params) {
+        // The key depends on the arguments alone, not on which list method is cached
+        return planLists.generate(this, null, params);
+    }
+
+    @Test
+    void readsBetweenWritesShareAKey() {
+        Object first = listKey(null, "smoke", 20, null, "-id", null);
+        assertEquals(first, listKey(null, "smoke", 20, null, "-id", null));
+        assertEquals(first.hashCode(), listKey(null, "smoke", 20, null, "-id", null).hashCode());
+        assertNotEquals(first, listKey(null, "smoke", 50, null, "-id", null));
+        assertNotEquals(first, listKey(null, null, 20, null, "-id", null));
+    }
+
+    @Test
+    void everyPlanWriteMovesListsToNewKeys() {
+        assertMovesKeys(id -> invalidator.planCreated(id));
+        assertMovesKeys(id -> invalidator.planUpdated(id));
+        assertMovesKeys(id -> invalidator.planDeleted(id));
+        assertMovesKeys(id -> invalidator.planCreated(null));
+    }
+
+    @Test
+    void aListReadDuringAWriteIsNeverServedAfterIt() {
+        // The read takes its key, then the write commits and evicts, then the read stores what it saw
+        Object racingRead = listKey(null, null, 20, null, null, null);
+        invalidator.planUpdated(7L);
+        Object afterWrite = listKey(null, null, 20, null, null, null);
+        assertNotEquals(racingRead, afterWrite);
+    }
+
+    @Test
+    void executionChangesLeavePlanListsAlone() {
+        Object before = listKey(null, null, 20, null, null, null);
+        invalidator.executionsChanged();
+        assertEquals(before, listKey(null, null, 20, null, null, null));
+    }
+
+    private void assertMovesKeys(Consumer<Long> write) {
+        Object before = listKey(3L, null, null, null, null, null);
+        write.accept(3L);
+        Object after = listKey(3L, null, null, null, null, null);
+        assertNotEquals(before, after);
+        assertEquals(after, listKey(3L, null, null, null, null, null));
+    }
+}
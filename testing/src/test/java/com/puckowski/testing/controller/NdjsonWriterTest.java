@@ -0,0 +1,81 @@
+package com.puckowski.testing.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    record Row(int id, String name) {
+    }
+
+    @Test
+    void writesOneObjectPerLineLikeTheArrayResponse() throws IOException {
+        List<Row> rows = List.of(new Row(1, "plain"), new Row(2, "line\nbreak and \"quotes\""), new Row(3, null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (NdjsonWriter ndjson = new NdjsonWriter(objectMapper, out)) {
+            for (Row row : rows) {
+                ndjson.write(row);
+            }
+        }
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"), text);
+        List<String> lines = List.of(text.substring(0, text.length() - 1).split("\n", -1));
+        assertEquals(rows.size(), lines.size(), text);
+        // Each line is exactly the matching element of the JSON array the non-streaming endpoint returns
+        assertEquals(objectMapper.writeValueAsString(rows), "[" + String.join(",", lines) + "]");
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), objectMapper.readValue(lines.get(i), Row.class));
+        }
+    }
+
+    @Test
+    void writesNothingForNoRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new NdjsonWriter(objectMapper, out).close();
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void flushesInBatchesAndOnRequest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NdjsonWriter ndjson = new NdjsonWriter(objectMapper, out);
+        for (int i = 0; i < 255; i++) {
+            ndjson.write(new Row(i, null));
+        }
+        assertEquals(0, out.size(), "small lines stay buffered until the batch is full");
+        ndjson.write(new Row(255, null));
+        int flushed = out.size();
+        assertTrue(flushed > 0);
+
+        ndjson.write(new Row(256, null));
+        assertEquals(flushed, out.size());
+        ndjson.flush();
+        assertTrue(out.size() > flushed);
+    }
+
+    @Test
+    void leavesTheResponseStreamOpen() throws IOException {
+        List<String> calls = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                calls.add("close");
+            }
+        };
+        try (NdjsonWriter ndjson = new NdjsonWriter(objectMapper, out)) {
+            ndjson.write(new Row(1, "a"));
+        }
+        assertEquals(List.of(), calls);
+        assertEquals("{\"id\":1,\"name\":\"a\"}\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,50 @@
+package com.puckowski.testing.controller;
+
+import com.puckowski.testing.config.PagingProperties;
+import com.puckowski.testing.db.KeysetSort;
+import com.puckowski.testing.db.PageCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagingTest {
+
+    private static final PagingProperties PAGING = new PagingProperties(100, 500);
+
+    @Test
+    void badCursorsAndSortsAreBadRequests() {
+        String createdAt = new PageCursor("created_at", true, 1_700_000_000_000L, 12).encode();
+        String tampered = createdAt.substring(0, createdAt.length() - 3) + "!!!";
+        String unknownSort = new PageCursor("name", false, "x", 12).encode();
+        List<String[]> requests = List.of(
+                new String[]{null, "garbage"},
+                new String[]{null, tampered},
+                new String[]{null, unknownSort},
+                new String[]{"status", createdAt},
+                new String[]{"created_at", createdAt},
+                new String[]{"priority", null});
+        for (String[] request : requests) {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> query(request[0], request[1], null), String.join(" / ", String.valueOf(request[0]), String.valueOf(request[1])));
+            assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        }
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> query(null, null, 0));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    @Test
+    void acceptsACursorWithItsOwnSort() {
+        String createdAt = new PageCursor("created_at", true, 1_700_000_000_000L, 12).encode();
+        assertEquals("created_at", query(null, createdAt, null).sort());
+        assertEquals("created_at", query("-created_at", createdAt, null).sort());
+        assertEquals(501, query(null, null, 10_000).fetchSize());
+    }
+
+    private static KeysetSort.Query query(String sort, String cursor, Integer per) {
+        return Paging.query(PAGING, TestCaseController.TEST_PLAN_SORTS, sort, cursor, per, 20);
+    }
+}
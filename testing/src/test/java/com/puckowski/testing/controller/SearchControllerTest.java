@@ -0,0 +1,56 @@
+package com.puckowski.testing.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchControllerTest {
+
+    @Test
+    void quotesEachWordAndMakesTheLastAPrefix() {
+        assertEquals("\"login\"*", SearchController.matchQuery("login"));
+        assertEquals("\"checkout\" \"flow\"*", SearchController.matchQuery("  checkout   flow "));
+    }
+
+    @Test
+    void quotesAndPunctuationAreDropped() {
+        assertEquals("\"say\" \"hello\"*", SearchController.matchQuery("say \"hello\""));
+        assertEquals("\"it\" \"s\" \"broken\"*", SearchController.matchQuery("it's \"broken"));
+        assertEquals("\"e2e\" \"smoke\" \"test\"*", SearchController.matchQuery("e2e-smoke:test()"));
+    }
+
+    @Test
+    void starsAreNotPassedThrough() {
+        assertEquals("\"pay\"*", SearchController.matchQuery("pay*"));
+        assertEquals("\"a\" \"b\"*", SearchController.matchQuery("*a* **b"));
+        assertNull(SearchController.matchQuery("***"));
+    }
+
+    @Test
+    void operatorsAreSearchedAsWords() {
+        assertEquals("\"cats\" \"OR\" \"dogs\"*", SearchController.matchQuery("cats OR dogs"));
+        assertEquals("\"NOT\" \"flaky\"*", SearchController.matchQuery("NOT flaky"));
+        assertEquals("\"a\" \"AND\" \"b\" \"NEAR\" \"c\"*", SearchController.matchQuery("a AND b NEAR(c"));
+        assertEquals("\"title\" \"x\"*", SearchController.matchQuery("title:x"));
+    }
+
+    @Test
+    void keepsLettersAndDigitsOfAnyScript() {
+        assertEquals("\"zażółć\" \"東京\" \"42\"*", SearchController.matchQuery("zażółć, 東京 #42"));
+    }
+
+    @Test
+    void blankInputHasNoQuery() {
+        assertNull(SearchController.matchQuery(null));
+        assertNull(SearchController.matchQuery(""));
+        assertNull(SearchController.matchQuery("   \t\n"));
+        assertNull(SearchController.matchQuery("\"\" - () ^"));
+    }
+
+    @Test
+    void keepsAtMostSixteenWords() {
+        String query = SearchController.matchQuery("w1 w2 w3 w4 w5 w6 w7 w8 w9 w10 w11 w12 w13 w14 w15 w16 w17 w18");
+        assertEquals(16, query.split(" ").length);
+        assertTrue(query.endsWith("\"w16\"*"), query);
+    }
+}
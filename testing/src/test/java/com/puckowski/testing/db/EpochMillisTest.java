@@ -0,0 +1,140 @@
+package com.puckowski.testing.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Checks the codec against {@code java.time} in the JVM's default zone, which the Gradle test task sets to one
+ * with daylight saving time.
+ */
+class EpochMillisTest {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final DateTimeFormatter SECONDS = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss");
+
+    @Test
+    void matchesJavaTimeAcrossDstTransitions() {
+        ZoneRules rules = ZONE.getRules();
+        List<ZoneOffsetTransition> transitions = new ArrayList<>();
+        Instant end = Instant.parse("2031-01-01T00:00:00Z");
+        for (ZoneOffsetTransition t = rules.nextTransition(Instant.parse("1990-01-01T00:00:00Z"));
+             t != null && t.getInstant().isBefore(end); t = rules.nextTransition(t.getInstant())) {
+            transitions.add(t);
+        }
+        assumeFalse(transitions.isEmpty(), ZONE + " has no transitions to test");
+
+        for (ZoneOffsetTransition t : transitions) {
+            // Every local time from two hours before to two hours after, covering the gap or overlap
+            for (LocalDateTime local = t.getDateTimeBefore().minusHours(2);
+                 local.isBefore(t.getDateTimeBefore().plusHours(2)); local = local.plusMinutes(15)) {
+                assertEquals(local.atZone(ZONE).toInstant().toEpochMilli(), EpochMillis.decode(local.toString(), 0, local.toString().length()),
+                        "decode " + local);
+            }
+            for (long offset = -Duration.ofHours(2).toMillis(); offset <= Duration.ofHours(2).toMillis(); offset += 450_001) {
+                long millis = t.getInstant().toEpochMilli() + offset;
+                String formatted = EpochMillis.format(millis);
+                assertEquals(expected(millis), formatted, "format " + Instant.ofEpochMilli(millis));
+                // In an overlap both instants format alike, and java.time reads them back as the earlier one
+                assertEquals(LocalDateTime.parse(formatted).atZone(ZONE).toInstant().toEpochMilli(),
+                        EpochMillis.parse(formatted), "round trip " + formatted);
+            }
+        }
+    }
+
+    @Test
+    void roundTripsOrdinaryTimes() {
+        for (long millis = Instant.parse("1969-12-25T00:00:00Z").toEpochMilli();
+             millis < Instant.parse("2040-01-01T00:00:00Z").toEpochMilli(); millis += 3_600_000L * 24 * 7 + 1_234) {
+            String formatted = EpochMillis.format(millis);
+            assertEquals(expected(millis), formatted);
+            assertEquals(LocalDateTime.parse(formatted).atZone(ZONE).toInstant().toEpochMilli(), EpochMillis.parse(formatted));
+        }
+    }
+
+    @Test
+    void formatsTheEndsOfTheFourDigitYears() {
+        for (LocalDateTime local : List.of(LocalDateTime.of(0, 1, 1, 0, 0), LocalDateTime.of(0, 1, 2, 12, 30, 5),
+                LocalDateTime.of(9999, 12, 31, 23, 59, 59), LocalDateTime.of(9999, 12, 30, 0, 0))) {
+            long millis = local.atZone(ZONE).toInstant().toEpochMilli();
+            assertEquals(local.format(SECONDS), EpochMillis.format(millis));
+            assertEquals(millis, EpochMillis.parse(local.format(SECONDS)));
+        }
+    }
+
+    @Test
+    void decodesTheAcceptedShapes() {
+        long local = LocalDateTime.of(2025, 10, 24, 23, 13, 50).atZone(ZONE).toInstant().toEpochMilli();
+        assertEquals(local, EpochMillis.parse("2025-10-24T23:13:50"));
+        assertEquals(local, EpochMillis.parse("2025-10-24 23:13:50"));
+        assertEquals(local, EpochMillis.parse("  2025-10-24T23:13:50\n"));
+        assertEquals(local - 50_000, EpochMillis.parse("2025-10-24T23:13"));
+        assertEquals(local + 123, EpochMillis.parse("2025-10-24T23:13:50.123456789"));
+        assertEquals(local + 100, EpochMillis.parse("2025-10-24T23:13:50.1"));
+        assertEquals(LocalDate.of(2025, 10, 24).atStartOfDay(ZONE).toInstant().toEpochMilli(), EpochMillis.parse("2025-10-24"));
+
+        assertEquals(instant("2025-10-24T23:13:50Z"), EpochMillis.parse("2025-10-24T23:13:50Z"));
+        assertEquals(instant("2025-10-24T23:13:50.5+02:00"), EpochMillis.parse("2025-10-24T23:13:50.5+02:00"));
+        assertEquals(instant("2025-10-24T23:13:50-05:30"), EpochMillis.parse("2025-10-24T23:13:50-0530"));
+        assertEquals(instant("2025-10-24T23:13:00+05:00"), EpochMillis.parse("2025-10-24 23:13+05"));
+    }
+
+    @Test
+    void checksDaysOfMonthAndLeapYears() {
+        assertNotEquals(EpochMillis.INVALID, decode("2024-02-29T12:00:00"));
+        assertNotEquals(EpochMillis.INVALID, decode("2000-02-29"));
+        assertEquals(EpochMillis.INVALID, decode("2023-02-29"));
+        assertEquals(EpochMillis.INVALID, decode("2100-02-29"));
+        assertEquals(EpochMillis.INVALID, decode("2025-04-31"));
+        assertNotEquals(EpochMillis.INVALID, decode("2025-12-31"));
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        for (String text : List.of("2025-1-01", "2025-13-01", "2025-00-10", "2025-10-00", "2025/10/24", "abcd-ef-gh",
+                "2025-10-24X", "2025-10-24T", "2025-10-24T23", "2025-10-24T2:13:50", "2025-10-24T24:00",
+                "2025-10-24T23:60", "2025-10-24T23:59:60", "2025-10-24T23:1a", "2025-10-24T23:13:5",
+                "2025-10-24T23:13:50.", "2025-10-24T23:13:50.x", "2025-10-24T23:13:50+2", "2025-10-24T23:13:50+19:00",
+                "2025-10-24T23:13:50+02:60", "2025-10-24T23:13:50Zjunk", "2025-10-24T23:13:50 Z")) {
+            assertEquals(EpochMillis.INVALID, decode(text), text);
+            assertThrows(IllegalArgumentException.class, () -> EpochMillis.parse(text), text);
+        }
+        assertEquals(EpochMillis.INVALID, decode(""));
+        assertNull(EpochMillis.parse(null));
+        assertNull(EpochMillis.parse("   "));
+    }
+
+    @Test
+    void decodesWithinALargerSequence() {
+        String row = "id=7,at=2025-10-24T23:13:50Z;";
+        assertEquals(instant("2025-10-24T23:13:50Z"), EpochMillis.decode(row, 8, row.length() - 1));
+    }
+
+    private static String expected(long millis) {
+        LocalDateTime local = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+        String seconds = local.format(SECONDS);
+        int milli = local.getNano() / 1_000_000;
+        return milli == 0 ? seconds : seconds + "." + String.format("%03d", milli);
+    }
+
+    private static long decode(String text) {
+        return EpochMillis.decode(text, 0, text.length());
+    }
+
+    private static long instant(String text) {
+        return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+    }
+}
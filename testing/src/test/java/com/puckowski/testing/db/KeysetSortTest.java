@@ -0,0 +1,170 @@
+package com.puckowski.testing.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pages through a small in-memory table, at every page size, and checks that the pages add up to the plain
+ * {@code ORDER BY}. Sort keys repeat and include NULLs, so page boundaries fall inside runs of equal keys.
+ */
+class KeysetSortTest {
+
+    private static final String RANK = "CASE status WHEN 'c' THEN 0 WHEN 'a' THEN 1 ELSE 2 END";
+    private static final KeysetSort SORTS = KeysetSort.on("id", KeysetSort.ID)
+            .with("status", "status")
+            .with("rank", RANK);
+
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, status TEXT)");
+            st.execute("INSERT INTO item VALUES (1, 'b'), (2, 'a'), (3, NULL), (4, 'a'), (5, 'b'), (6, 'a'),"
+                    + " (7, NULL), (8, 'c'), (9, 'a')");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void pagesThroughDuplicateAndNullKeysAscending() throws SQLException {
+        assertEquals(List.of(3L, 7L, 2L, 4L, 6L, 9L, 1L, 5L, 8L), orderBy("status, id"));
+        for (int pageSize = 1; pageSize <= 10; pageSize++) {
+            assertEquals(orderBy("status, id"), pageThrough("status", pageSize), "page size " + pageSize);
+            assertEquals(orderBy(RANK + ", id"), pageThrough("rank", pageSize), "page size " + pageSize);
+            assertEquals(orderBy("id"), pageThrough(null, pageSize), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void pagesThroughDuplicateAndNullKeysDescending() throws SQLException {
+        assertEquals(List.of(8L, 5L, 1L, 9L, 6L, 4L, 2L, 7L, 3L), orderBy("status DESC, id DESC"));
+        for (int pageSize = 1; pageSize <= 10; pageSize++) {
+            assertEquals(orderBy("status DESC, id DESC"), pageThrough("-status", pageSize), "page size " + pageSize);
+            assertEquals(orderBy(RANK + " DESC, id DESC"), pageThrough("-rank", pageSize), "page size " + pageSize);
+            assertEquals(orderBy("id DESC"), pageThrough("-id", pageSize), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void breaksTiesOnIdAtAPageBoundary() throws SQLException {
+        // Ids 2, 4, 6 and 9 all have status 'a'; the first page ends inside that run
+        Page<Long> first = page("status", null, 3);
+        assertEquals(List.of(3L, 7L, 2L), first.items());
+        Page<Long> second = page(null, first.nextCursor(), 3);
+        assertEquals(List.of(4L, 6L, 9L), second.items());
+        PageCursor position = PageCursor.decode(second.nextCursor());
+        assertEquals(new PageCursor("status", false, "a", 9), position);
+    }
+
+    @Test
+    void lastPageHasNoCursor() throws SQLException {
+        assertNull(page(null, null, 9).nextCursor());
+        assertNotNull(page(null, null, 8).nextCursor());
+    }
+
+    @Test
+    void cursorCarriesItsSort() throws SQLException {
+        String cursor = page("-status", null, 2).nextCursor();
+        KeysetSort.Query next = SORTS.query(null, cursor, 2);
+        assertEquals("status", next.sort());
+        assertTrue(next.descending());
+        assertDoesNotThrow(() -> SORTS.query("-status", cursor, 2));
+        assertThrows(IllegalArgumentException.class, () -> SORTS.query("status", cursor, 2));
+        assertThrows(IllegalArgumentException.class, () -> SORTS.query("rank", cursor, 2));
+    }
+
+    @Test
+    void walksAnOrderInChunksOfItsOwn() throws SQLException {
+        // As the plan list does when scanning for tag-filtered plans: chunks of 2, continuing after the last row
+        for (String sort : List.of("status", "-status", "rank", "-id")) {
+            KeysetSort.Query page = SORTS.query(sort, null, 3);
+            List<Long> ids = new ArrayList<>();
+            KeysetSort.Query chunk = page.from(page.after(), 2);
+            for (int chunks = 0; ; chunks++) {
+                assertTrue(chunks < 10, "walk does not end");
+                String sql = "SELECT id" + chunk.selectKey() + " FROM item"
+                        + (chunk.condition().isEmpty() ? "" : " WHERE " + chunk.condition()) + chunk.orderBy();
+                Object lastKey = null;
+                long lastId = 0;
+                int rows = 0;
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setInt(chunk.bindCondition(ps, 1), chunk.fetchSize());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            ids.add(rs.getLong("id"));
+                            lastKey = rs.getObject("sort_key");
+                            lastId = rs.getLong("sort_id");
+                        }
+                    }
+                }
+                if (rows < chunk.fetchSize()) break;
+                chunk = page.from(new PageCursor(page.sort(), page.descending(), lastKey, lastId), 2);
+            }
+            assertEquals(pageThrough(sort, 9), ids, sort);
+        }
+    }
+
+    @Test
+    void rejectsUnknownSortsAndBadCursors() {
+        assertThrows(IllegalArgumentException.class, () -> SORTS.query("name", null, 2));
+        assertThrows(IllegalArgumentException.class, () -> SORTS.query("status; DROP TABLE item", null, 2));
+        // A well-formed cursor for a sort this list does not offer
+        String foreign = new PageCursor("priority", false, 1L, 5).encode();
+        assertThrows(IllegalArgumentException.class, () -> SORTS.query(null, foreign, 2));
+        assertThrows(IllegalArgumentException.class, () -> SORTS.query(null, "not a cursor", 2));
+    }
+
+    private List<Long> pageThrough(String sort, int pageSize) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        Page<Long> page = page(sort, null, pageSize);
+        ids.addAll(page.items());
+        for (int pages = 1; page.nextCursor() != null; pages++) {
+            assertTrue(pages <= 10, "paging does not end");
+            page = page(null, page.nextCursor(), pageSize);
+            ids.addAll(page.items());
+        }
+        return ids;
+    }
+
+    private Page<Long> page(String sort, String cursor, int pageSize) throws SQLException {
+        KeysetSort.Query query = SORTS.query(sort, cursor, pageSize);
+        String sql = "SELECT id" + query.selectKey() + " FROM item"
+                + (query.condition().isEmpty() ? "" : " WHERE " + query.condition()) + query.orderBy();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(query.bindCondition(ps, 1), query.fetchSize());
+            try (ResultSet rs = ps.executeQuery()) {
+                return query.read(rs, row -> row.getLong("id"));
+            }
+        }
+    }
+
+    private List<Long> orderBy(String order) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id FROM item ORDER BY " + order)) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,39 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SqlitePoolProperties;
+import com.puckowski.testing.config.SqliteWriterProperties;
+import com.puckowski.testing.db.migration.AddTestCaseDurationMigration;
+import com.puckowski.testing.db.migration.BackfillReportRollupsMigration;
+import com.puckowski.testing.db.migration.ExecutionTimesToEpochMillisMigration;
+import com.puckowski.testing.db.migration.MigrationRunner;
+import com.puckowski.testing.report.ExecutionRollups;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * A database file with every migration applied, and the pool, writer and rollups the application would run
+ * on it, for tests of the code that reads and writes the real schema.
+ */
+public record MigratedDatabase(SqliteConnectionPool pool, SqliteWriter writer, ExecutionRollups rollups)
+        implements AutoCloseable {
+
+    public static MigratedDatabase create(Path file) throws SQLException, IOException {
+        SqliteConnectionPool pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + file,
+                1, Duration.ofSeconds(5), false, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0));
+        SqliteWriter writer = new SqliteWriter(pool, new SqliteWriterProperties(100, 16, Duration.ofMillis(1), Duration.ofSeconds(5)));
+        ExecutionRollups rollups = new ExecutionRollups(pool, writer);
+        new MigrationRunner(pool, List.of(new AddTestCaseDurationMigration(),
+                new ExecutionTimesToEpochMillisMigration(rollups), new BackfillReportRollupsMigration(rollups))).migrate();
+        return new MigratedDatabase(pool, writer, rollups);
+    }
+
+    @Override
+    public void close() throws Exception {
+        writer.close();
+        pool.close();
+    }
+}
@@ -0,0 +1,67 @@
+package com.puckowski.testing.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripsEveryKeyType() {
+        for (PageCursor cursor : List.of(
+                new PageCursor("id", false, null, 42),
+                new PageCursor("priority", true, 3L, 7),
+                new PageCursor("duration", false, -1.5, 7),
+                new PageCursor("status", true, "", 1),
+                new PageCursor("name", false, "line\nbreak, + and - é", Long.MAX_VALUE))) {
+            assertEquals(cursor, PageCursor.decode(cursor.encode()));
+        }
+    }
+
+    @Test
+    void readsIntegerKeysBackAsLong() {
+        assertEquals(5L, PageCursor.decode(new PageCursor("priority", false, 5, 1).encode()).key());
+    }
+
+    @Test
+    void roundTripsBlobKeys() {
+        byte[] key = {0, -1, 10, 127};
+        Object decoded = PageCursor.decode(new PageCursor("hash", false, key, 3).encode()).key();
+        assertEquals(List.of((byte) 0, (byte) -1, (byte) 10, (byte) 127), bytes((byte[]) decoded));
+    }
+
+    @Test
+    void isUrlSafe() {
+        String token = new PageCursor("name", false, "??>>~~", 1).encode();
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void rejectsTamperedTokens() {
+        String token = new PageCursor("status", false, "a", 9).encode();
+        for (String bad : List.of("", "!!!", token + "!", token.substring(1),
+                raw("status\n+\n9"), raw("status\n*\n9\nsa"), raw("status\n+\nnine\nsa"), raw("status\n+\n9\nx1"),
+                raw("status\n+\n9\ni1.5"), raw("status\n+\n9\n"))) {
+            assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(bad), bad);
+        }
+    }
+
+    @Test
+    void rejectsUnsupportedKeyTypes() {
+        assertThrows(IllegalStateException.class, () -> new PageCursor("id", false, new Object(), 1).encode());
+    }
+
+    private static String raw(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Byte> bytes(byte[] array) {
+        Byte[] boxed = new Byte[array.length];
+        for (int i = 0; i < array.length; i++) boxed[i] = array[i];
+        return List.of(boxed);
+    }
+}
@@ -0,0 +1,194 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SlowQueryProperties;
+import com.puckowski.testing.config.SqlitePoolProperties;
+import com.puckowski.testing.dto.QueryPlanDTO;
+import com.puckowski.testing.dto.SlowQueryDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Probes are called directly with stand-in executions, except where the plans and bound values have to come
+ * from a real connection of a pool that reports to the log.
+ */
+class SlowQueryLogTest {
+
+    private static final long MS = 1_000_000;
+    private static final String SQL = "SELECT * FROM item WHERE name = ?";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsExecutionsFromTheThresholdOn() {
+        SlowQueryLog slowLog = log(false, 4);
+        QueryListener.Probe probe = slowLog.probe(SQL);
+        probe.executed(execution(), 10 * MS - 1, 3, null);
+        assertEquals(0, slowLog.snapshot().recorded());
+
+        probe.executed(execution(), 10 * MS, 3, null);
+        probe.executed(execution(), 25 * MS, 0, new SQLException("database is locked"));
+        List<SlowQueryDTO> entries = slowLog.snapshot().entries();
+        assertEquals(2, entries.size());
+        assertEquals(25.0, entries.getFirst().durationMs());
+        assertEquals("database is locked", entries.getFirst().error());
+        assertEquals(10.0, entries.getLast().durationMs());
+        assertEquals(3, entries.getLast().rows());
+        assertEquals(SQL, entries.getLast().sql());
+        assertEquals(10.0, slowLog.snapshot().thresholdMs());
+    }
+
+    @Test
+    void keepsTheNewestEntriesUpToTheCapacity() {
+        SlowQueryLog slowLog = log(false, 2);
+        QueryListener.Probe probe = slowLog.probe(SQL);
+        for (int ms = 11; ms <= 15; ms++) {
+            probe.executed(execution(), ms * MS, 0, null);
+        }
+        assertEquals(5, slowLog.snapshot().recorded());
+        assertEquals(List.of(15.0, 14.0), slowLog.snapshot().entries().stream().map(SlowQueryDTO::durationMs).toList());
+
+        slowLog.clear();
+        assertEquals(List.of(), slowLog.snapshot().entries());
+    }
+
+    @Test
+    void capturesParametersOnlyOnceAStatementHasBeenSlow() {
+        SlowQueryLog slowLog = log(false, 4);
+        QueryListener.Probe probe = slowLog.probe(SQL);
+        assertFalse(probe.capturesParameters());
+        probe.executed(execution(), MS, 0, null);
+        assertFalse(probe.capturesParameters());
+        probe.executed(execution(), 20 * MS, 0, null);
+        assertTrue(probe.capturesParameters());
+        assertSame(probe, slowLog.probe(SQL));
+        assertFalse(slowLog.probe("SELECT 2").capturesParameters());
+
+        probe.executed(execution("x".repeat(250), null, 42L, new byte[16], "it's"), 20 * MS, 0, null);
+        assertEquals(List.of("'" + "x".repeat(200) + "...'", "NULL", "42", "<16 bytes>", "'it's'"),
+                slowLog.snapshot().entries().getFirst().parameters());
+    }
+
+    @Test
+    void aDisabledLogRecordsNothing() {
+        SlowQueryLog slowLog = new SlowQueryLog(new SlowQueryProperties(false, Duration.ZERO, 4, true));
+        QueryListener.Probe probe = slowLog.probe(SQL);
+        probe.executed(execution(), 20 * MS, 0, null);
+        assertFalse(probe.capturesParameters());
+        assertEquals(0, slowLog.snapshot().recorded());
+        assertEquals(List.of(), slowLog.plans());
+    }
+
+    @Test
+    void findsTablesScannedWithoutAnIndex() {
+        assertEquals(List.of("item"), SlowQueryLog.fullScans(List.of("SCAN item")));
+        assertEquals(List.of(), SlowQueryLog.fullScans(List.of("SEARCH item USING INDEX idx_item_plan (plan=?)")));
+        assertEquals(List.of(), SlowQueryLog.fullScans(List.of("SEARCH item USING INTEGER PRIMARY KEY (rowid=?)")));
+        assertEquals(List.of(), SlowQueryLog.fullScans(List.of("SCAN item USING COVERING INDEX idx_item_plan")));
+        assertEquals(List.of(), SlowQueryLog.fullScans(List.of("SCAN json_each VIRTUAL TABLE INDEX 1:")));
+        assertEquals(List.of(), SlowQueryLog.fullScans(List.of("SCAN CONSTANT ROW")));
+        assertEquals(List.of(), SlowQueryLog.fullScans(List.of(
+                "SEARCH item USING INDEX idx_item_plan (plan=?)", "USE TEMP B-TREE FOR ORDER BY")));
+    }
+
+    @Test
+    void materialisedSubqueriesAreNotTables() {
+        assertEquals(List.of(), SlowQueryLog.fullScans(List.of(
+                "MATERIALIZE c", "  SCAN item USING COVERING INDEX idx_item_plan", "SCAN c")));
+        assertEquals(List.of("item"), SlowQueryLog.fullScans(List.of(
+                "CO-ROUTINE recent", "  SCAN item", "SCAN recent", "SEARCH tag USING INDEX idx_tag (id=?)")));
+        assertEquals(List.of("item", "tag"), SlowQueryLog.fullScans(List.of("SCAN item", "SCAN tag")));
+    }
+
+    @Test
+    void explainsEachStatementOnceOnTheConnectionItRanOn() throws SQLException {
+        SlowQueryLog slowLog = log(true, 8);
+        SqliteConnectionPool pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("slow.sqlite"),
+                1, Duration.ofSeconds(5), false, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0), slowLog);
+        try (pool) {
+            try (Connection conn = pool.getWriteConnection();
+                 Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, name TEXT, plan INTEGER)");
+                st.execute("CREATE INDEX idx_item_plan ON item (plan)");
+            }
+            try (Connection conn = pool.getConnection()) {
+                query(conn, SQL, "a");
+                query(conn, SQL, "b");
+                query(conn, "SELECT * FROM item WHERE plan = ?", 7);
+            }
+
+            List<QueryPlanDTO> plans = slowLog.plans().stream().filter(plan -> plan.sql().contains("FROM item")).toList();
+            assertEquals(2, plans.size(), plans.toString());
+            assertEquals(SQL, plans.getFirst().sql());
+            assertEquals(List.of("SCAN item"), plans.getFirst().plan());
+            assertEquals(List.of("item"), plans.getFirst().fullScans());
+            assertEquals(List.of(), plans.getLast().fullScans());
+            assertTrue(plans.getLast().plan().getFirst().startsWith("SEARCH item USING INDEX idx_item_plan"));
+        }
+    }
+
+    @Test
+    void bindsAreRecordedFromTheSecondSlowPrepare() throws SQLException {
+        SlowQueryLog slowLog = new SlowQueryLog(new SlowQueryProperties(true, Duration.ZERO, 8, false));
+        SqliteConnectionPool pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("binds.sqlite"),
+                1, Duration.ofSeconds(5), false, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0), slowLog);
+        try (pool; Connection conn = pool.getWriteConnection()) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, name TEXT, plan INTEGER)");
+            }
+            query(conn, SQL, "first");
+            query(conn, SQL, "second");
+        }
+        List<SlowQueryDTO> entries = slowLog.snapshot().entries().stream().filter(entry -> entry.sql().equals(SQL)).toList();
+        assertEquals(List.of(List.of("'second'"), List.of()), entries.stream().map(SlowQueryDTO::parameters).toList());
+    }
+
+    private static void query(Connection conn, String sql, Object value) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            if (value instanceof String text) ps.setString(1, text); else ps.setInt(1, (Integer) value);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rs.getString(2);
+                }
+            }
+        }
+    }
+
+    /**
+     * A log with a 10 ms threshold.
+     */
+    private static SlowQueryLog log(boolean explain, int capacity) {
+        return new SlowQueryLog(new SlowQueryProperties(true, Duration.ofMillis(10), capacity, explain));
+    }
+
+    /**
+     * An execution with the given bound values and no connection, for a log that does not explain.
+     */
+    private static QueryListener.Execution execution(Object... parameters) {
+        List<Object> values = new ArrayList<>(Arrays.asList(parameters));
+        return new QueryListener.Execution() {
+            @Override
+            public Connection connection() {
+                return null;
+            }
+
+            @Override
+            public List<Object> parameters() {
+                return values;
+            }
+        };
+    }
+}
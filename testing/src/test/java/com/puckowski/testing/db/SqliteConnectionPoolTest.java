@@ -0,0 +1,180 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SqlitePoolProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Borrowing and returning against a real database file, with one reader and a short wait so that contention is
+ * easy to set up.
+ */
+class SqliteConnectionPoolTest {
+
+    @TempDir
+    Path dir;
+
+    private SqliteConnectionPool pool;
+    private ExecutorService borrowers;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("pool.sqlite"),
+                1, Duration.ofMillis(200), true, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0));
+        try (Connection conn = pool.getWriteConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE item (name TEXT PRIMARY KEY)");
+        }
+        borrowers = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        borrowers.shutdownNow();
+        pool.close();
+    }
+
+    @Test
+    void readersAreReadOnlyAndTheWriterIsNot() throws SQLException {
+        try (Connection writer = pool.getWriteConnection();
+             Statement st = writer.createStatement()) {
+            st.executeUpdate("INSERT INTO item VALUES ('a')");
+        }
+        try (Connection reader = pool.getConnection();
+             Statement st = reader.createStatement()) {
+            assertEquals(1, count(reader));
+            assertThrows(SQLException.class, () -> st.executeUpdate("INSERT INTO item VALUES ('b')"));
+        }
+        assertEquals(0, pool.stats().waitTimeouts());
+    }
+
+    @Test
+    void borrowingTimesOutAfterMaxWait() throws SQLException {
+        Connection held = pool.getConnection();
+        long start = System.nanoTime();
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertEquals(1, pool.stats().waitTimeouts());
+        assertEquals(0, pool.stats().idleReadConnections());
+
+        held.close();
+        assertEquals(1, pool.stats().idleReadConnections());
+        try (Connection again = pool.getConnection()) {
+            assertEquals(0, count(again));
+        }
+
+        Connection writer = pool.getWriteConnection();
+        assertTrue(pool.stats().writerInUse());
+        assertThrows(SQLTransientConnectionException.class, () -> pool.getWriteConnection());
+        assertEquals(2, pool.stats().waitTimeouts());
+        writer.close();
+        assertFalse(pool.stats().writerInUse());
+    }
+
+    @Test
+    void theWriterIsHandedToTheNextWaiter() throws Exception {
+        pool.close();
+        pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("pool.sqlite"),
+                1, Duration.ofSeconds(5), true, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0));
+        Connection held = pool.getWriteConnection();
+        CountDownLatch waiting = new CountDownLatch(1);
+        Future<Integer> next = borrowers.submit(() -> {
+            waiting.countDown();
+            try (Connection conn = pool.getWriteConnection();
+                 Statement st = conn.createStatement()) {
+                return st.executeUpdate("INSERT INTO item VALUES ('next')");
+            }
+        });
+        assertTrue(waiting.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertFalse(next.isDone(), "the second writer waits for the first");
+
+        held.close();
+        assertEquals(1, next.get(5, TimeUnit.SECONDS));
+        assertEquals(0, pool.stats().waitTimeouts());
+    }
+
+    @Test
+    void anOpenTransactionIsRolledBackOnReturn() throws SQLException {
+        Connection writer = pool.getWriteConnection();
+        writer.setAutoCommit(false);
+        try (Statement st = writer.createStatement()) {
+            st.executeUpdate("INSERT INTO item VALUES ('uncommitted')");
+        }
+        writer.close();
+
+        try (Connection again = pool.getWriteConnection()) {
+            assertTrue(again.getAutoCommit());
+            assertEquals(0, count(again));
+        }
+    }
+
+    @Test
+    void aBrokenConnectionIsReplacedOnReturn() throws SQLException {
+        Connection reader = pool.getConnection();
+        Connection physical = ((ConnectionLease) reader).getDelegate();
+        physical.close();
+        reader.close();
+
+        try (Connection again = pool.getConnection()) {
+            assertNotSame(physical, ((ConnectionLease) again).getDelegate());
+            assertEquals(0, count(again));
+            // The replacement is still a reader
+            try (Statement st = again.createStatement()) {
+                assertThrows(SQLException.class, () -> st.executeUpdate("INSERT INTO item VALUES ('b')"));
+            }
+        }
+
+        Connection writer = pool.getWriteConnection();
+        Connection physicalWriter = ((ConnectionLease) writer).getDelegate();
+        physicalWriter.close();
+        writer.close();
+        try (Connection again = pool.getWriteConnection();
+             Statement st = again.createStatement()) {
+            assertNotSame(physicalWriter, ((ConnectionLease) again).getDelegate());
+            assertEquals(1, st.executeUpdate("INSERT INTO item VALUES ('c')"));
+        }
+    }
+
+    @Test
+    void connectionsBorrowedAtShutdownAreClosedWhenReturned() throws SQLException {
+        Connection writer = pool.getWriteConnection();
+        Connection reader = pool.getConnection();
+        Connection physicalWriter = ((ConnectionLease) writer).getDelegate();
+        Connection physicalReader = ((ConnectionLease) reader).getDelegate();
+        pool.close();
+        assertFalse(physicalWriter.isClosed());
+        assertFalse(physicalReader.isClosed());
+
+        writer.close();
+        reader.close();
+        assertTrue(physicalWriter.isClosed());
+        assertTrue(physicalReader.isClosed());
+        assertThrows(SQLException.class, () -> pool.getWriteConnection());
+        assertThrows(SQLException.class, () -> pool.getConnection());
+    }
+
+    private static int count(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT count(*) FROM item")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SnapshotProperties;
+import com.puckowski.testing.config.SqlitePoolProperties;
+import com.puckowski.testing.config.SqliteWriterProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Snapshots of a real database file. Most tests leave the snapshot disabled, which only stops the background
+ * refresh, and call {@link SqliteSnapshot#refresh()} themselves. The snapshot directory has a quote in its
+ * name, which the driver's {@code backup to} command could not copy into.
+ */
+class SqliteSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private Path snapshots;
+    private SqliteConnectionPool pool;
+    private SqliteWriter writer;
+    private SqlitePoolProperties poolProperties;
+    private SqliteSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() throws SQLException, IOException {
+        poolProperties = new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("live.sqlite"),
+                1, Duration.ofSeconds(5), false, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0);
+        pool = new SqliteConnectionPool(poolProperties);
+        try (Connection conn = pool.getWriteConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE item (name TEXT PRIMARY KEY)");
+        }
+        writer = new SqliteWriter(pool, new SqliteWriterProperties(100, 16, Duration.ofMillis(1), Duration.ofSeconds(5)));
+        snapshots = Files.createDirectory(dir.resolve("o'brien"));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (snapshot != null) snapshot.close();
+        writer.close();
+        pool.close();
+    }
+
+    private SqliteSnapshot snapshot(boolean enabled, Duration maxStaleness) {
+        snapshot = new SqliteSnapshot(pool, writer,
+                new SnapshotProperties(enabled, snapshots.resolve("snap").toString(), maxStaleness, 1),
+                poolProperties, null);
+        return snapshot;
+    }
+
+    @Test
+    void readsTheLiveDatabaseUntilTheFirstCopy() throws Exception {
+        SqliteSnapshot snapshot = snapshot(false, Duration.ofMinutes(1));
+        insert("a");
+        assertEquals(List.of("a"), names(snapshot));
+        assertEquals(0, snapshot.ageMillis());
+        assertEquals(List.of(), copies());
+    }
+
+    @Test
+    void refreshCopiesWhatWasCommittedAndNothingLater() throws Exception {
+        SqliteSnapshot snapshot = snapshot(false, Duration.ofMinutes(1));
+        insert("a");
+        snapshot.refresh();
+        insert("b");
+        assertEquals(List.of("a"), names(snapshot));
+
+        snapshot.refresh();
+        assertEquals(List.of("a", "b"), names(snapshot));
+        // The first copy was deleted once the second took over
+        assertEquals(1, copies().size(), copies().toString());
+    }
+
+    @Test
+    void refreshWithoutWritesKeepsTheCopyAndDoesNotNotify() throws Exception {
+        SqliteSnapshot snapshot = snapshot(false, Duration.ofMinutes(1));
+        AtomicInteger refreshed = new AtomicInteger();
+        snapshot.onRefresh(refreshed::incrementAndGet);
+
+        insert("a");
+        snapshot.refresh();
+        assertEquals(1, refreshed.get());
+        List<Path> copied = copies();
+
+        Thread.sleep(20);
+        assertTrue(snapshot.ageMillis() >= 20);
+        snapshot.refresh();
+        assertEquals(1, refreshed.get(), "nothing new, so caches can stay");
+        assertEquals(copied, copies());
+        assertTrue(snapshot.ageMillis() < 20, "marked fresh without copying");
+
+        insert("b");
+        snapshot.refresh();
+        assertEquals(2, refreshed.get());
+    }
+
+    @Test
+    void fallsBackToTheLiveDatabaseWhenTooStale() throws Exception {
+        SqliteSnapshot snapshot = snapshot(false, Duration.ofMillis(50));
+        insert("a");
+        snapshot.refresh();
+        insert("b");
+        assertEquals(List.of("a"), names(snapshot));
+
+        Thread.sleep(150);
+        // Older than twice the bound: the refresh is evidently failing, so reads go live
+        assertEquals(List.of("a", "b"), names(snapshot));
+    }
+
+    @Test
+    void closeDeletesTheCopies() throws Exception {
+        SqliteSnapshot snapshot = snapshot(false, Duration.ofMinutes(1));
+        insert("a");
+        snapshot.refresh();
+        assertFalse(copies().isEmpty());
+        snapshot.close();
+        assertEquals(List.of(), copies());
+    }
+
+    @Test
+    void startupDeletesOnlyCopiesOfEndedProcesses() throws Exception {
+        long self = ProcessHandle.current().pid();
+        // No pid is this large, and copies from before pids were part of the name have no owner
+        Path ended = Files.createFile(snapshots.resolve("snap-999999999-3.sqlite"));
+        Path endedWal = Files.createFile(snapshots.resolve("snap-999999999-3.sqlite-wal"));
+        Path unnamed = Files.createFile(snapshots.resolve("snap-7.sqlite"));
+        Path running = Files.createFile(snapshots.resolve("snap-" + self + "-999999.sqlite"));
+        Path otherPath = Files.createFile(snapshots.resolve("snap-reports-999999999-1.sqlite"));
+
+        snapshot(true, Duration.ofMinutes(1));
+        assertFalse(Files.exists(ended));
+        assertFalse(Files.exists(endedWal));
+        assertFalse(Files.exists(unnamed));
+        assertTrue(Files.exists(running));
+        assertTrue(Files.exists(otherPath));
+    }
+
+    private void insert(String name) throws SQLException {
+        writer.execute(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO item (name) VALUES (?)")) {
+                ps.setString(1, name);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    private static List<String> names(SqliteSnapshot snapshot) throws SQLException {
+        try (Connection conn = snapshot.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM item ORDER BY name")) {
+            List<String> names = new ArrayList<>();
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+            return names;
+        }
+    }
+
+    private List<Path> copies() throws IOException {
+        try (Stream<Path> files = Files.list(snapshots)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".sqlite")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SqlitePoolProperties;
+import com.puckowski.testing.config.SqliteWriterProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Group commit against a real database file. Batches hold three commands and the window is long, so three
+ * concurrent submissions always land in one transaction.
+ */
+class SqliteWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private SqliteConnectionPool pool;
+    private SqliteWriter writer;
+    private ExecutorService submitters;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("writer.sqlite"),
+                1, Duration.ofSeconds(5), false, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0));
+        try (Connection conn = pool.getWriteConnection();
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE item (name TEXT PRIMARY KEY)");
+            // Checked at COMMIT rather than per statement, which gives a way to make a commit fail
+            st.execute("CREATE TABLE child (parent TEXT REFERENCES item(name) DEFERRABLE INITIALLY DEFERRED)");
+            st.execute("PRAGMA foreign_keys = ON");
+        }
+        writer = new SqliteWriter(pool, new SqliteWriterProperties(100, 3, Duration.ofSeconds(10), Duration.ofSeconds(5)));
+        submitters = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        submitters.shutdownNow();
+        writer.close();
+        pool.close();
+    }
+
+    @Test
+    void failingCommandRollsBackOnlyItsOwnWrites() throws Exception {
+        Future<String> a = submit(conn -> insert(conn, "a"));
+        Future<String> failing = submit(conn -> {
+            insert(conn, "b");
+            throw new NoSuchElementException("rejected");
+        });
+        Future<String> c = submit(conn -> insert(conn, "c"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertEquals(NoSuchElementException.class, ex.getCause().getClass());
+        assertEquals("rejected", ex.getCause().getMessage());
+        a.get(10, TimeUnit.SECONDS);
+        c.get(10, TimeUnit.SECONDS);
+        assertFalse(names().contains("b"));
+        assertEquals(1, writer.stats().batches());
+        assertEquals(1, writer.stats().failedCommands());
+    }
+
+    @Test
+    void otherCommandsInTheBatchStillCommit() throws Exception {
+        Future<String> a = submit(conn -> insert(conn, "a"));
+        Future<String> failing = submit(conn -> {
+            throw new SQLException("rejected");
+        });
+        Future<String> c = submit(conn -> insert(conn, "c"));
+
+        assertEquals("a", a.get(10, TimeUnit.SECONDS));
+        assertEquals("c", c.get(10, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> failing.get(10, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "c"), names());
+        assertEquals(1, writer.stats().batches());
+        assertEquals(3, writer.stats().commands());
+    }
+
+    @Test
+    void failedCommitFailsEveryCommandInTheBatch() throws Exception {
+        Future<String> a = submit(conn -> insert(conn, "a"));
+        Future<String> orphan = submit(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO child (parent) VALUES ('missing')")) {
+                ps.executeUpdate();
+            }
+            return "orphan";
+        });
+        Future<String> c = submit(conn -> insert(conn, "c"));
+
+        for (Future<String> future : List.of(a, orphan, c)) {
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof SQLException, "expected an SQLException, got " + ex.getCause());
+        }
+        assertEquals(List.of(), names());
+        assertEquals(3, writer.stats().failedCommands());
+
+        // The connection comes back usable for the next batch
+        assertEquals("d", writer.execute(conn -> insert(conn, "d")));
+        assertEquals(List.of("d"), names());
+    }
+
+    private Future<String> submit(WriteCommand<String> command) {
+        return submitters.submit(() -> writer.execute(command));
+    }
+
+    private static String insert(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO item (name) VALUES (?)")) {
+            ps.setString(1, name);
+            ps.executeUpdate();
+        }
+        return name;
+    }
+
+    private List<String> names() throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT name FROM item ORDER BY name")) {
+            while (rs.next()) {
+                names.add(rs.getString(1));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,152 @@
+package com.puckowski.testing.db;
+
+import com.puckowski.testing.config.SqlitePoolProperties;
+import com.puckowski.testing.dto.StatementCacheStatsDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The statement cache of a pool's single read connection, holding two statements. The driver's statements
+ * behind the handed-out wrappers show which ones were reused and which were closed.
+ */
+class StatementCacheTest {
+
+    private static final String A = "SELECT 1";
+    private static final String B = "SELECT 2";
+    private static final String C = "SELECT 3";
+
+    @TempDir
+    Path dir;
+
+    private SqliteConnectionPool pool;
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("statements.sqlite"),
+                1, Duration.ofSeconds(5), false, "NORMAL", 0, -2000, Duration.ofSeconds(5), 2));
+        conn = pool.getConnection();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+        pool.close();
+    }
+
+    @Test
+    void closingAStatementReturnsItToTheCache() throws SQLException {
+        PreparedStatement first = conn.prepareStatement(A);
+        PreparedStatement driver = driver(first);
+        assertEquals(1, query(first));
+        first.close();
+        assertTrue(first.isClosed());
+        assertFalse(driver.isClosed());
+
+        PreparedStatement second = conn.prepareStatement(A);
+        assertSame(driver, driver(second));
+        assertEquals(1, query(second));
+        second.close();
+        assertEquals(new StatementCacheStatsDTO(2, 1, 1, 1, 0.5, 0), stats());
+    }
+
+    @Test
+    void aReturnedStatementIsResetAndItsParametersCleared() throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT ? UNION ALL SELECT 2")) {
+            ps.setInt(1, 7);
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            assertEquals(7, rs.getInt(1));
+            // Returned with the result set still open
+        }
+        try (PreparedStatement ps = conn.prepareStatement("SELECT ? UNION ALL SELECT 2");
+             ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            assertNull(rs.getObject(1));
+        }
+        assertEquals(1, stats().hits());
+    }
+
+    @Test
+    void aStatementInUseIsPreparedAfreshAndNotCached() throws SQLException {
+        PreparedStatement cached = conn.prepareStatement(A);
+        PreparedStatement extra = conn.prepareStatement(A);
+        PreparedStatement extraDriver = driver(extra);
+        assertNotSame(driver(cached), extraDriver);
+        assertEquals(1, query(extra));
+        extra.close();
+        assertTrue(extraDriver.isClosed());
+
+        cached.close();
+        assertFalse(driver(cached).isClosed());
+        assertEquals(new StatementCacheStatsDTO(2, 1, 0, 2, 0.0, 0), stats());
+    }
+
+    @Test
+    void evictsAndClosesTheLeastRecentlyUsed() throws SQLException {
+        PreparedStatement a = driver(prepareAndClose(A));
+        PreparedStatement b = driver(prepareAndClose(B));
+        prepareAndClose(A);
+        PreparedStatement c = driver(prepareAndClose(C));
+
+        assertTrue(b.isClosed());
+        assertFalse(a.isClosed());
+        assertFalse(c.isClosed());
+        assertEquals(new StatementCacheStatsDTO(2, 2, 1, 3, 0.25, 1), stats());
+
+        // B is prepared anew, pushing out A, which is now the least recently used
+        assertNotSame(b, driver(prepareAndClose(B)));
+        assertTrue(a.isClosed());
+        assertSame(c, driver(prepareAndClose(C)));
+        assertEquals(2, stats().evictions());
+    }
+
+    @Test
+    void aStatementEvictedInUseIsClosedWhenReturned() throws SQLException {
+        PreparedStatement a = conn.prepareStatement(A);
+        prepareAndClose(B);
+        prepareAndClose(C);
+        assertEquals(1, stats().evictions());
+
+        // Still usable by its holder until it is returned
+        assertFalse(driver(a).isClosed());
+        assertEquals(1, query(a));
+        a.close();
+        assertTrue(driver(a).isClosed());
+        assertEquals(2, stats().cached());
+
+        assertNotSame(driver(a), driver(prepareAndClose(A)));
+    }
+
+    private PreparedStatement prepareAndClose(String sql) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        ps.close();
+        return ps;
+    }
+
+    private static PreparedStatement driver(PreparedStatement ps) {
+        return ps instanceof DelegatingPreparedStatement wrapper ? wrapper.getDelegate() : ps;
+    }
+
+    private static int query(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    private StatementCacheStatsDTO stats() {
+        return pool.stats().statementCache();
+    }
+}
@@ -0,0 +1,81 @@
+package com.puckowski.testing.db.migration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlScriptTest {
+
+    @Test
+    void keepsTriggerBodiesTogether() {
+        String trigger = """
+                CREATE TRIGGER IF NOT EXISTS t_log AFTER INSERT ON t BEGIN
+                    INSERT INTO log (a) VALUES (new.a);
+                    UPDATE t SET a = CASE WHEN new.a > 0 THEN new.a ELSE 0 END WHERE rowid = new.rowid;
+                END""";
+        List<String> statements = SqlScript.split("CREATE TABLE t (a INTEGER);\n" + trigger + ";\nINSERT INTO t VALUES (1);");
+        assertEquals(List.of("CREATE TABLE t (a INTEGER)", trigger, "INSERT INTO t VALUES (1)"), statements);
+    }
+
+    @Test
+    void keepsConsecutiveTriggersApart() {
+        List<String> statements = SqlScript.split("""
+                create trigger a after delete on t begin delete from x; end;
+                CREATE TRIGGER b AFTER DELETE ON t BEGIN DELETE FROM y; DELETE FROM z; END;
+                """);
+        assertEquals(List.of("create trigger a after delete on t begin delete from x; end",
+                "CREATE TRIGGER b AFTER DELETE ON t BEGIN DELETE FROM y; DELETE FROM z; END"), statements);
+    }
+
+    @Test
+    void beginOutsideATriggerIsAStatementOfItsOwn() {
+        assertEquals(List.of("BEGIN", "SELECT 1", "END"), SqlScript.split("BEGIN; SELECT 1; END;"));
+    }
+
+    @Test
+    void ignoresSemicolonsInQuotedText() {
+        String insert = "INSERT INTO t VALUES ('a;b', 'it''s; fine', 'end;')";
+        String select = "SELECT \"odd;name\", [x;y], `q;z` FROM t";
+        assertEquals(List.of(insert, select), SqlScript.split(insert + ";\n" + select + ";"));
+    }
+
+    @Test
+    void quotedKeywordsDoNotOpenOrCloseBlocks() {
+        String trigger = "CREATE TRIGGER t_note AFTER INSERT ON t BEGIN INSERT INTO log VALUES ('end;'); END";
+        assertEquals(List.of(trigger, "SELECT 2"), SqlScript.split(trigger + "; SELECT 2;"));
+    }
+
+    @Test
+    void dropsComments() {
+        List<String> statements = SqlScript.split("""
+                -- Leading comment; with a semicolon
+                SELECT 1; /* block; comment */ SELECT 2 -- trailing; comment
+                ;
+                SELECT 3 -- inside; the statement
+                    + 4;
+                /* unterminated; comment""");
+        assertEquals(List.of("SELECT 1", "SELECT 2", "SELECT 3 \n    + 4"), statements);
+    }
+
+    @Test
+    void commentsInsideTriggerBodies() {
+        String body = """
+                CREATE TRIGGER t_c AFTER INSERT ON t BEGIN
+                    -- no END; here
+                    DELETE FROM x; /* nor END; here */
+                END;""";
+        List<String> statements = SqlScript.split(body);
+        assertEquals(1, statements.size());
+        assertTrue(statements.get(0).endsWith("DELETE FROM x;  \nEND"), statements.get(0));
+        assertFalse(statements.get(0).contains("here"));
+    }
+
+    @Test
+    void skipsEmptyStatementsAndNeedsNoFinalSemicolon() {
+        assertEquals(List.of("SELECT 1", "SELECT 2"), SqlScript.split(" ;;\n SELECT 1;; ;SELECT 2 "));
+        assertEquals(List.of(), SqlScript.split("-- only a comment\n"));
+        assertEquals(List.of(), SqlScript.split(""));
+    }
+}
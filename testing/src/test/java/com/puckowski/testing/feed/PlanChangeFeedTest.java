@@ -0,0 +1,284 @@
+package com.puckowski.testing.feed;
+
+import com.puckowski.testing.config.ChangeFeedProperties;
+import com.puckowski.testing.dto.PlanChangeDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Subscriptions on emitters that record what is sent to them instead of writing to a response, and that can
+ * be made to block, like a client that stopped reading, or to fail, like one that went away.
+ */
+class PlanChangeFeedTest {
+
+    private PlanChangeFeed feed;
+
+    @AfterEach
+    void tearDown() {
+        if (feed != null) feed.close();
+    }
+
+    private PlanChangeFeed feed(Duration coalesceWindow, int maxPendingPlans, Duration heartbeat) {
+        feed = new PlanChangeFeed(new ChangeFeedProperties(coalesceWindow, maxPendingPlans, heartbeat, Duration.ofMinutes(1)));
+        return feed;
+    }
+
+    @Test
+    void changesWithinTheWindowGoOutAsOneEvent() throws Exception {
+        PlanChangeFeed feed = feed(Duration.ofMillis(100), 100, Duration.ofMinutes(1));
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, List.of());
+        assertEquals(List.of(":subscribed\n\n"), emitter.texts());
+
+        feed.publish(1, PlanChange.RESULTS);
+        feed.publish(2, PlanChange.RESULTS);
+        feed.publish(1, PlanChange.TEST_CASES);
+        feed.publish(List.of(2L, 1L), PlanChange.RESULTS);
+        await(() -> emitter.events().size() == 2);
+        Thread.sleep(200);
+
+        assertEquals(2, emitter.events().size());
+        assertEquals("event:changes\ndata:\n\n", emitter.events().get(1).text());
+        assertEquals(List.of(new PlanChangeDTO(1, List.of("TEST_CASES", "RESULTS")), new PlanChangeDTO(2, List.of("RESULTS"))),
+                emitter.events().get(1).data());
+    }
+
+    @Test
+    void aSubscriberHearsOnlyOfItsPlans() throws Exception {
+        PlanChangeFeed feed = feed(Duration.ofMillis(10), 100, Duration.ofMinutes(1));
+        RecordingEmitter some = new RecordingEmitter();
+        RecordingEmitter all = new RecordingEmitter();
+        feed.subscribe(some, List.of(2L, 3L));
+        feed.subscribe(all, List.of());
+
+        feed.publish(1, PlanChange.UPDATED);
+        await(() -> all.events().size() == 2);
+        feed.publish(3, PlanChange.DELETED);
+        await(() -> some.events().size() == 2 && all.events().size() == 3);
+
+        assertEquals(List.of(new PlanChangeDTO(3, List.of("DELETED"))), some.events().get(1).data());
+        assertEquals(List.of(new PlanChangeDTO(1, List.of("UPDATED"))), all.events().get(1).data());
+    }
+
+    @Test
+    void tooManyPendingPlansBecomeOneResync() throws Exception {
+        PlanChangeFeed feed = feed(Duration.ofMillis(100), 2, Duration.ofMinutes(1));
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, List.of());
+        feed.publish(List.of(1L, 2L, 3L, 4L), PlanChange.CREATED);
+        await(() -> emitter.events().size() == 2);
+        Thread.sleep(200);
+
+        assertEquals(2, emitter.events().size());
+        assertEquals("event:resync\ndata:\n\n", emitter.events().get(1).text());
+    }
+
+    @Test
+    void changesDuringASlowSendFollowItTogether() throws Exception {
+        PlanChangeFeed feed = feed(Duration.ofMillis(10), 100, Duration.ofMinutes(1));
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, List.of());
+        CountDownLatch release = emitter.block();
+
+        feed.publish(1, PlanChange.RESULTS);
+        await(() -> emitter.started.get() == 2);
+        feed.publish(2, PlanChange.RESULTS);
+        feed.publish(3, PlanChange.RESULTS);
+        Thread.sleep(100);
+        assertEquals(2, emitter.started.get(), "one send at a time");
+
+        release.countDown();
+        await(() -> emitter.events().size() == 3);
+        assertEquals(List.of(new PlanChangeDTO(2, List.of("RESULTS")), new PlanChangeDTO(3, List.of("RESULTS"))),
+                emitter.events().get(2).data());
+    }
+
+    @Test
+    void noHeartbeatIsSentWhileASendIsBlocked() throws Exception {
+        PlanChangeFeed feed = feed(Duration.ofMillis(10), 100, Duration.ofMillis(20));
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, List.of());
+        CountDownLatch release = emitter.block();
+
+        await(() -> emitter.started.get() == 2);
+        feed.publish(1, PlanChange.EXECUTIONS);
+        Thread.sleep(200);
+        // Ten heartbeat intervals passed, and no further send was started behind the blocked one
+        assertEquals(2, emitter.started.get());
+
+        release.countDown();
+        await(() -> emitter.events().stream().anyMatch(event -> event.text().startsWith("event:changes")));
+        assertEquals(List.of(new PlanChangeDTO(1, List.of("EXECUTIONS"))),
+                emitter.events().stream().filter(event -> event.data() != null).findFirst().orElseThrow().data());
+        assertEquals(":heartbeat\n\n", emitter.events().get(1).text());
+        await(() -> emitter.events().stream().filter(event -> event.text().equals(":heartbeat\n\n")).count() >= 3);
+    }
+
+    @Test
+    void aFailedSendEndsTheSubscription() throws Exception {
+        PlanChangeFeed feed = feed(Duration.ofMillis(10), 100, Duration.ofMinutes(1));
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(emitter, List.of(1L, 2L));
+        emitter.fail = true;
+
+        feed.publish(1, PlanChange.UPDATED);
+        await(() -> emitter.error != null);
+        assertEquals(0, feed.subscribers());
+
+        feed.publish(2, PlanChange.UPDATED);
+        Thread.sleep(50);
+        assertEquals(2, emitter.started.get());
+    }
+
+    @Test
+    void aSubscriberThatCannotBeGreetedIsNotKept() {
+        PlanChangeFeed feed = feed(Duration.ofMillis(10), 100, Duration.ofMinutes(1));
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.fail = true;
+        feed.subscribe(emitter, List.of(1L));
+        assertEquals(0, feed.subscribers());
+    }
+
+    @Test
+    void completionTimeoutAndErrorUnsubscribe() {
+        PlanChangeFeed feed = feed(Duration.ofMillis(10), 100, Duration.ofMinutes(1));
+        RecordingEmitter completed = new RecordingEmitter();
+        RecordingEmitter timedOut = new RecordingEmitter();
+        RecordingEmitter failed = new RecordingEmitter();
+        feed.subscribe(completed, List.of());
+        feed.subscribe(timedOut, List.of(1L, 2L));
+        feed.subscribe(failed, List.of(2L));
+        assertEquals(3, feed.subscribers());
+
+        completed.onCompletion.run();
+        assertEquals(2, feed.subscribers());
+        timedOut.onTimeout.run();
+        assertEquals(1, feed.subscribers());
+        failed.onError.accept(new IOException("Broken pipe"));
+        assertEquals(0, feed.subscribers());
+    }
+
+    @Test
+    void closeCompletesEveryStream() {
+        PlanChangeFeed feed = feed(Duration.ofMillis(10), 100, Duration.ofMinutes(1));
+        RecordingEmitter all = new RecordingEmitter();
+        RecordingEmitter one = new RecordingEmitter();
+        feed.subscribe(all, List.of());
+        feed.subscribe(one, List.of(5L));
+        feed.close();
+        assertTrue(all.completed);
+        assertTrue(one.completed);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * One sent event: its text parts joined, and the object it carried as data, if any.
+     */
+    private record Event(String text, Object data) {
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<Event> events = new ArrayList<>();
+        final AtomicInteger started = new AtomicInteger();
+        volatile CountDownLatch gate;
+        volatile boolean fail;
+        volatile Throwable error;
+        volatile boolean completed;
+        Runnable onCompletion;
+        Runnable onTimeout;
+        Consumer<Throwable> onError;
+
+        /**
+         * Makes sends wait until the returned latch is released.
+         */
+        CountDownLatch block() {
+            gate = new CountDownLatch(1);
+            return gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            started.incrementAndGet();
+            if (fail) throw new IOException("Broken pipe");
+            CountDownLatch g = gate;
+            if (g != null) {
+                try {
+                    g.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(ex);
+                }
+            }
+            Set<ResponseBodyEmitter.DataWithMediaType> parts = builder.build();
+            StringBuilder text = new StringBuilder();
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : parts) {
+                // Text of the event itself goes as plain text, data objects as JSON
+                if (MediaType.APPLICATION_JSON.equals(part.getMediaType())) data = part.getData();
+                else text.append(part.getData());
+            }
+            synchronized (events) {
+                events.add(new Event(text.toString(), data));
+            }
+        }
+
+        List<Event> events() {
+            synchronized (events) {
+                return List.copyOf(events);
+            }
+        }
+
+        List<String> texts() {
+            return events().stream().map(Event::text).toList();
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            error = ex;
+        }
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            onCompletion = callback;
+        }
+
+        @Override
+        public void onTimeout(Runnable callback) {
+            onTimeout = callback;
+        }
+
+        @Override
+        public void onError(Consumer<Throwable> callback) {
+            onError = callback;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.puckowski.testing.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the bin layout against its definition (exact below 16, then eight bins per power of two) and the
+ * estimates against exact percentiles of the same values.
+ */
+class DurationHistogramTest {
+
+    @Test
+    void valuesBelowSixteenHaveABinEach() {
+        for (int value = 0; value < 16; value++) {
+            assertEquals(value, DurationHistogram.bin(value));
+            assertEquals(value, DurationHistogram.lowerBound(value));
+        }
+    }
+
+    @Test
+    void binsSplitEachPowerOfTwoInEight() {
+        assertEquals(16, DurationHistogram.bin(16));
+        assertEquals(16, DurationHistogram.bin(17));
+        assertEquals(17, DurationHistogram.bin(18));
+        assertEquals(23, DurationHistogram.bin(31));
+        assertEquals(24, DurationHistogram.bin(32));
+        assertEquals(24, DurationHistogram.bin(35));
+        assertEquals(25, DurationHistogram.bin(36));
+        assertEquals(31, DurationHistogram.bin(63));
+        assertEquals(32, DurationHistogram.bin(64));
+        assertEquals(16 + 58 * 8 + 7, DurationHistogram.bin(Long.MAX_VALUE));
+
+        // Every bin starts right after the previous one ends, up to the largest value
+        for (int bin = 16; bin <= DurationHistogram.bin(Long.MAX_VALUE); bin++) {
+            long lower = DurationHistogram.lowerBound(bin);
+            assertEquals(bin, DurationHistogram.bin(lower), "first value of bin " + bin);
+            assertEquals(bin - 1, DurationHistogram.bin(lower - 1), "last value of bin " + (bin - 1));
+            assertTrue(lower > DurationHistogram.lowerBound(bin - 1));
+        }
+    }
+
+    @Test
+    void estimatesPercentilesWithinTheBinWidth() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            DurationHistogram histogram = new DurationHistogram();
+            long[] values = new long[1 + random.nextInt(2000)];
+            for (int i = 0; i < values.length; i++) {
+                // Spread over several orders of magnitude, as execution durations are
+                values[i] = (long) Math.pow(10, random.nextDouble() * 6);
+                histogram.add(values[i]);
+            }
+            Arrays.sort(values);
+            assertEquals(values.length, histogram.total());
+            for (double quantile : new double[]{0, 0.01, 0.25, 0.5, 0.9, 0.95, 0.99, 1}) {
+                long exact = values[(int) Math.max(0, Math.ceil(quantile * values.length) - 1)];
+                long estimate = histogram.percentile(quantile);
+                assertEquals(DurationHistogram.bin(exact), DurationHistogram.bin(estimate), "p" + quantile + " of " + exact);
+                assertTrue(Math.abs(estimate - exact) <= exact / 16.0 + 1, "p" + quantile + ": " + estimate + " for " + exact);
+            }
+        }
+    }
+
+    @Test
+    void exactValuesAreReportedExactly() {
+        DurationHistogram histogram = histogram(3, 3, 7, 0);
+        assertEquals(0L, histogram.percentile(0));
+        assertEquals(0L, histogram.percentile(0.25));
+        assertEquals(3L, histogram.percentile(0.5));
+        assertEquals(3L, histogram.percentile(0.75));
+        assertEquals(7L, histogram.percentile(1));
+    }
+
+    @Test
+    void negativeValuesCountAsZero() {
+        DurationHistogram histogram = histogram(-5, -1);
+        assertEquals(2, histogram.total());
+        assertEquals(0L, histogram.percentile(1));
+    }
+
+    @Test
+    void emptyHistogram() {
+        DurationHistogram empty = new DurationHistogram();
+        assertEquals(0, empty.total());
+        assertNull(empty.percentile(0.5));
+        assertEquals(0, empty.toBytes().length);
+        assertEquals(0, DurationHistogram.fromBytes(new byte[0]).total());
+        assertEquals(0, DurationHistogram.fromBytes(null).total());
+
+        DurationHistogram histogram = histogram(5, 500);
+        histogram.merge(empty);
+        assertArrayEquals(histogram(5, 500).toBytes(), histogram.toBytes());
+        empty.merge(histogram);
+        assertArrayEquals(histogram.toBytes(), empty.toBytes());
+    }
+
+    @Test
+    void encodesBinGapsAndCountsAsVarints() {
+        // Bin 3 is a gap of 4 from the start; a count of 300 takes two bytes
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 0; i < 300; i++) histogram.add(3);
+        assertArrayEquals(new byte[]{4, (byte) 0xAC, 0x02}, histogram.toBytes());
+
+        // A gap of more than 127 bins takes two bytes too
+        histogram.add(Long.MAX_VALUE);
+        byte[] bytes = histogram.toBytes();
+        assertArrayEquals(new byte[]{4, (byte) 0xAC, 0x02, (byte) (484 & 0x7F | 0x80), (byte) (484 >>> 7), 1}, bytes);
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            DurationHistogram histogram = new DurationHistogram();
+            int values = random.nextInt(5000);
+            for (int i = 0; i < values; i++) {
+                histogram.add(random.nextInt(10) == 0 ? random.nextLong() >>> 1 : random.nextInt(100_000));
+            }
+            byte[] bytes = histogram.toBytes();
+            DurationHistogram read = DurationHistogram.fromBytes(bytes);
+            assertEquals(histogram.total(), read.total());
+            assertArrayEquals(bytes, read.toBytes());
+            for (double quantile : new double[]{0.1, 0.5, 0.99}) {
+                assertEquals(histogram.percentile(quantile), read.percentile(quantile));
+            }
+        }
+    }
+
+    @Test
+    void mergingEqualsAddingEveryValue() {
+        List<Long> first = List.of(1L, 16L, 17L, 250L, 9_000L);
+        List<Long> second = List.of(0L, 17L, 1_000_000L, 1_000_000L);
+        DurationHistogram merged = histogram(first);
+        merged.merge(histogram(second));
+
+        DurationHistogram all = histogram(first);
+        second.forEach(all::add);
+        assertEquals(9, merged.total());
+        assertArrayEquals(all.toBytes(), merged.toBytes());
+
+        // A histogram with only small bins grows to take larger ones
+        DurationHistogram small = histogram(1L);
+        small.merge(histogram(second));
+        assertEquals(5, small.total());
+        assertEquals(all.percentile(1), small.percentile(1));
+    }
+
+    private static DurationHistogram histogram(long... values) {
+        DurationHistogram histogram = new DurationHistogram();
+        for (long value : values) histogram.add(value);
+        return histogram;
+    }
+
+    private static DurationHistogram histogram(List<Long> values) {
+        DurationHistogram histogram = new DurationHistogram();
+        values.forEach(histogram::add);
+        return histogram;
+    }
+}
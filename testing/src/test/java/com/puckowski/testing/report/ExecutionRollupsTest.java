@@ -0,0 +1,159 @@
+package com.puckowski.testing.report;
+
+import com.puckowski.testing.config.SqlitePoolProperties;
+import com.puckowski.testing.config.SqliteWriterProperties;
+import com.puckowski.testing.db.SqliteConnectionPool;
+import com.puckowski.testing.db.SqliteWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * How {@link ExecutionRollups#totalsByPlan} splits a window between the daily and hourly rollups. Each row
+ * holds a distinct power of two of executions, so a total shows exactly which rows were read. Days and hours
+ * are taken in the JVM's default zone, like the rollups themselves, in June, clear of any DST change.
+ */
+class ExecutionRollupsTest {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final LocalDate DAY_0 = LocalDate.of(2025, 6, 10);
+    private static final LocalDate DAY_1 = DAY_0.plusDays(1);
+    private static final LocalDate DAY_2 = DAY_0.plusDays(2);
+
+    @TempDir
+    Path dir;
+
+    private SqliteConnectionPool pool;
+    private SqliteWriter writer;
+    private ExecutionRollups rollups;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        pool = new SqliteConnectionPool(new SqlitePoolProperties("jdbc:sqlite:" + dir.resolve("rollups.sqlite"),
+                1, Duration.ofSeconds(5), false, "NORMAL", 0, -2000, Duration.ofSeconds(5), 0));
+        writer = new SqliteWriter(pool, new SqliteWriterProperties(100, 16, Duration.ofMillis(1), Duration.ofSeconds(5)));
+        rollups = new ExecutionRollups(pool, writer);
+        try (Connection conn = pool.getWriteConnection();
+             Statement st = conn.createStatement()) {
+            for (String table : List.of("plan_rollup_hour", "plan_rollup_day")) {
+                st.execute("CREATE TABLE " + table + " (plan_id INTEGER NOT NULL, bucket_start INTEGER NOT NULL, "
+                        + "executions INTEGER NOT NULL, results INTEGER NOT NULL, pending INTEGER NOT NULL, "
+                        + "passed INTEGER NOT NULL, failed INTEGER NOT NULL, blocked INTEGER NOT NULL, "
+                        + "total_duration INTEGER NOT NULL, max_duration INTEGER NOT NULL, "
+                        + "duration_histogram BLOB NOT NULL, refreshed_at INTEGER NOT NULL, "
+                        + "PRIMARY KEY (plan_id, bucket_start)) WITHOUT ROWID");
+            }
+            hour(conn, 1, DAY_0, 21, 1);
+            hour(conn, 1, DAY_0, 22, 2);
+            hour(conn, 1, DAY_0, 23, 4);
+            day(conn, 1, DAY_0, 1 << 10);
+            hour(conn, 1, DAY_1, 5, 1 << 11);
+            day(conn, 1, DAY_1, 8);
+            hour(conn, 1, DAY_2, 0, 16);
+            hour(conn, 1, DAY_2, 2, 32);
+            hour(conn, 1, DAY_2, 3, 64);
+            day(conn, 1, DAY_2, 1 << 12);
+            hour(conn, 2, DAY_0, 22, 128);
+            day(conn, 2, DAY_1, 256);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.close();
+        pool.close();
+    }
+
+    @Test
+    void readsWholeDaysFromTheDailyRollupAndTheEndsFromTheHourly() throws SQLException {
+        // From 22:00 on day 0 to 03:00 on day 2: two hours of day 0, all of day 1, three hours of day 2
+        Map<Long, RollupTotals> totals = totals(at(DAY_0, 22), at(DAY_2, 3), List.of());
+        assertEquals(List.of(1L, 2L), List.copyOf(totals.keySet()));
+        assertEquals(2 + 4 + 8 + 16 + 32, totals.get(1L).executions());
+        assertEquals(128 + 256, totals.get(2L).executions());
+        assertEquals(62, totals.get(1L).histogram.total());
+        assertEquals(62 * 10, totals.get(1L).totalDuration());
+        assertEquals(10L, totals.get(1L).executionDuration().max());
+    }
+
+    @Test
+    void aWindowWithinOneDayReadsOnlyHours() throws SQLException {
+        Map<Long, RollupTotals> totals = totals(at(DAY_1, 4), at(DAY_1, 6), List.of());
+        assertEquals(List.of(1L), List.copyOf(totals.keySet()));
+        assertEquals(1 << 11, totals.get(1L).executions());
+
+        // Ending at midnight, and starting at it
+        assertEquals(4, totals(at(DAY_0, 23), at(DAY_1, 0), List.of()).get(1L).executions());
+        assertEquals(16 + 32, totals(at(DAY_2, 0), at(DAY_2, 3), List.of(1L)).get(1L).executions());
+    }
+
+    @Test
+    void aWindowOnDayBoundariesReadsOnlyDays() throws SQLException {
+        Map<Long, RollupTotals> totals = totals(at(DAY_1, 0), at(DAY_2, 0), List.of());
+        assertEquals(8, totals.get(1L).executions());
+        assertEquals(256, totals.get(2L).executions());
+
+        assertEquals(8 + (1 << 12), totals(at(DAY_1, 0), at(DAY_2.plusDays(1), 0), List.of(1L)).get(1L).executions());
+    }
+
+    @Test
+    void filtersByPlan() throws SQLException {
+        Map<Long, RollupTotals> totals = totals(at(DAY_0, 22), at(DAY_2, 3), List.of(2L));
+        assertEquals(List.of(2L), List.copyOf(totals.keySet()));
+        assertEquals(128 + 256, totals.get(2L).executions());
+
+        assertEquals(2, totals(at(DAY_0, 22), at(DAY_2, 3), List.of(1L, 2L, 3L)).size());
+        assertTrue(totals(at(DAY_2.plusDays(1), 0), at(DAY_2.plusDays(2), 0), List.of()).isEmpty());
+    }
+
+    private Map<Long, RollupTotals> totals(long from, long to, List<Long> planIds) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return rollups.totalsByPlan(conn, from, to, planIds);
+        }
+    }
+
+    private static long at(LocalDate date, int hour) {
+        return date.atStartOfDay(ZONE).plusHours(hour).toInstant().toEpochMilli();
+    }
+
+    private static void hour(Connection conn, long planId, LocalDate date, int hour, int executions) throws SQLException {
+        insert(conn, "plan_rollup_hour", planId, at(date, hour), executions);
+    }
+
+    private static void day(Connection conn, long planId, LocalDate date, int executions) throws SQLException {
+        insert(conn, "plan_rollup_day", planId, at(date, 0), executions);
+    }
+
+    /**
+     * A row of {@code executions} passed executions of one result and 10 ms each.
+     */
+    private static void insert(Connection conn, String table, long planId, long bucketStart, int executions) throws SQLException {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int i = 0; i < executions; i++) histogram.add(10);
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO " + table + " (plan_id, bucket_start, "
+                + RollupTotals.COLUMNS + ", refreshed_at) VALUES (?, ?, ?, ?, 0, ?, 0, 0, ?, 10, ?, 0)")) {
+            ps.setLong(1, planId);
+            ps.setLong(2, bucketStart);
+            ps.setInt(3, executions);
+            ps.setInt(4, executions);
+            ps.setInt(5, executions);
+            ps.setLong(6, executions * 10L);
+            ps.setBytes(7, histogram.toBytes());
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.puckowski.testing.report;
+
+import com.puckowski.testing.dto.DurationStatsDTO;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupTotalsTest {
+
+    @Test
+    void emptyTotalsHaveNoRatesOrDurations() {
+        RollupTotals totals = new RollupTotals();
+        assertEquals(0, totals.executions());
+        assertNull(totals.passRate());
+        assertNull(totals.failRate());
+        assertEquals(new DurationStatsDTO(null, null, null, null, null), totals.executionDuration());
+    }
+
+    @Test
+    void ratesAreOverCompletedResults() {
+        RollupTotals totals = new RollupTotals();
+        // results, pending, passed, failed, blocked, duration
+        totals.addExecution(10, 2, 6, 1, 1, 120);
+        totals.addExecution(4, 4, 0, 0, 0, 0);
+        assertEquals(2, totals.executions());
+        assertEquals(14, totals.results());
+        assertEquals(8, totals.completed());
+        assertEquals(0.75, totals.passRate());
+        assertEquals(0.125, totals.failRate());
+        assertEquals(1, totals.blocked());
+        assertEquals(120, totals.totalDuration());
+
+        RollupTotals allPending = new RollupTotals();
+        allPending.addExecution(3, 3, 0, 0, 0, 0);
+        assertNull(allPending.passRate());
+    }
+
+    @Test
+    void percentilesNeverExceedTheMaximum() {
+        RollupTotals totals = new RollupTotals();
+        for (int duration = 1; duration <= 100; duration++) {
+            totals.addExecution(1, 0, 1, 0, 0, duration);
+        }
+        DurationStatsDTO stats = totals.executionDuration();
+        assertEquals(100L, stats.max());
+        // The top bin covers 96..103 and is reported by its midpoint
+        assertEquals(99L, stats.p99());
+        assertTrue(Math.abs(stats.p50() - 50) <= 50 / 16 + 1, stats.toString());
+        assertTrue(Math.abs(stats.p90() - 90) <= 90 / 16 + 1, stats.toString());
+
+        // A midpoint above the largest duration is capped at it
+        RollupTotals single = new RollupTotals();
+        single.addExecution(1, 0, 1, 0, 0, 97);
+        assertEquals(new DurationStatsDTO(97L, 97L, 97L, 97L, 97L), single.executionDuration());
+    }
+
+    @Test
+    void mergeAddsCountsAndKeepsTheLargerMaximum() {
+        RollupTotals a = new RollupTotals();
+        a.addExecution(5, 0, 5, 0, 0, 40);
+        RollupTotals b = new RollupTotals();
+        b.addExecution(3, 1, 0, 2, 0, 900);
+        b.addExecution(2, 0, 1, 0, 1, 10);
+
+        a.merge(b);
+        assertEquals(3, a.executions());
+        assertEquals(10, a.results());
+        assertEquals(9, a.completed());
+        assertEquals(6, a.passed());
+        assertEquals(2, a.failed());
+        assertEquals(1, a.blocked());
+        assertEquals(950, a.totalDuration());
+        assertEquals(900L, a.executionDuration().max());
+        assertEquals(3, a.histogram.total());
+    }
+}
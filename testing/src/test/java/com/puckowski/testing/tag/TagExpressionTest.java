@@ -0,0 +1,70 @@
+package com.puckowski.testing.tag;
+
+import com.puckowski.testing.tag.TagExpression.And;
+import com.puckowski.testing.tag.TagExpression.Not;
+import com.puckowski.testing.tag.TagExpression.Or;
+import com.puckowski.testing.tag.TagExpression.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagExpressionTest {
+
+    private static final Tag A = new Tag("a");
+    private static final Tag B = new Tag("b");
+    private static final Tag C = new Tag("c");
+
+    @Test
+    void andBindsTighterThanOr() {
+        assertEquals(new Or(List.of(A, new And(List.of(B, C)))), TagExpression.parse("a OR b AND c"));
+        assertEquals(new Or(List.of(new And(List.of(A, B)), C)), TagExpression.parse("a AND b OR c"));
+    }
+
+    @Test
+    void notBindsTighterThanAnd() {
+        assertEquals(new And(List.of(new Not(A), B)), TagExpression.parse("NOT a AND b"));
+        assertEquals(new And(List.of(A, new Not(B))), TagExpression.parse("a AND NOT b"));
+        assertEquals(new Not(new Not(A)), TagExpression.parse("NOT NOT a"));
+    }
+
+    @Test
+    void parenthesesOverridePrecedence() {
+        assertEquals(new And(List.of(new Or(List.of(A, B)), C)), TagExpression.parse("(a OR b) AND c"));
+        assertEquals(new Not(new Or(List.of(A, B))), TagExpression.parse("NOT (a OR b)"));
+        assertEquals(new And(List.of(A, B)), TagExpression.parse("(a)AND(b)"));
+    }
+
+    @Test
+    void operatorsAreCaseInsensitive() {
+        assertEquals(new Or(List.of(A, new And(List.of(B, new Not(C))))), TagExpression.parse("a or b And not c"));
+    }
+
+    @Test
+    void quotedTagsMayLookLikeOperatorsOrContainSpaces() {
+        assertEquals(new Or(List.of(new Tag("and"), new Tag("release candidate"))),
+                TagExpression.parse("\"and\" OR \"release candidate\""));
+        assertEquals(new And(List.of(new Tag("NOT"), new Tag("(x)"))), TagExpression.parse("\"NOT\" AND \"(x)\""));
+    }
+
+    @Test
+    void tagsKeepTheirCase() {
+        assertEquals(new Tag("Smoke-EU"), TagExpression.parse("  Smoke-EU "));
+    }
+
+    @Test
+    void rejectsMalformedExpressions() {
+        for (String text : List.of("", "   ", "a AND", "AND a", "a OR OR b", "NOT", "(a OR b", "a OR b)", "()",
+                "a b", "\"unterminated", "a AND )")) {
+            assertThrows(IllegalArgumentException.class, () -> TagExpression.parse(text), text);
+        }
+    }
+
+    @Test
+    void rejectsExpressionsOverTheTokenLimit() {
+        String atLimit = "a OR ".repeat((TagExpression.MAX_TOKENS - 1) / 2) + "a";
+        assertDoesNotThrow(() -> TagExpression.parse(atLimit));
+        assertThrows(IllegalArgumentException.class, () -> TagExpression.parse(atLimit + " OR a"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.puckowski.testing.tag;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.roaringbitmap.RoaringBitmap.bitmapOf;
+
+class TagIndexTest {
+
+    // Plans 1-6; plan 6 has no tags
+    private static final TagIndex.Snapshot SNAPSHOT = new TagIndex.Snapshot(bitmapOf(1, 2, 3, 4, 5, 6), Map.of(
+            "smoke", bitmapOf(1, 2, 3),
+            "payments", bitmapOf(2, 3, 4),
+            "flaky", bitmapOf(3, 5)));
+
+    @Test
+    void evaluatesSingleTags() {
+        assertEquals(bitmapOf(1, 2, 3), evaluate("smoke"));
+        assertEquals(new RoaringBitmap(), evaluate("unknown"));
+    }
+
+    @Test
+    void evaluatesOperators() {
+        assertEquals(bitmapOf(2, 3), evaluate("smoke AND payments"));
+        assertEquals(bitmapOf(1, 2, 3, 5), evaluate("smoke OR flaky"));
+        assertEquals(bitmapOf(1, 2, 4, 6), evaluate("NOT flaky"));
+        assertEquals(bitmapOf(1, 3, 5), evaluate("(smoke OR flaky) AND NOT (payments AND NOT flaky)"));
+        assertEquals(new RoaringBitmap(), evaluate("smoke AND unknown"));
+    }
+
+    @Test
+    void andNotSubtractsFromThePositiveOperands() {
+        assertEquals(bitmapOf(2), evaluate("smoke AND payments AND NOT flaky"));
+        assertEquals(bitmapOf(2), evaluate("NOT flaky AND smoke AND payments"));
+        // With no positive operand the subtraction starts from all plans
+        assertEquals(bitmapOf(4, 6), evaluate("NOT flaky AND NOT smoke"));
+    }
+
+    @Test
+    void evaluationLeavesTheSnapshotUntouched() {
+        evaluate("smoke AND NOT flaky");
+        evaluate("NOT smoke AND NOT payments");
+        assertEquals(bitmapOf(1, 2, 3), SNAPSHOT.byTag().get("smoke"));
+        assertEquals(bitmapOf(1, 2, 3, 4, 5, 6), SNAPSHOT.plans());
+    }
+
+    @Test
+    void applyAddsAndRemovesTagsOfOnePlan() {
+        TagIndex.Snapshot next = TagIndex.apply(SNAPSHOT, 5, true, Set.of("smoke"));
+        assertEquals(bitmapOf(1, 2, 3, 5), next.byTag().get("smoke"));
+        assertEquals(bitmapOf(3), next.byTag().get("flaky"));
+        assertSame(SNAPSHOT.byTag().get("payments"), next.byTag().get("payments"));
+        assertSame(SNAPSHOT.plans(), next.plans());
+        // The published snapshot is never modified
+        assertEquals(bitmapOf(3, 5), SNAPSHOT.byTag().get("flaky"));
+    }
+
+    @Test
+    void applyAddsNewPlansAndDropsEmptiedTags() {
+        TagIndex.Snapshot created = TagIndex.apply(SNAPSHOT, 7, true, Set.of("nightly"));
+        assertEquals(bitmapOf(1, 2, 3, 4, 5, 6, 7), created.plans());
+        assertEquals(bitmapOf(7), created.byTag().get("nightly"));
+
+        TagIndex.Snapshot deleted = TagIndex.apply(created, 7, false, Set.of());
+        assertEquals(bitmapOf(1, 2, 3, 4, 5, 6), deleted.plans());
+        assertFalse(deleted.byTag().containsKey("nightly"));
+    }
+
+    @Test
+    void pagesAscending() {
+        RoaringBitmap ids = bitmapOf(1, 2, 3, 5, 8);
+        assertEquals(List.of(1L, 2L), TagIndex.page(ids, null, false, 2));
+        assertEquals(List.of(3L, 5L), TagIndex.page(ids, 2L, false, 2));
+        assertEquals(List.of(5L, 8L), TagIndex.page(ids, 4L, false, 10));
+        assertEquals(List.of(), TagIndex.page(ids, 8L, false, 2));
+        assertEquals(List.of(1L, 2L), TagIndex.page(ids, -5L, false, 2));
+    }
+
+    @Test
+    void pagesDescending() {
+        RoaringBitmap ids = bitmapOf(1, 2, 3, 5, 8);
+        assertEquals(List.of(8L, 5L), TagIndex.page(ids, null, true, 2));
+        assertEquals(List.of(3L, 2L), TagIndex.page(ids, 5L, true, 2));
+        assertEquals(List.of(3L, 2L, 1L), TagIndex.page(ids, 4L, true, 10));
+        assertEquals(List.of(), TagIndex.page(ids, 1L, true, 2));
+        assertEquals(List.of(), TagIndex.page(ids, 0L, true, 2));
+        assertEquals(List.of(), TagIndex.page(ids, -1L, true, 2));
+    }
+
+    @Test
+    void pagesAtTheEndsOfTheIdRange() {
+        RoaringBitmap ids = bitmapOf(0, Integer.MAX_VALUE - 1, Integer.MAX_VALUE);
+        long max = Integer.MAX_VALUE;
+
+        assertEquals(List.of(0L, max - 1, max), TagIndex.page(ids, null, false, 10));
+        assertEquals(List.of(max), TagIndex.page(ids, max - 1, false, 10));
+        assertEquals(List.of(), TagIndex.page(ids, max, false, 10));
+        assertEquals(List.of(), TagIndex.page(ids, Long.MAX_VALUE, false, 10));
+
+        assertEquals(List.of(max, max - 1, 0L), TagIndex.page(ids, null, true, 10));
+        assertEquals(List.of(max, max - 1), TagIndex.page(ids, Long.MAX_VALUE, true, 2));
+        assertEquals(List.of(max - 1, 0L), TagIndex.page(ids, max, true, 10));
+        assertEquals(List.of(0L), TagIndex.page(ids, 1L, true, 10));
+    }
+
+    private static RoaringBitmap evaluate(String expression) {
+        return TagIndex.evaluate(SNAPSHOT, TagExpression.parse(expression));
+    }
+}